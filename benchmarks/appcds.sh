@@ -0,0 +1,71 @@
+#!/bin/sh
+#
+# AppCDS（应用类数据共享）归档与冷启动对比，需要 JDK 13+（动态归档）
+# 先 mvn package 生成 target/benchmarks.jar，再在本目录运行：
+#   ./appcds.sh
+# 步骤：
+#   1. 以 -Xshare:off（不共享）和 JDK 默认 CDS（只共享 JDK 自带的类）运行 StartupProbe 作为对照
+#   2. 以 -XX:ArchiveClassesAtExit 运行一次，把本次加载的应用类和依赖类写入归档
+#   3. 以 -XX:SharedArchiveFile 使用归档运行，对比 JVM 启动到首批调用完成的耗时、已加载的类数和从归档加载的类数
+# 归档和 classpath 绑定，jar 变化或 classpath 顺序变化后需要重新生成；生产环境在镜像构建阶段执行第 2 步，
+# 启动参数加上 -XX:SharedArchiveFile=app.jsa。JDK 11 使用静态归档：
+#   java -XX:DumpLoadedClassList=app.lst -cp app.jar Main
+#   java -Xshare:dump -XX:SharedClassListFile=app.lst -XX:SharedArchiveFile=app.jsa -cp app.jar
+#   java -XX:SharedArchiveFile=app.jsa -cp app.jar Main
+#
+# 环境变量：JAVA（默认 java）、JAR、MAIN（默认 StartupProbe）、RUNS（每种方式运行次数，默认 5）、ARCHIVE
+
+JAVA=${JAVA:-java}
+JAR=${JAR:-target/benchmarks.jar}
+MAIN=${MAIN:-com.tlf.wechat.bench.load.StartupProbe}
+RUNS=${RUNS:-5}
+ARCHIVE=${ARCHIVE:-target/app-cds.jsa}
+LOG=target/appcds-class-load.log
+
+if [ ! -f "$JAR" ]; then
+    echo "$JAR 不存在，先执行 mvn package" >&2
+    exit 1
+fi
+
+# 运行 RUNS 次，输出平均值；再运行一次统计从归档加载的类数
+measure() {
+    label=$1
+    shift
+    i=0
+    results=""
+    while [ "$i" -lt "$RUNS" ]; do
+        line=$("$JAVA" "$@" -cp "$JAR" "$MAIN" 2>/dev/null | grep '^uptime=')
+        if [ -z "$line" ]; then
+            echo "$label 运行失败" >&2
+            return 1
+        fi
+        results="$results$line
+"
+        i=$((i + 1))
+    done
+    "$JAVA" "$@" -Xlog:class+load=info:file="$LOG" -cp "$JAR" "$MAIN" >/dev/null 2>&1
+    shared=$(grep -c 'shared objects file' "$LOG")
+    printf '%s' "$results" | awk -v label="$label" -v runs="$RUNS" -v shared="$shared" '
+        {
+            for (i = 1; i <= NF; i++) {
+                split($i, kv, "=")
+                sum[kv[1]] += kv[2]
+            }
+        }
+        END {
+            printf "%-10s uptime=%6.0fms calls=%6.0fms classes=%6.0f shared=%6d\n", label, sum["uptime"] / runs, sum["calls"] / runs, sum["classes"] / runs, shared
+        }'
+}
+
+measure "no-cds" -Xshare:off || exit 1
+measure "jdk-cds" || exit 1
+
+rm -f "$ARCHIVE"
+"$JAVA" -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" "$MAIN" >/dev/null 2>&1
+if [ ! -f "$ARCHIVE" ]; then
+    echo "生成归档失败，需要 JDK 13+" >&2
+    exit 1
+fi
+echo "archive $ARCHIVE $(du -h "$ARCHIVE" | cut -f1)"
+
+measure "app-cds" -XX:SharedArchiveFile="$ARCHIVE" || exit 1
@@ -0,0 +1,106 @@
+package com.tlf.wechat.bench;
+
+import com.tlf.wechat.aes.WeChatBizDataUtil;
+import com.tlf.wechat.pay.v3.WeChatPayAesUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 解密：支付回调的 AEAD_AES_256_GCM（WeChatPayAesUtil.decryptToString），
+ * 小程序加密数据的 AES-128-CBC（WeChatBizDataUtil.decryptWxData 由 JDK 校验补位，decryptWxDataOfHutool 手动去除补位）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecryptBenchmark {
+
+    private static final String V3_KEY = "a7cde1ef4b2d49d2b3e0f1a2b3c4d5e6";
+
+    /**
+     * 支付成功回调 resource 解密后的明文
+     */
+    private static final String TRANSACTION = "{\"mchid\":\"1900000109\",\"appid\":\"wxd678efh567hg6787\","
+            + "\"out_trade_no\":\"T202306011200000001\",\"transaction_id\":\"4200001234202306011234567890\","
+            + "\"trade_type\":\"JSAPI\",\"trade_state\":\"SUCCESS\",\"trade_state_desc\":\"支付成功\",\"bank_type\":\"CMC\","
+            + "\"attach\":\"T202306011200000001\",\"success_time\":\"2023-06-01T12:00:30+08:00\","
+            + "\"payer\":{\"openid\":\"oUpF8uMuAJO_M2pxb1Q9zNjWeS6o\"},"
+            + "\"amount\":{\"total\":100,\"payer_total\":100,\"currency\":\"CNY\",\"payer_currency\":\"CNY\"}}";
+
+    /**
+     * getuserphonenumber 之前的 encryptedData 明文
+     */
+    private static final String PHONE = "{\"phoneNumber\":\"13580006666\",\"purePhoneNumber\":\"13580006666\","
+            + "\"countryCode\":\"86\",\"watermark\":{\"appid\":\"wxd678efh567hg6787\",\"timestamp\":1686000000}}";
+
+    private WeChatPayAesUtil aesUtil;
+    private byte[] associatedData;
+    private byte[] nonce;
+    private String ciphertext;
+
+    private String encryptedData;
+    private String sessionKey;
+    private String iv;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        byte[] key = V3_KEY.getBytes(StandardCharsets.UTF_8);
+        aesUtil = new WeChatPayAesUtil(key);
+        associatedData = "transaction".getBytes(StandardCharsets.UTF_8);
+        nonce = "fdasflkja484".getBytes(StandardCharsets.UTF_8);
+        Cipher gcm = Cipher.getInstance("AES/GCM/NoPadding");
+        gcm.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, nonce));
+        gcm.updateAAD(associatedData);
+        ciphertext = Base64.getEncoder().encodeToString(gcm.doFinal(TRANSACTION.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] sessionKeyBytes = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        byte[] ivBytes = "fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+        Cipher cbc = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cbc.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(sessionKeyBytes, "AES"), new IvParameterSpec(ivBytes));
+        encryptedData = Base64.getEncoder().encodeToString(cbc.doFinal(PHONE.getBytes(StandardCharsets.UTF_8)));
+        sessionKey = Base64.getEncoder().encodeToString(sessionKeyBytes);
+        iv = Base64.getEncoder().encodeToString(ivBytes);
+
+        if (!PHONE.equals(WeChatBizDataUtil.decryptWxData(encryptedData, sessionKey, iv))
+                || !PHONE.equals(WeChatBizDataUtil.decryptWxDataOfHutool(encryptedData, sessionKey, iv))
+                || !TRANSACTION.equals(decryptToString())) {
+            throw new IllegalStateException("解密结果不一致");
+        }
+    }
+
+
+    @Benchmark
+    public String decryptToString() throws Exception {
+        return aesUtil.decryptToString(associatedData, nonce, ciphertext);
+    }
+
+    @Benchmark
+    public String decryptWxData() {
+        return WeChatBizDataUtil.decryptWxData(encryptedData, sessionKey, iv);
+    }
+
+    @Benchmark
+    public String decryptWxDataOfHutool() {
+        return WeChatBizDataUtil.decryptWxDataOfHutool(encryptedData, sessionKey, iv);
+    }
+}
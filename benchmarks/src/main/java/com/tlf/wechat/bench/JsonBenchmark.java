@@ -0,0 +1,80 @@
+package com.tlf.wechat.bench;
+
+import com.alibaba.fastjson.JSON;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.tlf.wechat.pay.v3.WeChatPayConfig;
+import com.tlf.wechat.pay.v3.WeChatPayService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 下单参数序列化：WeChatPayService.parameters* 生成的 Map 用 fastjson 与 Gson 转成请求体
+ * gsonPerCall 即 WeChatPayApi 目前的做法（每次 new GsonBuilder().create()），gsonShared 复用同一个 Gson 实例
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    @Param({"jsapi", "native", "h5"})
+    public String apiType;
+
+    private SortedMap<Object, Object> parameters;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        WeChatPayConfig config = new WeChatPayConfig("wxd678efh567hg6787", "1900000109", "5157F09EFDC096DE15EBE81A47057A7232F1B8E1",
+                "a7cde1ef4b2d49d2b3e0f1a2b3c4d5e6", "https://www.weixin.qq.com/wxpay/pay.php",
+                "classpath:stub/merchant_private_key.pem", "https://www.weixin.qq.com/wxpay/refund.php");
+        String orderNumber = "T202306011200000001";
+        String goodInfo = "Image形象店-深圳腾大-QQ公仔";
+        BigDecimal money = new BigDecimal("1.00");
+        switch (apiType) {
+            case "native":
+                parameters = WeChatPayService.parametersNATIVE(orderNumber, goodInfo, money, config);
+                break;
+            case "h5":
+                parameters = WeChatPayService.parametersH5(orderNumber, goodInfo, money, "127.0.0.1", config);
+                break;
+            default:
+                parameters = WeChatPayService.parametersJSAPI(orderNumber, goodInfo, money, "oUpF8uMuAJO_M2pxb1Q9zNjWeS6o", config);
+        }
+    }
+
+
+    @Benchmark
+    public String fastjson() {
+        return JSON.toJSONString(parameters);
+    }
+
+    @Benchmark
+    public String gsonPerCall() {
+        return new GsonBuilder().create().toJson(parameters);
+    }
+
+    @Benchmark
+    public String gsonShared() {
+        return GSON.toJson(parameters);
+    }
+}
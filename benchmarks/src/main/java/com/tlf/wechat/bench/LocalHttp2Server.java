@@ -0,0 +1,92 @@
+package com.tlf.wechat.bench;
+
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * 本地 HTTPS 服务（Jetty），通过 ALPN 协商 HTTP/2 或 HTTP/1.1，使用自签名证书
+ * 每个请求等待 delayMillis 后返回固定的 JSON 响应，模拟微信接口的响应时间
+ */
+public class LocalHttp2Server implements AutoCloseable {
+
+    private final Server server;
+    private final ServerConnector connector;
+    private final SelfSignedCertificate certificate;
+
+    public LocalHttp2Server(String body, final long delayMillis) throws Exception {
+        certificate = new SelfSignedCertificate();
+        final byte[] content = body.getBytes(StandardCharsets.UTF_8);
+
+        server = new Server(new QueuedThreadPool(1024));
+        HttpConfiguration config = new HttpConfiguration();
+        config.addCustomizer(new SecureRequestCustomizer());
+        HttpConnectionFactory http11 = new HttpConnectionFactory(config);
+        HTTP2ServerConnectionFactory h2 = new HTTP2ServerConnectionFactory(config);
+        h2.setMaxConcurrentStreams(1024);
+        ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory();
+        alpn.setDefaultProtocol(http11.getProtocol());
+
+        SslContextFactory.Server ssl = new SslContextFactory.Server();
+        ssl.setKeyStore(certificate.getKeyStore());
+        ssl.setKeyStorePassword(SelfSignedCertificate.PASSWORD);
+        ssl.setCipherComparator(HTTP2Cipher.COMPARATOR);
+        SslConnectionFactory tls = new SslConnectionFactory(ssl, alpn.getProtocol());
+
+        connector = new ServerConnector(server, tls, alpn, h2, http11);
+        connector.setHost("127.0.0.1");
+        connector.setPort(0);
+        connector.setAcceptQueueSize(1024);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                if (delayMillis > 0) {
+                    try {
+                        Thread.sleep(delayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                response.setContentType("application/json;charset=UTF-8");
+                response.setContentLength(content.length);
+                response.getOutputStream().write(content);
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+    }
+
+    public int getPort() {
+        return connector.getLocalPort();
+    }
+
+    public String getTrustStorePath() {
+        return certificate.getTrustStorePath();
+    }
+
+    public String getTrustStorePassword() {
+        return SelfSignedCertificate.PASSWORD;
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stop();
+    }
+}
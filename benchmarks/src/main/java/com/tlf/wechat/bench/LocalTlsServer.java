@@ -0,0 +1,115 @@
+package com.tlf.wechat.bench;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * 本地 TLS 服务，使用自签名证书（见 SelfSignedCertificate）
+ * 每个连接完成握手后按 HTTP/1.1 返回固定的 JSON 响应，直到客户端关闭连接
+ */
+public class LocalTlsServer implements AutoCloseable {
+
+    private final SSLServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "local-tls-server");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final SelfSignedCertificate certificate;
+    private final byte[] response;
+
+    public LocalTlsServer(String body) throws Exception {
+        certificate = new SelfSignedCertificate();
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(certificate.getKeyStore(), SelfSignedCertificate.PASSWORD.toCharArray());
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(kmf.getKeyManagers(), null, null);
+
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 200 OK\r\nContent-Type: application/json;charset=UTF-8\r\nContent-Length: "
+                + content.length + "\r\nKeep-Alive: timeout=30\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.US_ASCII);
+        response = new byte[headBytes.length + content.length];
+        System.arraycopy(headBytes, 0, response, 0, headBytes.length);
+        System.arraycopy(content, 0, response, headBytes.length, content.length);
+
+        serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory()
+                .createServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getTrustStorePath() {
+        return certificate.getTrustStorePath();
+    }
+
+    public String getTrustStorePassword() {
+        return SelfSignedCertificate.PASSWORD;
+    }
+
+    @Override
+    public void close() throws Exception {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                SSLSocket socket = (SSLSocket) serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (SocketException closed) {
+                return;
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    /**
+     * 读到一个完整请求头（及 Content-Length 指定的请求体）就返回一次响应
+     */
+    private void serve(SSLSocket socket) {
+        try (SSLSocket s = socket) {
+            s.startHandshake();
+            InputStream in = s.getInputStream();
+            OutputStream out = s.getOutputStream();
+            StringBuilder head = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                head.append((char) b);
+                if (head.length() >= 4 && head.lastIndexOf("\r\n\r\n") == head.length() - 4) {
+                    int length = contentLength(head.toString());
+                    for (int i = 0; i < length; i++) {
+                        in.read();
+                    }
+                    out.write(response);
+                    out.flush();
+                    head.setLength(0);
+                }
+            }
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static int contentLength(String head) {
+        for (String line : head.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                return Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.tlf.wechat.bench;
+
+import com.tlf.wechat.http.metrics.EndpointMetrics;
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.metrics.MicrometerMetricsRecorder;
+import com.tlf.wechat.http.metrics.NoopMetricsRecorder;
+import com.tlf.wechat.http.metrics.SimpleMetricsRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 指标的记录开销：查找接口指标并记录一次请求、记录一次操作
+ * 不带参数的路径（/cgi-bin/token）和操作应为 0 B/op；带订单号的路径每次需要替换参数，作为对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private static final String HOST = "api.weixin.qq.com";
+
+    @Param({"noop", "simple", "micrometer"})
+    public String recorder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (recorder) {
+            case "simple":
+                Metrics.setRecorder(new SimpleMetricsRecorder());
+                break;
+            case "micrometer":
+                Metrics.setRecorder(new MicrometerMetricsRecorder(new SimpleMeterRegistry()));
+                break;
+            default:
+                Metrics.setRecorder(NoopMetricsRecorder.INSTANCE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Metrics.setRecorder(null);
+    }
+
+
+    @Benchmark
+    public EndpointMetrics endpoint() {
+        EndpointMetrics metrics = Metrics.endpoint(HOST, "/cgi-bin/token");
+        metrics.started();
+        metrics.completed(200, 25_000_000L);
+        return metrics;
+    }
+
+    @Benchmark
+    public EndpointMetrics endpointWithId() {
+        EndpointMetrics metrics = Metrics.endpoint("api.mch.weixin.qq.com", "/v3/pay/transactions/out-trade-no/T202401010001");
+        metrics.started();
+        metrics.completed(200, 25_000_000L);
+        return metrics;
+    }
+
+    @Benchmark
+    public void operation() {
+        Metrics.record(Metrics.Operation.PAY_SIGN, System.nanoTime() - 1_000_000L, true);
+    }
+}
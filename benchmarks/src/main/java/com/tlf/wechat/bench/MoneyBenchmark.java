@@ -0,0 +1,52 @@
+package com.tlf.wechat.bench;
+
+import com.tlf.wechat.pay.v3.WeChatPayUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 元转分：getMoney(String)（正则去掉货币符号和千分位后按小数点位置拼接）与 getMoney(BigDecimal)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"100", "0.01", "1,234.56", "￥88.8"})
+    public String money;
+
+    private BigDecimal decimal;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        decimal = new BigDecimal(money.replaceAll("\\$|\\￥|\\,", ""));
+    }
+
+
+    @Benchmark
+    public Integer getMoneyString() {
+        return WeChatPayUtil.getMoney(money);
+    }
+
+    @Benchmark
+    public Integer getMoneyBigDecimal() {
+        return WeChatPayUtil.getMoney(decimal);
+    }
+}
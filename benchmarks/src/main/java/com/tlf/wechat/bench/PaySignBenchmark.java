@@ -0,0 +1,87 @@
+package com.tlf.wechat.bench;
+
+import com.tlf.wechat.pay.v3.WeChatPayUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * v3 请求签名：getToken（URL 重新解析与 canonical URL 两种重载）、sign（SHA256withRSA）、buildMessage、getNonceStr
+ * 签名以 RSA 私钥运算为主，多线程扩展性用 ScalingRunner 测量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaySignBenchmark {
+
+    private static final String MCH_ID = "1900000109";
+    private static final String MCH_SERIAL_NO = "5157F09EFDC096DE15EBE81A47057A7232F1B8E1";
+    private static final String CANONICAL_URL = "/v3/pay/transactions/jsapi";
+    private static final String BODY = "{\"amount\":{\"total\":100,\"currency\":\"CNY\"},\"appid\":\"wxd678efh567hg6787\","
+            + "\"attach\":\"T202306011200000001\",\"description\":\"Image形象店-深圳腾大-QQ公仔\",\"mchid\":\"1900000109\","
+            + "\"notify_url\":\"https://www.weixin.qq.com/wxpay/pay.php\",\"out_trade_no\":\"T202306011200000001\","
+            + "\"payer\":{\"openid\":\"oUpF8uMuAJO_M2pxb1Q9zNjWeS6o\"}}";
+
+    private PrivateKey privateKey;
+    private URL url;
+    private byte[] message;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        privateKey = generator.generateKeyPair().getPrivate();
+        url = new URL("https://api.mch.weixin.qq.com" + CANONICAL_URL);
+        message = WeChatPayUtil.buildMessage("POST", CANONICAL_URL, 1686000000L, "593BEC0C930BF1AFEB40B4A08C8FB242", BODY)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    @Benchmark
+    public String getToken() throws Exception {
+        return WeChatPayUtil.getToken(MCH_ID, MCH_SERIAL_NO, privateKey, "POST", CANONICAL_URL, BODY);
+    }
+
+    @Benchmark
+    public String getTokenByUrl() throws Exception {
+        return WeChatPayUtil.getToken(MCH_ID, MCH_SERIAL_NO, privateKey, "POST", url, BODY);
+    }
+
+    @Benchmark
+    public String sign() throws Exception {
+        return WeChatPayUtil.sign(message, privateKey);
+    }
+
+    @Benchmark
+    public String buildMessage() {
+        return WeChatPayUtil.buildMessage("POST", CANONICAL_URL, 1686000000L, "593BEC0C930BF1AFEB40B4A08C8FB242", BODY);
+    }
+
+    @Benchmark
+    public String getNonceStr() {
+        return WeChatPayUtil.getNonceStr();
+    }
+
+    @Benchmark
+    public String getNonceStr32() {
+        return WeChatPayUtil.getNonceStr(32);
+    }
+}
@@ -0,0 +1,138 @@
+package com.tlf.wechat.bench;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/**
+ * 按不同线程数运行基准测试并开启 gc profiler，汇总吞吐量、每次操作的分配字节数和多线程扩展效率：
+ * <pre>
+ * java -cp target/benchmarks.jar com.tlf.wechat.bench.ScalingRunner "PaySignBenchmark|DecryptBenchmark" threads=1,2,4,8
+ * </pre>
+ * iterations=N 覆盖预热和测量的迭代次数，用于快速检查。
+ * 扩展效率 = N 线程吞吐量 / (1 线程吞吐量 × N)，接近 1 说明没有共享资源的竞争；
+ * 分配字节数随版本上升或扩展效率下降即为性能回退。不传参数时运行本模块的所有吞吐量基准测试
+ */
+public class ScalingRunner {
+
+    private static final String DEFAULT_INCLUDE = "PaySignBenchmark|DecryptBenchmark|MoneyBenchmark|JsonBenchmark|UrlBuildBenchmark|MetricsBenchmark";
+
+
+    public static void main(String[] args) throws Exception {
+        String include = DEFAULT_INCLUDE;
+        List<Integer> threads = new ArrayList<>();
+        int iterations = 0;
+        for (String arg : args) {
+            if (arg.startsWith("iterations=")) {
+                iterations = Integer.parseInt(arg.substring("iterations=".length()));
+            } else if (arg.startsWith("threads=")) {
+                for (String t : arg.substring("threads=".length()).split(",")) {
+                    threads.add(Integer.parseInt(t.trim()));
+                }
+            } else {
+                include = arg;
+            }
+        }
+        if (threads.isEmpty()) {
+            threads.add(1);
+            threads.add(2);
+            threads.add(4);
+            int cpus = Runtime.getRuntime().availableProcessors();
+            if (cpus > 4) {
+                threads.add(cpus);
+            }
+        }
+
+        // 基准测试（含参数） -> 线程数 -> 结果
+        Map<String, Map<Integer, RunResult>> results = new LinkedHashMap<>();
+        for (int t : threads) {
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.include(include).threads(t).addProfiler(GCProfiler.class);
+            if (iterations > 0) {
+                builder.warmupIterations(iterations).measurementIterations(iterations);
+            }
+            Options options = builder.build();
+            for (RunResult result : new Runner(options).run()) {
+                results.computeIfAbsent(name(result.getParams()), k -> new LinkedHashMap<>()).put(t, result);
+            }
+        }
+        print(results, threads);
+    }
+
+
+    private static void print(Map<String, Map<Integer, RunResult>> results, List<Integer> threads) {
+        System.out.println();
+        StringBuilder header = new StringBuilder(String.format("%-60s", "benchmark"));
+        for (int t : threads) {
+            header.append(String.format(" %16s %10s %6s", "t=" + t + " score", "B/op", "eff"));
+        }
+        System.out.println(header);
+        for (Map.Entry<String, Map<Integer, RunResult>> entry : results.entrySet()) {
+            StringBuilder line = new StringBuilder(String.format("%-60s", entry.getKey()));
+            RunResult single = entry.getValue().get(threads.get(0));
+            double base = single == null ? 0 : single.getPrimaryResult().getScore() / threads.get(0);
+            for (int t : threads) {
+                RunResult result = entry.getValue().get(t);
+                if (result == null) {
+                    line.append(String.format(" %16s %10s %6s", "-", "-", "-"));
+                    continue;
+                }
+                Result primary = result.getPrimaryResult();
+                double score = primary.getScore();
+                double efficiency = base > 0 && isThroughput(primary) ? score / (base * t) : Double.NaN;
+                line.append(String.format(" %16s %10s %6s",
+                        String.format("%.1f %s", score, primary.getScoreUnit()),
+                        allocation(result),
+                        Double.isNaN(efficiency) ? "-" : String.format("%.2f", efficiency)));
+            }
+            System.out.println(line);
+        }
+    }
+
+
+    private static String name(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        benchmark = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+        TreeSet<String> keys = new TreeSet<>(params.getParamsKeys());
+        if (keys.isEmpty()) {
+            return benchmark;
+        }
+        StringBuilder sb = new StringBuilder(benchmark).append('(');
+        for (String key : keys) {
+            if (sb.charAt(sb.length() - 1) != '(') {
+                sb.append(',');
+            }
+            sb.append(key).append('=').append(params.getParam(key));
+        }
+        return sb.append(')').toString();
+    }
+
+
+    /**
+     * 每次操作分配的字节数，JMH 1.37 之前的指标名带有前缀 ·
+     */
+    private static String allocation(RunResult result) {
+        Map<String, Result> secondary = result.getSecondaryResults();
+        Result norm = secondary.get("gc.alloc.rate.norm");
+        if (norm == null) {
+            norm = secondary.get("·gc.alloc.rate.norm");
+        }
+        return norm == null ? "-" : String.format("%.0f", norm.getScore());
+    }
+
+
+    private static boolean isThroughput(Result result) {
+        return result.getScoreUnit().startsWith("ops/");
+    }
+}
@@ -0,0 +1,78 @@
+package com.tlf.wechat.bench;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+
+
+/**
+ * 本地服务使用的自签名证书（CN/SAN 为 localhost），以及只包含该证书的客户端信任库
+ */
+public class SelfSignedCertificate {
+
+    public static final String PASSWORD = "changeit";
+
+    private final KeyStore keyStore;
+    private final File trustStore;
+
+    public SelfSignedCertificate() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        X509Certificate certificate = selfSigned(keyPair);
+
+        keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("server", keyPair.getPrivate(), PASSWORD.toCharArray(), new X509Certificate[]{certificate});
+
+        KeyStore trust = KeyStore.getInstance("PKCS12");
+        trust.load(null, null);
+        trust.setCertificateEntry("server", certificate);
+        trustStore = File.createTempFile("wechat-bench-trust", ".p12");
+        trustStore.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(trustStore)) {
+            trust.store(out, PASSWORD.toCharArray());
+        }
+    }
+
+    /**
+     * 服务端密钥库，包含私钥和证书
+     */
+    public KeyStore getKeyStore() {
+        return keyStore;
+    }
+
+    /**
+     * 客户端信任库（PKCS12）路径
+     */
+    public String getTrustStorePath() {
+        return trustStore.getAbsolutePath();
+    }
+
+    private static X509Certificate selfSigned(KeyPair keyPair) throws Exception {
+        X500Name name = new X500Name("CN=localhost");
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                name, BigInteger.valueOf(now), new Date(now - 60000), new Date(now + 86400000L), name, keyPair.getPublic()
+        );
+        builder.addExtension(Extension.subjectAlternativeName, false,
+                new GeneralNames(new GeneralName(GeneralName.dNSName, "localhost")));
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate()))
+        );
+    }
+}
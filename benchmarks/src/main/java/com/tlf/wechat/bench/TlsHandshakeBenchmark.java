@@ -0,0 +1,115 @@
+package com.tlf.wechat.bench;
+
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.SslContextFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * TLS 握手开销：每次新建 SSLContext（完整握手，原 HttpUtil.sslClient 的做法）
+ * 与共享 SslContextFactory 创建的 SSLContext（会话恢复，简化握手）对比
+ * <p>
+ * 每次操作都新建 TCP 连接并完成握手，只比较握手本身，不包含连接池复用的收益
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsHandshakeBenchmark {
+
+    @Param({"TLSv1.2", "TLSv1.3"})
+    public String protocol;
+
+    private LocalTlsServer server;
+    private SSLConnectionSocketFactory sharedFactory;
+    private HttpHost host;
+    private InetSocketAddress address;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new LocalTlsServer("{\"errcode\":0}");
+        HttpClientConfig config = new HttpClientConfig();
+        config.setTrustStorePath(server.getTrustStorePath());
+        config.setTrustStorePassword(server.getTrustStorePassword());
+        config.setTrustStoreType("PKCS12");
+        config.setTlsProtocols(new String[]{protocol});
+        SSLContext sslContext = SslContextFactory.create(config);
+        sharedFactory = new SSLConnectionSocketFactory(
+                sslContext, SslContextFactory.protocols(sslContext, config), null, SslContextFactory.hostnameVerifier()
+        );
+        host = new HttpHost("localhost", server.getPort(), "https");
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    /**
+     * 共享 SSLContext：第二次起走会话恢复
+     */
+    @Benchmark
+    public boolean sharedContext() throws Exception {
+        return handshake(sharedFactory);
+    }
+
+    /**
+     * 每次新建 SSLContext 和信任所有证书的 TrustManager：每次都是完整握手
+     */
+    @Benchmark
+    public boolean newContextPerConnection() throws Exception {
+        SSLContext ctx = SSLContext.getInstance("TLS");
+        ctx.init(null, new TrustManager[]{new X509TrustManager() {
+            public X509Certificate[] getAcceptedIssuers() {
+                return null;
+            }
+
+            public void checkClientTrusted(X509Certificate[] xcs, String str) {
+            }
+
+            public void checkServerTrusted(X509Certificate[] xcs, String str) {
+            }
+        }}, null);
+        return handshake(new SSLConnectionSocketFactory(ctx, new String[]{protocol}, null, NoopHostnameVerifier.INSTANCE));
+    }
+
+    private boolean handshake(SSLConnectionSocketFactory factory) throws Exception {
+        HttpContext context = new BasicHttpContext();
+        Socket socket = factory.connectSocket(5000, factory.createSocket(context), host, address, null, context);
+        try {
+            return ((SSLSocket) socket).getSession().isValid();
+        } finally {
+            socket.close();
+        }
+    }
+}
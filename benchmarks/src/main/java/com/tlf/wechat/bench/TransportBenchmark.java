@@ -0,0 +1,124 @@
+package com.tlf.wechat.bench;
+
+import com.tlf.wechat.http.HttpAsyncClientManager;
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.breaker.CircuitBreakers;
+import com.tlf.wechat.http.limit.ConcurrencyLimiters;
+import com.tlf.wechat.http.response.BoundedStringHandler;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 请求引擎对比：apache（HTTP/1.1 连接池）与 jdk（java.net.http，ALPN 协商 HTTP/2 多路复用）
+ * <p>
+ * 64 个并发请求（sync 为 64 个线程，asyncBatch 为 4 个线程各 16 个请求）访问本地 HTTPS 服务，连接池每个路由 maxPerRoute 个连接：
+ * apache 引擎超过连接数的请求排队等待连接，jdk 引擎所有请求复用一条 HTTP/2 连接。
+ * 关闭了并发限制和熔断，只比较引擎本身。需要 Java 11+ 运行（多版本 jar）：
+ * java -jar target/benchmarks.jar TransportBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(64)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final int ASYNC_BATCH = 16;
+
+    @Param({"apache", "jdk"})
+    public String transport;
+
+    /**
+     * 服务端响应时间（毫秒）
+     */
+    @Param({"0", "20"})
+    public long delayMillis;
+
+    @Param({"16"})
+    public int maxPerRoute;
+
+    private LocalHttp2Server server;
+    private String url;
+    private BoundedStringHandler handler;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new LocalHttp2Server("{\"errcode\":0,\"errmsg\":\"ok\",\"access_token\":\"ACCESS_TOKEN\",\"expires_in\":7200}", delayMillis);
+        HttpClientConfig config = new HttpClientConfig();
+        config.setTrustStorePath(server.getTrustStorePath());
+        config.setTrustStorePassword(server.getTrustStorePassword());
+        config.setTrustStoreType("PKCS12");
+        config.setMaxPerRoute(maxPerRoute);
+        // 线程数远大于连接数，获取连接不设超时（0），测排队耗时而不是失败
+        config.setConnectionRequestTimeout(0);
+        config.setConnectTimeout(30000);
+        config.setSocketTimeout(30000);
+        config.setTransport(transport);
+        HttpClientManager.init(config);
+        if (!transport.equals(HttpClientManager.getTransport().getName())) {
+            throw new IllegalStateException("请求引擎不可用：" + transport);
+        }
+        ConcurrencyLimiters.setEnabled(false);
+        CircuitBreakers.setEnabled(false);
+        // 不匹配任何接口超时配置，使用连接池的默认超时
+        url = "https://localhost:" + server.getPort() + "/bench";
+        handler = new BoundedStringHandler(config.getMaxBodySize());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        HttpAsyncClientManager.shutdown();
+        HttpClientManager.shutdown();
+        server.close();
+    }
+
+    /**
+     * 同步请求，每个线程一次一个请求
+     */
+    @Benchmark
+    public String sync() throws Exception {
+        return HttpClientManager.getClient().execute(new HttpGet(url), handler);
+    }
+
+    /**
+     * 异步请求，每个线程同时发出一批请求后等待全部完成，总并发与 sync 相同（4 x 16）
+     */
+    @Benchmark
+    @Threads(4)
+    @SuppressWarnings("unchecked")
+    public int asyncBatch() {
+        CompletableFuture<HttpResponse>[] futures = new CompletableFuture[ASYNC_BATCH];
+        for (int i = 0; i < ASYNC_BATCH; i++) {
+            futures[i] = HttpAsyncClientManager.execute(new HttpGet(url));
+        }
+        CompletableFuture.allOf(futures).join();
+        int ok = 0;
+        for (CompletableFuture<HttpResponse> future : futures) {
+            if (future.join().getStatusLine().getStatusCode() == 200) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+}
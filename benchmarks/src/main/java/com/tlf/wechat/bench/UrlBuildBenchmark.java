@@ -0,0 +1,77 @@
+package com.tlf.wechat.bench;
+
+import com.tlf.wechat.http.HttpUtil;
+import com.tlf.wechat.http.UrlTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 请求地址拼接：HttpUtil.buildUrl（每次 URLEncoder 编码参数 Map）与预编译的 UrlTemplate 对比；
+ * 以及 v3 签名取 canonical URL：new URL 重新解析与 UrlTemplate 直接截取对比
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlBuildBenchmark {
+
+    private static final UrlTemplate ORDER_URL = UrlTemplate.compile(
+            "https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{out_trade_no}?mchid={mchid}");
+
+    public String outTradeNo = "T202306011200000001";
+    public String mchId = "1900000109";
+
+    private final String expanded = ORDER_URL.expand(outTradeNo, mchId);
+
+
+    @Benchmark
+    public String buildUrl() throws Exception {
+        Map<String, String> querys = new HashMap<>();
+        querys.put("mchid", mchId);
+        return HttpUtil.buildUrl("https://api.mch.weixin.qq.com",
+                "/v3/pay/transactions/out-trade-no/" + outTradeNo, querys);
+    }
+
+    @Benchmark
+    public String template() {
+        return ORDER_URL.expand(outTradeNo, mchId);
+    }
+
+    /**
+     * 原 WeChatPayUtil.getToken 的做法
+     */
+    @Benchmark
+    public String canonicalByUrl() throws Exception {
+        URL url = new URL(expanded);
+        String canonicalUrl = url.getPath();
+        if (url.getQuery() != null) {
+            canonicalUrl += "?" + url.getQuery();
+        }
+        return canonicalUrl;
+    }
+
+    @Benchmark
+    public String canonicalOf() {
+        return UrlTemplate.canonicalOf(expanded);
+    }
+
+    @Benchmark
+    public String canonical() {
+        return ORDER_URL.canonical(expanded);
+    }
+}
@@ -0,0 +1,169 @@
+package com.tlf.wechat.bench.load;
+
+import com.tlf.wechat.http.metrics.LatencyHistogram;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * 压测驱动，通过本项目的 API 发起请求，统计吞吐量和延迟分位值
+ * <ul>
+ * <li>fixedConcurrency：固定并发（闭环），concurrency 个线程各自循环调用，吞吐量由延迟决定</li>
+ * <li>fixedRate：固定速率（开环），按设定速率发起请求，延迟从计划开始时间算起，
+ * 客户端排队的时间也计入延迟，不会因为变慢而少发请求（避免 coordinated omission）</li>
+ * </ul>
+ * 调用抛出异常或返回 null（本项目失败时的返回值）记为错误。预热期间的请求不计入结果
+ */
+public class LoadGenerator {
+
+    /**
+     * 固定速率压测结束后等待进行中请求完成的时间
+     */
+    private static final long DRAIN_MILLIS = 30_000;
+
+
+    /**
+     * 固定并发
+     *
+     * @param name           场景名称
+     * @param task           一次调用
+     * @param concurrency    并发线程数
+     * @param warmupMillis   预热时间
+     * @param durationMillis 测量时间
+     * @return
+     * @throws InterruptedException
+     */
+    public static LoadReport fixedConcurrency(String name, Callable<?> task, int concurrency, long warmupMillis, long durationMillis)
+            throws InterruptedException {
+        final Run run = new Run(task);
+        final long measureStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        final long end = measureStart + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    long start;
+                    while ((start = System.nanoTime()) < end) {
+                        run.execute(start, start >= measureStart);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        return run.report(name, "concurrency=" + concurrency, durationMillis, 0);
+    }
+
+
+    /**
+     * 固定速率
+     *
+     * @param name           场景名称
+     * @param task           一次调用
+     * @param ratePerSecond  每秒请求数
+     * @param maxConcurrency 最多同时进行的调用，超过时排队，排队时间计入延迟
+     * @param warmupMillis   预热时间
+     * @param durationMillis 测量时间
+     * @return
+     * @throws InterruptedException
+     */
+    public static LoadReport fixedRate(String name, Callable<?> task, double ratePerSecond, int maxConcurrency, long warmupMillis, long durationMillis)
+            throws InterruptedException {
+        final Run run = new Run(task);
+        final AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "load-" + name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.prestartAllCoreThreads();
+
+        final long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        final long begin = System.nanoTime();
+        final long measureStart = begin + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        final long end = measureStart + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        for (long i = 0; ; i++) {
+            final long intended = begin + i * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            executor.execute(() -> run.execute(intended, intended >= measureStart));
+        }
+        long dropped = drain(executor);
+        return run.report(name, String.format("rate=%.0f/s", ratePerSecond), durationMillis, dropped);
+    }
+
+
+    private static long drain(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        if (executor.awaitTermination(DRAIN_MILLIS, TimeUnit.MILLISECONDS)) {
+            return 0;
+        }
+        List<Runnable> pending = executor.shutdownNow();
+        return pending.size();
+    }
+
+
+    /**
+     * 一次压测的统计
+     */
+    private static class Run {
+        private final Callable<?> task;
+        private final LatencyHistogram histogram = new LatencyHistogram(7);
+        private final AtomicLong errors = new AtomicLong();
+        private final Map<String, AtomicLong> errorTypes = new ConcurrentHashMap<>();
+
+        Run(Callable<?> task) {
+            this.task = task;
+        }
+
+        /**
+         * @param start    计划开始时间（System.nanoTime）
+         * @param measured 是否计入结果
+         */
+        void execute(long start, boolean measured) {
+            String error = null;
+            try {
+                if (task.call() == null) {
+                    error = "null-result";
+                }
+            } catch (Exception e) {
+                error = e.getClass().getSimpleName();
+            }
+            if (!measured) {
+                return;
+            }
+            histogram.record(System.nanoTime() - start);
+            if (error != null) {
+                errors.incrementAndGet();
+                errorTypes.computeIfAbsent(error, k -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        LoadReport report(String name, String mode, long durationMillis, long dropped) {
+            Map<String, Long> types = new HashMap<>();
+            errorTypes.forEach((type, count) -> types.put(type, count.get()));
+            return new LoadReport(name, mode, durationMillis, histogram, errors.get(), dropped, types);
+        }
+    }
+}
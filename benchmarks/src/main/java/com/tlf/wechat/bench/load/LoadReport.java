@@ -0,0 +1,155 @@
+package com.tlf.wechat.bench.load;
+
+import com.tlf.wechat.http.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * 一次压测的结果：吞吐量、错误数和延迟分位值
+ */
+public class LoadReport {
+
+    private final String name;
+    private final String mode;
+    private final long durationMillis;
+    private final long requests;
+    private final long errors;
+    private final long dropped;
+    private final Map<String, Long> errorTypes;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    private final long mean;
+
+
+    LoadReport(String name, String mode, long durationMillis, LatencyHistogram histogram, long errors, long dropped, Map<String, Long> errorTypes) {
+        this.name = name;
+        this.mode = mode;
+        this.durationMillis = durationMillis;
+        this.requests = histogram.getCount();
+        this.errors = errors;
+        this.dropped = dropped;
+        this.errorTypes = new TreeMap<>(errorTypes);
+        this.p50 = histogram.percentile(0.5);
+        this.p90 = histogram.percentile(0.9);
+        this.p99 = histogram.percentile(0.99);
+        this.p999 = histogram.percentile(0.999);
+        this.max = histogram.getMax();
+        this.mean = histogram.getMean();
+    }
+
+
+    /**
+     * 表头，与 toString 的列对应
+     *
+     * @return
+     */
+    public static String header() {
+        return String.format("%-20s %-18s %9s %10s %8s %8s %8s %8s %8s %8s %8s",
+                "scenario", "mode", "requests", "req/s", "errors", "mean", "p50", "p90", "p99", "p99.9", "max");
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 如 concurrency=64、rate=500/s
+     *
+     * @return
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * 测量期间完成的请求数（包括失败）
+     *
+     * @return
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * 固定速率时压测结束仍未开始的请求数，大于 0 说明客户端跟不上设定的速率
+     *
+     * @return
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * 按异常类型统计的错误数，结果为空记为 null-result
+     *
+     * @return
+     */
+    public Map<String, Long> getErrorTypes() {
+        return errorTypes;
+    }
+
+    public double getThroughput() {
+        return durationMillis == 0 ? 0 : requests * 1000.0 / durationMillis;
+    }
+
+    /**
+     * 延迟分位值，单位微秒
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+
+    @Override
+    public String toString() {
+        String line = String.format("%-20s %-18s %9d %10.1f %8d %8s %8s %8s %8s %8s %8s",
+                name, mode, requests, getThroughput(), errors,
+                millis(mean), millis(p50), millis(p90), millis(p99), millis(p999), millis(max));
+        if (!errorTypes.isEmpty()) {
+            line += "  " + errorTypes;
+        }
+        if (dropped > 0) {
+            line += "  dropped=" + dropped;
+        }
+        return line;
+    }
+
+
+    private static String millis(long micros) {
+        return String.format("%.1fms", micros / 1000.0);
+    }
+}
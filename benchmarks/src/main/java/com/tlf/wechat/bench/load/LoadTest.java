@@ -0,0 +1,178 @@
+package com.tlf.wechat.bench.load;
+
+import com.tlf.wechat.bench.stub.WeChatStubServer;
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.fault.LatencyDistribution;
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.metrics.SimpleMetricsRecorder;
+import com.tlf.wechat.mini.WeChatMiniUtil;
+import com.tlf.wechat.mini.live.WeChatMiniLiveUtil;
+import com.tlf.wechat.pay.v3.WeChatPayApi;
+import com.tlf.wechat.pay.v3.WeChatPayConfig;
+
+import java.math.BigDecimal;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * 端到端压测：启动本地桩服务，把微信域名指向桩服务，通过本项目的 API 发起请求
+ * 请求经过完整的调用链（签名、验签、超时、熔断、限流、重试、连接池），只有网络和微信服务端是模拟的。
+ * <pre>
+ * java -cp target/benchmarks.jar com.tlf.wechat.bench.load.LoadTest \
+ *     scenarios=token,phone,pay.order mode=rate rate=500 duration=30 latency=lognormal:30:200
+ * </pre>
+ * 参数（key=value）：
+ * <ul>
+ * <li>scenarios：逗号分隔，默认全部，见 SCENARIOS</li>
+ * <li>mode：concurrency（固定并发，默认）或 rate（固定速率）</li>
+ * <li>concurrency：并发数，默认 64；固定速率时为最多同时进行的调用</li>
+ * <li>rate：固定速率的每秒请求数，默认 200</li>
+ * <li>warmup、duration：预热和测量时间（秒），默认 5、20</li>
+ * <li>latency：桩服务延迟，fixed:毫秒、uniform:最小:最大、exponential:平均、lognormal:中位数:p99，默认 fixed:20</li>
+ * <li>maxPerRoute：连接池每个路由的连接数，默认 64</li>
+ * <li>metrics：simple 时开启内存指标并在结束时输出各接口的延迟、状态码和签名、验签耗时，默认 off</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final String APP_ID = "wx_stub_app";
+    private static final String APP_SECRET = "stub_secret";
+    private static final String MCH_ID = "1900000001";
+    private static final String MCH_SERIAL_NO = "5157F09EFDC096DE15EBE81A47057A7232F1B8E1";
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("scenarios", "");
+        options.put("mode", "concurrency");
+        options.put("concurrency", "64");
+        options.put("rate", "200");
+        options.put("warmup", "5");
+        options.put("duration", "20");
+        options.put("latency", "fixed:20");
+        options.put("maxPerRoute", "64");
+        options.put("metrics", "off");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !options.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("未知参数：" + arg + "，可用参数：" + options.keySet());
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        HttpClientConfig config = new HttpClientConfig();
+        config.setMaxPerRoute(Integer.parseInt(options.get("maxPerRoute")));
+        config.setMaxTotal(Math.max(config.getMaxTotal(), config.getMaxPerRoute()));
+        HttpClientManager.init(config);
+        SimpleMetricsRecorder metrics = null;
+        if ("simple".equals(options.get("metrics"))) {
+            metrics = new SimpleMetricsRecorder();
+            Metrics.setRecorder(metrics);
+        }
+
+        try (WeChatStubServer stub = new WeChatStubServer(0)) {
+            stub.setLatency(latency(options.get("latency")));
+            stub.start();
+            stub.install();
+
+            WeChatPayConfig payConfig = new WeChatPayConfig(APP_ID, MCH_ID, MCH_SERIAL_NO, stub.getV3Key(),
+                    "https://example.com/notify", "classpath:stub/merchant_private_key.pem", "https://example.com/refund-notify");
+            stub.setMerchantKey(publicKey((RSAPrivateCrtKey) payConfig.getPrivateKey()));
+
+            Map<String, Callable<?>> scenarios = scenarios(payConfig);
+            String selected = options.get("scenarios");
+            if (!selected.isEmpty()) {
+                Map<String, Callable<?>> filtered = new LinkedHashMap<>();
+                for (String name : selected.split(",")) {
+                    Callable<?> task = scenarios.get(name.trim());
+                    if (task == null) {
+                        throw new IllegalArgumentException("未知场景：" + name + "，可用场景：" + scenarios.keySet());
+                    }
+                    filtered.put(name.trim(), task);
+                }
+                scenarios = filtered;
+            }
+
+            long warmup = Long.parseLong(options.get("warmup")) * 1000;
+            long duration = Long.parseLong(options.get("duration")) * 1000;
+            boolean rate = "rate".equals(options.get("mode"));
+            System.out.println("stub " + stub.getOrigin() + " latency=" + options.get("latency"));
+            System.out.println(LoadReport.header());
+            for (Map.Entry<String, Callable<?>> scenario : scenarios.entrySet()) {
+                LoadReport report = rate
+                        ? LoadGenerator.fixedRate(scenario.getKey(), scenario.getValue(), Double.parseDouble(options.get("rate")), concurrency, warmup, duration)
+                        : LoadGenerator.fixedConcurrency(scenario.getKey(), scenario.getValue(), concurrency, warmup, duration);
+                System.out.println(report);
+            }
+            System.out.println("stub requests " + stub.getCounts() + (stub.getSignErrorCount() > 0 ? " signErrors=" + stub.getSignErrorCount() : ""));
+            if (metrics != null) {
+                System.out.println(metrics.report());
+            }
+        }
+        System.exit(0);
+    }
+
+
+    /**
+     * 压测场景，每次调用一次本项目的 API
+     */
+    static Map<String, Callable<?>> scenarios(WeChatPayConfig payConfig) {
+        WeChatPayApi payApi = new WeChatPayApi();
+        Map<String, Callable<?>> scenarios = new LinkedHashMap<>();
+        scenarios.put("token", () -> WeChatMiniUtil.getAccessToken(APP_ID, APP_SECRET));
+        scenarios.put("code2session", () -> WeChatMiniUtil.code2Session(APP_ID, APP_SECRET, "code" + SEQUENCE.incrementAndGet()));
+        scenarios.put("phone", () -> WeChatMiniUtil.getPhone(APP_ID, APP_SECRET, "code" + SEQUENCE.incrementAndGet()));
+        scenarios.put("phone.async", () -> WeChatMiniUtil.getPhoneAsync(APP_ID, APP_SECRET, "code" + SEQUENCE.incrementAndGet()).join());
+        scenarios.put("urllink", () -> WeChatMiniUtil.getUrlLink(APP_ID, APP_SECRET, "pages/index/index", "id=1"));
+        scenarios.put("live.info", () -> WeChatMiniLiveUtil.getLiveInfo(APP_ID, APP_SECRET, 0, 10));
+        scenarios.put("pay.order", () -> payApi.createOrder(orderNo(), new BigDecimal("0.01"), "压测商品", null,
+                "jsapi", "o_stub_payer", "127.0.0.1", payConfig));
+        scenarios.put("pay.order.async", () -> payApi.createOrderAsync(orderNo(), new BigDecimal("0.01"), "压测商品", null,
+                "jsapi", "o_stub_payer", "127.0.0.1", payConfig).join());
+        scenarios.put("pay.query", () -> payApi.selectOrderOutTradeNo(orderNo(), payConfig));
+        scenarios.put("refund", () -> payApi.refund(null, orderNo(), "R" + orderNo(), "压测退款",
+                new BigDecimal("0.01"), new BigDecimal("0.01"), payConfig));
+        return scenarios;
+    }
+
+
+    private static String orderNo() {
+        return "LT" + System.currentTimeMillis() + SEQUENCE.incrementAndGet();
+    }
+
+
+    static LatencyDistribution latency(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "fixed":
+                return LatencyDistribution.fixed(Long.parseLong(parts[1]));
+            case "uniform":
+                return LatencyDistribution.uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            case "exponential":
+                return LatencyDistribution.exponential(Double.parseDouble(parts[1]));
+            case "lognormal":
+                return LatencyDistribution.logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("未知延迟分布：" + spec);
+        }
+    }
+
+
+    /**
+     * 由商户私钥得到公钥，桩服务用来校验请求签名
+     */
+    static PublicKey publicKey(RSAPrivateCrtKey privateKey) throws Exception {
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(privateKey.getModulus(), privateKey.getPublicExponent()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.tlf.wechat.bench.load;
+
+import com.tlf.wechat.bench.stub.WeChatStubServer;
+import com.tlf.wechat.pay.v3.WeChatPayConfig;
+
+import java.lang.management.ManagementFactory;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+
+/**
+ * 冷启动测量：启动本地桩服务后，每个压测场景各调用一次，输出 JVM 启动到首批调用完成的耗时和已加载的类数
+ * 用于对比 AppCDS 归档前后、依赖裁剪前后的启动开销，见 appcds.sh：
+ * <pre>
+ * java -cp target/benchmarks.jar com.tlf.wechat.bench.load.StartupProbe
+ * </pre>
+ * 输出（一行，便于脚本解析）：
+ * uptime=JVM 启动到结束的毫秒数 calls=首批调用的毫秒数（不含桩服务启动） classes=已加载的类数
+ */
+public class StartupProbe {
+
+    public static void main(String[] args) throws Exception {
+        try (WeChatStubServer stub = new WeChatStubServer(0)) {
+            stub.start();
+            stub.install();
+            WeChatPayConfig payConfig = new WeChatPayConfig("wx_stub_app", "1900000001", "5157F09EFDC096DE15EBE81A47057A7232F1B8E1", stub.getV3Key(),
+                    "https://example.com/notify", "classpath:stub/merchant_private_key.pem", "https://example.com/refund-notify");
+            stub.setMerchantKey(LoadTest.publicKey((RSAPrivateCrtKey) payConfig.getPrivateKey()));
+
+            long start = System.nanoTime();
+            int failed = 0;
+            for (Map.Entry<String, Callable<?>> scenario : LoadTest.scenarios(payConfig).entrySet()) {
+                if (scenario.getValue().call() == null) {
+                    failed++;
+                    System.err.println("调用失败：" + scenario.getKey());
+                }
+            }
+            long calls = (System.nanoTime() - start) / 1000000;
+            System.out.println("uptime=" + ManagementFactory.getRuntimeMXBean().getUptime()
+                    + " calls=" + calls
+                    + " classes=" + ManagementFactory.getClassLoadingMXBean().getLoadedClassCount()
+                    + (failed > 0 ? " failed=" + failed : ""));
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,95 @@
+package com.tlf.wechat.bench.stub;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Date;
+
+
+/**
+ * 桩服务的微信支付平台证书（测试密钥对，每次启动重新生成）
+ * 桩服务用私钥对 v3 应答签名，证书通过 /v3/certificates 加密下发，与真实平台证书的用法一致
+ */
+public class PlatformCertificate {
+
+    private final PrivateKey privateKey;
+    private final X509Certificate certificate;
+    private final String serialNo;
+
+
+    public PlatformCertificate() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        X500Name name = new X500Name("CN=Tenpay.com Root CA Stub, O=Tenpay.com");
+        long now = System.currentTimeMillis();
+        BigInteger serial = new BigInteger(64, new SecureRandom()).setBit(63);
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                name, serial, new Date(now - 60000), new Date(now + 30 * 86400000L), name, keyPair.getPublic()
+        );
+        this.certificate = new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate()))
+        );
+        this.privateKey = keyPair.getPrivate();
+        this.serialNo = serial.toString(16).toUpperCase();
+    }
+
+
+    /**
+     * SHA256withRSA 签名，Base64 编码
+     *
+     * @param message
+     * @return
+     */
+    public String sign(String message) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(privateKey);
+            signature.update(message.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(signature.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException("平台证书签名失败", e);
+        }
+    }
+
+
+    /**
+     * PEM 格式的证书
+     *
+     * @return
+     */
+    public String toPem() {
+        try {
+            return "-----BEGIN CERTIFICATE-----\n"
+                    + Base64.getMimeEncoder(64, new byte[]{'\n'}).encodeToString(certificate.getEncoded())
+                    + "\n-----END CERTIFICATE-----\n";
+        } catch (Exception e) {
+            throw new IllegalStateException("证书编码失败", e);
+        }
+    }
+
+
+    /**
+     * 证书序列号（十六进制大写），即应答头 Wechatpay-Serial
+     *
+     * @return
+     */
+    public String getSerialNo() {
+        return serialNo;
+    }
+
+    public X509Certificate getCertificate() {
+        return certificate;
+    }
+}
@@ -0,0 +1,124 @@
+package com.tlf.wechat.bench.stub;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+
+/**
+ * 桩服务收到的请求
+ */
+public class StubRequest {
+
+    private final String method;
+    private final String path;
+    private final String query;
+    private final String body;
+    private final Map<String, String> params;
+    private final Map<String, String> headers;
+    private Matcher matcher;
+
+
+    StubRequest(String method, String path, String query, String body, Map<String, String> headers) {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.body = body;
+        this.params = parse(query);
+        this.headers = headers;
+    }
+
+
+    private static Map<String, String> parse(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            try {
+                if (eq < 0) {
+                    params.put(URLDecoder.decode(pair, "UTF-8"), "");
+                } else {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+                }
+            } catch (UnsupportedEncodingException | IllegalArgumentException ignore) {
+            }
+        }
+        return params;
+    }
+
+
+    void setMatcher(Matcher matcher) {
+        this.matcher = matcher;
+    }
+
+
+    /**
+     * 路由正则的分组，如订单号
+     *
+     * @param group
+     * @return
+     */
+    public String group(int group) {
+        return matcher == null ? null : matcher.group(group);
+    }
+
+
+    /**
+     * 查询参数
+     *
+     * @param name
+     * @return
+     */
+    public String param(String name) {
+        return params.get(name);
+    }
+
+
+    /**
+     * 请求头
+     *
+     * @param name 不区分大小写
+     * @return
+     */
+    public String header(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+
+    /**
+     * JSON 请求体，不是 JSON 时为空对象
+     *
+     * @return
+     */
+    public JSONObject json() {
+        try {
+            JSONObject json = body == null || body.isEmpty() ? null : JSONObject.parseObject(body);
+            return json == null ? new JSONObject() : json;
+        } catch (RuntimeException e) {
+            return new JSONObject();
+        }
+    }
+
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,73 @@
+package com.tlf.wechat.bench.stub;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * 桩服务的响应
+ */
+public class StubResponse {
+
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+
+
+    public StubResponse(int status, String contentType, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+
+    public static StubResponse json(int status, String json) {
+        return new StubResponse(status, "application/json; charset=UTF-8", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    public static StubResponse json(JSONObject json) {
+        return json(200, json.toJSONString());
+    }
+
+
+    /**
+     * 公众平台、小程序格式的错误码
+     *
+     * @param errcode
+     * @param errmsg
+     * @return
+     */
+    public static StubResponse errcode(int errcode, String errmsg) {
+        return json(200, "{\"errcode\":" + errcode + ",\"errmsg\":\"" + errmsg + "\"}");
+    }
+
+
+    /**
+     * 无响应体，如关闭订单的 204
+     *
+     * @param status
+     * @return
+     */
+    public static StubResponse empty(int status) {
+        return new StubResponse(status, null, new byte[0]);
+    }
+
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBodyString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
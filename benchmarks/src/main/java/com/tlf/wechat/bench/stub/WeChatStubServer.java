@@ -0,0 +1,611 @@
+package com.tlf.wechat.bench.stub;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.http.WeChatHosts;
+import com.tlf.wechat.http.fault.LatencyDistribution;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.text.SimpleDateFormat;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * 本地微信接口桩服务（Jetty，HTTP），模拟本项目调用的公众平台、小程序和微信支付 v3 接口：
+ * cgi-bin/token、jscode2session、getuserphonenumber、generate_urllink、素材上传下载、直播间、网页授权，
+ * 以及 v3 下单、查询、关闭、退款、平台证书。
+ * <pre>
+ * try (WeChatStubServer stub = new WeChatStubServer(0)) {
+ *     stub.setLatency(LatencyDistribution.logNormal(30, 200));
+ *     stub.start();
+ *     stub.install();   // api.weixin.qq.com、api.mch.weixin.qq.com 指向桩服务
+ *     WeChatMiniUtil.getAccessToken("appid", "secret");
+ * }
+ * </pre>
+ * v3 应答由测试平台证书（PlatformCertificate）签名，证书通过 /v3/certificates 按 v3Key 加密下发，
+ * 自动验签和手动验签的调用都能正常通过；设置 setMerchantKey 后同时校验请求的商户签名。
+ * 延迟由定时线程完成后再写响应，等待中的请求不占用服务端线程，可以模拟大量慢请求
+ */
+public class WeChatStubServer implements AutoCloseable {
+
+    /**
+     * 下发的平台证书使用的 APIv3 密钥（32 字节）
+     */
+    public static final String DEFAULT_V3_KEY = "StubV3KeyForLocalLoadTest0123456";
+
+    private static final String SIGN_SCHEMA = "WECHATPAY2-SHA256-RSA2048 ";
+
+    private final Server server;
+    private final ServerConnector connector;
+    private final ScheduledExecutorService timer;
+    private final PlatformCertificate platform;
+    private final List<Route> routes = new CopyOnWriteArrayList<>();
+    private final Map<String, LatencyDistribution> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong signErrors = new AtomicLong();
+
+    private volatile LatencyDistribution latency = LatencyDistribution.fixed(0);
+    private volatile String v3Key = DEFAULT_V3_KEY;
+    private volatile PublicKey merchantKey;
+
+
+    /**
+     * @param port 监听端口，0 为随机端口
+     * @throws Exception 生成平台证书失败
+     */
+    public WeChatStubServer(int port) throws Exception {
+        platform = new PlatformCertificate();
+        timer = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "wechat-stub-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = new Server(new QueuedThreadPool(256));
+        connector = new ServerConnector(server);
+        connector.setHost("127.0.0.1");
+        connector.setPort(port);
+        connector.setAcceptQueueSize(1024);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                dispatch(request, response);
+            }
+        });
+        registerDefaults();
+    }
+
+
+    public void start() throws Exception {
+        server.start();
+    }
+
+
+    /**
+     * 把公众平台和微信支付的域名指向桩服务（WeChatHosts），close 时恢复
+     */
+    public void install() {
+        WeChatHosts.override(WeChatHosts.API, getOrigin());
+        WeChatHosts.override(WeChatHosts.PAY, getOrigin());
+    }
+
+
+    /**
+     * 桩服务地址，如 http://127.0.0.1:8080
+     *
+     * @return
+     */
+    public String getOrigin() {
+        return "http://127.0.0.1:" + connector.getLocalPort();
+    }
+
+
+    /**
+     * 所有接口的默认延迟
+     *
+     * @param latency
+     */
+    public void setLatency(LatencyDistribution latency) {
+        this.latency = latency;
+    }
+
+
+    /**
+     * 单个接口的延迟，覆盖默认延迟
+     *
+     * @param route   接口名称，如 token、pay.order，与 getCounts 的名称一致
+     * @param latency
+     */
+    public void setLatency(String route, LatencyDistribution latency) {
+        latencies.put(route, latency);
+    }
+
+
+    /**
+     * 校验 v3 请求的商户签名，签名错误时返回 401 SIGN_ERROR；为空时不校验
+     *
+     * @param merchantKey 商户 API 证书公钥
+     */
+    public void setMerchantKey(PublicKey merchantKey) {
+        this.merchantKey = merchantKey;
+    }
+
+
+    public void setV3Key(String v3Key) {
+        this.v3Key = v3Key;
+    }
+
+    public String getV3Key() {
+        return v3Key;
+    }
+
+    public PlatformCertificate getPlatformCertificate() {
+        return platform;
+    }
+
+
+    /**
+     * 增加或替换接口，先登记的接口先匹配
+     *
+     * @param name      接口名称，用于设置延迟和统计
+     * @param method    GET、POST
+     * @param pathRegex 路径正则，分组可以通过 StubRequest.group 读取
+     * @param handler
+     */
+    public void route(String name, String method, String pathRegex, Function<StubRequest, StubResponse> handler) {
+        routes.removeIf(route -> route.name.equals(name));
+        routes.add(new Route(name, method, Pattern.compile(pathRegex), handler));
+    }
+
+
+    /**
+     * 各接口收到的请求数
+     *
+     * @return
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        counts.forEach((name, count) -> result.put(name, count.get()));
+        return result;
+    }
+
+
+    /**
+     * 商户签名校验失败的请求数
+     *
+     * @return
+     */
+    public long getSignErrorCount() {
+        return signErrors.get();
+    }
+
+
+    @Override
+    public void close() throws Exception {
+        WeChatHosts.reset();
+        server.stop();
+        timer.shutdownNow();
+    }
+
+
+    private void dispatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        String body = read(request.getInputStream());
+        Map<String, String> headers = new HashMap<>();
+        for (Enumeration<String> names = request.getHeaderNames(); names.hasMoreElements(); ) {
+            String header = names.nextElement();
+            headers.put(header.toLowerCase(), request.getHeader(header));
+        }
+        StubRequest stubRequest = new StubRequest(method, path, request.getQueryString(), body, headers);
+
+        Route route = null;
+        for (Route candidate : routes) {
+            if (candidate.method.equals(method)) {
+                Matcher matcher = candidate.pattern.matcher(path);
+                if (matcher.matches()) {
+                    stubRequest.setMatcher(matcher);
+                    route = candidate;
+                    break;
+                }
+            }
+        }
+        String name = route == null ? "unknown" : route.name;
+        counts.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+
+        boolean v3 = path.startsWith("/v3/");
+        StubResponse result;
+        if (route == null) {
+            result = v3 ? StubResponse.json(404, "{\"code\":\"NOT_FOUND\",\"message\":\"桩服务不支持该接口\"}")
+                    : StubResponse.errcode(40066, "invalid url");
+        } else if (v3 && !verifyMerchant(stubRequest)) {
+            signErrors.incrementAndGet();
+            result = StubResponse.json(401, "{\"code\":\"SIGN_ERROR\",\"message\":\"签名错误\"}");
+        } else {
+            try {
+                result = route.handler.apply(stubRequest);
+            } catch (RuntimeException e) {
+                result = StubResponse.json(500, "{\"code\":\"SYSTEM_ERROR\",\"message\":\"" + e + "\"}");
+            }
+        }
+
+        LatencyDistribution distribution = latencies.getOrDefault(name, latency);
+        long delay = distribution.sample(ThreadLocalRandom.current());
+        if (delay <= 0) {
+            write(response, result, v3);
+            return;
+        }
+        final StubResponse delayed = result;
+        final AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        timer.schedule(() -> {
+            try {
+                write((HttpServletResponse) async.getResponse(), delayed, v3);
+            } catch (IOException ignore) {
+                // 客户端已超时断开
+            } finally {
+                async.complete();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+
+    private void write(HttpServletResponse response, StubResponse result, boolean v3) throws IOException {
+        response.setStatus(result.getStatus());
+        if (result.getContentType() != null) {
+            response.setContentType(result.getContentType());
+        }
+        if (v3) {
+            // 与微信支付一致，所有 v3 应答（包括错误）都签名
+            String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+            String nonce = nonce();
+            String message = timestamp + "\n" + nonce + "\n" + result.getBodyString() + "\n";
+            response.setHeader("Request-ID", "stub-" + sequence.incrementAndGet());
+            response.setHeader("Wechatpay-Serial", platform.getSerialNo());
+            response.setHeader("Wechatpay-Timestamp", timestamp);
+            response.setHeader("Wechatpay-Nonce", nonce);
+            response.setHeader("Wechatpay-Signature-Type", "WECHATPAY2-SHA256-RSA2048");
+            response.setHeader("Wechatpay-Signature", platform.sign(message));
+        }
+        byte[] body = result.getBody();
+        if (body.length > 0) {
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+
+    /**
+     * 校验 Authorization 中的商户签名，签名串为 method\ncanonicalUrl\ntimestamp\nnonce\nbody\n
+     */
+    private boolean verifyMerchant(StubRequest request) {
+        String authorization = request.header("Authorization");
+        PublicKey key = merchantKey;
+        if (key == null) {
+            return true;
+        }
+        if (authorization == null || !authorization.startsWith(SIGN_SCHEMA)) {
+            return false;
+        }
+        Map<String, String> token = new TreeMap<>();
+        for (String pair : authorization.substring(SIGN_SCHEMA.length()).split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                token.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim().replace("\"", ""));
+            }
+        }
+        String canonical = request.getQuery() == null ? request.getPath() : request.getPath() + "?" + request.getQuery();
+        String message = request.getMethod() + "\n" + canonical + "\n" + token.get("timestamp") + "\n"
+                + token.get("nonce_str") + "\n" + request.getBody() + "\n";
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(key);
+            signature.update(message.getBytes(StandardCharsets.UTF_8));
+            return signature.verify(Base64.getDecoder().decode(token.get("signature")));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+
+    private void registerDefaults() {
+        // 公众平台、小程序
+        route("token", "GET", "/cgi-bin/token", r -> {
+            JSONObject json = new JSONObject();
+            json.put("access_token", "STUB_ACCESS_TOKEN_" + r.param("appid"));
+            json.put("expires_in", 7200);
+            return StubResponse.json(json);
+        });
+        route("jscode2session", "GET", "/sns/jscode2session", r -> {
+            JSONObject json = new JSONObject();
+            json.put("openid", "o_stub_" + r.param("js_code"));
+            json.put("session_key", Base64.getEncoder().encodeToString(UUID.randomUUID().toString().substring(0, 16).getBytes(StandardCharsets.UTF_8)));
+            json.put("unionid", "u_stub_" + r.param("js_code"));
+            return StubResponse.json(json);
+        });
+        route("phone", "POST", "/wxa/business/getuserphonenumber", r -> {
+            JSONObject watermark = new JSONObject();
+            watermark.put("timestamp", System.currentTimeMillis() / 1000);
+            watermark.put("appid", "wx_stub");
+            JSONObject phone = new JSONObject();
+            phone.put("phoneNumber", "13800138000");
+            phone.put("purePhoneNumber", "13800138000");
+            phone.put("countryCode", "86");
+            phone.put("watermark", watermark);
+            JSONObject json = ok();
+            json.put("phone_info", phone);
+            return StubResponse.json(json);
+        });
+        route("urllink", "POST", "/wxa/generate_urllink", r -> {
+            JSONObject json = ok();
+            json.put("url_link", "https://wxaurl.cn/stub" + sequence.incrementAndGet());
+            return StubResponse.json(json);
+        });
+        route("media.upload", "POST", "/cgi-bin/media/upload", r -> {
+            JSONObject json = new JSONObject();
+            json.put("type", r.param("type"));
+            json.put("media_id", "stub_media_" + sequence.incrementAndGet());
+            json.put("created_at", System.currentTimeMillis() / 1000);
+            return StubResponse.json(json);
+        });
+        route("media.get", "GET", "/cgi-bin/media/get", r -> {
+            JSONObject json = new JSONObject();
+            json.put("video_url", "http://stub.qpic.cn/" + r.param("media_id"));
+            return StubResponse.json(json);
+        });
+        route("material.add", "POST", "/cgi-bin/material/add_material", r -> {
+            JSONObject json = new JSONObject();
+            json.put("media_id", "stub_material_" + sequence.incrementAndGet());
+            json.put("url", "http://stub.qpic.cn/material");
+            return StubResponse.json(json);
+        });
+        route("live.create", "POST", "/wxaapi/broadcast/room/create", r -> {
+            JSONObject json = ok();
+            json.put("roomId", sequence.incrementAndGet());
+            return StubResponse.json(json);
+        });
+        route("live.info", "POST", "/wxa/business/getliveinfo", this::liveInfo);
+        route("live.sharecode", "GET", "/wxaapi/broadcast/room/getsharedcode", r -> {
+            JSONObject json = ok();
+            json.put("cdnUrl", "http://stub.qpic.cn/sharecode/" + r.param("roomId"));
+            json.put("pagePath", "pages/index/index?roomId=" + r.param("roomId"));
+            json.put("posterUrl", "http://stub.qpic.cn/poster/" + r.param("roomId"));
+            return StubResponse.json(json);
+        });
+        route("oauth.token", "GET", "/sns/oauth2/access_token", r -> {
+            JSONObject json = new JSONObject();
+            json.put("access_token", "STUB_OAUTH_TOKEN");
+            json.put("expires_in", 7200);
+            json.put("refresh_token", "STUB_REFRESH_TOKEN");
+            json.put("openid", "o_stub_" + r.param("code"));
+            json.put("scope", "snsapi_userinfo");
+            return StubResponse.json(json);
+        });
+        route("oauth.userinfo", "GET", "/sns/userinfo", r -> {
+            JSONObject json = new JSONObject();
+            json.put("openid", r.param("openid"));
+            json.put("nickname", "stub");
+            json.put("sex", 0);
+            json.put("headimgurl", "http://stub.qpic.cn/avatar");
+            return StubResponse.json(json);
+        });
+
+        // 微信支付 v3
+        route("pay.close", "POST", "/v3/pay/transactions/out-trade-no/([^/]+)/close", r -> StubResponse.empty(204));
+        route("pay.order", "POST", "/v3/pay/transactions/(jsapi|app|h5|native)", r -> {
+            JSONObject json = new JSONObject();
+            switch (r.group(1)) {
+                case "h5":
+                    json.put("h5_url", "https://wx.tenpay.com/cgi-bin/mmpayweb-bin/checkmweb?prepay_id=wx_stub" + sequence.incrementAndGet());
+                    break;
+                case "native":
+                    json.put("code_url", "weixin://wxpay/bizpayurl?pr=stub" + sequence.incrementAndGet());
+                    break;
+                default:
+                    json.put("prepay_id", "wx_stub_" + sequence.incrementAndGet());
+            }
+            return StubResponse.json(json);
+        });
+        route("pay.query", "GET", "/v3/pay/transactions/out-trade-no/([^/]+)", r -> StubResponse.json(transaction(r.group(1), r.param("mchid"))));
+        route("pay.query.id", "GET", "/v3/pay/transactions/id/([^/]+)", r -> {
+            JSONObject json = transaction("stub_" + r.group(1), r.param("mchid"));
+            json.put("transaction_id", r.group(1));
+            return StubResponse.json(json);
+        });
+        route("refund.create", "POST", "/v3/refund/domestic/refunds", r -> {
+            JSONObject request = r.json();
+            JSONObject json = refund(request.getString("out_refund_no"), "PROCESSING");
+            json.put("out_trade_no", request.getString("out_trade_no"));
+            JSONObject amount = request.getJSONObject("amount");
+            if (amount != null) {
+                json.put("amount", amount);
+            }
+            return StubResponse.json(json);
+        });
+        route("refund.query", "GET", "/v3/refund/domestic/refunds/([^/]+)", r -> StubResponse.json(refund(r.group(1), "SUCCESS")));
+        route("certificates", "GET", "/v3/certificates", r -> certificates());
+    }
+
+
+    private StubResponse liveInfo(StubRequest r) {
+        JSONObject request = r.json();
+        JSONObject json = ok();
+        if ("get_replay".equals(request.getString("action"))) {
+            JSONArray replays = new JSONArray();
+            JSONObject replay = new JSONObject();
+            replay.put("expire_time", "2099-01-01T00:00:00Z");
+            replay.put("create_time", "2020-01-01T00:00:00Z");
+            replay.put("media_url", "http://stub.qpic.cn/replay/" + request.getString("room_id") + ".mp4");
+            replays.add(replay);
+            json.put("live_replay", replays);
+            json.put("total", replays.size());
+            return StubResponse.json(json);
+        }
+        int limit = Math.max(1, Math.min(100, request.getIntValue("limit")));
+        int start = request.getIntValue("start");
+        JSONArray rooms = new JSONArray();
+        for (int i = 0; i < limit; i++) {
+            JSONObject room = new JSONObject();
+            room.put("name", "直播间" + (start + i));
+            room.put("roomid", start + i + 1);
+            room.put("live_status", 101);
+            room.put("start_time", System.currentTimeMillis() / 1000);
+            room.put("end_time", System.currentTimeMillis() / 1000 + 3600);
+            room.put("anchor_name", "stub");
+            room.put("cover_img", "http://stub.qpic.cn/cover");
+            rooms.add(room);
+        }
+        json.put("room_info", rooms);
+        json.put("total", rooms.size());
+        return StubResponse.json(json);
+    }
+
+
+    private JSONObject transaction(String outTradeNo, String mchId) {
+        JSONObject amount = new JSONObject();
+        amount.put("total", 1);
+        amount.put("payer_total", 1);
+        amount.put("currency", "CNY");
+        amount.put("payer_currency", "CNY");
+        JSONObject payer = new JSONObject();
+        payer.put("openid", "o_stub_payer");
+        JSONObject json = new JSONObject();
+        json.put("appid", "wx_stub");
+        json.put("mchid", mchId);
+        json.put("out_trade_no", outTradeNo);
+        json.put("transaction_id", "42000" + Math.abs(outTradeNo.hashCode()));
+        json.put("trade_type", "JSAPI");
+        json.put("trade_state", "SUCCESS");
+        json.put("trade_state_desc", "支付成功");
+        json.put("bank_type", "OTHERS");
+        json.put("success_time", rfc3339(new Date()));
+        json.put("amount", amount);
+        json.put("payer", payer);
+        return json;
+    }
+
+
+    private JSONObject refund(String outRefundNo, String status) {
+        JSONObject json = new JSONObject();
+        json.put("refund_id", "50000" + Math.abs(String.valueOf(outRefundNo).hashCode()));
+        json.put("out_refund_no", outRefundNo);
+        json.put("channel", "ORIGINAL");
+        json.put("user_received_account", "支付用户零钱");
+        json.put("status", status);
+        json.put("create_time", rfc3339(new Date()));
+        return json;
+    }
+
+
+    /**
+     * 平台证书列表，证书按 v3Key 以 AEAD_AES_256_GCM 加密
+     */
+    private StubResponse certificates() {
+        try {
+            String nonce = nonce().substring(0, 12);
+            String associatedData = "certificate";
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(v3Key.getBytes(StandardCharsets.UTF_8), "AES"),
+                    new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8)));
+            cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(platform.toPem().getBytes(StandardCharsets.UTF_8));
+
+            JSONObject encrypt = new JSONObject();
+            encrypt.put("algorithm", "AEAD_AES_256_GCM");
+            encrypt.put("nonce", nonce);
+            encrypt.put("associated_data", associatedData);
+            encrypt.put("ciphertext", Base64.getEncoder().encodeToString(ciphertext));
+            JSONObject certificate = new JSONObject();
+            certificate.put("serial_no", platform.getSerialNo());
+            certificate.put("effective_time", rfc3339(platform.getCertificate().getNotBefore()));
+            certificate.put("expire_time", rfc3339(platform.getCertificate().getNotAfter()));
+            certificate.put("encrypt_certificate", encrypt);
+            JSONArray data = new JSONArray();
+            data.add(certificate);
+            JSONObject json = new JSONObject();
+            json.put("data", data);
+            return StubResponse.json(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("加密平台证书失败", e);
+        }
+    }
+
+
+    private static JSONObject ok() {
+        JSONObject json = new JSONObject();
+        json.put("errcode", 0);
+        json.put("errmsg", "ok");
+        return json;
+    }
+
+
+    private static String nonce() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+
+    private static String rfc3339(Date date) {
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX").format(date);
+    }
+
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+
+    private static class Route {
+        private final String name;
+        private final String method;
+        private final Pattern pattern;
+        private final Function<StubRequest, StubResponse> handler;
+
+        Route(String name, String method, Pattern pattern, Function<StubRequest, StubResponse> handler) {
+            this.name = name;
+            this.method = method;
+            this.pattern = pattern;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.tlf.wechat.bench.load;
+
+import com.tlf.wechat.http.metrics.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * 分位值与排序后按秩取值（nearest-rank）比较，LoadGenerator 使用 precision 7，相对误差不超过 1/128
+ */
+class LoadReportTest {
+
+    private static final double ERROR = 1.0 / 128;
+
+
+    @Test
+    void reportsExactPercentilesInLinearRange() {
+        // 256 微秒以下每微秒一个桶，分位值精确
+        LatencyHistogram histogram = new LatencyHistogram(7);
+        for (int micros = 1; micros <= 200; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        LoadReport report = new LoadReport("token", "concurrency=1", 1000, histogram, 0, 0, Collections.emptyMap());
+        assertEquals(200, report.getRequests());
+        assertEquals(100, report.getP50());
+        assertEquals(180, report.getP90());
+        assertEquals(198, report.getP99());
+        assertEquals(200, report.getP999());
+        assertEquals(200, report.getMax());
+        assertEquals(100, report.getMean());
+        assertEquals(200.0, report.getThroughput(), 1e-9);
+    }
+
+
+    @Test
+    void percentilesWithinPrecisionForSkewedLatency() {
+        // 对数正态：中位数约 20ms，长尾到秒级
+        Random random = new Random(42);
+        long[] micros = new long[20_000];
+        LatencyHistogram histogram = new LatencyHistogram(7);
+        for (int i = 0; i < micros.length; i++) {
+            micros[i] = (long) Math.exp(Math.log(20_000) + 1.2 * random.nextGaussian());
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros[i]));
+        }
+        Arrays.sort(micros);
+        LoadReport report = new LoadReport("pay.order", "rate=500/s", 40_000, histogram, 0, 0, Collections.emptyMap());
+        assertWithin(rank(micros, 0.5), report.getP50());
+        assertWithin(rank(micros, 0.9), report.getP90());
+        assertWithin(rank(micros, 0.99), report.getP99());
+        assertWithin(rank(micros, 0.999), report.getP999());
+        assertEquals(micros[micros.length - 1], report.getMax());
+        assertTrue(report.getP999() <= report.getMax());
+        assertEquals(500.0, report.getThroughput(), 1e-9);
+    }
+
+
+    @Test
+    void formatsMillisErrorsAndDropped() {
+        LatencyHistogram histogram = new LatencyHistogram(7);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        LoadReport report = new LoadReport("phone", "rate=200/s", 1000, histogram, 1, 3,
+                Collections.singletonMap("null-result", 1L));
+        String line = report.toString();
+        assertTrue(line.startsWith("phone"), line);
+        assertTrue(line.contains(" 2.0ms"), line);
+        assertTrue(line.endsWith("  {null-result=1}  dropped=3"), line);
+    }
+
+
+    @Test
+    void emptyReportIsZero() {
+        LoadReport report = new LoadReport("token", "concurrency=1", 0, new LatencyHistogram(7), 0, 0, Collections.emptyMap());
+        assertEquals(0, report.getP50());
+        assertEquals(0, report.getMax());
+        assertEquals(0, report.getMean());
+        assertEquals(0.0, report.getThroughput(), 1e-9);
+    }
+
+
+    /**
+     * nearest-rank：第 ceil(p * n) 个值
+     */
+    private static long rank(long[] sorted, double percentile) {
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * ERROR + 1, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,111 @@
+package com.tlf.wechat.bench.load;
+
+import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.bench.stub.WeChatStubServer;
+import com.tlf.wechat.mini.WeChatMiniUtil;
+import com.tlf.wechat.pay.v3.WeChatPayApi;
+import com.tlf.wechat.pay.v3.WeChatPayConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * 桩服务冒烟测试：通过 WeChatMiniUtil、WeChatPayApi 调用桩服务的每个压测场景，
+ * 桩服务校验商户签名，客户端校验桩服务的应答签名；再用 LoadGenerator 各跑一小段
+ */
+class LoadTestSmokeTest {
+
+    private static WeChatStubServer stub;
+    private static WeChatPayConfig payConfig;
+
+    @BeforeAll
+    static void start() throws Exception {
+        stub = new WeChatStubServer(0);
+        stub.start();
+        stub.install();
+        payConfig = new WeChatPayConfig("wx_stub_app", "1900000001", "5157F09EFDC096DE15EBE81A47057A7232F1B8E1", stub.getV3Key(),
+                "https://example.com/notify", "classpath:stub/merchant_private_key.pem", "https://example.com/refund-notify");
+        stub.setMerchantKey(LoadTest.publicKey((RSAPrivateCrtKey) payConfig.getPrivateKey()));
+        // 首次请求创建连接池并加载类，耗时可达 1 秒，超过压测的测量窗口，先预热
+        WeChatMiniUtil.getAccessToken("wx_stub_app", "stub_secret");
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        stub.close();
+    }
+
+
+    @Test
+    void everyScenarioSucceeds() throws Exception {
+        for (Map.Entry<String, Callable<?>> scenario : LoadTest.scenarios(payConfig).entrySet()) {
+            assertNotNull(scenario.getValue().call(), scenario.getKey());
+        }
+        assertEquals(0, stub.getSignErrorCount());
+        Map<String, Long> counts = stub.getCounts();
+        for (String route : new String[]{"token", "phone", "live.info", "pay.order", "pay.query", "refund.create", "certificates"}) {
+            assertTrue(counts.getOrDefault(route, 0L) > 0, route + " " + counts);
+        }
+    }
+
+
+    @Test
+    void returnsStubPayloads() {
+        assertNotNull(WeChatMiniUtil.getAccessToken("wx_stub_app", "stub_secret"));
+        assertNotNull(WeChatMiniUtil.getPhone("wx_stub_app", "stub_secret", "code1"));
+
+        WeChatPayApi payApi = new WeChatPayApi();
+        JSONObject order = payApi.createOrderAsync("SMOKE1", new BigDecimal("0.01"), "冒烟测试", null,
+                "jsapi", "o_stub_payer", "127.0.0.1", payConfig).join();
+        assertTrue(order.getString("prepay_id").startsWith("wx_stub_"), order.toJSONString());
+        assertEquals("SUCCESS", payApi.selectOrderOutTradeNo("SMOKE1", payConfig).getString("trade_state"));
+        assertEquals("PROCESSING", payApi.refund(null, "SMOKE1", "RSMOKE1", "冒烟测试",
+                new BigDecimal("0.01"), new BigDecimal("0.01"), payConfig).getString("status"));
+        assertEquals(0, stub.getSignErrorCount());
+    }
+
+
+    @Test
+    void generatesFixedConcurrencyAndRateLoad() throws Exception {
+        Callable<?> token = () -> WeChatMiniUtil.getAccessToken("wx_stub_app", "stub_secret");
+        LoadReport concurrency = LoadGenerator.fixedConcurrency("token", token, 2, 100, 300);
+        assertTrue(concurrency.getRequests() > 0, concurrency.toString());
+        assertEquals(0, concurrency.getErrors(), concurrency.toString());
+        assertTrue(concurrency.getP50() <= concurrency.getP99() && concurrency.getP99() <= concurrency.getMax(), concurrency.toString());
+
+        // 100/s 持续 500ms，不预热：计划发起 50 个请求
+        LoadReport rate = LoadGenerator.fixedRate("token", token, 100, 4, 0, 500);
+        assertEquals(50, rate.getRequests(), rate.toString());
+        assertEquals(0, rate.getErrors(), rate.toString());
+        assertEquals(0, rate.getDropped(), rate.toString());
+    }
+
+
+    /**
+     * 返回 null 和抛出异常都记为错误，按类型统计
+     */
+    @Test
+    void countsNullResultsAndExceptions() throws Exception {
+        LoadReport report = LoadGenerator.fixedRate("errors", () -> {
+            if (System.nanoTime() % 2 == 0) {
+                return null;
+            }
+            throw new IllegalStateException("stub");
+        }, 200, 2, 0, 100);
+        assertEquals(20, report.getRequests(), report.toString());
+        assertEquals(20, report.getErrors(), report.toString());
+        long typed = report.getErrorTypes().getOrDefault("null-result", 0L)
+                + report.getErrorTypes().getOrDefault("IllegalStateException", 0L);
+        assertEquals(20, typed, report.toString());
+    }
+}
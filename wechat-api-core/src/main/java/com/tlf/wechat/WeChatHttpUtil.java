@@ -0,0 +1,177 @@
+package com.tlf.wechat;
+
+import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.HttpUtil;
+import com.tlf.wechat.http.coalesce.SingleFlight;
+import com.tlf.wechat.http.hedge.Hedger;
+import com.tlf.wechat.http.log.WireLog;
+import com.tlf.wechat.http.retry.RetryClassifier;
+import com.tlf.wechat.http.retry.Retryer;
+import com.tlf.wechat.http.timeout.TimeoutProfiles;
+import com.tlf.wechat.http.response.JsonBodyHandler;
+import com.tlf.wechat.http.response.JsonFieldHandler;
+import com.tlf.wechat.http.response.WeChatResponse;
+import org.apache.commons.lang3.ObjectUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * 微信http请求
+ */
+public class WeChatHttpUtil {
+    /**
+     * 发起请求
+     *
+     * @param host
+     * @param path
+     * @param method
+     * @param formData
+     * @return
+     */
+    public static JSONObject getBody(
+            String host,
+            String path,
+            String method,
+            Map<String, String> headers,
+            Map<String, String> querys,
+            Map<String, Object> formData
+    ) {
+        String body = null;
+        if (ObjectUtils.isNotEmpty(formData)) {
+            body = JSONObject.toJSONString(formData);
+        }
+        final String data = body;
+        final String url = url(host, path);
+        final long start = System.nanoTime();
+        String fullUrl = url;
+        JSONObject jsonBody = null;
+        WeChatResponse response = null;
+        Exception error = null;
+        try {
+            final boolean idempotent = RetryClassifier.isIdempotent(method, url);
+            fullUrl = HttpUtil.buildUrl(host, path, querys);
+            String key = SingleFlight.key(method, fullUrl, data);
+            response = SingleFlight.call(key, url, () -> TimeoutProfiles.call(url, () -> Retryer.call(
+                    idempotent,
+                    () -> Hedger.call(url, () -> HttpUtil.execute(host, path, method, headers, querys, data, null,
+                            new JsonBodyHandler(HttpClientManager.getConfig().getMaxBodySize()))),
+                    r -> RetryClassifier.isRetryable(r, idempotent)
+            )));
+            if (response != null && response.getStatusCode() == 200) {
+                jsonBody = response.getData();
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+        WireLog.exchange(method, fullUrl, data, response, error, start);
+        return jsonBody;
+    }
+
+
+    /**
+     * 发起请求，只读取需要的字段
+     * 响应以流的方式解析，不构建完整的 JSON 树，适用于只关心 access_token、errcode 等少数字段的接口
+     *
+     * @param host
+     * @param path
+     * @param method
+     * @param formData
+     * @param fields   需要读取的顶层字段，errcode/errmsg 总是会读取
+     * @return
+     */
+    public static WeChatResponse getFields(
+            String host,
+            String path,
+            String method,
+            Map<String, String> headers,
+            Map<String, String> querys,
+            Map<String, Object> formData,
+            String... fields
+    ) {
+        String body = null;
+        if (ObjectUtils.isNotEmpty(formData)) {
+            body = JSONObject.toJSONString(formData);
+        }
+        final String data = body;
+        final String url = url(host, path);
+        final long start = System.nanoTime();
+        String fullUrl = url;
+        WeChatResponse response = null;
+        Exception error = null;
+        try {
+            final boolean idempotent = RetryClassifier.isIdempotent(method, url);
+            fullUrl = HttpUtil.buildUrl(host, path, querys);
+            // 只读取部分字段的结果不能给读取完整响应的调用共用
+            String key = SingleFlight.key(method, fullUrl, data, fields);
+            response = SingleFlight.call(key, url, () -> TimeoutProfiles.call(url, () -> Retryer.call(
+                    idempotent,
+                    () -> Hedger.call(url, () -> HttpUtil.execute(host, path, method, headers, querys, data, null,
+                            new JsonFieldHandler(HttpClientManager.getConfig().getMaxBodySize(), fields))),
+                    r -> RetryClassifier.isRetryable(r, idempotent)
+            )));
+        } catch (Exception e) {
+            error = e;
+        }
+        WireLog.exchange(method, fullUrl, data, response, error, start);
+        return response;
+    }
+
+
+    /**
+     * 异步发起请求
+     * 与 getBody 一致，请求失败时结果为 null
+     *
+     * @param host
+     * @param path
+     * @param method
+     * @param formData
+     * @return
+     */
+    public static CompletableFuture<JSONObject> getBodyAsync(
+            String host,
+            String path,
+            String method,
+            Map<String, String> headers,
+            Map<String, String> querys,
+            Map<String, Object> formData
+    ) {
+        String body = null;
+        if (ObjectUtils.isNotEmpty(formData)) {
+            body = JSONObject.toJSONString(formData);
+        }
+        final String data = body;
+        final String url = url(host, path);
+        final long start = System.nanoTime();
+        final boolean idempotent = RetryClassifier.isIdempotent(method, url);
+        final String fullUrl;
+        try {
+            fullUrl = HttpUtil.buildUrl(host, path, querys);
+        } catch (UnsupportedEncodingException e) {
+            WireLog.exchange(method, url, data, null, e, start);
+            return CompletableFuture.completedFuture(null);
+        }
+        String key = SingleFlight.key(method, fullUrl, data);
+        return SingleFlight.callAsync(key, url, () -> TimeoutProfiles.supply(url, () -> Retryer.callAsync(
+                idempotent,
+                () -> Hedger.callAsync(url, () -> HttpUtil.executeAsync(host, path, method, headers, querys, data, null,
+                        new JsonBodyHandler(HttpClientManager.getConfig().getMaxBodySize()))),
+                r -> RetryClassifier.isRetryable(r, idempotent))))
+                .handle((response, e) -> {
+                    WireLog.exchange(method, fullUrl, data, response, e, start);
+                    return e == null && response != null && response.getStatusCode() == 200 ? response.getData() : null;
+                });
+    }
+
+
+    /**
+     * 完整地址用于匹配接口配置，path 可以为空（host 已是完整地址）
+     */
+    private static String url(String host, String path) {
+        return path == null ? host : host + path;
+    }
+
+}
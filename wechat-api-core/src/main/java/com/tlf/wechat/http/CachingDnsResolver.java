@@ -0,0 +1,93 @@
+package com.tlf.wechat.http;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * 缓存域名解析结果，连接池建立连接时使用
+ * 可以通过 resolve 预先解析（见 Warmup），避免首批请求等待 DNS；
+ * 缓存过期后重新解析失败时继续使用过期的结果，DNS 短暂不可用不影响请求
+ */
+public class CachingDnsResolver implements DnsResolver {
+    private static final Logger log = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param ttlMillis 缓存时间（毫秒），小于等于 0 时不缓存
+     */
+    public CachingDnsResolver(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        if (ttlMillis <= 0) {
+            return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(host);
+        if (entry != null && entry.expireAt > now) {
+            return entry.addresses.clone();
+        }
+        try {
+            InetAddress[] addresses = SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            cache.put(host, new Entry(addresses, now + ttlMillis));
+            return addresses.clone();
+        } catch (UnknownHostException e) {
+            if (entry == null) {
+                throw e;
+            }
+            log.warn("域名解析失败，使用过期的解析结果：{}", host);
+            return entry.addresses.clone();
+        }
+    }
+
+
+    /**
+     * 已缓存的域名
+     *
+     * @return
+     */
+    public Set<String> getCachedHosts() {
+        return Collections.unmodifiableSet(cache.keySet());
+    }
+
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+
+    private static class Entry {
+        final InetAddress[] addresses;
+        final long expireAt;
+
+        Entry(InetAddress[] addresses, long expireAt) {
+            this.addresses = addresses;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.tlf.wechat.http;
+
+import com.tlf.wechat.http.breaker.CallNotPermittedException;
+import com.tlf.wechat.http.breaker.CircuitBreaker;
+import com.tlf.wechat.http.breaker.CircuitBreakers;
+import com.tlf.wechat.http.fault.FaultInjector;
+import com.tlf.wechat.http.jfr.FlightEvents;
+import com.tlf.wechat.http.limit.ConcurrencyLimiter;
+import com.tlf.wechat.http.limit.ConcurrencyLimiters;
+import com.tlf.wechat.http.metrics.EndpointMetrics;
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.replay.Recorder;
+import com.tlf.wechat.http.schedule.RequestScheduler;
+import com.tlf.wechat.http.timeout.DeadlineExceededException;
+import com.tlf.wechat.http.timeout.TimeoutProfiles;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 全局共享的异步 HttpClient
+ * 基于 NIO reactor，少量 IO 线程即可承载大量并发请求，调用线程不会被阻塞
+ */
+public class HttpAsyncClientManager {
+    private static final Logger log = LoggerFactory.getLogger(HttpAsyncClientManager.class);
+
+    /**
+     * 创建和关闭客户端时加锁；不使用 synchronized，首次创建（读取证书等）时虚拟线程不会占用载体线程
+     */
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static volatile CloseableHttpAsyncClient httpAsyncClient;
+
+
+    /**
+     * 获取共享的异步 HttpClient，首次调用时按 HttpClientManager 的配置创建并启动
+     *
+     * @return
+     */
+    public static CloseableHttpAsyncClient getClient() {
+        CloseableHttpAsyncClient client = httpAsyncClient;
+        if (client == null) {
+            LOCK.lock();
+            try {
+                client = httpAsyncClient;
+                if (client == null) {
+                    client = build(HttpClientManager.getConfig());
+                    httpAsyncClient = client;
+                }
+            } finally {
+                LOCK.unlock();
+            }
+        }
+        return client;
+    }
+
+
+    /**
+     * 使用新配置重建异步 HttpClient
+     *
+     * @param config
+     */
+    public static void init(HttpClientConfig config) {
+        LOCK.lock();
+        try {
+            CloseableHttpAsyncClient old = httpAsyncClient;
+            httpAsyncClient = build(config);
+            close(old);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /**
+     * 关闭异步 HttpClient，应用停止时调用
+     */
+    public static void shutdown() {
+        LOCK.lock();
+        try {
+            CloseableHttpAsyncClient old = httpAsyncClient;
+            httpAsyncClient = null;
+            close(old);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /**
+     * 异步执行请求，响应体已完整读入内存，超过最大长度时请求失败
+     * 按接口设置超时，已超过截止时间时以 DeadlineExceededException 结束；
+     * 接口熔断时以 CallNotPermittedException 结束；
+     * 启用优先级调度时按优先级排队；
+     * 按 host + 接口分组限制并发，达到上限时排队，排队已满或超时以 LimitExceededException 结束
+     * 取消返回的 future 会同时取消排队或底层请求
+     *
+     * @param request
+     * @return
+     */
+    public static CompletableFuture<HttpResponse> execute(HttpUriRequest request) {
+        try {
+            TimeoutProfiles.apply(request);
+        } catch (DeadlineExceededException e) {
+            CompletableFuture<HttpResponse> expired = new CompletableFuture<>();
+            expired.completeExceptionally(e);
+            return expired;
+        }
+        if (!CircuitBreakers.isEnabled()) {
+            return schedule(request);
+        }
+        final CircuitBreaker breaker = CircuitBreakers.get(request.getURI());
+        final int permit;
+        try {
+            permit = breaker.acquire();
+        } catch (CallNotPermittedException e) {
+            CompletableFuture<HttpResponse> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+        final long start = System.nanoTime();
+        final CompletableFuture<HttpResponse> result = schedule(request);
+        result.whenComplete((response, e) -> CircuitBreakers.complete(breaker, permit, start,
+                response == null ? 0 : response.getStatusLine().getStatusCode(), e));
+        return result;
+    }
+
+
+    /**
+     * 启用优先级调度时先按优先级获取许可，再进入并发限制
+     */
+    private static CompletableFuture<HttpResponse> schedule(HttpUriRequest request) {
+        return RequestScheduler.executeAsync(request.getURI(), () -> limit(request));
+    }
+
+
+    private static CompletableFuture<HttpResponse> limit(HttpUriRequest request) {
+        if (!ConcurrencyLimiters.isEnabled()) {
+            return measure(request);
+        }
+        final ConcurrencyLimiter limiter = ConcurrencyLimiters.get(request.getURI());
+        final CompletableFuture<ConcurrencyLimiter.Permit> acquired = limiter.acquireAsync();
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        acquired.whenComplete((permit, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+                return;
+            }
+            if (result.isDone()) {
+                permit.ignore();
+                return;
+            }
+            final CompletableFuture<HttpResponse> sent = measure(request);
+            sent.whenComplete((response, ex) -> {
+                ConcurrencyLimiters.complete(permit, response == null ? 0 : response.getStatusLine().getStatusCode(), ex);
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(response);
+                }
+            });
+            result.whenComplete((r, ex) -> {
+                if (result.isCancelled()) {
+                    sent.cancel(false);
+                }
+            });
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled() && !acquired.isDone()) {
+                limiter.cancel(acquired);
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * 开启指标或 JFR 录制时记录实际发送的请求，与同步请求的 MetricsHttpClient 一致
+     */
+    private static CompletableFuture<HttpResponse> measure(HttpUriRequest request) {
+        final Object event = FlightEvents.beginRequest();
+        if (!Metrics.isEnabled() && event == null) {
+            return send(request);
+        }
+        final EndpointMetrics metrics = Metrics.endpoint(request.getURI());
+        metrics.started();
+        final long start = System.nanoTime();
+        final CompletableFuture<HttpResponse> sent = send(request);
+        sent.whenComplete((response, e) -> {
+            metrics.completed(response == null ? 0 : response.getStatusLine().getStatusCode(), System.nanoTime() - start);
+            FlightEvents.endRequest(event, request.getURI().getHost(), request, response);
+        });
+        return sent;
+    }
+
+
+    /**
+     * 由当前请求引擎发送，apache 引擎使用本类管理的 NIO 客户端；开启故障注入时先注入故障，录制时记录真实的响应
+     */
+    private static CompletableFuture<HttpResponse> send(HttpUriRequest request) {
+        if (FaultInjector.isEnabled()) {
+            return FaultInjector.executeAsync(request, () -> record(request));
+        }
+        return record(request);
+    }
+
+
+    private static CompletableFuture<HttpResponse> record(HttpUriRequest request) {
+        if (!Recorder.isRecording()) {
+            return HttpClientManager.getTransport().executeAsync(request);
+        }
+        final long start = System.nanoTime();
+        final CompletableFuture<HttpResponse> sent = HttpClientManager.getTransport().executeAsync(request);
+        final CompletableFuture<HttpResponse> recorded = sent.thenApply(response -> {
+            Recorder.record(request, response, start);
+            return response;
+        });
+        recorded.whenComplete((r, e) -> {
+            if (recorded.isCancelled()) {
+                sent.cancel(false);
+            }
+        });
+        return recorded;
+    }
+
+
+    private static CloseableHttpAsyncClient build(HttpClientConfig c) {
+        try {
+            IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setIoThreadCount(c.getIoThreadCount())
+                    .setConnectTimeout(c.getConnectTimeout())
+                    .setSoTimeout(c.getSocketTimeout())
+                    .build();
+            SSLContext sslContext = HttpClientManager.getSslContext();
+            Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                    .register("http", NoopIOSessionStrategy.INSTANCE)
+                    .register("https", new SSLIOSessionStrategy(
+                            sslContext, SslContextFactory.protocols(sslContext, c), null, SslContextFactory.hostnameVerifier()
+                    ))
+                    .build();
+
+            PoolingNHttpClientConnectionManager cm = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(ioReactorConfig), null, registry, HttpClientManager.getDnsResolver()
+            );
+            cm.setMaxTotal(c.getMaxTotal());
+            cm.setDefaultMaxPerRoute(c.getMaxPerRoute());
+
+            CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                    .setConnectionManager(cm)
+                    .setKeepAliveStrategy(HttpClientManager.keepAliveStrategy(c.getKeepAliveTime()))
+                    .setDefaultRequestConfig(HttpClientManager.requestConfig(null))
+                    .build();
+            client.start();
+            return client;
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("创建异步 HttpClient 失败", e);
+        }
+    }
+
+
+    private static void close(CloseableHttpAsyncClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.warn("关闭异步 HttpClient 失败", e);
+        }
+    }
+
+}
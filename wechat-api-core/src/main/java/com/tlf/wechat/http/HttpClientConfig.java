@@ -0,0 +1,260 @@
+package com.tlf.wechat.http;
+
+import java.security.KeyStore;
+
+/**
+ * 连接池配置
+ */
+public class HttpClientConfig {
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个路由（host）最大连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 连接超时时间（毫秒）
+     */
+    private int connectTimeout = 10000;
+
+    /**
+     * 响应超时时间（毫秒）
+     */
+    private int socketTimeout = 30000;
+
+    /**
+     * 从连接池获取连接的超时时间（毫秒）
+     */
+    private int connectionRequestTimeout = 5000;
+
+    /**
+     * 服务端未返回 Keep-Alive 时，连接默认保持时间（毫秒）
+     */
+    private long keepAliveTime = 20000;
+
+    /**
+     * 空闲连接超过该时间将被回收（毫秒）
+     */
+    private long maxIdleTime = 30000;
+
+    /**
+     * 连接空闲超过该时间后，复用前先检查是否可用（毫秒）
+     */
+    private int validateAfterInactivity = 2000;
+
+    /**
+     * 异步客户端 IO 线程数（事件循环线程），默认为 CPU 核数
+     */
+    private int ioThreadCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 响应体最大长度（字节），超过时请求失败，防止异常响应占满内存
+     */
+    private long maxBodySize = 10 * 1024 * 1024;
+
+    /**
+     * 信任库路径，支持 classpath: 前缀，为空时使用 JDK 默认信任库
+     */
+    private String trustStorePath;
+
+    /**
+     * 信任库密码
+     */
+    private String trustStorePassword;
+
+    /**
+     * 信任库类型
+     */
+    private String trustStoreType = KeyStore.getDefaultType();
+
+    /**
+     * 固定信任的 CA 证书（PEM，可包含多个证书），支持 classpath: 前缀
+     * 配置后只信任这些 CA，优先于 trustStorePath
+     */
+    private String pinnedCertificates;
+
+    /**
+     * TLS 客户端会话缓存个数
+     */
+    private int sslSessionCacheSize = 1000;
+
+    /**
+     * TLS 会话缓存有效期（秒）
+     */
+    private int sslSessionTimeout = 3600;
+
+    /**
+     * 启用的 TLS 协议，JDK 不支持的协议会被忽略
+     */
+    private String[] tlsProtocols = {"TLSv1.3", "TLSv1.2"};
+
+    /**
+     * 请求引擎：apache（默认）；jdk 使用 java.net.http.HttpClient，支持 HTTP/2，需要 Java 11+
+     * 引擎不可用时使用 apache
+     */
+    private String transport = "apache";
+
+    /**
+     * 域名解析结果缓存时间（毫秒），小于等于 0 时不缓存，每次由 JDK 解析
+     * 缓存过期后重新解析失败时继续使用过期的结果
+     */
+    private long dnsCacheTtl = 60000;
+
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void setSocketTimeout(int socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    public void setKeepAliveTime(long keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    public void setIoThreadCount(int ioThreadCount) {
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public String getTrustStorePath() {
+        return trustStorePath;
+    }
+
+    public void setTrustStorePath(String trustStorePath) {
+        this.trustStorePath = trustStorePath;
+    }
+
+    public String getTrustStorePassword() {
+        return trustStorePassword;
+    }
+
+    public void setTrustStorePassword(String trustStorePassword) {
+        this.trustStorePassword = trustStorePassword;
+    }
+
+    public String getTrustStoreType() {
+        return trustStoreType;
+    }
+
+    public void setTrustStoreType(String trustStoreType) {
+        this.trustStoreType = trustStoreType;
+    }
+
+    public String getPinnedCertificates() {
+        return pinnedCertificates;
+    }
+
+    public void setPinnedCertificates(String pinnedCertificates) {
+        this.pinnedCertificates = pinnedCertificates;
+    }
+
+    public int getSslSessionCacheSize() {
+        return sslSessionCacheSize;
+    }
+
+    public void setSslSessionCacheSize(int sslSessionCacheSize) {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    public int getSslSessionTimeout() {
+        return sslSessionTimeout;
+    }
+
+    public void setSslSessionTimeout(int sslSessionTimeout) {
+        this.sslSessionTimeout = sslSessionTimeout;
+    }
+
+    public String[] getTlsProtocols() {
+        return tlsProtocols;
+    }
+
+    public void setTlsProtocols(String[] tlsProtocols) {
+        this.tlsProtocols = tlsProtocols;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public long getDnsCacheTtl() {
+        return dnsCacheTtl;
+    }
+
+    public void setDnsCacheTtl(long dnsCacheTtl) {
+        this.dnsCacheTtl = dnsCacheTtl;
+    }
+
+}
@@ -0,0 +1,375 @@
+package com.tlf.wechat.http;
+
+import com.tlf.wechat.http.breaker.CircuitBreakingHttpClient;
+import com.tlf.wechat.http.compress.Compression;
+import com.tlf.wechat.http.fault.FaultInjectingHttpClient;
+import com.tlf.wechat.http.limit.LimitingHttpClient;
+import com.tlf.wechat.http.metrics.MetricsHttpClient;
+import com.tlf.wechat.http.replay.RecordingHttpClient;
+import com.tlf.wechat.http.schedule.SchedulingHttpClient;
+import com.tlf.wechat.http.timeout.TimeoutHttpClient;
+import com.tlf.wechat.http.transport.ApacheHttpTransport;
+import com.tlf.wechat.http.transport.HttpTransport;
+import com.tlf.wechat.http.transport.HttpTransportProvider;
+import com.tlf.wechat.http.transport.HttpTransports;
+import com.tlf.wechat.http.transport.TransportHttpClient;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 全局共享的 HttpClient
+ * 连接池复用 TCP 连接和 TLS 会话，避免每次请求重新握手；线程安全，整个应用共用一个实例
+ */
+public class HttpClientManager {
+    private static final Logger log = LoggerFactory.getLogger(HttpClientManager.class);
+
+    /**
+     * 创建和关闭客户端时加锁；不使用 synchronized，首次创建（读取证书等）时虚拟线程不会占用载体线程
+     */
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static volatile HttpClientConfig config = new HttpClientConfig();
+    private static volatile PoolingHttpClientConnectionManager connectionManager;
+    private static volatile CloseableHttpClient httpClient;
+    private static volatile SSLContext sslContext;
+    private static volatile HttpTransport transport;
+    private static volatile CachingDnsResolver dnsResolver;
+
+    /**
+     * 基于连接池的 Apache HttpClient，使用其他请求引擎时也会创建，关闭时需要单独关闭
+     */
+    private static volatile CloseableHttpClient apacheClient;
+
+
+    /**
+     * 获取共享的 HttpClient，首次调用时按当前配置创建
+     *
+     * @return
+     */
+    public static CloseableHttpClient getClient() {
+        CloseableHttpClient client = httpClient;
+        if (client == null) {
+            LOCK.lock();
+            try {
+                client = httpClient;
+                if (client == null) {
+                    client = build(config);
+                    httpClient = client;
+                }
+            } finally {
+                LOCK.unlock();
+            }
+        }
+        return client;
+    }
+
+
+    /**
+     * 共享的连接池，供需要自行构建 HttpClient 的地方复用（如微信支付自动签名的 HttpClient）
+     *
+     * @return
+     */
+    public static PoolingHttpClientConnectionManager getConnectionManager() {
+        getClient();
+        return connectionManager;
+    }
+
+
+    /**
+     * 使用新配置重建 HttpClient，旧的连接池会被关闭
+     *
+     * @param newConfig
+     */
+    public static void init(HttpClientConfig newConfig) {
+        LOCK.lock();
+        try {
+            CloseableHttpClient old = httpClient;
+            CloseableHttpClient oldApache = apacheClient;
+            config = newConfig;
+            httpClient = build(newConfig);
+            close(old);
+            close(oldApache);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /**
+     * 关闭 HttpClient 和连接池，应用停止时调用
+     */
+    public static void shutdown() {
+        LOCK.lock();
+        try {
+            CloseableHttpClient old = httpClient;
+            CloseableHttpClient oldApache = apacheClient;
+            httpClient = null;
+            connectionManager = null;
+            dnsResolver = null;
+            transport = null;
+            apacheClient = null;
+            close(old);
+            close(oldApache);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /**
+     * 共享的 SSLContext，异步 HttpClient 也使用它
+     *
+     * @return
+     */
+    public static SSLContext getSslContext() {
+        getClient();
+        return sslContext;
+    }
+
+
+    /**
+     * 加上超时、熔断和并发限制：按接口设置超时，已超过截止时间或接口熔断时直接失败，
+     * 否则按 host + 接口分组限制并发，微信接口变慢或不可用时请求快速失败，不会占满调用方线程；
+     * 启用优先级调度（RequestScheduler）时，进入并发限制前先按优先级排队；
+     * 开启指标（Metrics）时记录通过并发限制、实际发送的请求；
+     * 开启故障注入（FaultInjector）时在最内层注入故障，录制（Recorder）时记录真实的响应
+     *
+     * @param client
+     * @return
+     */
+    public static CloseableHttpClient decorate(CloseableHttpClient client) {
+        return new TimeoutHttpClient(new CircuitBreakingHttpClient(new SchedulingHttpClient(new LimitingHttpClient(new MetricsHttpClient(new FaultInjectingHttpClient(new RecordingHttpClient(client)))))));
+    }
+
+
+    /**
+     * 当前使用的请求引擎
+     *
+     * @return
+     */
+    public static HttpTransport getTransport() {
+        getClient();
+        return transport;
+    }
+
+
+    public static HttpClientConfig getConfig() {
+        return config;
+    }
+
+
+    /**
+     * 连接池使用的域名解析，带缓存，异步 HttpClient 也使用它
+     *
+     * @return
+     */
+    public static CachingDnsResolver getDnsResolver() {
+        getClient();
+        return dnsResolver;
+    }
+
+
+    /**
+     * 预先建立连接并放回连接池：完成 TCP 连接和 TLS 握手，之后的请求直接复用
+     * 连接池中已有的空闲连接计入数量；超过每个 host 的最大连接数时按最大连接数
+     * 只作用于 Apache HttpClient 的连接池（包括微信支付自动签名的 HttpClient），不包括 jdk 引擎和异步 HttpClient
+     *
+     * @param origin 如 https://api.mch.weixin.qq.com
+     * @param count  连接数
+     * @return 连接池中可用的连接数
+     * @throws Exception 获取或建立连接失败
+     */
+    public static int prewarm(String origin, int count) throws Exception {
+        PoolingHttpClientConnectionManager cm = getConnectionManager();
+        HttpClientConfig c = config;
+        URI uri = URI.create(origin);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+        // 与请求时的路由一致（DefaultRoutePlanner 补全端口），才会进入同一个连接池
+        HttpRoute route = new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+        int n = Math.min(count, c.getMaxPerRoute());
+
+        List<HttpClientConnection> leased = new ArrayList<>(n);
+        try {
+            // 同时租用 n 个连接，否则会反复拿到同一个连接
+            for (int i = 0; i < n; i++) {
+                HttpClientConnection conn = cm.requestConnection(route, null)
+                        .get(c.getConnectionRequestTimeout(), TimeUnit.MILLISECONDS);
+                leased.add(conn);
+                if (!conn.isOpen()) {
+                    HttpClientContext context = HttpClientContext.create();
+                    cm.connect(conn, route, c.getConnectTimeout(), context);
+                    cm.routeComplete(conn, route, context);
+                }
+            }
+        } finally {
+            for (HttpClientConnection conn : leased) {
+                cm.releaseConnection(conn, null, c.getKeepAliveTime(), TimeUnit.MILLISECONDS);
+            }
+        }
+        return leased.size();
+    }
+
+
+    /**
+     * 连接池状态：租用中、空闲、等待中的连接数
+     *
+     * @return
+     */
+    public static PoolStats getTotalStats() {
+        return getConnectionManager().getTotalStats();
+    }
+
+
+    /**
+     * 默认请求配置
+     *
+     * @param socketTimeout 响应超时时间，为空时使用配置值
+     * @return
+     */
+    public static RequestConfig requestConfig(Integer socketTimeout) {
+        return requestConfig(config, socketTimeout);
+    }
+
+
+    private static RequestConfig requestConfig(HttpClientConfig c, Integer socketTimeout) {
+        return RequestConfig.custom()
+                .setConnectTimeout(c.getConnectTimeout())                       // 设置连接超时时间
+                .setConnectionRequestTimeout(c.getConnectionRequestTimeout())   // 设置从连接池获取连接的超时时间
+                .setSocketTimeout(socketTimeout == null ? c.getSocketTimeout() : socketTimeout) // 设置响应超时时间
+                .build();
+    }
+
+
+    private static CloseableHttpClient build(HttpClientConfig c) {
+        // SSLContext 只创建一次，会话缓存才能复用
+        SSLContext ctx = SslContextFactory.create(c);
+        sslContext = ctx;
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(
+                        ctx, SslContextFactory.protocols(ctx, c), null, SslContextFactory.hostnameVerifier()
+                ))
+                .build();
+
+        CachingDnsResolver resolver = new CachingDnsResolver(c.getDnsCacheTtl());
+        dnsResolver = resolver;
+        PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager(registry, null, resolver);
+        cm.setMaxTotal(c.getMaxTotal());
+        cm.setDefaultMaxPerRoute(c.getMaxPerRoute());
+        cm.setValidateAfterInactivity(c.getValidateAfterInactivity());
+        connectionManager = cm;
+
+        // 连接池总是创建，微信支付自动签名的 HttpClient 基于 Apache HttpClient，需要复用它
+        CloseableHttpClient apache = HttpClients.custom()
+                .setConnectionManager(cm)
+                .setKeepAliveStrategy(keepAliveStrategy(c.getKeepAliveTime()))
+                .setDefaultRequestConfig(requestConfig(c, null))
+                // 重试由 Retryer 按接口是否幂等统一处理，关闭 HttpClient 自带的重试，避免重试次数叠加
+                .disableAutomaticRetries()
+                // 压缩由 Compression 按接口开关处理，并统计压缩前后的字节数
+                .disableContentCompression()
+                .addInterceptorLast(Compression.REQUEST_INTERCEPTOR)
+                .addInterceptorLast(Compression.RESPONSE_INTERCEPTOR)
+                // 后台线程定期回收过期和空闲连接
+                .evictExpiredConnections()
+                .evictIdleConnections(c.getMaxIdleTime(), TimeUnit.MILLISECONDS)
+                .build();
+        apacheClient = apache;
+
+        HttpTransport t = transport(c, ctx);
+        if (t == null) {
+            transport = new ApacheHttpTransport(apache);
+            return decorate(apache);
+        }
+        transport = t;
+        return decorate(new TransportHttpClient(t));
+    }
+
+
+    /**
+     * 按配置创建其他请求引擎，使用默认的 apache 引擎或配置的引擎不可用时返回空
+     */
+    private static HttpTransport transport(HttpClientConfig c, SSLContext ctx) {
+        String name = c.getTransport();
+        if (name == null || HttpTransports.APACHE.equalsIgnoreCase(name)) {
+            return null;
+        }
+        HttpTransportProvider provider = HttpTransports.provider(name);
+        if (provider == null || !provider.isAvailable()) {
+            log.warn("请求引擎 {} 不可用，使用 apache 引擎", name);
+            return null;
+        }
+        log.info("使用请求引擎：{}", name);
+        return provider.create(c, ctx);
+    }
+
+
+    /**
+     * 优先使用服务端 Keep-Alive: timeout=xx，否则使用默认保持时间
+     *
+     * @param defaultKeepAlive
+     * @return
+     */
+    static ConnectionKeepAliveStrategy keepAliveStrategy(final long defaultKeepAlive) {
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+                while (it.hasNext()) {
+                    HeaderElement he = it.nextElement();
+                    if (he.getValue() != null && "timeout".equalsIgnoreCase(he.getName())) {
+                        try {
+                            return Long.parseLong(he.getValue()) * 1000;
+                        } catch (NumberFormatException ignore) {
+                        }
+                    }
+                }
+                return defaultKeepAlive;
+            }
+        };
+    }
+
+
+    private static void close(CloseableHttpClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.warn("关闭 HttpClient 失败", e);
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.tlf.wechat.http;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * 请求相关的定时任务（排队超时、重试退避等）共用的守护线程
+ * 任务只做状态切换和回调分发，不能在其中执行阻塞操作
+ */
+public class HttpScheduler {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "wechat-http-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    /**
+     * 延迟执行
+     *
+     * @param task
+     * @param delayMillis
+     * @return
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return SCHEDULER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+}
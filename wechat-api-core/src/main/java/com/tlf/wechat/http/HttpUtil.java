@@ -2,44 +2,31 @@ package com.tlf.wechat.http;
 
 
 import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.http.response.BoundedStringHandler;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.conn.ClientConnectionManager;
-import org.apache.http.conn.scheme.Scheme;
-import org.apache.http.conn.scheme.SchemeRegistry;
-import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.util.EntityUtils;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class HttpUtil {
-    private static Integer connectTimeOutNumber = 10000;
-    private static Integer socketTimeOutNumber = 30000;
-
-
     public static String getBody(
             String host,
             String path,
@@ -62,30 +49,134 @@ public class HttpUtil {
             String formData,
             Integer timeOutNumber
     ) throws Exception {
-        HttpResponse httpResponse = null;
+        return execute(host, path, method, headers, querys, formData, timeOutNumber,
+                new BoundedStringHandler(HttpClientManager.getConfig().getMaxBodySize()));
+    }
+
+
+    /**
+     * 发起请求并以流的方式处理响应，如 JsonFieldHandler 只读取需要的字段
+     * 处理完成后连接自动归还连接池
+     *
+     * @param host
+     * @param path
+     * @param method
+     * @param headers
+     * @param querys
+     * @param formData
+     * @param timeOutNumber
+     * @param handler
+     * @return
+     * @throws Exception
+     */
+    public static <T> T execute(
+            String host,
+            String path,
+            String method,
+            Map<String, String> headers,
+            Map<String, String> querys,
+            String formData,
+            Integer timeOutNumber,
+            ResponseHandler<? extends T> handler
+    ) throws Exception {
+        HttpRequestBase request = buildRequest(host, path, method, headers, querys, formData, timeOutNumber);
+        if (ObjectUtils.isEmpty(request)) {
+            return null;
+        }
+        return HttpClientManager.getClient().execute(request, handler);
+    }
+
+
+    /**
+     * 异步发起请求，不阻塞调用线程
+     * 响应状态码非 200 时结果为 null，网络异常时以异常结束
+     *
+     * @param host
+     * @param path
+     * @param method
+     * @param headers
+     * @param querys
+     * @param formData
+     * @param timeOutNumber
+     * @return
+     */
+    public static CompletableFuture<String> getBodyAsync(
+            String host,
+            String path,
+            String method,
+            Map<String, String> headers,
+            Map<String, String> querys,
+            String formData,
+            Integer timeOutNumber
+    ) {
+        return executeAsync(host, path, method, headers, querys, formData, timeOutNumber,
+                new BoundedStringHandler(HttpClientManager.getConfig().getMaxBodySize()));
+    }
+
+
+    /**
+     * 异步发起请求，响应读入内存后交给 handler 处理
+     *
+     * @param host
+     * @param path
+     * @param method
+     * @param headers
+     * @param querys
+     * @param formData
+     * @param timeOutNumber
+     * @param handler
+     * @return
+     */
+    public static <T> CompletableFuture<T> executeAsync(
+            String host,
+            String path,
+            String method,
+            Map<String, String> headers,
+            Map<String, String> querys,
+            String formData,
+            Integer timeOutNumber,
+            ResponseHandler<? extends T> handler
+    ) {
+        HttpRequestBase request;
+        try {
+            request = buildRequest(host, path, method, headers, querys, formData, timeOutNumber);
+        } catch (Exception e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        if (ObjectUtils.isEmpty(request)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return HttpAsyncClientManager.execute(request).thenApply(httpResponse -> {
+            try {
+                return handler.handleResponse(httpResponse);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+
+    private static HttpRequestBase buildRequest(
+            String host,
+            String path,
+            String method,
+            Map<String, String> headers,
+            Map<String, String> querys,
+            String formData,
+            Integer timeOutNumber
+    ) throws Exception {
         switch (method.toLowerCase()) {
             case "post":
-                httpResponse = doPost(host, path, headers, querys, formData, timeOutNumber);
-                break;
+                return createPost(host, path, headers, querys, formData, timeOutNumber);
             case "get":
-                httpResponse = doGet(host, path, headers, querys, timeOutNumber);
-                break;
+                return createGet(host, path, headers, querys, timeOutNumber);
             case "put":
-                httpResponse = doPut(host, path, headers, querys, formData, timeOutNumber);
-                break;
+                return createPut(host, path, headers, querys, formData, timeOutNumber);
             case "del":
             case "delete":
-                httpResponse = doDelete(host, path, headers, querys, formData, timeOutNumber);
-                break;
-        }
-        if (ObjectUtils.isEmpty(httpResponse)) {
-            return null;
-        }
-        HttpEntity httpEntity = httpResponse.getEntity();
-        int statusCode = httpResponse.getStatusLine().getStatusCode(); // 响应状态码
-        String body = EntityUtils.toString(httpEntity); // 响应体
-        if (statusCode == 200) {
-            return body;
+                return createDelete(host, path, headers, querys, formData, timeOutNumber);
         }
         return null;
     }
@@ -101,14 +192,12 @@ public class HttpUtil {
      * @return
      * @throws Exception
      */
-    private static HttpResponse doGet(
+    private static HttpGet createGet(
             String host, String path,
             Map<String, String> headers,
             Map<String, String> querys,
             Integer timeOutNumber
     ) throws Exception {
-        HttpClient httpClient = wrapClient(host);
-
         HttpGet request = new HttpGet(buildUrl(host, path, querys));
         if (ObjectUtils.isNotEmpty(headers)) {
             for (Map.Entry<String, String> e : headers.entrySet()) {
@@ -116,7 +205,7 @@ public class HttpUtil {
             }
         }
         setTimeOut(request, timeOutNumber);
-        return httpClient.execute(request);
+        return request;
     }
 
 
@@ -131,14 +220,13 @@ public class HttpUtil {
      * @return
      * @throws Exception
      */
-    private static HttpResponse doPost(
+    private static HttpPost createPost(
             String host, String path,
             Map<String, String> headers,
             Map<String, String> querys,
             Map<String, String> bodys,
             Integer timeOutNumber
     ) throws Exception {
-        HttpClient httpClient = wrapClient(host);
         HttpPost request = new HttpPost(buildUrl(host, path, querys));
         if (ObjectUtils.isNotEmpty(headers)) {
             for (Map.Entry<String, String> e : headers.entrySet()) {
@@ -156,7 +244,7 @@ public class HttpUtil {
         }
 
         setTimeOut(request, timeOutNumber);
-        return httpClient.execute(request);
+        return request;
     }
 
 
@@ -171,15 +259,13 @@ public class HttpUtil {
      * @return
      * @throws Exception
      */
-    private static HttpResponse doPost(
+    private static HttpPost createPost(
             String host, String path,
             Map<String, String> headers,
             Map<String, String> querys,
             String body,
             Integer timeOutNumber
     ) throws Exception {
-        HttpClient httpClient = wrapClient(host);
-
         HttpPost request = new HttpPost(buildUrl(host, path, querys));
         if (ObjectUtils.isNotEmpty(headers)) {
             for (Map.Entry<String, String> e : headers.entrySet()) {
@@ -190,7 +276,7 @@ public class HttpUtil {
             request.setEntity(new StringEntity(body, "utf-8"));
         }
         setTimeOut(request, timeOutNumber);
-        return httpClient.execute(request);
+        return request;
     }
 
 
@@ -205,14 +291,13 @@ public class HttpUtil {
      * @return
      * @throws Exception
      */
-    private static HttpResponse doPost(
+    private static HttpPost createPost(
             String host, String path,
             Map<String, String> headers,
             Map<String, String> querys,
             byte[] body,
             Integer timeOutNumber
     ) throws Exception {
-        HttpClient httpClient = wrapClient(host);
         HttpPost request = new HttpPost(buildUrl(host, path, querys));
         if (ObjectUtils.isNotEmpty(headers)) {
             for (Map.Entry<String, String> e : headers.entrySet()) {
@@ -224,7 +309,7 @@ public class HttpUtil {
         }
 
         setTimeOut(request, timeOutNumber);
-        return httpClient.execute(request);
+        return request;
     }
 
 
@@ -239,7 +324,7 @@ public class HttpUtil {
      * @return
      * @throws Exception
      */
-    private static HttpResponse doPut(
+    private static HttpPut createPut(
             String host,
             String path,
             Map<String, String> headers,
@@ -247,8 +332,6 @@ public class HttpUtil {
             String body,
             Integer timeOutNumber
     ) throws Exception {
-        HttpClient httpClient = wrapClient(host);
-
         HttpPut request = new HttpPut(buildUrl(host, path, querys));
         if (ObjectUtils.isNotEmpty(headers)) {
             for (Map.Entry<String, String> e : headers.entrySet()) {
@@ -260,7 +343,7 @@ public class HttpUtil {
         }
 
         setTimeOut(request, timeOutNumber);
-        return httpClient.execute(request);
+        return request;
     }
 
 
@@ -275,7 +358,7 @@ public class HttpUtil {
      * @return
      * @throws Exception
      */
-    private static HttpResponse doPut(
+    private static HttpPut createPut(
             String host,
             String path,
             Map<String, String> headers,
@@ -283,7 +366,6 @@ public class HttpUtil {
             byte[] body,
             Integer timeOutNumber
     ) throws Exception {
-        HttpClient httpClient = wrapClient(host);
         HttpPut request = new HttpPut(buildUrl(host, path, querys));
         if (ObjectUtils.isNotEmpty(headers)) {
             for (Map.Entry<String, String> e : headers.entrySet()) {
@@ -295,7 +377,7 @@ public class HttpUtil {
         }
 
         setTimeOut(request, timeOutNumber);
-        return httpClient.execute(request);
+        return request;
     }
 
 
@@ -309,7 +391,7 @@ public class HttpUtil {
      * @return
      * @throws Exception
      */
-    private static HttpResponse doDelete(
+    private static MyHttpDelete createDelete(
             String host,
             String path,
             Map<String, String> headers,
@@ -317,8 +399,6 @@ public class HttpUtil {
             String body,
             Integer timeOutNumber
     ) throws Exception {
-        HttpClient httpClient = wrapClient(host);
-
         MyHttpDelete request = new MyHttpDelete(buildUrl(host, path, querys));
         if (ObjectUtils.isNotEmpty(headers)) {
             for (Map.Entry<String, String> e : headers.entrySet()) {
@@ -331,59 +411,28 @@ public class HttpUtil {
         }
 
         setTimeOut(request, timeOutNumber);
-        return httpClient.execute(request);
+        return request;
     }
 
 
-    private static void setTimeOut(HttpPost request, Integer timeOutNumber) {
-        if (ObjectUtils.isEmpty(timeOutNumber)) {
-            timeOutNumber = socketTimeOutNumber;
+    private static void setTimeOut(HttpRequestBase request, Integer timeOutNumber) {
+        // 只设置按请求指定的响应超时（毫秒），其余超时在发出请求时按接口配置（TimeoutProfiles）设置
+        if (timeOutNumber != null) {
+            request.setConfig(RequestConfig.custom().setSocketTimeout(timeOutNumber).build());
         }
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(connectTimeOutNumber)    // 设置连接超时时间
-                .setSocketTimeout(timeOutNumber).build();   // 设置响应超时时间
-        // 将配置设置到里面
-        request.setConfig(config);
     }
 
 
-    private static void setTimeOut(MyHttpDelete request, Integer timeOutNumber) {
-        if (ObjectUtils.isEmpty(timeOutNumber)) {
-            timeOutNumber = socketTimeOutNumber;
-        }
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(connectTimeOutNumber)    // 设置连接超时时间
-                .setSocketTimeout(timeOutNumber).build();   // 设置响应超时时间
-        // 将配置设置到里面
-        request.setConfig(config);
-    }
-
-
-    private static void setTimeOut(HttpPut request, Integer timeOutNumber) {
-        if (ObjectUtils.isEmpty(timeOutNumber)) {
-            timeOutNumber = socketTimeOutNumber;
-        }
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(connectTimeOutNumber)    // 设置连接超时时间
-                .setSocketTimeout(timeOutNumber).build();   // 设置响应超时时间
-        // 将配置设置到里面
-        request.setConfig(config);
-    }
-
-
-    private static void setTimeOut(HttpGet request, Integer timeOutNumber) {
-        if (ObjectUtils.isEmpty(timeOutNumber)) {
-            timeOutNumber = socketTimeOutNumber;
-        }
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(connectTimeOutNumber)    // 设置连接超时时间
-                .setSocketTimeout(timeOutNumber).build();   // 设置响应超时时间
-        // 将配置设置到里面
-        request.setConfig(config);
-    }
-
-
-    private static String buildUrl(String host, String path, Map<String, String> querys) throws UnsupportedEncodingException {
+    /**
+     * 拼接请求地址，参数值按 UTF-8 编码
+     *
+     * @param host
+     * @param path
+     * @param querys 可以为空
+     * @return
+     * @throws UnsupportedEncodingException
+     */
+    public static String buildUrl(String host, String path, Map<String, String> querys) throws UnsupportedEncodingException {
         StringBuilder sbUrl = new StringBuilder();
         sbUrl.append(host);
         if (!StringUtils.isBlank(path)) {
@@ -415,40 +464,19 @@ public class HttpUtil {
     }
 
 
-    private static HttpClient wrapClient(String host) {
-        HttpClient httpClient = new DefaultHttpClient();
-        if (host.startsWith("https://")) {
-            sslClient(httpClient);
-        }
-
-        return httpClient;
-    }
-
-
-    private static void sslClient(HttpClient httpClient) {
-        try {
-            SSLContext ctx = SSLContext.getInstance("TLS");
-            X509TrustManager tm = new X509TrustManager() {
-                public X509Certificate[] getAcceptedIssuers() {
-                    return null;
-                }
-
-                public void checkClientTrusted(X509Certificate[] xcs, String str) {
-
-                }
-
-                public void checkServerTrusted(X509Certificate[] xcs, String str) {
-
-                }
-            };
-            ctx.init(null, new TrustManager[]{tm}, null);
-            SSLSocketFactory ssf = new SSLSocketFactory(ctx);
-            ssf.setHostnameVerifier(SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
-            ClientConnectionManager ccm = httpClient.getConnectionManager();
-            SchemeRegistry registry = ccm.getSchemeRegistry();
-            registry.register(new Scheme("https", 443, ssf));
-        } catch (KeyManagementException | NoSuchAlgorithmException ex) {
-            throw new RuntimeException(ex);
+    /**
+     * 去掉协议、域名和参数，只保留路径
+     *
+     * @param url 完整地址，或 host + path 拼接的地址
+     * @return
+     */
+    public static String path(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : url.indexOf('/', start + 3);
+        if (start < 0) {
+            return "/";
         }
+        int end = url.indexOf('?', start);
+        return end < 0 ? url.substring(start) : url.substring(start, end);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package com.tlf.wechat.http;
+
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * 创建 SSLContext
+ * 整个应用只创建一次并在连接池之间共享，客户端会话缓存才能生效，
+ * 再次连接同一域名时走简化握手（会话恢复），不需要完整握手
+ */
+public class SslContextFactory {
+
+    private static final HostnameVerifier HOSTNAME_VERIFIER = new DefaultHostnameVerifier();
+
+
+    /**
+     * 按配置创建 SSLContext
+     * 1、未配置信任库时使用 JDK 默认信任库（cacerts）
+     * 2、配置了 pinnedCertificates 时只信任其中的 CA 证书（如微信接口使用的 DigiCert/GlobalSign 根证书）
+     *
+     * @param config
+     * @return
+     */
+    public static SSLContext create(HttpClientConfig config) {
+        try {
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init(trustStore(config));
+
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, tmf.getTrustManagers(), null);
+
+            // 客户端会话缓存，用于会话恢复
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            sessionContext.setSessionCacheSize(config.getSslSessionCacheSize());
+            sessionContext.setSessionTimeout(config.getSslSessionTimeout());
+            return sslContext;
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalStateException("创建 SSLContext 失败", e);
+        }
+    }
+
+
+    /**
+     * 校验证书域名
+     *
+     * @return
+     */
+    public static HostnameVerifier hostnameVerifier() {
+        return HOSTNAME_VERIFIER;
+    }
+
+
+    /**
+     * 配置的协议中当前 JDK 支持的部分，如 Java 8 早期版本不支持 TLSv1.3
+     *
+     * @param sslContext
+     * @param config
+     * @return
+     */
+    public static String[] protocols(SSLContext sslContext, HttpClientConfig config) {
+        if (config.getTlsProtocols() == null) {
+            return null;
+        }
+        List<String> supported = Arrays.asList(sslContext.getSupportedSSLParameters().getProtocols());
+        List<String> protocols = new ArrayList<>();
+        for (String protocol : config.getTlsProtocols()) {
+            if (supported.contains(protocol)) {
+                protocols.add(protocol);
+            }
+        }
+        return protocols.isEmpty() ? null : protocols.toArray(new String[0]);
+    }
+
+
+    /**
+     * 信任库，返回 null 时使用 JDK 默认信任库
+     */
+    private static KeyStore trustStore(HttpClientConfig config) throws GeneralSecurityException, IOException {
+        if (config.getPinnedCertificates() != null) {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(null, null);
+            try (InputStream in = open(config.getPinnedCertificates())) {
+                int i = 0;
+                for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+                    keyStore.setCertificateEntry("pinned-" + i++, certificate);
+                }
+            }
+            return keyStore;
+        }
+        if (config.getTrustStorePath() != null) {
+            KeyStore keyStore = KeyStore.getInstance(config.getTrustStoreType());
+            char[] password = config.getTrustStorePassword() == null ? null : config.getTrustStorePassword().toCharArray();
+            try (InputStream in = open(config.getTrustStorePath())) {
+                keyStore.load(in, password);
+            }
+            return keyStore;
+        }
+        return null;
+    }
+
+
+    /**
+     * 支持 classpath: 前缀
+     */
+    private static InputStream open(String path) throws IOException {
+        if (path.startsWith("classpath:")) {
+            String name = path.substring("classpath:".length());
+            InputStream in = SslContextFactory.class.getClassLoader().getResourceAsStream(name.startsWith("/") ? name.substring(1) : name);
+            if (in == null) {
+                throw new FileNotFoundException(path);
+            }
+            return in;
+        }
+        return new FileInputStream(path);
+    }
+}
@@ -0,0 +1,275 @@
+package com.tlf.wechat.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * 预编译的请求地址模板
+ * 模板只解析一次，变量写作 {name}，如：
+ * <pre>
+ * static final UrlTemplate ORDER = UrlTemplate.compile(
+ *         "https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{out_trade_no}?mchid={mchid}");
+ * String url = ORDER.expand(outTradeNo, mchId);
+ * </pre>
+ * 常量部分在编译时校验并保存为已编码的字符串，填充时只对变量做百分号编码（RFC 3986，变量只含非保留字符时不编码），
+ * 按常量和变量的长度预分配 StringBuilder 拼接。
+ * <p>
+ * 注意：expand 会编码变量，与原来直接拼接字符串不同，变量中的 %、+、&、=、/、中文等都会被编码；
+ * 调用方已经编码过的值再用 expand 会被二次编码（% 变为 %25），这种值需要用 expandRaw 原样填充。
+ * 库内的地址变量（access_token、code、订单号、商户号、openid 等）都是未编码的原始值，使用 expand。
+ * <p>
+ * 域名之后的部分（路径和参数）即 v3 签名使用的 canonical URL，可以通过 canonical 直接截取，不需要重新解析。
+ * 域名通过 WeChatHosts 替换时，填充的地址使用替换后的域名
+ */
+public final class UrlTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String template;
+
+    /**
+     * scheme://host[:port]，模板只有路径时为空字符串
+     */
+    private final String origin;
+
+    /**
+     * 常量部分，literals[i] 在第 i 个变量之前，最后一个在所有变量之后
+     */
+    private final String[] literals;
+
+    private final String[] variables;
+
+    /**
+     * 常量部分的总长度，用于预分配
+     */
+    private final int literalLength;
+
+
+    private UrlTemplate(String template, String origin, String[] literals, String[] variables) {
+        this.template = template;
+        this.origin = origin;
+        this.literals = literals;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+
+    /**
+     * 编译模板
+     *
+     * @param template 完整地址或以 / 开头的路径，常量部分需要是已编码的 ASCII 字符
+     * @return
+     * @throws IllegalArgumentException 模板格式错误
+     */
+    public static UrlTemplate compile(String template) {
+        String origin = "";
+        int pathStart = 0;
+        int scheme = template.indexOf("://");
+        if (scheme > 0) {
+            int slash = template.indexOf('/', scheme + 3);
+            if (slash < 0) {
+                throw new IllegalArgumentException("地址模板缺少路径：" + template);
+            }
+            origin = template.substring(0, slash);
+            pathStart = slash;
+        } else if (!template.startsWith("/")) {
+            throw new IllegalArgumentException("地址模板需要以 scheme:// 或 / 开头：" + template);
+        }
+        if (origin.indexOf('{') >= 0) {
+            throw new IllegalArgumentException("地址模板的域名不能包含变量：" + template);
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(origin);
+        int i = pathStart;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                int end = template.indexOf('}', i);
+                if (end < 0 || end == i + 1) {
+                    throw new IllegalArgumentException("地址模板变量格式错误：" + template);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                variables.add(template.substring(i + 1, end));
+                i = end + 1;
+                continue;
+            }
+            if (c == '}' || c <= ' ' || c >= 0x7f) {
+                throw new IllegalArgumentException("地址模板的常量部分需要是已编码的 ASCII 字符：" + template);
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+        return new UrlTemplate(template, origin, literals.toArray(new String[0]), variables.toArray(new String[0]));
+    }
+
+
+    /**
+     * 按变量在模板中出现的顺序填充，变量做百分号编码
+     *
+     * @param values 未编码的变量值，为空时填充空字符串
+     * @return 完整地址
+     * @throws IllegalArgumentException 变量个数不一致
+     */
+    public String expand(String... values) {
+        return expand(values, true);
+    }
+
+
+    /**
+     * 按变量在模板中出现的顺序原样填充，不编码
+     * 用于调用方已经编码过的值；值中的 &、=、#、空格等不会被转义，需要调用方保证是合法的 URL 片段
+     *
+     * @param values 已编码的变量值，为空时填充空字符串
+     * @return 完整地址
+     * @throws IllegalArgumentException 变量个数不一致
+     */
+    public String expandRaw(String... values) {
+        return expand(values, false);
+    }
+
+
+    private String expand(String[] values, boolean encode) {
+        if (values.length != variables.length) {
+            throw new IllegalArgumentException("地址模板需要 " + variables.length + " 个变量，实际为 " + values.length + "：" + template);
+        }
+        String replacement = origin.isEmpty() ? null : WeChatHosts.get(origin);
+        int length = literalLength + (replacement == null ? 0 : replacement.length() - origin.length());
+        for (String value : values) {
+            length += value == null ? 0 : value.length();
+        }
+        StringBuilder sb = new StringBuilder(length);
+        if (replacement == null) {
+            sb.append(literals[0]);
+        } else {
+            // 域名已替换（WeChatHosts），只替换域名部分
+            sb.append(replacement).append(literals[0], origin.length(), literals[0].length());
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (encode) {
+                encode(sb, values[i]);
+            } else if (values[i] != null) {
+                sb.append(values[i]);
+            }
+            sb.append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * 填充后只返回路径和参数部分，即 v3 签名使用的 canonical URL
+     *
+     * @param values
+     * @return
+     */
+    public String expandCanonical(String... values) {
+        return canonical(expand(values));
+    }
+
+
+    /**
+     * 本模板填充出的地址对应的 canonical URL（域名之后的路径和参数）
+     *
+     * @param expanded expand 的结果
+     * @return
+     */
+    public String canonical(String expanded) {
+        if (!expanded.startsWith(origin)) {
+            // 域名已替换
+            return canonicalOf(expanded);
+        }
+        return expanded.substring(origin.length());
+    }
+
+
+    /**
+     * 任意地址的 canonical URL，与 new URL(url) 的 path + "?" + query 一致，只查找路径起始位置，不解析整个地址
+     *
+     * @param url
+     * @return
+     */
+    public static String canonicalOf(String url) {
+        int scheme = url.indexOf("://");
+        if (scheme < 0) {
+            return url;
+        }
+        int slash = url.indexOf('/', scheme + 3);
+        if (slash < 0) {
+            int query = url.indexOf('?', scheme + 3);
+            return query < 0 ? "" : url.substring(query);
+        }
+        return url.substring(slash);
+    }
+
+
+    /**
+     * 百分号编码，非保留字符（A-Z a-z 0-9 - . _ ~）原样保留
+     */
+    private static void encode(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        int i = 0;
+        while (i < length && isUnreserved(value.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            // 常见情况（token、订单号、商户号）不需要编码
+            sb.append(value);
+            return;
+        }
+        sb.append(value, 0, i);
+        byte[] bytes = value.substring(i).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            char c = (char) (b & 0xff);
+            if (isUnreserved(c)) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(HEX[(b >> 4) & 0x0f]).append(HEX[b & 0x0f]);
+            }
+        }
+    }
+
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * 变量名，按出现顺序
+     *
+     * @return
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variables.clone()));
+    }
+
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
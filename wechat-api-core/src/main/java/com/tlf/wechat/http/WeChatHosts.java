@@ -0,0 +1,120 @@
+package com.tlf.wechat.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * 微信接口域名替换
+ * 把 api.weixin.qq.com、api.mch.weixin.qq.com 指向本地桩服务或测试环境，用于压测和联调：
+ * <pre>
+ * WeChatHosts.override(WeChatHosts.API, "http://127.0.0.1:8080");
+ * WeChatHosts.override(WeChatHosts.PAY, "http://127.0.0.1:8080");
+ * </pre>
+ * UrlTemplate 填充的地址、WeChatPayConfig 的各个地址和预热的域名都会替换，调用方的代码不需要修改。
+ * 支付域名替换后，平台证书从替换的地址下载；自动签名的 HttpClient（WeChatPayUtil.getWxPayClient）只对
+ * *.mch.weixin.qq.com 签名和验签，WeChatPayHttpUtil 会改为手动签名和验签。
+ * 没有替换时 resolve 只有一次 volatile 读
+ */
+public final class WeChatHosts {
+    private static final Logger log = LoggerFactory.getLogger(WeChatHosts.class);
+
+    /**
+     * 公众平台、小程序
+     */
+    public static final String API = "https://api.weixin.qq.com";
+
+    /**
+     * 微信支付
+     */
+    public static final String PAY = "https://api.mch.weixin.qq.com";
+
+    private static final Map<String, String> OVERRIDES = new ConcurrentHashMap<>();
+
+    private static volatile boolean overridden = false;
+
+
+    private WeChatHosts() {
+    }
+
+
+    /**
+     * 替换域名
+     *
+     * @param origin      原地址，scheme://host[:port]，如 WeChatHosts.API
+     * @param replacement 替换后的地址，如 http://127.0.0.1:8080，末尾不带 /
+     */
+    public static void override(String origin, String replacement) {
+        String target = replacement.endsWith("/") ? replacement.substring(0, replacement.length() - 1) : replacement;
+        OVERRIDES.put(origin, target);
+        overridden = true;
+        log.warn("微信接口域名已替换：{} -> {}", origin, target);
+    }
+
+
+    /**
+     * 取消所有替换
+     */
+    public static void reset() {
+        OVERRIDES.clear();
+        overridden = false;
+    }
+
+
+    /**
+     * 替换后的地址，没有替换时为空
+     *
+     * @param origin
+     * @return
+     */
+    public static String get(String origin) {
+        return overridden ? OVERRIDES.get(origin) : null;
+    }
+
+
+    public static boolean isOverridden(String origin) {
+        return get(origin) != null;
+    }
+
+
+    /**
+     * 所有替换
+     *
+     * @return
+     */
+    public static Map<String, String> getOverrides() {
+        return Collections.unmodifiableMap(new HashMap<>(OVERRIDES));
+    }
+
+
+    /**
+     * 按替换规则改写地址，域名没有替换时原样返回
+     *
+     * @param url 完整地址或 scheme://host[:port]
+     * @return
+     */
+    public static String resolve(String url) {
+        if (!overridden || url == null) {
+            return url;
+        }
+        int scheme = url.indexOf("://");
+        if (scheme < 0) {
+            return url;
+        }
+        int end = url.length();
+        for (int i = scheme + 3; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        String replacement = OVERRIDES.get(url.substring(0, end));
+        return replacement == null ? url : replacement + url.substring(end);
+    }
+}
@@ -0,0 +1,28 @@
+package com.tlf.wechat.http.breaker;
+
+import java.io.IOException;
+
+
+/**
+ * 接口已熔断，请求未发出
+ */
+public class CallNotPermittedException extends IOException {
+
+    private final String endpoint;
+
+    private final CircuitBreaker.State state;
+
+    public CallNotPermittedException(String endpoint, CircuitBreaker.State state) {
+        super("接口已熔断：" + endpoint + "，状态：" + state);
+        this.endpoint = endpoint;
+        this.state = state;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public CircuitBreaker.State getState() {
+        return state;
+    }
+}
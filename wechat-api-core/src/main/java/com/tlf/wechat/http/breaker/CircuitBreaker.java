@@ -0,0 +1,256 @@
+package com.tlf.wechat.http.breaker;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 单个接口的熔断器
+ * <p>
+ * CLOSED：正常放行，最近 windowSize 次调用的失败率或慢调用率达到阈值时熔断；
+ * OPEN：直接抛出 CallNotPermittedException，openDuration 之后进入半开；
+ * HALF_OPEN：只放行 halfOpenCalls 次试探调用，全部完成后按失败率决定关闭或再次熔断
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String endpoint;
+    private final CircuitBreakerConfig config;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+
+    /**
+     * 每次状态变化加一，状态变化之前发出的请求结果不再计入
+     */
+    private int generation;
+    private long openedAt;
+
+    /**
+     * 滑动窗口，每次调用一个字节，记录是否失败、是否慢调用
+     */
+    private final byte[] window;
+    private int index;
+    private int count;
+    private int failures;
+    private int slows;
+
+    private int halfOpenPermitted;
+
+
+    public CircuitBreaker(String endpoint, CircuitBreakerConfig config) {
+        this.endpoint = endpoint;
+        this.config = config;
+        this.window = new byte[Math.max(config.getWindowSize(), config.getHalfOpenCalls())];
+    }
+
+
+    /**
+     * 请求前调用，熔断时抛出异常
+     *
+     * @return 许可编号，请求结束后传给 onResult/onIgnored
+     * @throws CallNotPermittedException
+     */
+    public int acquire() throws CallNotPermittedException {
+        State from = null;
+        int permit;
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < config.getOpenDuration()) {
+                    throw new CallNotPermittedException(endpoint, state);
+                }
+                from = transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenPermitted >= config.getHalfOpenCalls()) {
+                    throw new CallNotPermittedException(endpoint, state);
+                }
+                halfOpenPermitted++;
+            }
+            permit = generation;
+        } finally {
+            lock.unlock();
+        }
+        if (from != null) {
+            CircuitBreakers.fire(this, from, State.HALF_OPEN);
+        }
+        return permit;
+    }
+
+
+    /**
+     * 记录调用结果
+     *
+     * @param permit   acquire 返回的许可编号
+     * @param nanos    调用耗时
+     * @param failure  是否失败
+     */
+    public void onResult(int permit, long nanos, boolean failure) {
+        byte outcome = 0;
+        if (failure) {
+            outcome |= FAILURE;
+        }
+        if (nanos >= config.getSlowCallDuration() * 1_000_000) {
+            outcome |= SLOW;
+        }
+        State from = null;
+        State to = null;
+        lock.lock();
+        try {
+            if (permit != generation || state == State.OPEN) {
+                return;
+            }
+            record(outcome);
+            if (state == State.CLOSED) {
+                if (count >= config.getMinimumCalls() && exceeded()) {
+                    from = state;
+                    to = State.OPEN;
+                }
+            } else if (count >= config.getHalfOpenCalls()) {
+                from = state;
+                to = exceeded() ? State.OPEN : State.CLOSED;
+            }
+            if (to != null) {
+                transition(to);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (to != null) {
+            CircuitBreakers.fire(this, from, to);
+        }
+    }
+
+
+    /**
+     * 请求没有结果（被取消、本地限流），半开状态下归还试探次数
+     *
+     * @param permit
+     */
+    public void onIgnored(int permit) {
+        lock.lock();
+        try {
+            if (permit == generation && state == State.HALF_OPEN && halfOpenPermitted > 0) {
+                halfOpenPermitted--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void record(byte outcome) {
+        if (count == window.length) {
+            byte old = window[index];
+            if ((old & FAILURE) != 0) {
+                failures--;
+            }
+            if ((old & SLOW) != 0) {
+                slows--;
+            }
+        } else {
+            count++;
+        }
+        window[index] = outcome;
+        index = (index + 1) % window.length;
+        if ((outcome & FAILURE) != 0) {
+            failures++;
+        }
+        if ((outcome & SLOW) != 0) {
+            slows++;
+        }
+    }
+
+
+    private boolean exceeded() {
+        return failures * 100 >= config.getFailureRateThreshold() * count
+                || slows * 100 >= config.getSlowCallRateThreshold() * count;
+    }
+
+
+    /**
+     * 切换状态并清空窗口，调用方持有锁
+     */
+    private State transition(State to) {
+        State from = state;
+        state = to;
+        generation++;
+        index = 0;
+        count = 0;
+        failures = 0;
+        slows = 0;
+        halfOpenPermitted = 0;
+        if (to == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        return from;
+    }
+
+
+    /**
+     * 手动切换状态，如运维强制打开或关闭
+     *
+     * @param to
+     */
+    public void transitionTo(State to) {
+        State from;
+        lock.lock();
+        try {
+            if (state == to) {
+                return;
+            }
+            from = transition(to);
+        } finally {
+            lock.unlock();
+        }
+        CircuitBreakers.fire(this, from, to);
+    }
+
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前窗口失败率（百分比）
+     *
+     * @return
+     */
+    public float getFailureRate() {
+        lock.lock();
+        try {
+            return count == 0 ? 0 : failures * 100f / count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前窗口慢调用率（百分比）
+     *
+     * @return
+     */
+    public float getSlowCallRate() {
+        lock.lock();
+        try {
+            return count == 0 ? 0 : slows * 100f / count;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
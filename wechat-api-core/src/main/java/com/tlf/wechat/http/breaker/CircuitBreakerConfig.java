@@ -0,0 +1,99 @@
+package com.tlf.wechat.http.breaker;
+
+/**
+ * 熔断配置
+ */
+public class CircuitBreakerConfig {
+    /**
+     * 滑动窗口大小（最近多少次调用）
+     */
+    private int windowSize = 50;
+
+    /**
+     * 窗口内至少有这么多次调用才计算失败率
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * 失败率阈值（百分比），达到后熔断
+     */
+    private int failureRateThreshold = 50;
+
+    /**
+     * 慢调用率阈值（百分比），达到后熔断
+     */
+    private int slowCallRateThreshold = 80;
+
+    /**
+     * 超过该时间（毫秒）的调用视为慢调用
+     */
+    private long slowCallDuration = 5000;
+
+    /**
+     * 熔断持续时间（毫秒），之后进入半开状态
+     */
+    private long openDuration = 10000;
+
+    /**
+     * 半开状态允许的试探调用次数，全部完成后根据失败率决定关闭或再次熔断
+     */
+    private int halfOpenCalls = 5;
+
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public void setSlowCallDuration(long slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.tlf.wechat.http.breaker;
+
+/**
+ * 熔断状态变化事件
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * 状态变化后调用，在触发变化的请求线程中执行，不能阻塞
+     *
+     * @param breaker
+     * @param from
+     * @param to
+     */
+    void onStateChange(CircuitBreaker breaker, CircuitBreaker.State from, CircuitBreaker.State to);
+}
@@ -0,0 +1,200 @@
+package com.tlf.wechat.http.breaker;
+
+import com.tlf.wechat.http.limit.LimitExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * 按接口管理熔断器
+ * 接口为 host + 路径，路径中的订单号等参数替换为 {id}，如：
+ * api.weixin.qq.com/sns/jscode2session、api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{id}
+ */
+public class CircuitBreakers {
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreakers.class);
+
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private static final List<CircuitBreakerListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static volatile CircuitBreakerConfig config = new CircuitBreakerConfig();
+
+    private static volatile boolean enabled = true;
+
+
+    /**
+     * 获取请求地址对应的熔断器
+     *
+     * @param uri
+     * @return
+     */
+    public static CircuitBreaker get(URI uri) {
+        return get(uri.getHost(), uri.getRawPath());
+    }
+
+
+    /**
+     * 获取接口对应的熔断器，首次使用时创建
+     *
+     * @param host
+     * @param path
+     * @return
+     */
+    public static CircuitBreaker get(String host, String path) {
+        String endpoint = host + endpoint(path);
+        CircuitBreaker breaker = BREAKERS.get(endpoint);
+        if (breaker == null) {
+            breaker = BREAKERS.computeIfAbsent(endpoint, key -> new CircuitBreaker(key, config));
+        }
+        return breaker;
+    }
+
+
+    /**
+     * 路径中的参数替换为 {id}：订单号、微信支付单号、退款单号所在的段，以及包含数字的段
+     *
+     * @param path
+     * @return
+     */
+    public static String endpoint(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder sb = new StringBuilder(path.length());
+        String previous = "";
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            sb.append('/');
+            if ("out-trade-no".equals(previous) || "id".equals(previous) || "refunds".equals(previous)
+                    || segment.chars().anyMatch(Character::isDigit) && !"v3".equals(segment)) {
+                sb.append("{id}");
+            } else {
+                sb.append(segment);
+            }
+            previous = segment;
+        }
+        return sb.length() == 0 ? "/" : sb.toString();
+    }
+
+
+    /**
+     * 请求是否计为失败：网络异常（本地限流和熔断除外）或 5xx
+     *
+     * @param statusCode
+     * @param error
+     * @return
+     */
+    public static boolean isFailure(int statusCode, Throwable error) {
+        if (error != null) {
+            while (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+            return error instanceof IOException;
+        }
+        return statusCode >= 500;
+    }
+
+
+    /**
+     * 记录请求结果，本地限流、熔断、取消不计入
+     *
+     * @param breaker
+     * @param permit
+     * @param startNanos
+     * @param statusCode
+     * @param error
+     */
+    public static void complete(CircuitBreaker breaker, int permit, long startNanos, int statusCode, Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof LimitExceededException || cause instanceof CallNotPermittedException
+                || cause instanceof CancellationException) {
+            breaker.onIgnored(permit);
+            return;
+        }
+        breaker.onResult(permit, System.nanoTime() - startNanos, isFailure(statusCode, cause));
+    }
+
+
+    /**
+     * 订阅状态变化事件
+     *
+     * @param listener
+     */
+    public static void addListener(CircuitBreakerListener listener) {
+        LISTENERS.add(listener);
+    }
+
+
+    public static void removeListener(CircuitBreakerListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+
+    static void fire(CircuitBreaker breaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+        log.warn("熔断状态变化：{} {} -> {}", breaker.getEndpoint(), from, to);
+        for (CircuitBreakerListener listener : LISTENERS) {
+            try {
+                listener.onStateChange(breaker, from, to);
+            } catch (RuntimeException e) {
+                log.warn("熔断事件处理失败", e);
+            }
+        }
+    }
+
+
+    /**
+     * 设置熔断配置，已创建的熔断器会被重建
+     *
+     * @param breakerConfig
+     */
+    public static void setConfig(CircuitBreakerConfig breakerConfig) {
+        config = breakerConfig;
+        BREAKERS.clear();
+    }
+
+
+    public static CircuitBreakerConfig getConfig() {
+        return config;
+    }
+
+
+    /**
+     * 是否启用熔断，默认启用
+     *
+     * @param enable
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * 所有熔断器，可用于监控状态和失败率
+     *
+     * @return
+     */
+    public static Map<String, CircuitBreaker> getBreakers() {
+        return Collections.unmodifiableMap(BREAKERS);
+    }
+
+}
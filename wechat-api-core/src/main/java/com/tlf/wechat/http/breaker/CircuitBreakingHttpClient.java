@@ -0,0 +1,76 @@
+package com.tlf.wechat.http.breaker;
+
+import com.tlf.wechat.http.concurrent.CancelScope;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * 带熔断的 HttpClient
+ * 接口熔断时直接抛出 CallNotPermittedException，不再等待超时；收到响应头（或失败）时记录结果
+ */
+public class CircuitBreakingHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    public CircuitBreakingHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        if (!CircuitBreakers.isEnabled() || target == null) {
+            return delegate.execute(target, request, context);
+        }
+        CircuitBreaker breaker = CircuitBreakers.get(target.getHostName(), path(request));
+        int permit = breaker.acquire();
+        long start = System.nanoTime();
+        CloseableHttpResponse response;
+        try {
+            response = delegate.execute(target, request, context);
+        } catch (IOException | RuntimeException e) {
+            // 被中止（对冲落后、截止时间）的请求按取消处理
+            CircuitBreakers.complete(breaker, permit, start, 0, CancelScope.outcome(request, e));
+            throw e;
+        }
+        CircuitBreakers.complete(breaker, permit, start, response.getStatusLine().getStatusCode(), null);
+        return response;
+    }
+
+
+    private static String path(HttpRequest request) {
+        if (request instanceof HttpUriRequest) {
+            return ((HttpUriRequest) request).getURI().getRawPath();
+        }
+        return URI.create(request.getRequestLine().getUri()).getRawPath();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
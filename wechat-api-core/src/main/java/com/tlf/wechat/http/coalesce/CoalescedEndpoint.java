@@ -0,0 +1,82 @@
+package com.tlf.wechat.http.coalesce;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+
+/**
+ * 允许合并请求的接口，以及该接口的合并统计
+ */
+public class CoalescedEndpoint {
+
+    private final String name;
+    private final Pattern pattern;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+
+
+    CoalescedEndpoint(String name, String pathRegex) {
+        this.name = name;
+        this.pattern = Pattern.compile(pathRegex);
+    }
+
+
+    boolean matches(String path) {
+        return pattern.matcher(path).matches();
+    }
+
+    void onCall() {
+        calls.incrementAndGet();
+    }
+
+    void onUpstreamCall() {
+        upstreamCalls.incrementAndGet();
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPathRegex() {
+        return pattern.pattern();
+    }
+
+    /**
+     * 调用次数
+     *
+     * @return
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * 实际发出的请求数
+     *
+     * @return
+     */
+    public long getUpstreamCalls() {
+        return upstreamCalls.get();
+    }
+
+    /**
+     * 合并到进行中请求、没有单独发出请求的调用数
+     *
+     * @return
+     */
+    public long getSavedCalls() {
+        return calls.get() - upstreamCalls.get();
+    }
+
+    /**
+     * 节省比例：合并的调用数 / 调用次数
+     *
+     * @return
+     */
+    public double getSavedRatio() {
+        long c = calls.get();
+        return c == 0 ? 0 : (double) getSavedCalls() / c;
+    }
+}
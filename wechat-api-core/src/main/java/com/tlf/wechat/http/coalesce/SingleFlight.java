@@ -0,0 +1,236 @@
+package com.tlf.wechat.http.coalesce;
+
+import com.tlf.wechat.http.HttpUtil;
+import com.tlf.wechat.http.timeout.Deadline;
+import com.tlf.wechat.http.timeout.DeadlineExceededException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+
+/**
+ * 合并相同的进行中请求（single-flight）
+ * 同一时刻 method + URL + 请求体摘要相同的请求只发出一次，其余调用等待并共用它的结果或异常，
+ * 如多个线程同时为同一个 appId 获取 access_token、轮询同一个订单的支付状态。
+ * 请求完成后立即移除，不缓存结果
+ * <p>
+ * 只对登记的接口生效，只能登记幂等的查询接口；调用方的身份（appId、mchid 等）需要体现在 URL 或请求体中。
+ * 合并的调用拿到的是同一个结果对象，不要修改返回的 JSONObject
+ */
+public class SingleFlight {
+
+    private static final List<CoalescedEndpoint> ENDPOINTS = new CopyOnWriteArrayList<>();
+
+    private static final Map<String, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+
+    /**
+     * 登记允许合并的接口
+     *
+     * @param name      统计名称
+     * @param pathRegex 路径正则，不含域名和参数
+     */
+    public static void register(String name, String pathRegex) {
+        ENDPOINTS.add(new CoalescedEndpoint(name, pathRegex));
+    }
+
+
+    /**
+     * 已登记的接口及其统计
+     *
+     * @return
+     */
+    public static List<CoalescedEndpoint> getEndpoints() {
+        return Collections.unmodifiableList(ENDPOINTS);
+    }
+
+
+    /**
+     * 请求的合并键：method + URL + 请求体的 SHA-256
+     *
+     * @param method
+     * @param url     完整地址，包含参数
+     * @param body    可以为空
+     * @param variant 同一请求以不同方式处理响应时用于区分（如只读取部分字段），可以不传
+     * @return
+     */
+    public static String key(String method, String url, String body, String... variant) {
+        StringBuilder key = new StringBuilder(method.toUpperCase(Locale.ROOT)).append(' ').append(url);
+        if (body != null && !body.isEmpty()) {
+            key.append(' ').append(sha256(body));
+        }
+        if (variant.length > 0) {
+            key.append(" #").append(String.join(",", variant));
+        }
+        return key.toString();
+    }
+
+
+    /**
+     * 同步执行，接口未登记时直接在调用线程执行
+     * 等待其他线程的请求时不超过当前线程的截止时间
+     *
+     * @param key  合并键，见 key 方法
+     * @param url  请求地址，用于匹配登记的接口
+     * @param call 完整的调用（包括重试）
+     * @return
+     * @throws Exception 共用的请求失败时抛出同一个异常
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T call(String key, String url, Callable<T> call) throws Exception {
+        CoalescedEndpoint endpoint = endpoint(url);
+        if (endpoint == null) {
+            return call.call();
+        }
+        endpoint.onCall();
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = IN_FLIGHT.putIfAbsent(key, flight);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+        endpoint.onUpstreamCall();
+        try {
+            T result = call.call();
+            IN_FLIGHT.remove(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            IN_FLIGHT.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+
+    /**
+     * 异步执行，接口未登记时直接返回 call 的结果
+     * 取消返回的 future 不会取消共用的请求
+     *
+     * @param key  合并键，见 key 方法
+     * @param url  请求地址，用于匹配登记的接口
+     * @param call 完整的调用（包括重试）
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> callAsync(String key, String url, Supplier<CompletableFuture<T>> call) {
+        CoalescedEndpoint endpoint = endpoint(url);
+        if (endpoint == null) {
+            return call.get();
+        }
+        endpoint.onCall();
+        final CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = IN_FLIGHT.putIfAbsent(key, flight);
+        if (existing != null) {
+            return (CompletableFuture<T>) follow(existing);
+        }
+        endpoint.onUpstreamCall();
+        CompletableFuture<T> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException | Error e) {
+            IN_FLIGHT.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        upstream.whenComplete((result, error) -> {
+            IN_FLIGHT.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(result);
+            }
+        });
+        return (CompletableFuture<T>) follow(flight);
+    }
+
+
+    /**
+     * 进行中的请求数
+     *
+     * @return
+     */
+    public static int getInFlightCount() {
+        return IN_FLIGHT.size();
+    }
+
+
+    private static CoalescedEndpoint endpoint(String url) {
+        if (ENDPOINTS.isEmpty()) {
+            return null;
+        }
+        String path = HttpUtil.path(url);
+        for (CoalescedEndpoint endpoint : ENDPOINTS) {
+            if (endpoint.matches(path)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * 每个调用方拿到独立的 future，取消时不影响共用的请求和其他调用方
+     */
+    private static CompletableFuture<Object> follow(CompletableFuture<Object> flight) {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        flight.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+
+    private static Object await(CompletableFuture<Object> flight) throws Exception {
+        Deadline deadline = Deadline.current();
+        try {
+            if (deadline == null) {
+                return flight.get();
+            }
+            return flight.get(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("等待合并的请求超过截止时间");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+
+    private static String sha256(String body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
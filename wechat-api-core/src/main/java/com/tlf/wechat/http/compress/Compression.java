@@ -0,0 +1,184 @@
+package com.tlf.wechat.http.compress;
+
+import com.tlf.wechat.http.HttpUtil;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+
+/**
+ * 响应压缩
+ * 请求默认带上 Accept-Encoding: gzip，服务端返回 gzip 响应时以流的方式解压后交给 ResponseHandler，
+ * 调用方拿到的始终是解压后的响应体。直播间列表、平台证书列表、账单等列表类接口的响应体可以压缩到几分之一
+ * <p>
+ * 按接口开关：接口按路径正则匹配，后登记的优先；没有匹配的接口使用全局开关。
+ * 调用方自行设置了 Accept-Encoding 的请求不做修改。
+ * 同步请求由 HttpClient 的拦截器处理，异步请求和 jdk 引擎由请求引擎调用 prepare / decode
+ */
+public class Compression {
+
+    private static final String GZIP = "gzip";
+
+    private static final List<Map.Entry<Pattern, Boolean>> ENDPOINTS = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean enabled = true;
+
+    private static final AtomicLong compressedResponses = new AtomicLong();
+    static final AtomicLong wireBytes = new AtomicLong();
+    static final AtomicLong decodedBytes = new AtomicLong();
+
+    /**
+     * 同步 HttpClient 的请求拦截器
+     */
+    public static final HttpRequestInterceptor REQUEST_INTERCEPTOR = (request, context) -> prepare(request);
+
+    /**
+     * 同步 HttpClient 的响应拦截器
+     */
+    public static final HttpResponseInterceptor RESPONSE_INTERCEPTOR = (response, context) -> decode(response);
+
+    static {
+        // 图片、语音、视频等素材和已经是压缩文件的账单下载，压缩没有收益
+        register("/cgi-bin/media/get.*|/cgi-bin/material/get_material|/v3/billdownload/file", false);
+    }
+
+
+    /**
+     * 登记接口是否请求压缩，优先于之前登记的配置和全局开关
+     *
+     * @param pathRegex 路径正则，不含域名和参数
+     * @param enable
+     */
+    public static void register(String pathRegex, boolean enable) {
+        ENDPOINTS.add(0, new AbstractMap.SimpleImmutableEntry<>(Pattern.compile(pathRegex), enable));
+    }
+
+
+    /**
+     * 请求地址是否请求压缩
+     *
+     * @param url 完整地址或路径
+     * @return
+     */
+    public static boolean isEnabled(String url) {
+        String path = HttpUtil.path(url);
+        for (Map.Entry<Pattern, Boolean> entry : ENDPOINTS) {
+            if (entry.getKey().matcher(path).matches()) {
+                return entry.getValue();
+            }
+        }
+        return enabled;
+    }
+
+
+    /**
+     * 按接口开关为请求加上 Accept-Encoding: gzip
+     *
+     * @param request
+     */
+    public static void prepare(HttpRequest request) {
+        if (request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            return;
+        }
+        if (isEnabled(request.getRequestLine().getUri())) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        }
+    }
+
+
+    /**
+     * gzip 响应替换为解压的响应体，并去掉 Content-Encoding、Content-Length 等描述压缩内容的头
+     * 解压在读取响应体时进行，不会整体读入内存
+     *
+     * @param response
+     */
+    public static void decode(HttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        if (entity == null || entity.getContentLength() == 0 || !isGzip(entity.getContentEncoding())) {
+            return;
+        }
+        compressedResponses.incrementAndGet();
+        response.setEntity(new GzipDecodingEntity(entity));
+        response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+        response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        response.removeHeaders(HttpHeaders.CONTENT_MD5);
+    }
+
+
+    private static boolean isGzip(Header contentEncoding) {
+        if (contentEncoding == null) {
+            return false;
+        }
+        String value = contentEncoding.getValue().trim().toLowerCase(Locale.ROOT);
+        return GZIP.equals(value) || "x-gzip".equals(value);
+    }
+
+
+    /**
+     * 全局开关，默认开启
+     *
+     * @param enable
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * 已登记的接口开关
+     *
+     * @return
+     */
+    public static List<Map.Entry<Pattern, Boolean>> getEndpoints() {
+        return Collections.unmodifiableList(ENDPOINTS);
+    }
+
+
+    /**
+     * 收到的 gzip 响应数
+     *
+     * @return
+     */
+    public static long getCompressedResponseCount() {
+        return compressedResponses.get();
+    }
+
+
+    /**
+     * gzip 响应已读取的传输字节数（压缩后）
+     *
+     * @return
+     */
+    public static long getWireBytes() {
+        return wireBytes.get();
+    }
+
+
+    /**
+     * gzip 响应已读取的解压后字节数，与 getWireBytes 的差即节省的流量
+     *
+     * @return
+     */
+    public static long getDecodedBytes() {
+        return decodedBytes.get();
+    }
+
+}
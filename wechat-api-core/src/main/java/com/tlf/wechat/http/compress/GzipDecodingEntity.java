@@ -0,0 +1,105 @@
+package com.tlf.wechat.http.compress;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * 以流的方式解压 gzip 响应体，同时累计压缩前后的字节数
+ * 长度未知，由读取方（BoundedInputStream）按解压后的长度限制最大长度
+ */
+class GzipDecodingEntity extends HttpEntityWrapper {
+
+    private InputStream content;
+
+    GzipDecodingEntity(HttpEntity wrapped) {
+        super(wrapped);
+    }
+
+
+    @Override
+    public InputStream getContent() throws IOException {
+        if (!wrappedEntity.isStreaming()) {
+            return decode();
+        }
+        // 流式响应体只能读一次，多次获取返回同一个流
+        if (content == null) {
+            content = decode();
+        }
+        return content;
+    }
+
+
+    private InputStream decode() throws IOException {
+        InputStream wire = new CountingInputStream(wrappedEntity.getContent(), Compression.wireBytes);
+        return new CountingInputStream(new GZIPInputStream(wire), Compression.decodedBytes);
+    }
+
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+
+    @Override
+    public Header getContentEncoding() {
+        return null;
+    }
+
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = getContent()) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+    }
+
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final AtomicLong counter;
+
+        CountingInputStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                counter.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            counter.addAndGet(skipped);
+            return skipped;
+        }
+    }
+}
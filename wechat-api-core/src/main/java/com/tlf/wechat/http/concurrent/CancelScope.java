@@ -0,0 +1,120 @@
+package com.tlf.wechat.http.concurrent;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 可整体中止的一组同步请求
+ * 同步请求阻塞在连接和读写上，Future.cancel 不能让它返回。在 scope 中执行时，经过 TimeoutHttpClient 的请求登记到当前 scope，
+ * cancel() 中止（abort）这些请求，阻塞的线程随即以 RequestAbortedException 返回并释放连接；cancel() 之后登记的请求直接中止
+ */
+public class CancelScope {
+
+    private static final ThreadLocal<CancelScope> CURRENT = new ThreadLocal<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<HttpUriRequest> requests = new ArrayList<>(2);
+    private boolean cancelled;
+
+
+    /**
+     * 在本 scope 中执行
+     *
+     * @param task
+     * @return
+     * @throws Exception
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        CancelScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+
+    /**
+     * 把请求登记到当前线程的 scope，不在 scope 中或请求不能中止时忽略
+     *
+     * @param request
+     */
+    public static void register(HttpRequest request) {
+        CancelScope scope = CURRENT.get();
+        if (scope == null || !(request instanceof HttpUriRequest)) {
+            return;
+        }
+        HttpUriRequest uriRequest = (HttpUriRequest) request;
+        scope.lock.lock();
+        try {
+            if (!scope.cancelled) {
+                scope.requests.add(uriRequest);
+                return;
+            }
+        } finally {
+            scope.lock.unlock();
+        }
+        uriRequest.abort();
+    }
+
+
+    /**
+     * 中止已登记的请求，之后登记的请求也直接中止
+     */
+    public void cancel() {
+        List<HttpUriRequest> aborted;
+        lock.lock();
+        try {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            aborted = new ArrayList<>(requests);
+            requests.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (HttpUriRequest request : aborted) {
+            request.abort();
+        }
+    }
+
+
+    public boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 请求被中止时把异常换成 CancellationException，熔断、限流、故障转移按取消处理，不计为失败
+     *
+     * @param request
+     * @param error
+     * @return
+     */
+    public static Throwable outcome(HttpRequest request, Throwable error) {
+        if (error != null && request instanceof HttpUriRequest && ((HttpUriRequest) request).isAborted()) {
+            CancellationException cancelled = new CancellationException("请求已中止");
+            cancelled.initCause(error);
+            return cancelled;
+        }
+        return error;
+    }
+}
@@ -0,0 +1,162 @@
+package com.tlf.wechat.http.concurrent;
+
+import com.tlf.wechat.http.schedule.RequestScheduler;
+import com.tlf.wechat.http.timeout.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+
+/**
+ * 并行发起一批阻塞调用并等待全部完成
+ * 如批量查询直播间、批量 code2Session、批量查询订单：
+ * <pre>
+ * List&lt;JSONObject&gt; orders = FanOut.map(outTradeNos, no -&gt; payApi.selectOrderOutTradeNo(no, wxConfig));
+ * </pre>
+ * 在 WeChatExecutors 的共享线程池中执行，开启虚拟线程后每个调用一个虚拟线程，不需要估算线程池大小。
+ * 与各接口工具类一致，单个调用失败时对应位置为 null，不影响其他调用
+ * <p>
+ * 等待不超过调用线程的截止时间（Deadline），截止时间和优先级（RequestScheduler）也会带到每个调用中；超时未完成的调用被取消，结果为 null
+ */
+public class FanOut {
+    private static final Logger log = LoggerFactory.getLogger(FanOut.class);
+
+
+    /**
+     * 并行执行，不限制同时进行的调用数（仍受连接池和 ConcurrencyLimiters 限制）
+     *
+     * @param inputs 输入
+     * @param call   对每个输入执行的调用
+     * @return 与输入顺序一致的结果
+     */
+    public static <I, T> List<T> map(Collection<? extends I> inputs, Function<? super I, ? extends T> call) {
+        return map(inputs, 0, call);
+    }
+
+
+    /**
+     * 并行执行，最多同时进行 parallelism 个调用
+     * 达到上限时在调用线程中等待，平台线程模式下可以避免一次创建过多线程
+     *
+     * @param inputs      输入
+     * @param parallelism 同时进行的调用数上限，小于等于 0 时不限制
+     * @param call        对每个输入执行的调用
+     * @return 与输入顺序一致的结果
+     */
+    public static <I, T> List<T> map(Collection<? extends I> inputs, int parallelism, Function<? super I, ? extends T> call) {
+        List<Callable<T>> calls = new ArrayList<>(inputs.size());
+        for (I input : inputs) {
+            calls.add(() -> call.apply(input));
+        }
+        return invokeAll(calls, parallelism);
+    }
+
+
+    /**
+     * 并行执行一批调用
+     *
+     * @param calls       调用
+     * @param parallelism 同时进行的调用数上限，小于等于 0 时不限制
+     * @return 与调用顺序一致的结果
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<? extends T>> calls, int parallelism) {
+        ExecutorService executor = WeChatExecutors.getExecutor();
+        Deadline deadline = Deadline.current();
+        Semaphore permits = parallelism > 0 ? new Semaphore(parallelism) : null;
+        List<Future<? extends T>> futures = new ArrayList<>(calls.size());
+        try {
+            for (Callable<? extends T> call : calls) {
+                if (permits != null && !acquire(permits, deadline)) {
+                    // 截止时间内没有轮到的调用不再发起
+                    futures.add(null);
+                    continue;
+                }
+                futures.add(executor.submit(Deadline.wrap(RequestScheduler.wrap(release(call, permits)))));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            return nulls(calls.size());
+        }
+
+        List<T> results = new ArrayList<>(calls.size());
+        for (Future<? extends T> future : futures) {
+            results.add(await(future, deadline));
+        }
+        return results;
+    }
+
+
+    private static <T> T await(Future<? extends T> future, Deadline deadline) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            if (deadline == null) {
+                return future.get();
+            }
+            return future.get(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("并行调用超过截止时间，已取消");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("并行调用失败", e.getCause());
+        }
+        return null;
+    }
+
+
+    private static boolean acquire(Semaphore permits, Deadline deadline) throws InterruptedException {
+        if (deadline == null) {
+            permits.acquire();
+            return true;
+        }
+        return permits.tryAcquire(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+    }
+
+
+    private static <T> Callable<T> release(Callable<T> call, Semaphore permits) {
+        if (permits == null) {
+            return call;
+        }
+        return () -> {
+            try {
+                return call.call();
+            } finally {
+                permits.release();
+            }
+        };
+    }
+
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+
+    private static <T> List<T> nulls(int size) {
+        List<T> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(null);
+        }
+        return results;
+    }
+}
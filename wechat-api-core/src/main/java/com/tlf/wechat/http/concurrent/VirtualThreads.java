@@ -0,0 +1,107 @@
+package com.tlf.wechat.http.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * 虚拟线程（Java 21+）
+ * 按 Java 8 编译，运行时通过 MethodHandle 调用 Thread.ofVirtual、Executors.newThreadPerTaskExecutor，
+ * 与构建使用的 JDK 版本无关；Java 19/20 的虚拟线程为预览特性，未开启预览时同样视为不可用
+ */
+final class VirtualThreads {
+
+    /**
+     * Thread.ofVirtual()
+     */
+    private static final MethodHandle OF_VIRTUAL;
+    /**
+     * Thread.Builder.name(String prefix, long start)
+     */
+    private static final MethodHandle NAME;
+    /**
+     * Thread.Builder.factory()
+     */
+    private static final MethodHandle FACTORY;
+    /**
+     * Executors.newThreadPerTaskExecutor(ThreadFactory)
+     */
+    private static final MethodHandle NEW_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle newExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualBuilder));
+            name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            newExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            // 预览版本中 ofVirtual() 抛出 UnsupportedOperationException
+            ofVirtual.invoke();
+        } catch (Throwable e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_EXECUTOR = newExecutor;
+    }
+
+
+    private VirtualThreads() {
+    }
+
+
+    static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+
+    /**
+     * 创建虚拟线程的 ThreadFactory
+     *
+     * @param name 线程名前缀
+     * @return
+     */
+    static ThreadFactory factory(String name) {
+        if (!isAvailable()) {
+            throw new UnsupportedOperationException("虚拟线程需要 Java 21 及以上版本");
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(), name + "-", 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("创建虚拟线程失败", e);
+        }
+    }
+
+
+    /**
+     * 每个任务一个虚拟线程的 ExecutorService，线程不复用
+     *
+     * @param name 线程名前缀
+     * @return
+     */
+    static ExecutorService newExecutor(String name) {
+        ThreadFactory factory = factory(name);
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke(factory);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("创建虚拟线程失败", e);
+        }
+    }
+}
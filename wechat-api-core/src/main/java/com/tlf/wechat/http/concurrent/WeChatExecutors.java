@@ -0,0 +1,148 @@
+package com.tlf.wechat.http.concurrent;
+
+import com.tlf.wechat.http.schedule.RequestScheduler;
+import com.tlf.wechat.http.timeout.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 执行阻塞请求的共享线程池（FanOut、对冲请求等）
+ * 默认使用守护平台线程；Java 21+ 可以切换为虚拟线程，每个任务一个虚拟线程，不需要估算线程池大小：
+ * 启动参数 -Dwechat.http.virtualThreads=true，或调用 setVirtualThreads(true)。
+ * 低于 Java 21 时开启无效，仍使用平台线程
+ * <p>
+ * 并发量仍由连接池和 ConcurrencyLimiters 限制，虚拟线程只是让等待中的请求不再占用平台线程
+ */
+public class WeChatExecutors {
+    private static final Logger log = LoggerFactory.getLogger(WeChatExecutors.class);
+
+    /**
+     * 开启虚拟线程的系统属性
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "wechat.http.virtualThreads";
+
+    private static final String THREAD_NAME = "wechat-call";
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static volatile boolean virtualThreads = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY) && VirtualThreads.isAvailable();
+    private static volatile ExecutorService executor;
+
+
+    /**
+     * 当前运行环境是否支持虚拟线程（Java 21+）
+     *
+     * @return
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return VirtualThreads.isAvailable();
+    }
+
+
+    /**
+     * 是否正在使用虚拟线程
+     *
+     * @return
+     */
+    public static boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+
+    /**
+     * 切换线程模式，之后提交的任务使用新的线程池，已提交的任务在原线程池中执行完
+     *
+     * @param enabled 是否使用虚拟线程，运行环境不支持时忽略
+     */
+    public static void setVirtualThreads(boolean enabled) {
+        if (enabled && !VirtualThreads.isAvailable()) {
+            log.warn("虚拟线程需要 Java 21 及以上版本，当前版本 {}，继续使用平台线程", System.getProperty("java.version"));
+            enabled = false;
+        }
+        LOCK.lock();
+        try {
+            if (virtualThreads == enabled) {
+                return;
+            }
+            ExecutorService old = executor;
+            virtualThreads = enabled;
+            executor = null;
+            if (old != null) {
+                old.shutdown();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /**
+     * 共享的线程池，首次调用时按当前线程模式创建
+     *
+     * @return
+     */
+    public static ExecutorService getExecutor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            LOCK.lock();
+            try {
+                current = executor;
+                if (current == null) {
+                    current = virtualThreads
+                            ? VirtualThreads.newExecutor(THREAD_NAME)
+                            : Executors.newCachedThreadPool(threadFactory(THREAD_NAME));
+                    executor = current;
+                }
+            } finally {
+                LOCK.unlock();
+            }
+        }
+        return current;
+    }
+
+
+    /**
+     * 按当前线程模式创建线程：虚拟线程，或守护平台线程
+     *
+     * @param name 线程名
+     * @return
+     */
+    public static ThreadFactory threadFactory(String name) {
+        if (virtualThreads) {
+            return VirtualThreads.factory(name);
+        }
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+
+    /**
+     * 在共享线程池中执行阻塞调用，带上当前线程的截止时间和优先级
+     *
+     * @param call 如 () -> WeChatMiniUtil.code2Session(appId, appSecret, code)
+     * @return 调用抛出的异常以 CompletionException 包装
+     */
+    public static <T> CompletableFuture<T> submit(Callable<T> call) {
+        final Callable<T> task = Deadline.wrap(RequestScheduler.wrap(call));
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, getExecutor());
+    }
+
+}
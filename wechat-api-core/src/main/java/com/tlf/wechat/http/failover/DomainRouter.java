@@ -0,0 +1,334 @@
+package com.tlf.wechat.http.failover;
+
+import com.tlf.wechat.http.timeout.DeadlineExceededException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 主备域名路由
+ * 分别记录主域名和备用域名的连续连接失败次数和平均延迟（指数加权），主域名连续连接失败或平均延迟持续超过阈值时
+ * 把主域名的请求改写到备用域名；切换后每隔 probeInterval 放一个请求到主域名试探，成功且不慢时切回。
+ * 备用域名也连续连接失败时切回主域名，probeInterval 内不再切换。
+ * <p>
+ * 只改写 scheme://host，路径和参数不变，按路径和参数生成的签名在两个域名下都有效。
+ * 未切换时 route 只有一次 volatile 读
+ */
+public class DomainRouter {
+    private static final Logger log = LoggerFactory.getLogger(DomainRouter.class);
+
+    private final String primary;
+    private final String backup;
+    private final FailoverConfig config;
+
+    private final Health primaryHealth = new Health();
+    private final Health backupHealth = new Health();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean failedOver;
+
+    /**
+     * 切换后下一次试探主域名的时间
+     */
+    private volatile long nextProbeAt;
+
+    /**
+     * 切回主域名后，在该时间之前不再切换
+     */
+    private volatile long holdUntil;
+
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private final AtomicLong failovers = new AtomicLong();
+
+
+    /**
+     * @param primary 主域名，scheme://host[:port]，末尾不带 /
+     * @param backup  备用域名
+     * @param config
+     */
+    public DomainRouter(String primary, String backup, FailoverConfig config) {
+        this.primary = primary;
+        this.backup = backup;
+        this.config = config;
+    }
+
+
+    /**
+     * 本次请求实际使用的地址
+     *
+     * @param url 完整地址
+     * @return 未切换、到了试探时间或不是主域名的地址时原样返回，否则改写为备用域名
+     */
+    public String route(String url) {
+        if (!failedOver || !matches(url, primary)) {
+            return url;
+        }
+        if (System.currentTimeMillis() >= nextProbeAt && probing.compareAndSet(false, true)) {
+            return url;
+        }
+        return backup + url.substring(primary.length());
+    }
+
+
+    /**
+     * 记录一次请求的结果
+     *
+     * @param url   route 返回的地址
+     * @param nanos 耗时
+     * @param error 为空表示收到了响应（不论状态码）；取消（对冲落后、调用方取消、请求被中止）不计入健康状况
+     */
+    public void complete(String url, long nanos, Throwable error) {
+        boolean isPrimary = matches(url, primary);
+        if (!isPrimary && !matches(url, backup)) {
+            return;
+        }
+        Throwable cause = unwrap(error);
+        if (isCancellation(cause)) {
+            // 被取消的试探不算结果，放开试探让下一个请求去试
+            if (isPrimary && failedOver) {
+                probing.set(false);
+            }
+            return;
+        }
+        boolean connectFailure = isConnectFailure(cause);
+        boolean sample = cause == null || isTimeout(cause);
+        Health health = isPrimary ? primaryHealth : backupHealth;
+        if (connectFailure) {
+            health.failure();
+        } else if (sample) {
+            health.sample(nanos, config.getSlowWindow());
+        }
+
+        if (isPrimary) {
+            if (failedOver) {
+                if (probing.get()) {
+                    probed(cause != null || nanos > config.getSlowThreshold() * 1000000L);
+                }
+            } else if (health.getFailures() >= config.getFailureThreshold()) {
+                failover("连续 " + health.getFailures() + " 次连接失败");
+            } else if (health.getSamples() >= config.getSlowWindow() && health.getLatency() > config.getSlowThreshold()) {
+                failover("平均延迟 " + health.getLatency() + "ms");
+            }
+        } else if (failedOver && backupHealth.getFailures() >= config.getFailureThreshold()) {
+            recover("备用域名连续 " + backupHealth.getFailures() + " 次连接失败");
+        }
+    }
+
+
+    public boolean isFailedOver() {
+        return failedOver;
+    }
+
+
+    public String getPrimary() {
+        return primary;
+    }
+
+
+    public String getBackup() {
+        return backup;
+    }
+
+
+    public FailoverConfig getConfig() {
+        return config;
+    }
+
+
+    /**
+     * 切换到备用域名的次数
+     *
+     * @return
+     */
+    public long getFailovers() {
+        return failovers.get();
+    }
+
+
+    /**
+     * 主域名平均延迟（毫秒）
+     *
+     * @return
+     */
+    public long getPrimaryLatency() {
+        return primaryHealth.getLatency();
+    }
+
+
+    /**
+     * 备用域名平均延迟（毫秒）
+     *
+     * @return
+     */
+    public long getBackupLatency() {
+        return backupHealth.getLatency();
+    }
+
+
+    /**
+     * 试探结束，切换前发出、切换后才完成的请求也按试探处理
+     */
+    private void probed(boolean failed) {
+        if (!failed) {
+            recover("主域名试探成功");
+            return;
+        }
+        nextProbeAt = System.currentTimeMillis() + config.getProbeInterval();
+        probing.set(false);
+    }
+
+
+    private void failover(String reason) {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (failedOver || now < holdUntil) {
+                return;
+            }
+            backupHealth.reset();
+            nextProbeAt = now + config.getProbeInterval();
+            probing.set(false);
+            failedOver = true;
+            failovers.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+        log.warn("切换到备用域名：{} -> {}，原因：{}", primary, backup, reason);
+    }
+
+
+    private void recover(String reason) {
+        lock.lock();
+        try {
+            if (!failedOver) {
+                return;
+            }
+            primaryHealth.reset();
+            failedOver = false;
+            probing.set(false);
+            if (backupHealth.getFailures() >= config.getFailureThreshold()) {
+                // 两个域名都不可用时不来回切换
+                holdUntil = System.currentTimeMillis() + config.getProbeInterval();
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.warn("切回主域名：{}，原因：{}", primary, reason);
+    }
+
+
+    /**
+     * 地址是否属于该域名，域名后必须是路径、参数或结尾
+     */
+    private static boolean matches(String url, String origin) {
+        if (url == null || !url.startsWith(origin)) {
+            return false;
+        }
+        if (url.length() == origin.length()) {
+            return true;
+        }
+        char c = url.charAt(origin.length());
+        return c == '/' || c == '?' || c == '#';
+    }
+
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable e = error;
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+
+    /**
+     * 连接没有建立：连接被拒绝、连接超时、没有路由、域名解析失败
+     */
+    static boolean isConnectFailure(Throwable e) {
+        return e instanceof ConnectException
+                || e instanceof ConnectTimeoutException
+                || e instanceof NoRouteToHostException
+                || e instanceof UnknownHostException;
+    }
+
+
+    /**
+     * 请求被取消或中止，不说明域名的好坏
+     */
+    static boolean isCancellation(Throwable e) {
+        return e instanceof CancellationException || e instanceof RequestAbortedException;
+    }
+
+
+    /**
+     * 读取超时或超出调用时限，耗时计入平均延迟
+     */
+    static boolean isTimeout(Throwable e) {
+        return e instanceof SocketTimeoutException || e instanceof DeadlineExceededException;
+    }
+
+
+    /**
+     * 单个域名的健康状况
+     */
+    private static final class Health {
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicLong samples = new AtomicLong();
+
+        /**
+         * 平均延迟（纳秒，double 的位表示）
+         */
+        private final AtomicLong average = new AtomicLong();
+
+        void failure() {
+            failures.incrementAndGet();
+        }
+
+        void sample(long nanos, int window) {
+            failures.set(0);
+            double alpha = 2.0 / (Math.max(window, 1) + 1);
+            boolean first = samples.getAndIncrement() == 0;
+            long prev;
+            long next;
+            do {
+                prev = average.get();
+                double old = Double.longBitsToDouble(prev);
+                next = Double.doubleToRawLongBits(first ? nanos : old + alpha * (nanos - old));
+            } while (!average.compareAndSet(prev, next));
+        }
+
+        void reset() {
+            failures.set(0);
+            samples.set(0);
+            average.set(0);
+        }
+
+        int getFailures() {
+            return failures.get();
+        }
+
+        long getSamples() {
+            return samples.get();
+        }
+
+        long getLatency() {
+            return (long) (Double.longBitsToDouble(average.get()) / 1000000);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.tlf.wechat.http.failover;
+
+import com.tlf.wechat.http.WeChatHosts;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * 微信支付主备域名切换
+ * 默认为 api.mch.weixin.qq.com 登记备用域名 api2.mch.weixin.qq.com，WeChatPayHttpUtil 每次请求（包括重试和对冲请求）
+ * 通过 route 选择域名，结束后通过 complete 上报结果：
+ * <pre>
+ * String target = DomainRouters.route(url);
+ * long start = System.nanoTime();
+ * ... 请求 target ...
+ * DomainRouters.complete(target, start, error);
+ * </pre>
+ * 支付域名被 WeChatHosts 替换后地址不再是主域名，不做切换。平台证书由证书管理器固定从主域名下载，不切换
+ */
+public class DomainRouters {
+
+    /**
+     * 微信支付备用域名
+     */
+    public static final String PAY_BACKUP = "https://api2.mch.weixin.qq.com";
+
+    /**
+     * 主域名 -> 路由
+     */
+    private static final Map<String, DomainRouter> ROUTERS = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = true;
+
+    static {
+        register(WeChatHosts.PAY, PAY_BACKUP, new FailoverConfig());
+    }
+
+
+    /**
+     * 登记主备域名，已登记的主域名会被替换
+     *
+     * @param primary 主域名，scheme://host[:port]，末尾不带 /
+     * @param backup  备用域名
+     * @param config
+     */
+    public static void register(String primary, String backup, FailoverConfig config) {
+        ROUTERS.put(primary, new DomainRouter(primary, backup, config));
+    }
+
+
+    /**
+     * 取消主域名的切换
+     *
+     * @param primary
+     */
+    public static void unregister(String primary) {
+        ROUTERS.remove(primary);
+    }
+
+
+    /**
+     * 本次请求实际使用的地址
+     *
+     * @param url 完整地址
+     * @return 未开启、未登记或未切换时原样返回
+     */
+    public static String route(String url) {
+        if (!enabled || url == null) {
+            return url;
+        }
+        DomainRouter router = router(url);
+        return router == null ? url : router.route(url);
+    }
+
+
+    /**
+     * 上报一次请求的结果
+     *
+     * @param url        route 返回的地址
+     * @param startNanos 请求开始时的 System.nanoTime()
+     * @param error      为空表示收到了响应（不论状态码）
+     */
+    public static void complete(String url, long startNanos, Throwable error) {
+        if (!enabled || url == null) {
+            return;
+        }
+        DomainRouter router = router(url);
+        if (router != null) {
+            router.complete(url, System.nanoTime() - startNanos, error);
+        }
+    }
+
+
+    /**
+     * 主域名或备用域名对应的路由
+     */
+    private static DomainRouter router(String url) {
+        for (DomainRouter router : ROUTERS.values()) {
+            if (url.startsWith(router.getPrimary()) || url.startsWith(router.getBackup())) {
+                return router;
+            }
+        }
+        return null;
+    }
+
+
+    public static DomainRouter get(String primary) {
+        return ROUTERS.get(primary);
+    }
+
+
+    public static Collection<DomainRouter> getRouters() {
+        return Collections.unmodifiableCollection(ROUTERS.values());
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * 关闭后不再改写地址，已切换的请求回到原地址
+     *
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled) {
+        DomainRouters.enabled = enabled;
+    }
+}
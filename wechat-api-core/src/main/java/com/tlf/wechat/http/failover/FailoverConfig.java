@@ -0,0 +1,59 @@
+package com.tlf.wechat.http.failover;
+
+/**
+ * 域名切换配置
+ */
+public class FailoverConfig {
+    /**
+     * 连续多少次连接失败（连接被拒绝、连接超时、域名解析失败）后切换到备用域名
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * 平均延迟（毫秒，指数加权）超过该值视为持续变慢，切换到备用域名
+     */
+    private long slowThreshold = 2000;
+
+    /**
+     * 计算平均延迟的样本窗口，至少有这么多次调用才判断是否变慢
+     */
+    private int slowWindow = 20;
+
+    /**
+     * 切换后每隔多久（毫秒）放一个请求到主域名试探，成功且不慢时切回
+     */
+    private long probeInterval = 30000;
+
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(long slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+
+    public int getSlowWindow() {
+        return slowWindow;
+    }
+
+    public void setSlowWindow(int slowWindow) {
+        this.slowWindow = slowWindow;
+    }
+
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(long probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+}
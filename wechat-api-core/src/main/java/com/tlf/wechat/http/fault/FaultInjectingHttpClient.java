@@ -0,0 +1,56 @@
+package com.tlf.wechat.http.fault;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+
+/**
+ * 注入故障的 HttpClient，位于装饰链的最内层，注入的故障会经过并发限制、熔断和超时
+ */
+public class FaultInjectingHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    public FaultInjectingHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        if (FaultInjector.isEnabled() && request instanceof HttpUriRequest) {
+            CloseableHttpResponse injected = FaultInjector.inject((HttpUriRequest) request);
+            if (injected != null) {
+                return injected;
+            }
+        }
+        return delegate.execute(target, request, context);
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
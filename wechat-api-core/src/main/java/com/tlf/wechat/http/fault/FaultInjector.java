@@ -0,0 +1,273 @@
+package com.tlf.wechat.http.fault;
+
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.HttpScheduler;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+
+/**
+ * 故障注入
+ * 在请求引擎之上、并发限制之下注入延迟、连接重置、超时和错误响应，用于压测和演练：
+ * 注入的故障与真实故障一样会经过并发限制、熔断、重试、对冲和超时，可以观察连接池和各项限制的表现。
+ * <p>
+ * 同步请求（HttpUtil、WeChatPayHttpUtil、微信支付自动签名的 HttpClient）和异步请求都会注入。
+ * 规则可以在运行时增删，整体通过 setEnabled 开关，默认关闭；关闭时只有一次 volatile 读
+ * <p>
+ * 一次请求按登记顺序检查所有规则：命中的 LATENCY 规则延迟累加，第一个命中的其他规则决定请求结果；
+ * 累计延迟达到请求的响应超时时按超时处理
+ */
+public class FaultInjector {
+    private static final Logger log = LoggerFactory.getLogger(FaultInjector.class);
+
+    /**
+     * 未设置响应超时（0 表示不限制）时注入超时的等待时间
+     */
+    private static final long DEFAULT_TIMEOUT = 60_000;
+
+    private static final List<FaultRule> RULES = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean enabled = false;
+
+
+    /**
+     * 添加规则，同名规则会被替换
+     *
+     * @param rule
+     */
+    public static void add(FaultRule rule) {
+        remove(rule.getName());
+        RULES.add(rule);
+        log.warn("添加故障注入规则：{}", rule);
+    }
+
+
+    /**
+     * 移除规则
+     *
+     * @param name
+     * @return 是否存在该规则
+     */
+    public static boolean remove(String name) {
+        return RULES.removeIf(rule -> rule.getName().equals(name));
+    }
+
+
+    /**
+     * 移除所有规则
+     */
+    public static void clear() {
+        RULES.clear();
+    }
+
+
+    /**
+     * 所有规则及注入次数
+     *
+     * @return
+     */
+    public static List<FaultRule> getRules() {
+        return Collections.unmodifiableList(RULES);
+    }
+
+
+    /**
+     * 是否注入故障，默认关闭
+     *
+     * @param enable
+     */
+    public static void setEnabled(boolean enable) {
+        if (enable != enabled) {
+            log.warn(enable ? "开启故障注入" : "关闭故障注入");
+        }
+        enabled = enable;
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * 同步请求注入故障，需要延迟时在调用线程等待
+     *
+     * @param request
+     * @return 注入的响应；为空时照常发送请求
+     * @throws IOException 注入的连接重置或超时
+     */
+    public static CloseableHttpResponse inject(HttpUriRequest request) throws IOException {
+        Injection injection = plan(request);
+        if (injection == null) {
+            return null;
+        }
+        if (injection.delay > 0) {
+            try {
+                Thread.sleep(injection.delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("注入延迟时被中断");
+            }
+        }
+        if (injection.rule == null) {
+            return null;
+        }
+        if (injection.rule.getType() == FaultType.RESPONSE) {
+            return new InjectedResponse(injection.rule);
+        }
+        throw injection.error();
+    }
+
+
+    /**
+     * 异步请求注入故障，延迟由定时线程完成，不占用调用线程
+     * 取消返回的 future 会同时取消等待中的延迟或已发出的请求
+     *
+     * @param request
+     * @param send    照常发送请求
+     * @return
+     */
+    public static CompletableFuture<HttpResponse> executeAsync(HttpUriRequest request, Supplier<CompletableFuture<HttpResponse>> send) {
+        final Injection injection = plan(request);
+        if (injection == null) {
+            return send.get();
+        }
+        if (injection.delay <= 0) {
+            return complete(injection, send);
+        }
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timer = HttpScheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            final CompletableFuture<HttpResponse> inner = complete(injection, send);
+            inner.whenComplete((response, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(response);
+                }
+            });
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) {
+                    inner.cancel(false);
+                }
+            });
+        }, injection.delay);
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                timer.cancel(false);
+            }
+        });
+        return result;
+    }
+
+
+    private static CompletableFuture<HttpResponse> complete(Injection injection, Supplier<CompletableFuture<HttpResponse>> send) {
+        if (injection.rule == null) {
+            return send.get();
+        }
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        if (injection.rule.getType() == FaultType.RESPONSE) {
+            future.complete(new InjectedResponse(injection.rule));
+        } else {
+            future.completeExceptionally(injection.error());
+        }
+        return future;
+    }
+
+
+    /**
+     * 按规则决定本次请求注入的延迟和故障，不注入时为空
+     */
+    private static Injection plan(HttpUriRequest request) {
+        if (!enabled || RULES.isEmpty()) {
+            return null;
+        }
+        URI uri = request.getURI();
+        String host = uri.getHost();
+        String path = uri.getRawPath();
+        Random random = ThreadLocalRandom.current();
+        long delay = 0;
+        FaultRule terminal = null;
+        for (FaultRule rule : RULES) {
+            if (!rule.matches(host, path) || random.nextDouble() >= rule.getProbability()) {
+                continue;
+            }
+            if (rule.getType() == FaultType.LATENCY) {
+                delay += Math.max(0, rule.getLatency().sample(random));
+                rule.onInjected();
+            } else if (terminal == null) {
+                terminal = rule;
+                rule.onInjected();
+            }
+        }
+        if (delay == 0 && terminal == null) {
+            return null;
+        }
+        long timeout = socketTimeout(request);
+        if (terminal != null && terminal.getType() == FaultType.TIMEOUT) {
+            return new Injection(delay + timeout, terminal);
+        }
+        if (delay >= timeout) {
+            // 延迟超过响应超时，与真实情况一样以超时结束
+            return new Injection(timeout, FaultRule.timeout("latency>timeout", null, 1));
+        }
+        return new Injection(delay, terminal);
+    }
+
+
+    /**
+     * 请求的响应超时，已由 TimeoutProfiles 按接口和截止时间设置
+     */
+    private static long socketTimeout(HttpUriRequest request) {
+        int timeout = -1;
+        if (request instanceof HttpRequestBase) {
+            RequestConfig config = ((HttpRequestBase) request).getConfig();
+            if (config != null) {
+                timeout = config.getSocketTimeout();
+            }
+        }
+        if (timeout < 0) {
+            timeout = HttpClientManager.getConfig().getSocketTimeout();
+        }
+        return timeout > 0 ? timeout : DEFAULT_TIMEOUT;
+    }
+
+
+    private static class Injection {
+        private final long delay;
+        private final FaultRule rule;
+
+        Injection(long delay, FaultRule rule) {
+            this.delay = delay;
+            this.rule = rule;
+        }
+
+        IOException error() {
+            if (rule.getType() == FaultType.TIMEOUT) {
+                return new SocketTimeoutException("Read timed out（故障注入：" + rule.getName() + "）");
+            }
+            return new SocketException("Connection reset（故障注入：" + rule.getName() + "）");
+        }
+    }
+}
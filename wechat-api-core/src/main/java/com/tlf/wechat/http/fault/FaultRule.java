@@ -0,0 +1,203 @@
+package com.tlf.wechat.http.fault;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+
+/**
+ * 故障注入规则
+ * 匹配 host 和路径的请求按 probability 的概率注入故障，如：
+ * <pre>
+ * // 所有公众平台接口增加 2 秒延迟
+ * FaultInjector.add(FaultRule.latency("slow", null, 1.0, LatencyDistribution.fixed(2000)).host("api.weixin.qq.com"));
+ * // 5% 的下单请求返回 SYSTEM_ERROR
+ * FaultInjector.add(FaultRule.response("jsapi-500", "/v3/pay/transactions/jsapi", 0.05, 500,
+ *         "{\"code\":\"SYSTEM_ERROR\",\"message\":\"系统错误\"}"));
+ * </pre>
+ */
+public class FaultRule {
+
+    private final String name;
+    private final FaultType type;
+    private final Pattern pathPattern;
+    private final double probability;
+    private final AtomicLong injected = new AtomicLong();
+
+    private String host;
+    private LatencyDistribution latency;
+    private int statusCode;
+    private String body;
+
+
+    private FaultRule(String name, FaultType type, String pathRegex, double probability) {
+        this.name = name;
+        this.type = type;
+        this.pathPattern = pathRegex == null ? null : Pattern.compile(pathRegex);
+        this.probability = probability;
+    }
+
+
+    /**
+     * 增加延迟
+     *
+     * @param name        规则名称，用于移除和统计
+     * @param pathRegex   路径正则，不含域名和参数，为空时匹配所有路径
+     * @param probability 注入概率（0~1）
+     * @param latency     延迟分布
+     * @return
+     */
+    public static FaultRule latency(String name, String pathRegex, double probability, LatencyDistribution latency) {
+        FaultRule rule = new FaultRule(name, FaultType.LATENCY, pathRegex, probability);
+        rule.latency = latency;
+        return rule;
+    }
+
+
+    /**
+     * 连接被重置
+     *
+     * @param name
+     * @param pathRegex
+     * @param probability
+     * @return
+     */
+    public static FaultRule connectionReset(String name, String pathRegex, double probability) {
+        return new FaultRule(name, FaultType.CONNECTION_RESET, pathRegex, probability);
+    }
+
+
+    /**
+     * 响应超时
+     *
+     * @param name
+     * @param pathRegex
+     * @param probability
+     * @return
+     */
+    public static FaultRule timeout(String name, String pathRegex, double probability) {
+        return new FaultRule(name, FaultType.TIMEOUT, pathRegex, probability);
+    }
+
+
+    /**
+     * 返回指定的状态码和响应体
+     *
+     * @param name
+     * @param pathRegex
+     * @param probability
+     * @param statusCode  如 500、503
+     * @param body        JSON 响应体，可以为空
+     * @return
+     */
+    public static FaultRule response(String name, String pathRegex, double probability, int statusCode, String body) {
+        FaultRule rule = new FaultRule(name, FaultType.RESPONSE, pathRegex, probability);
+        rule.statusCode = statusCode;
+        rule.body = body;
+        return rule;
+    }
+
+
+    /**
+     * 返回 HTTP 200 和公众平台、小程序格式的错误码，如 errcode -1（系统繁忙）、45009（调用超过限制）
+     *
+     * @param name
+     * @param pathRegex
+     * @param probability
+     * @param errcode
+     * @param errmsg
+     * @return
+     */
+    public static FaultRule errcode(String name, String pathRegex, double probability, int errcode, String errmsg) {
+        return response(name, pathRegex, probability, 200,
+                "{\"errcode\":" + errcode + ",\"errmsg\":\"" + errmsg + "\"}");
+    }
+
+
+    /**
+     * 只对指定 host 生效，默认对所有 host 生效
+     *
+     * @param host
+     * @return
+     */
+    public FaultRule host(String host) {
+        this.host = host;
+        return this;
+    }
+
+
+    /**
+     * 是否匹配请求
+     *
+     * @param requestHost
+     * @param path
+     * @return
+     */
+    public boolean matches(String requestHost, String path) {
+        if (host != null && !host.equalsIgnoreCase(requestHost)) {
+            return false;
+        }
+        return pathPattern == null || (path != null && pathPattern.matcher(path).matches());
+    }
+
+
+    void onInjected() {
+        injected.incrementAndGet();
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    public FaultType getType() {
+        return type;
+    }
+
+    public String getPathRegex() {
+        return pathPattern == null ? null : pathPattern.pattern();
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * 已注入的次数
+     *
+     * @return
+     */
+    public long getInjectedCount() {
+        return injected.get();
+    }
+
+
+    @Override
+    public String toString() {
+        return "FaultRule{" +
+                "name='" + name + '\'' +
+                ", type=" + type +
+                ", host=" + host +
+                ", path=" + getPathRegex() +
+                ", probability=" + probability +
+                (latency == null ? "" : ", latency=" + latency) +
+                (type == FaultType.RESPONSE ? ", status=" + statusCode : "") +
+                ", injected=" + injected.get() +
+                '}';
+    }
+}
@@ -0,0 +1,26 @@
+package com.tlf.wechat.http.fault;
+
+/**
+ * 注入的故障类型
+ */
+public enum FaultType {
+    /**
+     * 增加延迟，之后照常发送请求；延迟超过请求的响应超时时按 TIMEOUT 处理
+     */
+    LATENCY,
+
+    /**
+     * 连接被重置，抛出 SocketException: Connection reset
+     */
+    CONNECTION_RESET,
+
+    /**
+     * 等待请求的响应超时时间后抛出 SocketTimeoutException
+     */
+    TIMEOUT,
+
+    /**
+     * 不发送请求，直接返回指定的状态码和响应体，如 HTTP 503、errcode -1
+     */
+    RESPONSE
+}
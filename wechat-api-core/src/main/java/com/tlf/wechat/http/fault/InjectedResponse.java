@@ -0,0 +1,34 @@
+package com.tlf.wechat.http.fault;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+
+import java.util.Locale;
+
+
+/**
+ * 注入的响应，不占用连接，关闭时不需要释放任何资源
+ */
+class InjectedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+    static final String HEADER = "X-Fault-Injected";
+
+    InjectedResponse(FaultRule rule) {
+        super(new BasicStatusLine(HttpVersion.HTTP_1_1, rule.getStatusCode(),
+                EnglishReasonPhraseCatalog.INSTANCE.getReason(rule.getStatusCode(), Locale.ENGLISH)));
+        addHeader(HEADER, rule.getName());
+        if (rule.getBody() != null) {
+            setEntity(new StringEntity(rule.getBody(), ContentType.APPLICATION_JSON));
+        }
+    }
+
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,107 @@
+package com.tlf.wechat.http.fault;
+
+import java.util.Random;
+
+
+/**
+ * 注入延迟的分布
+ */
+public abstract class LatencyDistribution {
+
+    /**
+     * 取一个延迟（毫秒）
+     *
+     * @param random
+     * @return
+     */
+    public abstract long sample(Random random);
+
+
+    /**
+     * 固定延迟
+     *
+     * @param millis
+     * @return
+     */
+    public static LatencyDistribution fixed(final long millis) {
+        return new LatencyDistribution() {
+            @Override
+            public long sample(Random random) {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed(" + millis + "ms)";
+            }
+        };
+    }
+
+
+    /**
+     * 在 [min, max] 内均匀分布
+     *
+     * @param minMillis
+     * @param maxMillis
+     * @return
+     */
+    public static LatencyDistribution uniform(final long minMillis, final long maxMillis) {
+        return new LatencyDistribution() {
+            @Override
+            public long sample(Random random) {
+                return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+            }
+
+            @Override
+            public String toString() {
+                return "uniform(" + minMillis + "~" + maxMillis + "ms)";
+            }
+        };
+    }
+
+
+    /**
+     * 指数分布，模拟排队等待
+     *
+     * @param meanMillis 平均值
+     * @return
+     */
+    public static LatencyDistribution exponential(final double meanMillis) {
+        return new LatencyDistribution() {
+            @Override
+            public long sample(Random random) {
+                return (long) (-meanMillis * Math.log(1 - random.nextDouble()));
+            }
+
+            @Override
+            public String toString() {
+                return "exponential(mean=" + meanMillis + "ms)";
+            }
+        };
+    }
+
+
+    /**
+     * 对数正态分布，由中位数和 P99 确定，模拟大部分请求正常、少量请求长尾的延迟
+     *
+     * @param medianMillis 中位数
+     * @param p99Millis    P99，不小于中位数
+     * @return
+     */
+    public static LatencyDistribution logNormal(final double medianMillis, final double p99Millis) {
+        final double mu = Math.log(medianMillis);
+        // 标准正态分布的 99 分位数为 2.326
+        final double sigma = Math.max(0, Math.log(p99Millis / medianMillis) / 2.326);
+        return new LatencyDistribution() {
+            @Override
+            public long sample(Random random) {
+                return (long) Math.exp(mu + sigma * random.nextGaussian());
+            }
+
+            @Override
+            public String toString() {
+                return "logNormal(p50=" + medianMillis + "ms, p99=" + p99Millis + "ms)";
+            }
+        };
+    }
+}
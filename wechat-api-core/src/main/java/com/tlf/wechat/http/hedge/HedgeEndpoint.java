@@ -0,0 +1,117 @@
+package com.tlf.wechat.http.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+
+/**
+ * 允许对冲的接口，以及该接口的延迟样本和对冲统计
+ */
+public class HedgeEndpoint {
+
+    private final String name;
+    private final Pattern pattern;
+    private final LatencyTracker latency;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetDenied = new AtomicLong();
+
+
+    HedgeEndpoint(String name, String pathRegex, double percentile) {
+        this.name = name;
+        this.pattern = Pattern.compile(pathRegex);
+        this.latency = new LatencyTracker(percentile);
+    }
+
+
+    boolean matches(String path) {
+        return pattern.matcher(path).matches();
+    }
+
+    LatencyTracker latency() {
+        return latency;
+    }
+
+    void onRequest() {
+        requests.incrementAndGet();
+    }
+
+    void onHedge() {
+        hedges.incrementAndGet();
+    }
+
+    void onHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    void onBudgetDenied() {
+        budgetDenied.incrementAndGet();
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPathRegex() {
+        return pattern.pattern();
+    }
+
+    /**
+     * 经过对冲判断的请求数
+     *
+     * @return
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * 发出的对冲请求数
+     *
+     * @return
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * 对冲请求先于第一次请求返回的次数
+     *
+     * @return
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * 对冲胜率：对冲请求先返回的次数 / 对冲次数
+     *
+     * @return
+     */
+    public double getWinRate() {
+        long h = hedges.get();
+        return h == 0 ? 0 : (double) hedgeWins.get() / h;
+    }
+
+    /**
+     * 达到对冲延迟但预算不足、没有发出对冲的次数
+     *
+     * @return
+     */
+    public long getBudgetDenied() {
+        return budgetDenied.get();
+    }
+
+    /**
+     * 当前分位延迟（毫秒），样本不足时为 -1
+     *
+     * @return
+     */
+    public double getPercentileMillis() {
+        long nanos = latency.percentile(1);
+        return nanos < 0 ? -1 : nanos / 1_000_000d;
+    }
+}
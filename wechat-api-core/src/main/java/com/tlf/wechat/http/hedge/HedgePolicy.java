@@ -0,0 +1,112 @@
+package com.tlf.wechat.http.hedge;
+
+/**
+ * 对冲请求配置
+ */
+public class HedgePolicy {
+    /**
+     * 是否启用，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 第一次请求超过该分位的延迟仍未返回时发出对冲请求，如 0.95 表示 p95
+     */
+    private double percentile = 0.95;
+
+    /**
+     * 对冲延迟下限（毫秒）
+     */
+    private long minDelay = 20;
+
+    /**
+     * 对冲延迟上限（毫秒）
+     */
+    private long maxDelay = 2000;
+
+    /**
+     * 延迟样本不足时使用的对冲延迟（毫秒）
+     */
+    private long initialDelay = 500;
+
+    /**
+     * 计算分位延迟的最少样本数
+     */
+    private int minSamples = 20;
+
+    /**
+     * 对冲请求数占请求数的比例上限，额外负载不超过该比例
+     */
+    private double budgetRatio = 0.05;
+
+    /**
+     * 流量很小时每秒至少允许的对冲次数
+     */
+    private int minHedgesPerSecond = 1;
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    public void setMinDelay(long minDelay) {
+        this.minDelay = minDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getMinHedgesPerSecond() {
+        return minHedgesPerSecond;
+    }
+
+    public void setMinHedgesPerSecond(int minHedgesPerSecond) {
+        this.minHedgesPerSecond = minHedgesPerSecond;
+    }
+
+}
@@ -0,0 +1,306 @@
+package com.tlf.wechat.http.hedge;
+
+import com.tlf.wechat.http.HttpScheduler;
+import com.tlf.wechat.http.HttpUtil;
+import com.tlf.wechat.http.concurrent.CancelScope;
+import com.tlf.wechat.http.concurrent.WeChatExecutors;
+import com.tlf.wechat.http.retry.RetryBudget;
+import com.tlf.wechat.http.schedule.RequestScheduler;
+import com.tlf.wechat.http.timeout.Deadline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+
+/**
+ * 对冲请求
+ * 幂等查询的第一次请求超过分位延迟仍未返回时，再发一个相同的请求，取先返回的结果，另一个取消
+ * <p>
+ * 只对登记的接口生效，且需要通过 setPolicy 启用；对冲次数受预算限制，额外负载不超过请求数的 budgetRatio
+ * <p>
+ * 每个请求结束时都记录延迟：落后被取消的第一次请求记录到先返回的结果为止的时间（真实延迟的下限），
+ * 否则慢请求被对冲赢下后不留样本，分位延迟会收敛到快请求上，几乎每个请求都被对冲
+ */
+public class Hedger {
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    /**
+     * 登记的接口，修改时整体替换
+     */
+    private static volatile List<HedgeEndpoint> endpoints = Collections.emptyList();
+
+    private static volatile HedgePolicy policy = new HedgePolicy();
+    private static volatile RetryBudget budget = new RetryBudget(policy.getBudgetRatio(), policy.getMinHedgesPerSecond());
+
+    static {
+        register("pay.selectOrderOutTradeNo", "/v3/pay/transactions/out-trade-no/[^/]+");
+        register("pay.selectOrderByTransactionId", "/v3/pay/transactions/id/[^/]+");
+        register("pay.selectRefundOrderOutTradeNo", "/v3/refund/domestic/refunds/[^/]+");
+        register("live.getLiveInfo", "/wxa/business/getliveinfo");
+    }
+
+
+    /**
+     * 登记允许对冲的接口，只能登记幂等的查询接口
+     *
+     * @param name      统计名称
+     * @param pathRegex 路径正则，不含域名和参数
+     */
+    public static void register(String name, String pathRegex) {
+        LOCK.lock();
+        try {
+            List<HedgeEndpoint> list = new ArrayList<>(endpoints);
+            list.add(new HedgeEndpoint(name, pathRegex, policy.getPercentile()));
+            endpoints = Collections.unmodifiableList(list);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    /**
+     * 设置对冲配置，保留各接口的延迟样本和统计，按新的分位重新计算对冲延迟；对冲预算重新计算
+     *
+     * @param hedgePolicy
+     */
+    public static void setPolicy(HedgePolicy hedgePolicy) {
+        LOCK.lock();
+        try {
+            for (HedgeEndpoint endpoint : endpoints) {
+                endpoint.latency().setPercentile(hedgePolicy.getPercentile());
+            }
+            budget = new RetryBudget(hedgePolicy.getBudgetRatio(), hedgePolicy.getMinHedgesPerSecond());
+            policy = hedgePolicy;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    public static HedgePolicy getPolicy() {
+        return policy;
+    }
+
+
+    /**
+     * 各接口的对冲统计
+     *
+     * @return
+     */
+    public static List<HedgeEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+
+    /**
+     * 同步执行，未启用或接口未登记时直接在调用线程执行
+     *
+     * @param url     请求地址，用于匹配登记的接口
+     * @param attempt 一次完整的请求
+     * @return
+     * @throws Exception 两个请求都失败时抛出最后一个异常
+     */
+    public static <T> T call(String url, Callable<T> attempt) throws Exception {
+        HedgeEndpoint endpoint = endpoint(url);
+        if (endpoint == null) {
+            return attempt.call();
+        }
+        // 请求在共享线程池（平台线程或虚拟线程）中执行，调用线程等待先返回的结果，需要带上调用线程的截止时间和优先级；
+        // 每个请求在自己的 CancelScope 中执行，落后的请求被取消时中止（abort）阻塞中的 http 请求，释放连接和线程
+        final Callable<T> task = Deadline.wrap(RequestScheduler.wrap(attempt));
+        CompletableFuture<T> result = hedge(endpoint, () -> {
+            CancelScope scope = new CancelScope();
+            CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return scope.call(task);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, WeChatExecutors.getExecutor());
+            future.whenComplete((value, error) -> {
+                if (future.isCancelled()) {
+                    scope.cancel();
+                }
+            });
+            return future;
+        });
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * 异步执行，未启用或接口未登记时直接返回 attempt 的结果
+     *
+     * @param url     请求地址，用于匹配登记的接口
+     * @param attempt 一次完整的请求
+     * @return
+     */
+    public static <T> CompletableFuture<T> callAsync(String url, Supplier<CompletableFuture<T>> attempt) {
+        HedgeEndpoint endpoint = endpoint(url);
+        if (endpoint == null) {
+            return attempt.get();
+        }
+        // 对冲请求在定时线程中发起，需要带上调用线程的截止时间和优先级
+        return hedge(endpoint, Deadline.wrapAsync(RequestScheduler.wrapAsync(attempt)));
+    }
+
+
+    private static HedgeEndpoint endpoint(String url) {
+        if (!policy.isEnabled()) {
+            return null;
+        }
+        String path = HttpUtil.path(url);
+        for (HedgeEndpoint endpoint : endpoints) {
+            if (endpoint.matches(path)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * 状态：0 只有第一次请求；1 已到对冲时间（发出对冲请求或预算不足放弃）；2 第一次请求已失败，不再对冲
+     * 定时线程只负责抢占状态和扣除预算，对冲请求交给共享线程池发出，不阻塞定时线程
+     */
+    private static <T> CompletableFuture<T> hedge(HedgeEndpoint endpoint, Supplier<CompletableFuture<T>> attempt) {
+        final HedgePolicy p = policy;
+        final RetryBudget b = budget;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicInteger state = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicReference<Throwable> primaryError = new AtomicReference<>();
+        endpoint.onRequest();
+        b.onRequest();
+
+        final long primaryStart = System.nanoTime();
+        final CompletableFuture<T> primary = attempt.get();
+        final List<CompletableFuture<T>> hedges = new CopyOnWriteArrayList<>();
+
+        // 对冲请求没有发出或发出失败，算作一次失败；第一次请求也已失败时以它的异常结束
+        final Runnable hedgeFailed = () -> {
+            if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(primaryError.get());
+            }
+        };
+
+        final Runnable sendHedge = () -> {
+            final long hedgeStart = System.nanoTime();
+            final CompletableFuture<T> hedge;
+            try {
+                hedge = attempt.get();
+            } catch (RuntimeException e) {
+                hedgeFailed.run();
+                return;
+            }
+            hedges.add(hedge);
+            if (result.isDone()) {
+                hedge.cancel(false);
+            }
+            hedge.whenComplete((value, error) -> {
+                // 因第一次请求先返回而取消时不记录，第一次请求已记录了到先返回为止的时间
+                if (!hedge.isCancelled()) {
+                    endpoint.latency().record(System.nanoTime() - hedgeStart);
+                }
+                if (error == null) {
+                    if (result.complete(value)) {
+                        endpoint.onHedgeWin();
+                        primary.cancel(false);
+                    }
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        };
+
+        ScheduledFuture<?> timer = HttpScheduler.schedule(() -> {
+            if (primary.isDone() || result.isDone() || !state.compareAndSet(0, 1)) {
+                return;
+            }
+            if (!b.tryRetry()) {
+                endpoint.onBudgetDenied();
+                hedgeFailed.run();
+                return;
+            }
+            endpoint.onHedge();
+            try {
+                WeChatExecutors.getExecutor().execute(sendHedge);
+            } catch (RejectedExecutionException e) {
+                hedgeFailed.run();
+            }
+        }, delay(endpoint, p));
+
+        primary.whenComplete((value, error) -> {
+            // 调用方取消时不记录；被对冲赢下而取消时，记录的是到先返回的结果为止的时间
+            if (!result.isCancelled()) {
+                endpoint.latency().record(System.nanoTime() - primaryStart);
+            }
+            if (error == null) {
+                timer.cancel(false);
+                if (result.complete(value)) {
+                    for (CompletableFuture<T> hedge : hedges) {
+                        hedge.cancel(false);
+                    }
+                }
+            } else if (state.compareAndSet(0, 2)) {
+                // 还没有到对冲时间，直接失败，交给重试处理
+                timer.cancel(false);
+                result.completeExceptionally(error);
+            } else {
+                primaryError.set(error);
+                if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            }
+        });
+
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                timer.cancel(false);
+                primary.cancel(false);
+                for (CompletableFuture<T> hedge : hedges) {
+                    hedge.cancel(false);
+                }
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * 对冲延迟（毫秒）：分位延迟，限制在 [minDelay, maxDelay]
+     */
+    private static long delay(HedgeEndpoint endpoint, HedgePolicy p) {
+        long nanos = endpoint.latency().percentile(p.getMinSamples());
+        long millis = nanos < 0 ? p.getInitialDelay() : nanos / 1_000_000;
+        return Math.max(p.getMinDelay(), Math.min(p.getMaxDelay(), millis));
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.tlf.wechat.http.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 最近若干次请求的延迟，用于计算分位延迟
+ * 环形缓冲区保存最近 SIZE 个样本，分位值每 RECOMPUTE 个样本重新计算一次
+ */
+public class LatencyTracker {
+
+    private static final int SIZE = 512;
+    private static final int RECOMPUTE = 32;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] samples = new long[SIZE];
+    private double percentile;
+    private long count;
+    private long cached = -1;
+
+
+    public LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+
+    /**
+     * 记录一次延迟
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        lock.lock();
+        try {
+            samples[(int) (count % SIZE)] = nanos;
+            count++;
+            if (count % RECOMPUTE == 0) {
+                cached = -1;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 修改分位，保留已有样本，下次读取时重新计算
+     *
+     * @param percentile
+     */
+    public void setPercentile(double percentile) {
+        lock.lock();
+        try {
+            this.percentile = percentile;
+            cached = -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 分位延迟（纳秒），样本不足时返回 -1
+     *
+     * @param minSamples
+     * @return
+     */
+    public long percentile(int minSamples) {
+        lock.lock();
+        try {
+            if (count < minSamples || count == 0) {
+                return -1;
+            }
+            if (cached < 0) {
+                int n = (int) Math.min(count, SIZE);
+                long[] sorted = Arrays.copyOf(samples, n);
+                Arrays.sort(sorted);
+                cached = sorted[Math.max(0, Math.min(n - 1, (int) Math.ceil(percentile * n) - 1))];
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public long getCount() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.tlf.wechat.http.jfr;
+
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.response.WeChatResponse;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+
+
+/**
+ * JDK Flight Recorder 事件（Java 11+）
+ * 该类为 Java 8 下的占位实现，不产生任何事件；Java 11+ 使用多版本 jar 中 META-INF/versions/11 下的实现，
+ * 在 JFR 录制中产生 com.tlf.wechat.Request（每次发送）、com.tlf.wechat.Call（每次调用，含重试）、
+ * com.tlf.wechat.Operation（签名、验签、解密、获取 access_token、下载平台证书）事件。
+ * 没有录制或事件未开启时 begin 返回空，end 直接返回
+ */
+public final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+
+    public static boolean isAvailable() {
+        return false;
+    }
+
+
+    /**
+     * 开始一次发送
+     *
+     * @return 事件未开启时为空
+     */
+    public static Object beginRequest() {
+        return null;
+    }
+
+
+    /**
+     * 结束一次发送
+     *
+     * @param event    beginRequest 的返回值
+     * @param host
+     * @param request
+     * @param response 请求失败时为空
+     */
+    public static void endRequest(Object event, String host, HttpRequest request, HttpResponse response) {
+    }
+
+
+    /**
+     * 一次调用结束，在 WireLog.exchange 中提交
+     *
+     * @param method
+     * @param url
+     * @param requestBody 请求体，可以为空
+     * @param response    响应，请求失败时为空
+     * @param error       异常，可以为空
+     * @param startNanos  调用开始时的 System.nanoTime()
+     */
+    public static void call(String method, String url, String requestBody, WeChatResponse response, Throwable error, long startNanos) {
+    }
+
+
+    /**
+     * 开始一次操作
+     *
+     * @return 事件未开启时为空
+     */
+    public static Object beginOperation() {
+        return null;
+    }
+
+
+    /**
+     * 结束一次操作
+     *
+     * @param event     beginOperation 的返回值
+     * @param operation
+     * @param subject   appId、mchId 等，可以为空
+     * @param bytes     处理的字节数，未知时为 -1
+     * @param success
+     */
+    public static void endOperation(Object event, Metrics.Operation operation, String subject, long bytes, boolean success) {
+    }
+}
@@ -0,0 +1,307 @@
+package com.tlf.wechat.http.limit;
+
+import com.tlf.wechat.http.HttpScheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 自适应并发限制（gradient 算法）
+ * <p>
+ * 以长期平均延迟作为无排队时的基准延迟，与近期延迟比较得到梯度：
+ * 近期延迟接近基准时上限缓慢增长，延迟升高说明服务端开始排队，上限随之下降；
+ * 请求超时或网络异常时上限按比例回退。
+ * 达到上限的请求进入有界队列等待，队列已满或等待超时时抛出 LimitExceededException
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * 近期延迟的采样窗口
+     */
+    private static final int SHORT_WINDOW = 10;
+
+    private final String name;
+    private final LimiterConfig config;
+
+    /**
+     * 不使用 synchronized，避免虚拟线程在锁内阻塞时占用载体线程
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private double limit;
+    private int inFlight;
+    private double longRtt;
+    private double shortRtt;
+    private long samples;
+
+
+    public ConcurrencyLimiter(String name, LimiterConfig config) {
+        this.name = name;
+        this.config = config;
+        this.limit = config.getInitialLimit();
+    }
+
+
+    /**
+     * 获取许可，达到上限时阻塞等待，最长等待 queueTimeout
+     *
+     * @return
+     * @throws LimitExceededException 队列已满或等待超时
+     */
+    public Permit acquire() throws LimitExceededException {
+        CompletableFuture<Permit> future = acquireAsync();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            cancel(future);
+            Thread.currentThread().interrupt();
+            throw new LimitExceededException(name, "等待许可时被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LimitExceededException) {
+                throw (LimitExceededException) e.getCause();
+            }
+            throw new LimitExceededException(name, String.valueOf(e.getCause()));
+        }
+    }
+
+
+    /**
+     * 获取许可，不阻塞调用线程
+     * 有空闲许可时立即完成，否则排队，队列已满或等待超时时以 LimitExceededException 结束
+     *
+     * @return
+     */
+    public CompletableFuture<Permit> acquireAsync() {
+        final CompletableFuture<Permit> future = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (inFlight < (int) limit && waiters.isEmpty()) {
+                inFlight++;
+                future.complete(new Permit(inFlight));
+                return future;
+            }
+            if (waiters.size() >= config.getMaxQueueSize()) {
+                rejected.incrementAndGet();
+                future.completeExceptionally(new LimitExceededException(name, "排队已满"));
+                return future;
+            }
+            waiters.addLast(future);
+        } finally {
+            lock.unlock();
+        }
+        HttpScheduler.schedule(() -> {
+            if (remove(future)) {
+                rejected.incrementAndGet();
+                future.completeExceptionally(new LimitExceededException(name, "排队超时"));
+            }
+        }, config.getQueueTimeout());
+        return future;
+    }
+
+
+    /**
+     * 放弃获取许可，已经拿到的许可直接归还
+     *
+     * @param future
+     */
+    public void cancel(CompletableFuture<Permit> future) {
+        if (!remove(future)) {
+            Permit permit = future.getNow(null);
+            if (permit != null) {
+                permit.ignore();
+            }
+        }
+        future.cancel(false);
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前并发上限
+     *
+     * @return
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 正在进行的请求数
+     *
+     * @return
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 排队中的请求数
+     *
+     * @return
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 因排队已满或排队超时被拒绝的请求数
+     *
+     * @return
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * 基准延迟（毫秒）
+     *
+     * @return
+     */
+    public double getRttMillis() {
+        lock.lock();
+        try {
+            return longRtt / 1_000_000d;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private boolean remove(CompletableFuture<Permit> future) {
+        lock.lock();
+        try {
+            return waiters.remove(future);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 归还许可并根据本次结果调整上限，然后唤醒排队的请求
+     */
+    private void release(long rtt, int inFlightAtStart, Outcome outcome) {
+        List<CompletableFuture<Permit>> ready = new ArrayList<>();
+        List<Permit> permits = new ArrayList<>();
+        lock.lock();
+        try {
+            inFlight--;
+            if (outcome == Outcome.SUCCESS) {
+                update(rtt, inFlightAtStart);
+            } else if (outcome == Outcome.DROPPED) {
+                limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                inFlight++;
+                ready.add(waiters.pollFirst());
+                permits.add(new Permit(inFlight));
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < ready.size(); i++) {
+            Permit permit = permits.get(i);
+            if (!ready.get(i).complete(permit)) {
+                // 等待方已取消
+                permit.ignore();
+            }
+        }
+    }
+
+
+    private void update(long rtt, int inFlightAtStart) {
+        samples++;
+        if (samples == 1) {
+            longRtt = rtt;
+            shortRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) / Math.min(samples, config.getLongWindow());
+            shortRtt += (rtt - shortRtt) / Math.min(samples, SHORT_WINDOW);
+        }
+        // 近期延迟远低于基准时基准下移，服务端恢复后能尽快放开
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // 并发远低于上限时延迟不能说明上限是否合适，不调整
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - config.getSmoothing()) + newLimit * config.getSmoothing();
+        limit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), newLimit));
+    }
+
+
+    private enum Outcome {
+        SUCCESS, DROPPED, IGNORE
+    }
+
+
+    /**
+     * 许可，请求结束后必须调用 success/dropped/ignore 之一归还，重复调用无效
+     */
+    public class Permit {
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * 收到响应，延迟计入采样
+         */
+        public void success() {
+            release(Outcome.SUCCESS);
+        }
+
+        /**
+         * 超时或网络异常，上限回退
+         */
+        public void dropped() {
+            release(Outcome.DROPPED);
+        }
+
+        /**
+         * 不计入采样，如请求构建失败、被取消
+         */
+        public void ignore() {
+            release(Outcome.IGNORE);
+        }
+
+        private void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                ConcurrencyLimiter.this.release(System.nanoTime() - start, inFlightAtStart, outcome);
+            }
+        }
+    }
+}
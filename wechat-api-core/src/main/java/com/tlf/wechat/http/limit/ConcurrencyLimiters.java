@@ -0,0 +1,156 @@
+package com.tlf.wechat.http.limit;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * 按 host + 接口分组管理并发限制
+ * 微信支付（api.mch.weixin.qq.com）与公众平台/小程序（api.weixin.qq.com）使用不同的限流器和配置，
+ * 一方变慢时不会占满另一方的并发额度
+ * <p>
+ * 接口分组取路径第一段，v3 接口取前两段，如：
+ * api.mch.weixin.qq.com/v3/pay、api.mch.weixin.qq.com/v3/refund、api.weixin.qq.com/cgi-bin、api.weixin.qq.com/wxa
+ */
+public class ConcurrencyLimiters {
+
+    private static final Map<String, ConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    /**
+     * 按 host 指定的配置，未指定的 host 使用默认配置
+     */
+    private static final Map<String, LimiterConfig> HOST_CONFIGS = new ConcurrentHashMap<>();
+
+    private static volatile LimiterConfig defaultConfig = LimiterConfig.platform();
+
+    private static volatile boolean enabled = true;
+
+    static {
+        HOST_CONFIGS.put("api.mch.weixin.qq.com", LimiterConfig.pay());
+        HOST_CONFIGS.put("api2.mch.weixin.qq.com", LimiterConfig.pay());
+    }
+
+
+    /**
+     * 获取请求地址对应的限流器
+     *
+     * @param uri
+     * @return
+     */
+    public static ConcurrencyLimiter get(URI uri) {
+        return get(uri.getHost(), uri.getRawPath());
+    }
+
+
+    /**
+     * 获取 host + 接口分组对应的限流器，首次使用时创建
+     *
+     * @param host
+     * @param path
+     * @return
+     */
+    public static ConcurrencyLimiter get(String host, String path) {
+        String name = host + family(path);
+        ConcurrencyLimiter limiter = LIMITERS.get(name);
+        if (limiter == null) {
+            limiter = LIMITERS.computeIfAbsent(name, key -> new ConcurrencyLimiter(key, HOST_CONFIGS.getOrDefault(host, defaultConfig)));
+        }
+        return limiter;
+    }
+
+
+    /**
+     * 接口分组
+     *
+     * @param path
+     * @return
+     */
+    public static String family(String path) {
+        if (path == null || path.isEmpty() || "/".equals(path)) {
+            return "/";
+        }
+        int end = path.indexOf('/', 1);
+        if (end > 0 && path.startsWith("/v3/")) {
+            end = path.indexOf('/', end + 1);
+        }
+        return end > 0 ? path.substring(0, end) : path;
+    }
+
+
+    /**
+     * 根据请求结果归还许可
+     * 网络异常（超时、连接失败）和 429/503 说明服务端过载，上限回退；取消不计入；其他响应计入延迟采样
+     *
+     * @param permit
+     * @param statusCode 未收到响应时忽略
+     * @param error      为空表示收到了响应
+     */
+    public static void complete(ConcurrencyLimiter.Permit permit, int statusCode, Throwable error) {
+        if (error != null) {
+            if (error instanceof CancellationException) {
+                permit.ignore();
+            } else if (error instanceof IOException || error.getCause() instanceof IOException) {
+                permit.dropped();
+            } else {
+                permit.ignore();
+            }
+        } else if (statusCode == 429 || statusCode == 503) {
+            permit.dropped();
+        } else {
+            permit.success();
+        }
+    }
+
+
+    /**
+     * 为 host 指定配置，已创建的该 host 的限流器会被重建
+     *
+     * @param host
+     * @param config
+     */
+    public static void setConfig(String host, LimiterConfig config) {
+        HOST_CONFIGS.put(host, config);
+        LIMITERS.keySet().removeIf(name -> name.startsWith(host + "/"));
+    }
+
+
+    /**
+     * 未单独配置的 host 使用的配置
+     *
+     * @param config
+     */
+    public static void setDefaultConfig(LimiterConfig config) {
+        defaultConfig = config;
+        LIMITERS.entrySet().removeIf(e -> !HOST_CONFIGS.containsKey(e.getKey().substring(0, e.getKey().indexOf('/'))));
+    }
+
+
+    /**
+     * 是否启用并发限制，默认启用
+     *
+     * @param enable
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * 所有限流器，可用于监控当前上限、并发数和排队数
+     *
+     * @return
+     */
+    public static Map<String, ConcurrencyLimiter> getLimiters() {
+        return Collections.unmodifiableMap(LIMITERS);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.tlf.wechat.http.limit;
+
+import java.io.IOException;
+
+
+/**
+ * 并发数达到上限且排队已满或排队超时，请求未发出
+ */
+public class LimitExceededException extends IOException {
+
+    private final String name;
+
+    public LimitExceededException(String name, String reason) {
+        super("并发数超过限制：" + name + "，" + reason);
+        this.name = name;
+    }
+
+    /**
+     * 限流器名称（host + 接口分组）
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,160 @@
+package com.tlf.wechat.http.limit;
+
+/**
+ * 并发限制配置
+ */
+public class LimiterConfig {
+    /**
+     * 初始并发上限
+     */
+    private int initialLimit = 20;
+
+    /**
+     * 并发上限的下限，延迟再高也至少允许这么多请求同时进行
+     */
+    private int minLimit = 4;
+
+    /**
+     * 并发上限的上限，一般不超过连接池每个路由的最大连接数
+     */
+    private int maxLimit = 50;
+
+    /**
+     * 达到上限后最多排队的请求数，为 0 时直接失败
+     */
+    private int maxQueueSize = 100;
+
+    /**
+     * 排队等待的最长时间（毫秒），超时后请求失败
+     */
+    private long queueTimeout = 1000;
+
+    /**
+     * 延迟容忍倍数，当前延迟不超过基准延迟的该倍数时认为服务端没有排队
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * 调整上限时的平滑系数（0~1），越小变化越平缓
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * 请求超时或网络异常时上限乘以该系数
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * 基准延迟（长期延迟）的采样窗口，按请求次数计算的指数移动平均
+     */
+    private int longWindow = 600;
+
+
+    public LimiterConfig() {
+    }
+
+
+    /**
+     * 微信支付接口默认配置
+     * 支付接口对可用性要求最高，上限和排队数较大
+     *
+     * @return
+     */
+    public static LimiterConfig pay() {
+        LimiterConfig config = new LimiterConfig();
+        config.setInitialLimit(20);
+        config.setMaxLimit(50);
+        config.setMaxQueueSize(200);
+        config.setQueueTimeout(2000);
+        return config;
+    }
+
+
+    /**
+     * 公众平台、小程序接口默认配置
+     *
+     * @return
+     */
+    public static LimiterConfig platform() {
+        LimiterConfig config = new LimiterConfig();
+        config.setInitialLimit(10);
+        config.setMaxLimit(40);
+        config.setMaxQueueSize(100);
+        config.setQueueTimeout(1000);
+        return config;
+    }
+
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public long getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(long queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public int getLongWindow() {
+        return longWindow;
+    }
+
+    public void setLongWindow(int longWindow) {
+        this.longWindow = longWindow;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.tlf.wechat.http.limit;
+
+import com.tlf.wechat.http.concurrent.CancelScope;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * 带并发限制的 HttpClient
+ * 发送请求前按 host + 接口分组获取许可，收到响应头（或失败）后归还，延迟计入采样
+ */
+public class LimitingHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    public LimitingHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        if (!ConcurrencyLimiters.isEnabled() || target == null) {
+            return delegate.execute(target, request, context);
+        }
+        ConcurrencyLimiter.Permit permit = ConcurrencyLimiters.get(target.getHostName(), path(request)).acquire();
+        CloseableHttpResponse response;
+        try {
+            response = delegate.execute(target, request, context);
+        } catch (IOException | RuntimeException e) {
+            // 被中止（对冲落后、截止时间）的请求按取消处理
+            ConcurrencyLimiters.complete(permit, 0, CancelScope.outcome(request, e));
+            throw e;
+        }
+        ConcurrencyLimiters.complete(permit, response.getStatusLine().getStatusCode(), null);
+        return response;
+    }
+
+
+    private static String path(HttpRequest request) {
+        if (request instanceof HttpUriRequest) {
+            return ((HttpUriRequest) request).getURI().getRawPath();
+        }
+        return URI.create(request.getRequestLine().getUri()).getRawPath();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
@@ -0,0 +1,90 @@
+package com.tlf.wechat.http.log;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * 在后台守护线程中输出日志，appender 的 IO 不占用请求线程
+ * 队列已满时丢弃，不阻塞请求
+ */
+class AsyncLogWriter {
+
+    private final Logger logger;
+    private final BlockingQueue<Entry> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+
+
+    AsyncLogWriter(Logger logger, int queueSize) {
+        this.logger = logger;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.thread = new Thread(this::drain, "wechat-wire-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    void write(boolean warn, String message, Throwable error) {
+        if (!queue.offer(new Entry(warn, message, error))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+
+    /**
+     * 输出队列中剩余的日志后结束后台线程
+     */
+    void close() {
+        thread.interrupt();
+    }
+
+
+    private void drain() {
+        while (true) {
+            try {
+                output(queue.take());
+            } catch (InterruptedException e) {
+                Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    output(entry);
+                }
+                return;
+            }
+        }
+    }
+
+
+    private void output(Entry entry) {
+        try {
+            if (entry.warn) {
+                logger.warn(entry.message, entry.error);
+            } else {
+                logger.info(entry.message, entry.error);
+            }
+        } catch (RuntimeException ignore) {
+            // appender 异常不能结束输出线程
+        }
+    }
+
+
+    private static class Entry {
+        final boolean warn;
+        final String message;
+        final Throwable error;
+
+        Entry(boolean warn, String message, Throwable error) {
+            this.warn = warn;
+            this.message = message;
+            this.error = error;
+        }
+    }
+}
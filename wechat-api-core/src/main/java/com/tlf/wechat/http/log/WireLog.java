@@ -0,0 +1,223 @@
+package com.tlf.wechat.http.log;
+
+import com.tlf.wechat.http.jfr.FlightEvents;
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.response.WeChatResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * 请求日志
+ * 失败的请求（异常、非 2xx、errcode 不为 0）以 WARN 记录完整的请求体和响应体；
+ * 成功的请求按采样比例以 INFO 记录一行摘要，不记录请求体和响应体。
+ * <p>
+ * 日志级别未开启或未被采样时不会拼接任何字符串；记录的内容先脱敏（appSecret、access_token、session_key、
+ * 手机号、密文等），再按最大长度截断，默认在后台线程输出。
+ * 日志名为 com.tlf.wechat.http.log.WireLog，可以单独配置级别和 appender
+ */
+public class WireLog {
+    private static final Logger log = LoggerFactory.getLogger(WireLog.class);
+
+    private static final String MASK = "***";
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static volatile WireLogConfig config = new WireLogConfig();
+    private static volatile Masker masker = new Masker(config.getMaskedFields(), config.getMaskedQueryParams());
+    private static volatile AsyncLogWriter writer = new AsyncLogWriter(log, config.getQueueSize());
+
+
+    /**
+     * 更新配置
+     *
+     * @param newConfig
+     */
+    public static void setConfig(WireLogConfig newConfig) {
+        LOCK.lock();
+        try {
+            WireLogConfig old = config;
+            masker = new Masker(newConfig.getMaskedFields(), newConfig.getMaskedQueryParams());
+            if (newConfig.getQueueSize() != old.getQueueSize()) {
+                AsyncLogWriter oldWriter = writer;
+                writer = new AsyncLogWriter(log, newConfig.getQueueSize());
+                oldWriter.close();
+            }
+            config = newConfig;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    public static WireLogConfig getConfig() {
+        return config;
+    }
+
+
+    /**
+     * 记录一次请求，同时统计失败的 errcode（Metrics），提交 JFR 调用事件（FlightEvents）
+     *
+     * @param method      请求方法
+     * @param url         完整地址，参数会脱敏
+     * @param requestBody 请求体，可以为空
+     * @param response    响应，请求失败时为空
+     * @param error       异常，可以为空
+     * @param startNanos  请求开始时的 System.nanoTime()
+     */
+    public static void exchange(
+            String method,
+            String url,
+            String requestBody,
+            WeChatResponse response,
+            Throwable error,
+            long startNanos
+    ) {
+        Metrics.exchange(url, response);
+        FlightEvents.call(method, url, requestBody, response, error, startNanos);
+        boolean failed = error != null || response == null || !response.isSuccess();
+        if (failed ? !log.isWarnEnabled() : !log.isInfoEnabled() || !sampled()) {
+            return;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        StringBuilder sb = new StringBuilder(128)
+                .append(method.toUpperCase()).append(' ').append(mask(url))
+                .append(' ').append(response == null ? "-" : String.valueOf(response.getStatusCode()))
+                .append(' ').append(elapsed).append("ms");
+        if (failed) {
+            sb.append("\nrequest: ").append(body(requestBody));
+            sb.append("\nresponse: ").append(response == null ? "null" : body(String.valueOf(response.getData())));
+        }
+        write(failed, sb.toString(), error);
+    }
+
+
+    /**
+     * 记录回调、解密结果等不是请求的数据
+     * 成功时只按采样比例记录名称和长度，失败时记录脱敏、截断后的内容
+     *
+     * @param name    名称，如 pay.callback
+     * @param payload 内容，可以为空
+     * @param success 是否成功
+     */
+    public static void payload(String name, String payload, boolean success) {
+        if (success ? !log.isInfoEnabled() || !sampled() : !log.isWarnEnabled()) {
+            return;
+        }
+        String message = success
+                ? name + " " + (payload == null ? 0 : payload.length()) + " chars"
+                : name + " failed: " + body(payload);
+        write(!success, message, null);
+    }
+
+
+    /**
+     * 脱敏：JSON 字段（"field":"value"）和 URL 参数（field=value）中配置的字段替换为 ***，
+     * maskedQueryParams 中的字段只在 URL 参数中替换
+     *
+     * @param text
+     * @return
+     */
+    public static String mask(String text) {
+        return text == null ? null : masker.mask(text);
+    }
+
+
+    /**
+     * 后台输出队列已满时丢弃的日志数
+     *
+     * @return
+     */
+    public static long getDroppedCount() {
+        return writer.getDroppedCount();
+    }
+
+
+    private static boolean sampled() {
+        double rate = config.getSampleRate();
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+
+    /**
+     * 先脱敏再截断，截断不会留下未脱敏的片段
+     */
+    private static String body(String body) {
+        if (body == null) {
+            return "null";
+        }
+        String masked = mask(body);
+        int max = config.getMaxBodyLength();
+        if (max > 0 && masked.length() > max) {
+            return masked.substring(0, max) + "...(" + masked.length() + " chars)";
+        }
+        return masked;
+    }
+
+
+    private static void write(boolean warn, String message, Throwable error) {
+        if (config.isAsync()) {
+            writer.write(warn, message, error);
+        } else if (warn) {
+            log.warn(message, error);
+        } else {
+            log.info(message, error);
+        }
+    }
+
+
+    private static class Masker {
+        private final Pattern json;
+        private final Pattern query;
+
+        Masker(List<String> fields, List<String> queryParams) {
+            List<String> all = new ArrayList<>();
+            if (fields != null) {
+                all.addAll(fields);
+            }
+            if (queryParams != null) {
+                all.addAll(queryParams);
+            }
+            json = fields == null || fields.isEmpty() ? null
+                    : Pattern.compile("(\"(?:" + names(fields) + ")\"\\s*:\\s*\")(?:[^\"\\\\]|\\\\.)*(\")", Pattern.CASE_INSENSITIVE);
+            query = all.isEmpty() ? null
+                    : Pattern.compile("([?&](?:" + names(all) + ")=)[^&#\\s\"]*", Pattern.CASE_INSENSITIVE);
+        }
+
+        private static String names(List<String> fields) {
+            StringBuilder names = new StringBuilder();
+            for (String field : fields) {
+                if (names.length() > 0) {
+                    names.append('|');
+                }
+                names.append(Pattern.quote(field));
+            }
+            return names.toString();
+        }
+
+        String mask(String text) {
+            String masked = text;
+            if (json != null && masked.indexOf('"') >= 0) {
+                Matcher m = json.matcher(masked);
+                if (m.find()) {
+                    masked = m.replaceAll("$1" + MASK + "$2");
+                }
+            }
+            if (query != null && masked.indexOf('=') >= 0) {
+                Matcher m = query.matcher(masked);
+                if (m.find()) {
+                    masked = m.replaceAll("$1" + MASK);
+                }
+            }
+            return masked;
+        }
+    }
+}
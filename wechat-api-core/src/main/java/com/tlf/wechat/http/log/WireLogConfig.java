@@ -0,0 +1,94 @@
+package com.tlf.wechat.http.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 请求日志配置
+ */
+public class WireLogConfig {
+    /**
+     * 成功请求的采样比例（0~1），只记录摘要（方法、地址、状态码、耗时），失败的请求总是记录完整的请求体和响应体
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * 请求体、响应体超过该长度（字符）时截断
+     */
+    private int maxBodyLength = 2048;
+
+    /**
+     * 需要脱敏的字段，JSON 字段和 URL 参数同名时都会替换为 ***
+     */
+    private List<String> maskedFields = new ArrayList<>(Arrays.asList(
+            "secret", "appsecret", "access_token", "refresh_token", "session_key", "js_code",
+            "phoneNumber", "purePhoneNumber", "ciphertext", "encryptedData", "associated_data"
+    ));
+
+    /**
+     * 只在 URL 参数中脱敏的字段
+     * 网页授权、登录的 code 在 URL 参数中；微信支付 v3 的错误码也叫 code（JSON 字段），需要保留才能排查失败
+     */
+    private List<String> maskedQueryParams = new ArrayList<>(Arrays.asList("code"));
+
+    /**
+     * 是否在后台线程输出日志，调用线程只负责格式化并放入队列
+     */
+    private boolean async = true;
+
+    /**
+     * 后台输出队列长度，队列已满时丢弃日志，不阻塞请求
+     */
+    private int queueSize = 8192;
+
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxBodyLength() {
+        return maxBodyLength;
+    }
+
+    public void setMaxBodyLength(int maxBodyLength) {
+        this.maxBodyLength = maxBodyLength;
+    }
+
+    public List<String> getMaskedFields() {
+        return maskedFields;
+    }
+
+    public void setMaskedFields(List<String> maskedFields) {
+        this.maskedFields = maskedFields;
+    }
+
+    public List<String> getMaskedQueryParams() {
+        return maskedQueryParams;
+    }
+
+    public void setMaskedQueryParams(List<String> maskedQueryParams) {
+        this.maskedQueryParams = maskedQueryParams;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+}
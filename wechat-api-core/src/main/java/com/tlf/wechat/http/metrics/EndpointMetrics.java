@@ -0,0 +1,31 @@
+package com.tlf.wechat.http.metrics;
+
+
+/**
+ * 一个接口的指标：延迟分布、进行中的请求数、HTTP 状态码和 errcode 计数
+ * 每次发送（含重试、对冲）记录一次，本地限流和熔断拒绝的请求不会发送，不计入
+ */
+public interface EndpointMetrics {
+
+    /**
+     * 请求开始发送
+     */
+    void started();
+
+
+    /**
+     * 收到响应头或请求失败，与 started 成对调用
+     *
+     * @param statusCode HTTP 状态码，网络异常时为 0
+     * @param nanos      耗时
+     */
+    void completed(int statusCode, long nanos);
+
+
+    /**
+     * 接口返回错误码，每次调用（重试后的最终结果）记录一次
+     *
+     * @param errcode 公众平台、小程序为 errcode，微信支付为 code，如 40001、ORDERNOTEXIST
+     */
+    void errcode(String errcode);
+}
@@ -0,0 +1,132 @@
+package com.tlf.wechat.http.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * 延迟直方图（微秒），多线程无锁记录，记录时不分配内存
+ * 与 HdrHistogram 相同的对数-线性分桶：2^(precision+1) 微秒以下每微秒一个桶，之上每个 2 的幂区间分 2^precision 个桶，
+ * 分位值的相对误差不超过 1 / 2^precision，占用固定内存。默认 precision 为 5（误差约 3%，约 9KB）
+ */
+public class LatencyHistogram {
+
+    private static final int MAX_EXPONENT = 40;
+
+    private final int subBits;
+    private final int linearBits;
+    private final int linear;
+    private final AtomicLongArray buckets;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    public LatencyHistogram() {
+        this(5);
+    }
+
+
+    /**
+     * @param precision 每个 2 的幂区间分 2^precision 个桶，1 ~ 10
+     */
+    public LatencyHistogram(int precision) {
+        if (precision < 1 || precision > 10) {
+            throw new IllegalArgumentException("precision 须在 1 ~ 10 之间：" + precision);
+        }
+        this.subBits = precision;
+        this.linearBits = precision + 1;
+        this.linear = 1 << linearBits;
+        this.buckets = new AtomicLongArray(linear + (MAX_EXPONENT - linearBits + 1) * (1 << subBits));
+    }
+
+
+    /**
+     * 记录一次延迟
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(index(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long current;
+        while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+        }
+    }
+
+
+    /**
+     * 分位延迟（微秒），没有样本时为 0
+     *
+     * @param percentile 如 0.99
+     * @return
+     */
+    public long percentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(value(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 平均延迟（微秒）
+     *
+     * @return
+     */
+    public long getMean() {
+        long total = count.get();
+        return total == 0 ? 0 : sum.get() / total;
+    }
+
+    /**
+     * 最大延迟（微秒）
+     *
+     * @return
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+
+    private int index(long micros) {
+        if (micros < linear) {
+            return (int) micros;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT) {
+            micros = Math.min(micros, (1L << (MAX_EXPONENT + 1)) - 1);
+        }
+        int sub = (int) (micros >>> (exponent - subBits)) & ((1 << subBits) - 1);
+        return linear + (exponent - linearBits) * (1 << subBits) + sub;
+    }
+
+
+    /**
+     * 桶的中间值
+     */
+    private long value(int index) {
+        if (index < linear) {
+            return index;
+        }
+        int exponent = (index - linear) / (1 << subBits) + linearBits;
+        int sub = (index - linear) % (1 << subBits);
+        long width = 1L << (exponent - subBits);
+        return (1L << exponent) + sub * width + width / 2;
+    }
+}
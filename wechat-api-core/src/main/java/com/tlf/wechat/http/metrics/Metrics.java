@@ -0,0 +1,268 @@
+package com.tlf.wechat.http.metrics;
+
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.breaker.CircuitBreakers;
+import com.tlf.wechat.http.response.WeChatResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 指标
+ * 默认不记录（NoopMetricsRecorder），调用 setRecorder 或通过 SPI 登记 MetricsRecorder 后开始记录：
+ * <pre>
+ * Metrics.setRecorder(new MicrometerMetricsRecorder(meterRegistry));
+ * </pre>
+ * 记录的指标：
+ * <ul>
+ * <li>每个接口（host + 接口路径，订单号等替换为 {id}）的延迟分布、进行中的请求数、HTTP 状态码和 errcode 计数</li>
+ * <li>连接池的租用、空闲、等待中的连接数和最大连接数（pool.leased、pool.available、pool.pending、pool.max）</li>
+ * <li>签名、验签、解密、获取 access_token、下载平台证书的耗时和成功、失败次数，见 Operation</li>
+ * </ul>
+ * 接口和操作的指标对象按 host、原始路径缓存，请求路径上只有 volatile 读和 map 查找，不分配内存；
+ * 路径中带订单号的接口每次需要替换参数，errcode 只在失败时解析。未开启时只有一次 volatile 读
+ */
+public final class Metrics {
+    private static final Logger log = LoggerFactory.getLogger(Metrics.class);
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    private static volatile State state;
+
+
+    /**
+     * 操作
+     */
+    public enum Operation {
+        /**
+         * 请求签名（WeChatPayUtil.sign）
+         */
+        PAY_SIGN("pay.sign"),
+        /**
+         * 回调和应答验签
+         */
+        PAY_VERIFY("pay.verify"),
+        /**
+         * 获取商户的验签器（WeChatPayUtil.getVerifier），首次调用时下载平台证书
+         */
+        PAY_GET_VERIFIER("pay.getVerifier"),
+        /**
+         * 下载平台证书（WeChatPayUtil.refreshCertificate）
+         */
+        PAY_CERTIFICATE_REFRESH("pay.certificate.refresh"),
+        /**
+         * 回调、平台证书解密（WeChatPayAesUtil）
+         */
+        PAY_DECRYPT("pay.decrypt"),
+        /**
+         * 小程序加密数据解密（WeChatBizDataUtil）
+         */
+        WX_DATA_DECRYPT("wxData.decrypt"),
+        /**
+         * 获取 access_token
+         */
+        TOKEN_REFRESH("token.refresh");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+
+    private Metrics() {
+    }
+
+
+    /**
+     * 设置指标实现，已缓存的指标对象会被丢弃
+     *
+     * @param recorder 为空时不记录
+     */
+    public static void setRecorder(MetricsRecorder recorder) {
+        LOCK.lock();
+        try {
+            state = new State(recorder == null ? NoopMetricsRecorder.INSTANCE : recorder);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    public static MetricsRecorder getRecorder() {
+        return state().recorder;
+    }
+
+
+    public static boolean isEnabled() {
+        return state().enabled;
+    }
+
+
+    /**
+     * 请求地址对应的接口指标
+     *
+     * @param uri
+     * @return
+     */
+    public static EndpointMetrics endpoint(URI uri) {
+        return endpoint(uri.getHost(), uri.getRawPath());
+    }
+
+
+    /**
+     * 接口指标，首次使用时创建
+     *
+     * @param host
+     * @param path 原始路径，可以带订单号等参数
+     * @return
+     */
+    public static EndpointMetrics endpoint(String host, String path) {
+        State s = state();
+        if (!s.enabled || host == null) {
+            return NoopMetricsRecorder.ENDPOINT;
+        }
+        return s.endpoint(host, path);
+    }
+
+
+    /**
+     * 记录一次操作
+     *
+     * @param operation
+     * @param startNanos 开始时的 System.nanoTime()
+     * @param success
+     */
+    public static void record(Operation operation, long startNanos, boolean success) {
+        State s = state();
+        if (s.enabled) {
+            s.operations[operation.ordinal()].record(System.nanoTime() - startNanos, success);
+        }
+    }
+
+
+    /**
+     * 记录一次调用的 errcode，成功时不做任何事
+     *
+     * @param url      完整地址
+     * @param response 响应，请求失败时为空
+     */
+    public static void exchange(String url, WeChatResponse response) {
+        State s = state();
+        if (!s.enabled || url == null || response == null || response.isSuccess()) {
+            return;
+        }
+        String code = response.getErrorCode();
+        if (code == null) {
+            return;
+        }
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() != null) {
+                s.endpoint(uri.getHost(), uri.getRawPath()).errcode(code);
+            }
+        } catch (IllegalArgumentException ignore) {
+        }
+    }
+
+
+    private static State state() {
+        State s = state;
+        if (s == null) {
+            LOCK.lock();
+            try {
+                s = state;
+                if (s == null) {
+                    s = new State(discover());
+                    state = s;
+                }
+            } finally {
+                LOCK.unlock();
+            }
+        }
+        return s;
+    }
+
+
+    /**
+     * 通过 SPI 登记的第一个实现，没有时不记录
+     */
+    private static MetricsRecorder discover() {
+        try {
+            Iterator<MetricsRecorder> it = ServiceLoader.load(MetricsRecorder.class, Metrics.class.getClassLoader()).iterator();
+            if (it.hasNext()) {
+                return it.next();
+            }
+        } catch (ServiceConfigurationError e) {
+            log.warn("加载指标实现失败", e);
+        }
+        return NoopMetricsRecorder.INSTANCE;
+    }
+
+
+    private static final class State {
+        private final MetricsRecorder recorder;
+        private final boolean enabled;
+        private final OperationMetrics[] operations;
+
+        /**
+         * host -> 原始路径 -> 指标，只缓存不带参数的路径
+         */
+        private final ConcurrentHashMap<String, ConcurrentHashMap<String, EndpointMetrics>> paths = new ConcurrentHashMap<>();
+
+        /**
+         * host + 接口 -> 指标
+         */
+        private final ConcurrentHashMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+        State(MetricsRecorder recorder) {
+            this.recorder = recorder;
+            this.enabled = recorder != NoopMetricsRecorder.INSTANCE;
+            Operation[] values = Operation.values();
+            this.operations = new OperationMetrics[values.length];
+            for (Operation operation : values) {
+                operations[operation.ordinal()] = enabled ? recorder.operation(operation.getName()) : NoopMetricsRecorder.OPERATION;
+            }
+            if (enabled) {
+                recorder.gauge("pool.leased", () -> HttpClientManager.getTotalStats().getLeased());
+                recorder.gauge("pool.available", () -> HttpClientManager.getTotalStats().getAvailable());
+                recorder.gauge("pool.pending", () -> HttpClientManager.getTotalStats().getPending());
+                recorder.gauge("pool.max", () -> HttpClientManager.getTotalStats().getMax());
+                log.info("指标已开启：{}", recorder.getName());
+            }
+        }
+
+        EndpointMetrics endpoint(String host, String path) {
+            ConcurrentHashMap<String, EndpointMetrics> byPath = paths.get(host);
+            if (byPath == null) {
+                byPath = paths.computeIfAbsent(host, k -> new ConcurrentHashMap<>());
+            }
+            EndpointMetrics metrics = path == null ? null : byPath.get(path);
+            if (metrics != null) {
+                return metrics;
+            }
+            String endpoint = CircuitBreakers.endpoint(path);
+            String key = host + endpoint;
+            metrics = endpoints.get(key);
+            if (metrics == null) {
+                metrics = endpoints.computeIfAbsent(key, k -> recorder.endpoint(host, endpoint));
+            }
+            if (endpoint.equals(path)) {
+                byPath.putIfAbsent(path, metrics);
+            }
+            return metrics;
+        }
+    }
+}
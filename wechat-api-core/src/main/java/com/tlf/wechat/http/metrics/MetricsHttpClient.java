@@ -0,0 +1,78 @@
+package com.tlf.wechat.http.metrics;
+
+import com.tlf.wechat.http.jfr.FlightEvents;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * 记录接口指标和 JFR 发送事件的 HttpClient
+ * 位于并发限制之内，记录的是实际发送的请求：进行中的请求数、收到响应头（或失败）的耗时和状态码
+ */
+public class MetricsHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    public MetricsHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        Object event = FlightEvents.beginRequest();
+        if (target == null || !Metrics.isEnabled() && event == null) {
+            return delegate.execute(target, request, context);
+        }
+        EndpointMetrics metrics = Metrics.endpoint(target.getHostName(), path(request));
+        metrics.started();
+        long start = System.nanoTime();
+        CloseableHttpResponse response;
+        try {
+            response = delegate.execute(target, request, context);
+        } catch (IOException | RuntimeException e) {
+            metrics.completed(0, System.nanoTime() - start);
+            FlightEvents.endRequest(event, target.getHostName(), request, null);
+            throw e;
+        }
+        metrics.completed(response.getStatusLine().getStatusCode(), System.nanoTime() - start);
+        FlightEvents.endRequest(event, target.getHostName(), request, response);
+        return response;
+    }
+
+
+    private static String path(HttpRequest request) {
+        if (request instanceof HttpUriRequest) {
+            return ((HttpUriRequest) request).getURI().getRawPath();
+        }
+        return URI.create(request.getRequestLine().getUri()).getRawPath();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
@@ -0,0 +1,47 @@
+package com.tlf.wechat.http.metrics;
+
+import java.util.function.LongSupplier;
+
+
+/**
+ * 指标的 SPI，实现类通过 Metrics.setRecorder 设置，或登记在 META-INF/services/com.tlf.wechat.http.metrics.MetricsRecorder
+ * endpoint、operation 对每个接口、每种操作只调用一次，返回的对象由 Metrics 缓存；
+ * 返回对象的记录方法在请求路径上调用，实现不应加锁或分配内存
+ */
+public interface MetricsRecorder {
+
+    /**
+     * 名称，用于日志
+     *
+     * @return
+     */
+    String getName();
+
+
+    /**
+     * 创建接口的指标
+     *
+     * @param host     域名，如 api.weixin.qq.com
+     * @param endpoint 接口路径，订单号等参数已替换为 {id}，见 CircuitBreakers.endpoint
+     * @return
+     */
+    EndpointMetrics endpoint(String host, String endpoint);
+
+
+    /**
+     * 创建操作（签名、验签、解密、获取 access_token）的指标
+     *
+     * @param name 操作名称，见 Metrics.Operation
+     * @return
+     */
+    OperationMetrics operation(String name);
+
+
+    /**
+     * 登记由调用方读取的指标，如连接池状态，读取时才调用 value
+     *
+     * @param name  名称，如 pool.leased
+     * @param value
+     */
+    void gauge(String name, LongSupplier value);
+}
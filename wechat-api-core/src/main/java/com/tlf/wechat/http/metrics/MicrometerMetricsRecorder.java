@@ -0,0 +1,133 @@
+package com.tlf.wechat.http.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+
+/**
+ * 把指标登记到 Micrometer 的 MeterRegistry，需要引入 micrometer-core：
+ * <ul>
+ * <li>wechat.http.requests：接口延迟（Timer，发布分位直方图），标签 host、endpoint</li>
+ * <li>wechat.http.inflight：进行中的请求数，标签 host、endpoint</li>
+ * <li>wechat.http.responses：状态码计数，标签 host、endpoint、status（网络异常为 IO_ERROR）</li>
+ * <li>wechat.http.errcodes：errcode 计数，标签 host、endpoint、errcode</li>
+ * <li>wechat.operations：签名、验签、解密、获取 access_token 的耗时，标签 operation、outcome</li>
+ * <li>wechat.pool.*：连接池状态</li>
+ * </ul>
+ * Meter 在首次使用时登记，之后的记录不再查找 MeterRegistry
+ */
+public class MicrometerMetricsRecorder implements MetricsRecorder {
+
+    private final MeterRegistry registry;
+    private final String prefix;
+
+
+    public MicrometerMetricsRecorder(MeterRegistry registry) {
+        this(registry, "wechat");
+    }
+
+
+    /**
+     * @param registry
+     * @param prefix   指标名前缀，默认 wechat
+     */
+    public MicrometerMetricsRecorder(MeterRegistry registry, String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+    }
+
+
+    @Override
+    public String getName() {
+        return "micrometer";
+    }
+
+    @Override
+    public EndpointMetrics endpoint(String host, String endpoint) {
+        return new EndpointMeters(Tags.of("host", host, "endpoint", endpoint));
+    }
+
+    @Override
+    public OperationMetrics operation(String name) {
+        final Timer success = Timer.builder(prefix + ".operations")
+                .tags("operation", name, "outcome", "success")
+                .publishPercentileHistogram()
+                .register(registry);
+        final Timer failure = Timer.builder(prefix + ".operations")
+                .tags("operation", name, "outcome", "failure")
+                .publishPercentileHistogram()
+                .register(registry);
+        return (nanos, ok) -> (ok ? success : failure).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        Gauge.builder(prefix + "." + name, value, LongSupplier::getAsLong)
+                .strongReference(true)
+                .register(registry);
+    }
+
+
+    private class EndpointMeters implements EndpointMetrics {
+
+        private static final int MAX_STATUS = 600;
+
+        private final Tags tags;
+        private final Timer latency;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicReferenceArray<Counter> statuses = new AtomicReferenceArray<>(MAX_STATUS);
+        private final Map<String, Counter> errcodes = new ConcurrentHashMap<>();
+
+        EndpointMeters(Tags tags) {
+            this.tags = tags;
+            this.latency = Timer.builder(prefix + ".http.requests")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            Gauge.builder(prefix + ".http.inflight", inFlight, AtomicInteger::get)
+                    .tags(tags)
+                    .strongReference(true)
+                    .register(registry);
+        }
+
+        @Override
+        public void started() {
+            inFlight.incrementAndGet();
+        }
+
+        @Override
+        public void completed(int statusCode, long nanos) {
+            inFlight.decrementAndGet();
+            latency.record(nanos, TimeUnit.NANOSECONDS);
+            int index = statusCode > 0 && statusCode < MAX_STATUS ? statusCode : 0;
+            Counter counter = statuses.get(index);
+            if (counter == null) {
+                // 同名同标签的 Counter 只会登记一次，并发时拿到的是同一个
+                counter = Counter.builder(prefix + ".http.responses")
+                        .tags(tags)
+                        .tag("status", index == 0 ? "IO_ERROR" : String.valueOf(index))
+                        .register(registry);
+                statuses.set(index, counter);
+            }
+            counter.increment();
+        }
+
+        @Override
+        public void errcode(String errcode) {
+            errcodes.computeIfAbsent(errcode, code -> Counter.builder(prefix + ".http.errcodes")
+                    .tags(tags)
+                    .tag("errcode", code)
+                    .register(registry)).increment();
+        }
+    }
+}
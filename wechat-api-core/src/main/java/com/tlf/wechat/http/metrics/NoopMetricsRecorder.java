@@ -0,0 +1,53 @@
+package com.tlf.wechat.http.metrics;
+
+import java.util.function.LongSupplier;
+
+
+/**
+ * 不记录任何指标，没有设置和登记其他实现时使用
+ */
+public final class NoopMetricsRecorder implements MetricsRecorder {
+
+    public static final NoopMetricsRecorder INSTANCE = new NoopMetricsRecorder();
+
+    static final EndpointMetrics ENDPOINT = new EndpointMetrics() {
+        @Override
+        public void started() {
+        }
+
+        @Override
+        public void completed(int statusCode, long nanos) {
+        }
+
+        @Override
+        public void errcode(String errcode) {
+        }
+    };
+
+    static final OperationMetrics OPERATION = (nanos, success) -> {
+    };
+
+
+    private NoopMetricsRecorder() {
+    }
+
+
+    @Override
+    public String getName() {
+        return "noop";
+    }
+
+    @Override
+    public EndpointMetrics endpoint(String host, String endpoint) {
+        return ENDPOINT;
+    }
+
+    @Override
+    public OperationMetrics operation(String name) {
+        return OPERATION;
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.tlf.wechat.http.metrics;
+
+
+/**
+ * 一种操作的指标：耗时分布和成功、失败次数
+ */
+public interface OperationMetrics {
+
+    /**
+     * 记录一次操作
+     *
+     * @param nanos   耗时
+     * @param success 是否成功
+     */
+    void record(long nanos, boolean success);
+}
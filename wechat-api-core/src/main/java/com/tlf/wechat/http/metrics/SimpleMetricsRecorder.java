@@ -0,0 +1,223 @@
+package com.tlf.wechat.http.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+
+/**
+ * 内存中的指标，不依赖监控系统，可定期输出 report() 到日志，或用于压测
+ * 延迟以 LatencyHistogram 记录，从启动开始累计
+ */
+public class SimpleMetricsRecorder implements MetricsRecorder {
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+
+    @Override
+    public String getName() {
+        return "simple";
+    }
+
+    @Override
+    public EndpointMetrics endpoint(String host, String endpoint) {
+        return endpoints.computeIfAbsent(host + endpoint, k -> new EndpointStats());
+    }
+
+    @Override
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, k -> new OperationStats());
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+
+    /**
+     * 接口指标，key 为 host + 接口
+     *
+     * @return
+     */
+    public Map<String, EndpointStats> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+
+    /**
+     * 操作指标，key 为操作名称
+     *
+     * @return
+     */
+    public Map<String, OperationStats> getOperations() {
+        return Collections.unmodifiableMap(operations);
+    }
+
+
+    /**
+     * 读取登记的指标，读取失败的不返回
+     *
+     * @return
+     */
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            try {
+                values.put(entry.getKey(), entry.getValue().getAsLong());
+            } catch (RuntimeException ignore) {
+            }
+        }
+        return values;
+    }
+
+
+    /**
+     * 所有指标的文本报告，延迟单位为毫秒
+     *
+     * @return
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, EndpointStats> entry : new TreeMap<>(endpoints).entrySet()) {
+            EndpointStats stats = entry.getValue();
+            sb.append(entry.getKey()).append(' ').append(latency(stats.getLatency()))
+                    .append(" inFlight=").append(stats.getInFlight())
+                    .append(" status=").append(stats.getStatusCounts());
+            if (!stats.getErrcodeCounts().isEmpty()) {
+                sb.append(" errcode=").append(stats.getErrcodeCounts());
+            }
+            sb.append('\n');
+        }
+        for (Map.Entry<String, OperationStats> entry : new TreeMap<>(operations).entrySet()) {
+            OperationStats stats = entry.getValue();
+            sb.append(entry.getKey()).append(' ').append(latency(stats.getLatency()))
+                    .append(" failure=").append(stats.getFailureCount()).append('\n');
+        }
+        sb.append(getGauges());
+        return sb.toString();
+    }
+
+
+    private static String latency(LatencyHistogram histogram) {
+        return String.format("count=%d p50=%.2f p99=%.2f p999=%.2f max=%.2f",
+                histogram.getCount(),
+                histogram.percentile(0.5) / 1000.0,
+                histogram.percentile(0.99) / 1000.0,
+                histogram.percentile(0.999) / 1000.0,
+                histogram.getMax() / 1000.0);
+    }
+
+
+    /**
+     * 一个接口的指标
+     */
+    public static class EndpointStats implements EndpointMetrics {
+
+        /**
+         * 状态码 0 ~ 599，超出范围的计为 0
+         */
+        private static final int MAX_STATUS = 600;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+        private final Map<String, LongAdder> errcodes = new ConcurrentHashMap<>();
+
+        @Override
+        public void started() {
+            inFlight.incrementAndGet();
+        }
+
+        @Override
+        public void completed(int statusCode, long nanos) {
+            inFlight.decrementAndGet();
+            latency.record(nanos);
+            statuses.incrementAndGet(statusCode > 0 && statusCode < MAX_STATUS ? statusCode : 0);
+        }
+
+        @Override
+        public void errcode(String errcode) {
+            errcodes.computeIfAbsent(errcode, k -> new LongAdder()).increment();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * 状态码的请求数
+         *
+         * @param statusCode 0 为网络异常
+         * @return
+         */
+        public long getStatusCount(int statusCode) {
+            return statusCode >= 0 && statusCode < MAX_STATUS ? statuses.get(statusCode) : 0;
+        }
+
+        /**
+         * 出现过的状态码及请求数，0 为网络异常
+         *
+         * @return
+         */
+        public Map<Integer, Long> getStatusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            for (int i = 0; i < MAX_STATUS; i++) {
+                long count = statuses.get(i);
+                if (count > 0) {
+                    counts.put(i, count);
+                }
+            }
+            return counts;
+        }
+
+        public Map<String, Long> getErrcodeCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : errcodes.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().sum());
+            }
+            return counts;
+        }
+    }
+
+
+    /**
+     * 一种操作的指标
+     */
+    public static class OperationStats implements OperationMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder failure = new LongAdder();
+
+        @Override
+        public void record(long nanos, boolean success) {
+            latency.record(nanos);
+            if (!success) {
+                failure.increment();
+            }
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getFailureCount() {
+            return failure.sum();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.tlf.wechat.http.replay;
+
+import com.alibaba.fastjson.JSON;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * 录制文件加载后的索引
+ * 同一个请求录制了多次时轮流返回，回放的延迟分布与录制时一致
+ */
+public class Cassette {
+
+    private final List<RecordedExchange> exchanges;
+    private final Map<String, Entries> byKey = new HashMap<>();
+    private final Map<String, Entries> byPath = new HashMap<>();
+
+
+    public Cassette(List<RecordedExchange> exchanges) {
+        this.exchanges = Collections.unmodifiableList(new ArrayList<>(exchanges));
+        for (RecordedExchange exchange : exchanges) {
+            byKey.computeIfAbsent(ExchangeMatcher.key(exchange), k -> new Entries()).list.add(exchange);
+            byPath.computeIfAbsent(ExchangeMatcher.pathKey(exchange), k -> new Entries()).list.add(exchange);
+        }
+    }
+
+
+    /**
+     * 加载 Recorder 录制的文件，.gz 结尾时按压缩文件读取
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static Cassette load(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 8192);
+        }
+        List<RecordedExchange> exchanges = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    exchanges.add(JSON.parseObject(line, RecordedExchange.class));
+                }
+            }
+        }
+        return new Cassette(exchanges);
+    }
+
+
+    /**
+     * 查找匹配的录制，没有时为空
+     *
+     * @param request  归一化后的请求
+     * @param pathOnly 没有完全匹配时是否使用同一方法和路径的录制
+     * @return
+     */
+    RecordedExchange find(RecordedExchange request, boolean pathOnly) {
+        Entries entries = byKey.get(ExchangeMatcher.key(request));
+        if (entries == null && pathOnly) {
+            entries = byPath.get(ExchangeMatcher.pathKey(request));
+        }
+        return entries == null ? null : entries.next();
+    }
+
+
+    public List<RecordedExchange> getExchanges() {
+        return exchanges;
+    }
+
+    public int size() {
+        return exchanges.size();
+    }
+
+
+    private static class Entries {
+        private final List<RecordedExchange> list = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        RecordedExchange next() {
+            return list.get((next.getAndIncrement() & Integer.MAX_VALUE) % list.size());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.tlf.wechat.http.replay;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.tlf.wechat.http.log.WireLog;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+/**
+ * 请求归一化：录制时按归一化后的请求保存，回放时按同样的方式归一化后查找
+ * <ul>
+ * <li>路径：路径变量替换为 *</li>
+ * <li>参数：脱敏（WireLog.mask）后按名称排序</li>
+ * <li>请求体：脱敏，忽略字段替换为 *，JSON 字段排序</li>
+ * </ul>
+ */
+class ExchangeMatcher {
+
+    private static final String ANY = "*";
+
+    private final List<Pattern> pathVariables = new ArrayList<>();
+    private final Set<String> ignoredFields;
+
+
+    ExchangeMatcher(ReplayConfig config) {
+        for (String regex : config.getPathVariables()) {
+            pathVariables.add(Pattern.compile(regex));
+        }
+        ignoredFields = new HashSet<>(config.getIgnoredFields());
+    }
+
+
+    /**
+     * 由请求得到归一化的 RecordedExchange，只填充请求部分
+     */
+    RecordedExchange request(HttpUriRequest request) throws IOException {
+        URI uri = request.getURI();
+        RecordedExchange exchange = new RecordedExchange();
+        exchange.setMethod(request.getMethod());
+        exchange.setHost(uri.getHost());
+        exchange.setPath(path(uri.getRawPath()));
+        exchange.setQuery(query(uri.getRawQuery()));
+        String body = null;
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null && entity.isRepeatable()) {
+                body = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            }
+        }
+        exchange.setRequestBody(body(body));
+        return exchange;
+    }
+
+
+    /**
+     * 完整匹配的键：方法、路径、参数、请求体
+     */
+    static String key(RecordedExchange exchange) {
+        return exchange.getMethod() + ' ' + exchange.getPath() + '?' + exchange.getQuery() + '\n' + exchange.getRequestBody();
+    }
+
+
+    /**
+     * 只匹配方法和路径的键
+     */
+    static String pathKey(RecordedExchange exchange) {
+        return exchange.getMethod() + ' ' + exchange.getPath();
+    }
+
+
+    String path(String path) {
+        if (path == null) {
+            return "/";
+        }
+        for (Pattern pattern : pathVariables) {
+            path = pattern.matcher(path).replaceAll("$1" + ANY);
+        }
+        return path;
+    }
+
+
+    static String query(String query) {
+        if (query == null || query.isEmpty()) {
+            return "";
+        }
+        String[] params = WireLog.mask("?" + query).substring(1).split("&");
+        Arrays.sort(params);
+        return String.join("&", params);
+    }
+
+
+    String body(String body) {
+        if (body == null || body.isEmpty()) {
+            return "";
+        }
+        String masked = WireLog.mask(body);
+        char first = masked.trim().isEmpty() ? ' ' : masked.trim().charAt(0);
+        if (first != '{' && first != '[') {
+            return masked;
+        }
+        try {
+            Object json = JSON.parse(masked);
+            ignore(json);
+            return JSON.toJSONString(json, SerializerFeature.MapSortField);
+        } catch (RuntimeException e) {
+            return masked;
+        }
+    }
+
+
+    private void ignore(Object json) {
+        if (json instanceof JSONObject) {
+            JSONObject object = (JSONObject) json;
+            for (String key : object.keySet()) {
+                if (ignoredFields.contains(key)) {
+                    object.put(key, ANY);
+                } else {
+                    ignore(object.get(key));
+                }
+            }
+        } else if (json instanceof JSONArray) {
+            for (Object item : (JSONArray) json) {
+                ignore(item);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.tlf.wechat.http.replay;
+
+import java.util.Map;
+
+
+/**
+ * 录制的一次请求和响应，文件中每行一个（JSON Lines），请求和响应中的密钥、令牌等已脱敏
+ */
+public class RecordedExchange {
+    private String method;
+    private String host;
+
+    /**
+     * 归一化后的路径，路径变量已替换
+     */
+    private String path;
+
+    /**
+     * 归一化后的参数，已脱敏并按名称排序
+     */
+    private String query;
+
+    /**
+     * 归一化后的请求体，已脱敏、忽略字段已替换、JSON 字段已排序
+     */
+    private String requestBody;
+
+    private int status;
+    private Map<String, String> headers;
+    private String body;
+
+    /**
+     * 响应体不是文本（如下载的素材）时 body 为 Base64
+     */
+    private boolean binary;
+
+    /**
+     * 录制时的延迟（毫秒）
+     */
+    private long latency;
+
+
+    public RecordedExchange() {
+    }
+
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getRequestBody() {
+        return requestBody;
+    }
+
+    public void setRequestBody(String requestBody) {
+        this.requestBody = requestBody;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+}
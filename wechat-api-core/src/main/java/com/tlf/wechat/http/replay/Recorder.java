@@ -0,0 +1,205 @@
+package com.tlf.wechat.http.replay;
+
+import com.alibaba.fastjson.JSON;
+import com.tlf.wechat.http.log.WireLog;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * 录制请求和响应，用于离线回放（ReplayTransport）
+ * <pre>
+ * Recorder.start(new File("wechat.jsonl.gz"), new ReplayConfig());
+ * // 调用 WeChatPayApi、WeChatMiniUtil ...
+ * Recorder.stop();
+ * </pre>
+ * 文件每行一个 RecordedExchange（JSON Lines），文件名以 .gz 结尾时压缩。
+ * 请求参数、请求体和响应体按 WireLog 的脱敏字段脱敏后再写入，appSecret、access_token、session_key 等不会落盘。
+ * <p>
+ * 录制发生在请求引擎之上，只录制真实的响应，不录制注入的故障；录制时响应体会先完整读入内存
+ */
+public class Recorder {
+    private static final Logger log = LoggerFactory.getLogger(Recorder.class);
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final AtomicLong RECORDED = new AtomicLong();
+
+    private static volatile Writer writer;
+    private static volatile ExchangeMatcher matcher;
+
+
+    /**
+     * 开始录制，已在录制时先结束之前的录制
+     *
+     * @param file   .gz 结尾时压缩
+     * @param config 匹配规则，回放时需要使用相同的配置
+     * @throws IOException
+     */
+    public static void start(File file, ReplayConfig config) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 8192);
+        }
+        LOCK.lock();
+        try {
+            close();
+            matcher = new ExchangeMatcher(config);
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            RECORDED.set(0);
+        } finally {
+            LOCK.unlock();
+        }
+        log.info("开始录制请求：{}", file);
+    }
+
+
+    /**
+     * 结束录制并关闭文件，未调用时文件可能不完整
+     */
+    public static void stop() {
+        LOCK.lock();
+        try {
+            close();
+        } finally {
+            LOCK.unlock();
+        }
+        log.info("结束录制，共 {} 个请求", RECORDED.get());
+    }
+
+
+    public static boolean isRecording() {
+        return writer != null;
+    }
+
+
+    /**
+     * 本次录制的请求数
+     *
+     * @return
+     */
+    public static long getRecordedCount() {
+        return RECORDED.get();
+    }
+
+
+    /**
+     * 录制一次请求，响应体读入内存后替换为可重复读取的实体，调用方照常读取
+     * 录制失败只记录日志，不影响请求
+     *
+     * @param request
+     * @param response
+     * @param startNanos 发送请求前的 System.nanoTime()
+     */
+    public static void record(HttpUriRequest request, HttpResponse response, long startNanos) {
+        ExchangeMatcher m = matcher;
+        if (m == null) {
+            return;
+        }
+        try {
+            RecordedExchange exchange = m.request(request);
+            exchange.setStatus(response.getStatusLine().getStatusCode());
+            exchange.setLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            exchange.setHeaders(headers(response));
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                byte[] bytes = EntityUtils.toByteArray(entity);
+                ByteArrayEntity buffered = new ByteArrayEntity(bytes);
+                buffered.setContentType(entity.getContentType());
+                buffered.setContentEncoding(entity.getContentEncoding());
+                response.setEntity(buffered);
+                body(exchange, entity, bytes);
+            }
+            write(JSON.toJSONString(exchange));
+        } catch (Exception e) {
+            log.warn("录制请求失败：{}", request.getURI().getRawPath(), e);
+        }
+    }
+
+
+    private static void body(RecordedExchange exchange, HttpEntity entity, byte[] bytes) {
+        ContentType contentType = null;
+        try {
+            contentType = ContentType.get(entity);
+        } catch (RuntimeException ignore) {
+        }
+        String mimeType = contentType == null ? null : contentType.getMimeType();
+        if (mimeType == null || mimeType.startsWith("text/") || mimeType.contains("json") || mimeType.contains("xml")) {
+            Charset charset = contentType == null || contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+            exchange.setBody(WireLog.mask(new String(bytes, charset)));
+        } else {
+            exchange.setBinary(true);
+            exchange.setBody(Base64.getEncoder().encodeToString(bytes));
+        }
+    }
+
+
+    /**
+     * 只保留回放需要的响应头：Content-Type 和微信支付的 Request-ID、Wechatpay-*
+     */
+    private static Map<String, String> headers(HttpResponse response) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Header header : response.getAllHeaders()) {
+            String name = header.getName();
+            if ("Content-Type".equalsIgnoreCase(name) || "Request-ID".equalsIgnoreCase(name)
+                    || name.regionMatches(true, 0, "Wechatpay-", 0, 10)) {
+                headers.put(name, header.getValue());
+            }
+        }
+        return headers;
+    }
+
+
+    private static void write(String line) throws IOException {
+        LOCK.lock();
+        try {
+            Writer w = writer;
+            if (w == null) {
+                return;
+            }
+            w.write(line);
+            w.write('\n');
+            RECORDED.incrementAndGet();
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+
+    private static void close() {
+        Writer w = writer;
+        writer = null;
+        matcher = null;
+        if (w == null) {
+            return;
+        }
+        try {
+            w.close();
+        } catch (IOException e) {
+            log.warn("关闭录制文件失败", e);
+        }
+    }
+}
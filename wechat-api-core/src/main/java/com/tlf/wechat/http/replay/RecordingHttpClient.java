@@ -0,0 +1,56 @@
+package com.tlf.wechat.http.replay;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+
+/**
+ * 录制请求的 HttpClient，位于故障注入之下，只录制请求引擎返回的真实响应
+ */
+public class RecordingHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    public RecordingHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        if (!Recorder.isRecording() || !(request instanceof HttpUriRequest)) {
+            return delegate.execute(target, request, context);
+        }
+        long start = System.nanoTime();
+        CloseableHttpResponse response = delegate.execute(target, request, context);
+        Recorder.record((HttpUriRequest) request, response, start);
+        return response;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
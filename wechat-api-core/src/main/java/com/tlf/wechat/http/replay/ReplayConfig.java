@@ -0,0 +1,75 @@
+package com.tlf.wechat.http.replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * 录制和回放配置，录制和回放需要使用相同的匹配规则
+ */
+public class ReplayConfig {
+    /**
+     * 回放延迟相对录制延迟的倍数，1 为按录制的延迟返回，0 为不等待（全速）
+     */
+    private double latencyScale = 1.0;
+
+    /**
+     * 匹配时忽略的请求体字段（每次请求都不同的字段），录制和回放时都替换为 *
+     */
+    private List<String> ignoredFields = new ArrayList<>(Arrays.asList(
+            "nonce_str", "timestamp", "time_expire", "out_trade_no", "out_refund_no", "request_id"
+    ));
+
+    /**
+     * 路径中的变量，匹配时第一个分组之后的部分替换为 *，如按商户订单号查单
+     */
+    private List<String> pathVariables = new ArrayList<>(Arrays.asList(
+            "(/v3/pay/transactions/out-trade-no/)[^/]+",
+            "(/v3/pay/transactions/id/)[^/]+",
+            "(/v3/refund/domestic/refunds/)[^/]+"
+    ));
+
+    /**
+     * 没有完全匹配（方法、路径、参数、请求体）的录制时，是否退而使用同一方法和路径的录制
+     */
+    private boolean matchPathOnly = true;
+
+
+    public ReplayConfig() {
+    }
+
+
+    public double getLatencyScale() {
+        return latencyScale;
+    }
+
+    public void setLatencyScale(double latencyScale) {
+        this.latencyScale = latencyScale;
+    }
+
+    public List<String> getIgnoredFields() {
+        return ignoredFields;
+    }
+
+    public void setIgnoredFields(List<String> ignoredFields) {
+        this.ignoredFields = ignoredFields;
+    }
+
+    public List<String> getPathVariables() {
+        return pathVariables;
+    }
+
+    public void setPathVariables(List<String> pathVariables) {
+        this.pathVariables = pathVariables;
+    }
+
+    public boolean isMatchPathOnly() {
+        return matchPathOnly;
+    }
+
+    public void setMatchPathOnly(boolean matchPathOnly) {
+        this.matchPathOnly = matchPathOnly;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.tlf.wechat.http.replay;
+
+import java.io.IOException;
+
+
+/**
+ * 回放时没有匹配的录制，请求未发出
+ */
+public class ReplayMissException extends IOException {
+
+    public ReplayMissException(String request) {
+        super("没有匹配的录制：" + request);
+    }
+}
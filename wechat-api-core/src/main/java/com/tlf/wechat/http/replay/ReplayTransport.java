@@ -0,0 +1,167 @@
+package com.tlf.wechat.http.replay;
+
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.HttpScheduler;
+import com.tlf.wechat.http.transport.HttpTransport;
+import com.tlf.wechat.http.transport.HttpTransports;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * 回放录制的响应，不访问网络
+ * 在笔记本上离线压测 WeChatPayApi、WeChatMiniUtil 等完整调用链，超时、熔断、限流、重试等逻辑照常执行：
+ * <pre>
+ * ReplayConfig config = new ReplayConfig();
+ * config.setLatencyScale(0);   // 全速回放，不等待录制的延迟
+ * ReplayTransport.install(Cassette.load(new File("wechat.jsonl.gz")), config);
+ * </pre>
+ * 按方法、路径、参数和请求体匹配录制（归一化规则见 ReplayConfig），没有匹配时以 ReplayMissException 失败。
+ * 微信支付自动签名的 HttpClient（WeChatPayUtil.getWxPayClient）直接使用连接池，不经过回放
+ */
+public class ReplayTransport implements HttpTransport {
+    private static final Logger log = LoggerFactory.getLogger(ReplayTransport.class);
+
+    public static final String NAME = "replay";
+
+    private final Cassette cassette;
+    private final ReplayConfig config;
+    private final ExchangeMatcher matcher;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    public ReplayTransport(Cassette cassette, ReplayConfig config) {
+        this.cassette = cassette;
+        this.config = config;
+        this.matcher = new ExchangeMatcher(config);
+    }
+
+
+    /**
+     * 切换为回放引擎，HttpClientManager 和异步请求都使用录制的响应
+     *
+     * @param cassette
+     * @param config   与录制时的匹配规则一致
+     */
+    public static void install(Cassette cassette, ReplayConfig config) {
+        ReplayTransportProvider.use(new ReplayTransport(cassette, config));
+        HttpClientConfig c = HttpClientManager.getConfig();
+        c.setTransport(NAME);
+        HttpClientManager.init(c);
+        log.info("使用回放引擎，共 {} 个录制", cassette.size());
+    }
+
+
+    /**
+     * 恢复默认的 apache 引擎
+     */
+    public static void uninstall() {
+        ReplayTransportProvider.use(null);
+        HttpClientConfig c = HttpClientManager.getConfig();
+        c.setTransport(HttpTransports.APACHE);
+        HttpClientManager.init(c);
+    }
+
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        RecordedExchange exchange = find(request);
+        long delay = delay(exchange);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("回放等待时被中断");
+            }
+        }
+        return new ReplayedResponse(exchange);
+    }
+
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpUriRequest request) {
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        final RecordedExchange exchange;
+        try {
+            exchange = find(request);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        long delay = delay(exchange);
+        if (delay <= 0) {
+            result.complete(new ReplayedResponse(exchange));
+            return result;
+        }
+        final ScheduledFuture<?> timer = HttpScheduler.schedule(() -> result.complete(new ReplayedResponse(exchange)), delay);
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                timer.cancel(false);
+            }
+        });
+        return result;
+    }
+
+
+    private RecordedExchange find(HttpUriRequest request) throws IOException {
+        RecordedExchange normalized = matcher.request(request);
+        RecordedExchange exchange = cassette.find(normalized, config.isMatchPathOnly());
+        if (exchange == null) {
+            misses.incrementAndGet();
+            throw new ReplayMissException(normalized.getMethod() + " " + normalized.getHost() + normalized.getPath());
+        }
+        hits.incrementAndGet();
+        return exchange;
+    }
+
+
+    private long delay(RecordedExchange exchange) {
+        return (long) (exchange.getLatency() * config.getLatencyScale());
+    }
+
+
+    public Cassette getCassette() {
+        return cassette;
+    }
+
+    /**
+     * 找到录制的请求数
+     *
+     * @return
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * 没有匹配录制的请求数
+     *
+     * @return
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,41 @@
+package com.tlf.wechat.http.replay;
+
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.transport.HttpTransport;
+import com.tlf.wechat.http.transport.HttpTransportProvider;
+
+import javax.net.ssl.SSLContext;
+
+
+/**
+ * 回放引擎，通过 ReplayTransport.install 加载录制后可用
+ */
+public class ReplayTransportProvider implements HttpTransportProvider {
+
+    private static volatile ReplayTransport current;
+
+
+    static void use(ReplayTransport transport) {
+        current = transport;
+    }
+
+
+    @Override
+    public String getName() {
+        return ReplayTransport.NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return current != null;
+    }
+
+    @Override
+    public HttpTransport create(HttpClientConfig config, SSLContext sslContext) {
+        ReplayTransport transport = current;
+        if (transport == null) {
+            throw new IllegalStateException("未加载录制，先调用 ReplayTransport.install");
+        }
+        return transport;
+    }
+}
@@ -0,0 +1,62 @@
+package com.tlf.wechat.http.replay;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * 回放的响应，不占用连接，关闭时不需要释放任何资源
+ */
+class ReplayedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+    ReplayedResponse(RecordedExchange exchange) {
+        super(new BasicStatusLine(HttpVersion.HTTP_1_1, exchange.getStatus(),
+                EnglishReasonPhraseCatalog.INSTANCE.getReason(exchange.getStatus(), Locale.ENGLISH)));
+        String contentType = null;
+        if (exchange.getHeaders() != null) {
+            for (Map.Entry<String, String> header : exchange.getHeaders().entrySet()) {
+                addHeader(header.getKey(), header.getValue());
+                if ("Content-Type".equalsIgnoreCase(header.getKey())) {
+                    contentType = header.getValue();
+                }
+            }
+        }
+        if (exchange.getBody() != null) {
+            byte[] bytes = exchange.isBinary()
+                    ? Base64.getDecoder().decode(exchange.getBody())
+                    : exchange.getBody().getBytes(charset(contentType));
+            ByteArrayEntity entity = new ByteArrayEntity(bytes);
+            entity.setContentType(contentType);
+            setEntity(entity);
+        }
+    }
+
+
+    /**
+     * 与录制时解码使用的字符集一致
+     */
+    private static Charset charset(String contentType) {
+        try {
+            Charset charset = contentType == null ? null : ContentType.parse(contentType).getCharset();
+            return charset == null ? StandardCharsets.UTF_8 : charset;
+        } catch (RuntimeException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,21 @@
+package com.tlf.wechat.http.response;
+
+import java.io.IOException;
+
+
+/**
+ * 响应体超过允许的最大长度
+ */
+public class BodyTooLargeException extends IOException {
+
+    private final long maxBodySize;
+
+    public BodyTooLargeException(long maxBodySize) {
+        super("响应体超过最大长度：" + maxBodySize + " 字节");
+        this.maxBodySize = maxBodySize;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+}
@@ -0,0 +1,64 @@
+package com.tlf.wechat.http.response;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SimpleInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+
+/**
+ * 异步请求的响应消费者，与 BasicAsyncResponseConsumer 一致将响应体读入内存，但限制最大长度
+ */
+public class BoundedAsyncResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+    private final long maxBodySize;
+
+    private volatile HttpResponse response;
+    private volatile SimpleInputBuffer buf;
+
+    public BoundedAsyncResponseConsumer(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+        long len = entity.getContentLength();
+        if (len > maxBodySize) {
+            throw new BodyTooLargeException(maxBodySize);
+        }
+        this.buf = new SimpleInputBuffer(len < 0 ? 4096 : (int) len, HeapByteBufferAllocator.INSTANCE);
+        this.response.setEntity(new ContentBufferEntity(entity, this.buf));
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+        this.buf.consumeContent(decoder);
+        if (this.buf.length() > maxBodySize) {
+            throw new BodyTooLargeException(maxBodySize);
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        return this.response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        this.response = null;
+        this.buf = null;
+    }
+}
@@ -0,0 +1,57 @@
+package com.tlf.wechat.http.response;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * 限制读取长度的输入流，超过最大长度时抛出 BodyTooLargeException
+ */
+public class BoundedInputStream extends FilterInputStream {
+
+    private final long maxBodySize;
+    private long count;
+
+    public BoundedInputStream(InputStream in, long maxBodySize) {
+        super(in);
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) throws BodyTooLargeException {
+        count += n;
+        if (count > maxBodySize) {
+            throw new BodyTooLargeException(maxBodySize);
+        }
+    }
+}
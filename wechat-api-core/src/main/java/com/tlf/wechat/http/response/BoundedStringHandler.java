@@ -0,0 +1,30 @@
+package com.tlf.wechat.http.response;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+
+import java.io.IOException;
+
+
+/**
+ * 读取响应体为字符串，限制最大长度
+ * 响应状态码非 200 时返回 null
+ */
+public class BoundedStringHandler implements ResponseHandler<String> {
+
+    private final long maxBodySize;
+
+    public BoundedStringHandler(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public String handleResponse(HttpResponse response) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode != 200) {
+            ResponseBodies.discard(response.getEntity(), maxBodySize);
+            return null;
+        }
+        return ResponseBodies.readString(response.getEntity(), maxBodySize);
+    }
+}
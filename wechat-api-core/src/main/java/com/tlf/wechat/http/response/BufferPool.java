@@ -0,0 +1,32 @@
+package com.tlf.wechat.http.response;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+/**
+ * 读取响应体使用的缓冲区池，避免每次请求都分配新的缓冲区
+ */
+public class BufferPool {
+    /**
+     * 缓冲区大小
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 最多缓存的缓冲区个数，超出的直接丢弃交给 GC
+     */
+    private static final ArrayBlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(64);
+
+
+    public static byte[] acquire() {
+        byte[] buffer = POOL.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+
+    public static void release(byte[] buffer) {
+        if (buffer != null && buffer.length == BUFFER_SIZE) {
+            POOL.offer(buffer);
+        }
+    }
+}
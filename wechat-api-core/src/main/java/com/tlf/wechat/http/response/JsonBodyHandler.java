@@ -0,0 +1,41 @@
+package com.tlf.wechat.http.response;
+
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+
+import java.io.IOException;
+
+
+/**
+ * 读取完整的 JSON 响应，同时保留状态码，用于判断是否需要重试
+ * 状态码为 200 时响应体必须是 JSON；其他状态码的响应体（如网关返回的 HTML 错误页）无法解析时 data 为空对象
+ */
+public class JsonBodyHandler implements ResponseHandler<WeChatResponse> {
+
+    private final long maxBodySize;
+
+    public JsonBodyHandler(long maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public WeChatResponse handleResponse(HttpResponse response) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        String body = ResponseBodies.readString(response.getEntity(), maxBodySize);
+        if (StringUtils.isBlank(body)) {
+            return new WeChatResponse(statusCode, new JSONObject());
+        }
+        if (statusCode == 200) {
+            return new WeChatResponse(statusCode, JSONObject.parseObject(body));
+        }
+        try {
+            JSONObject data = JSONObject.parseObject(body);
+            return new WeChatResponse(statusCode, data == null ? new JSONObject() : data);
+        } catch (JSONException | ClassCastException e) {
+            return new WeChatResponse(statusCode, new JSONObject());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.tlf.wechat.http.response;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * 以流的方式解析 JSON 响应，只读取需要的顶层字段，其余字段直接跳过，不构建完整的 JSON 树
+ * errcode/errmsg（微信支付为 code/message）总是会被读取，用于判断调用是否成功
+ */
+public class JsonFieldHandler implements ResponseHandler<WeChatResponse> {
+
+    /**
+     * JsonFactory 线程安全，内部复用解析缓冲区
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String[] STATUS_FIELDS = {"errcode", "errmsg", "code", "message"};
+
+    private final long maxBodySize;
+
+    private final Set<String> fields;
+
+    public JsonFieldHandler(long maxBodySize, String... fields) {
+        this.maxBodySize = maxBodySize;
+        this.fields = new HashSet<>(Arrays.asList(fields));
+        this.fields.addAll(Arrays.asList(STATUS_FIELDS));
+    }
+
+    @Override
+    public WeChatResponse handleResponse(HttpResponse response) throws IOException {
+        int statusCode = response.getStatusLine().getStatusCode();
+        JSONObject data = new JSONObject();
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return new WeChatResponse(statusCode, data);
+        }
+        if (entity.getContentLength() > maxBodySize) {
+            throw new BodyTooLargeException(maxBodySize);
+        }
+        try (InputStream in = new BoundedInputStream(entity.getContent(), maxBodySize);
+             JsonParser parser = JSON_FACTORY.createParser(in)) {
+            JsonToken first;
+            try {
+                first = parser.nextToken();
+            } catch (JsonParseException e) {
+                // 非 200 时可能是网关返回的 HTML 错误页，只保留状态码
+                if (statusCode != 200) {
+                    return new WeChatResponse(statusCode, data);
+                }
+                throw e;
+            }
+            if (first != JsonToken.START_OBJECT) {
+                return new WeChatResponse(statusCode, data);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (fields.contains(name)) {
+                    data.put(name, readValue(parser, token));
+                } else {
+                    // 跳过不需要的字段，对象和数组整体跳过
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new WeChatResponse(statusCode, data);
+    }
+
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDecimalValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case START_OBJECT:
+            case START_ARRAY:
+                // 需要的对象或数组字段只复制这一部分再解析
+                StringWriter writer = new StringWriter();
+                try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+                    generator.copyCurrentStructure(parser);
+                }
+                return JSON.parse(writer.toString());
+            default:
+                return null;
+        }
+    }
+}
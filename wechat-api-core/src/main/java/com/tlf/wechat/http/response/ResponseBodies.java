@@ -0,0 +1,104 @@
+package com.tlf.wechat.http.response;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * 响应体读取工具
+ */
+public class ResponseBodies {
+
+
+    /**
+     * 以流的方式读取响应体，超过最大长度时抛出 BodyTooLargeException
+     * 未声明编码时按 UTF-8 解码
+     *
+     * @param entity
+     * @param maxBodySize
+     * @return
+     * @throws IOException
+     */
+    public static String readString(HttpEntity entity, long maxBodySize) throws IOException {
+        if (entity == null) {
+            return null;
+        }
+        long length = entity.getContentLength();
+        if (length > maxBodySize) {
+            throw new BodyTooLargeException(maxBodySize);
+        }
+        Charset charset = charset(entity);
+        try (InputStream in = new BoundedInputStream(entity.getContent(), maxBodySize)) {
+            if (length >= 0) {
+                // 已知长度直接读入结果数组，不需要中间缓冲
+                byte[] out = new byte[(int) length];
+                int count = 0;
+                int n;
+                while (count < out.length && (n = in.read(out, count, out.length - count)) != -1) {
+                    count += n;
+                }
+                return new String(out, 0, count, charset);
+            }
+            byte[] buffer = BufferPool.acquire();
+            try {
+                byte[] out = null;
+                int count = 0;
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    if (out == null) {
+                        out = new byte[BufferPool.BUFFER_SIZE];
+                    }
+                    if (count + n > out.length) {
+                        out = Arrays.copyOf(out, Math.max(out.length * 2, count + n));
+                    }
+                    System.arraycopy(buffer, 0, out, count, n);
+                    count += n;
+                }
+                return out == null ? "" : new String(out, 0, count, charset);
+            } finally {
+                BufferPool.release(buffer);
+            }
+        }
+    }
+
+
+    /**
+     * 读取并丢弃响应体，使连接可以归还连接池；超过最大长度时抛出异常，由调用方关闭连接
+     *
+     * @param entity
+     * @param maxBodySize
+     * @throws IOException
+     */
+    public static void discard(HttpEntity entity, long maxBodySize) throws IOException {
+        if (entity == null || !entity.isStreaming()) {
+            return;
+        }
+        byte[] buffer = BufferPool.acquire();
+        try (InputStream in = new BoundedInputStream(entity.getContent(), maxBodySize)) {
+            while (in.read(buffer) != -1) {
+                // 丢弃
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+
+    private static Charset charset(HttpEntity entity) {
+        try {
+            ContentType contentType = ContentType.get(entity);
+            if (contentType != null && contentType.getCharset() != null) {
+                return contentType.getCharset();
+            }
+        } catch (RuntimeException ignore) {
+            // 非法的 Content-Type 按默认编码处理
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
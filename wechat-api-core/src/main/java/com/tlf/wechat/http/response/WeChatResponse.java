@@ -0,0 +1,76 @@
+package com.tlf.wechat.http.response;
+
+import com.alibaba.fastjson.JSONObject;
+
+
+/**
+ * 按字段读取的微信接口响应
+ * 只包含调用方需要的字段和 errcode/errmsg（微信支付为 code/message）
+ */
+public class WeChatResponse {
+
+    private final int statusCode;
+
+    private final JSONObject data;
+
+    public WeChatResponse(int statusCode, JSONObject data) {
+        this.statusCode = statusCode;
+        this.data = data;
+    }
+
+
+    /**
+     * 状态码为 2xx，且 errcode 为空或 0
+     *
+     * @return
+     */
+    public boolean isSuccess() {
+        if (statusCode < 200 || statusCode >= 300) {
+            return false;
+        }
+        Integer errcode = getErrcode();
+        return errcode == null || errcode == 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Integer getErrcode() {
+        return data.getInteger("errcode");
+    }
+
+    /**
+     * 失败时的错误码：errcode（不为 0 时），或微信支付的 code，没有时为空
+     *
+     * @return
+     */
+    public String getErrorCode() {
+        Integer errcode = getErrcode();
+        if (errcode != null) {
+            return errcode == 0 ? null : String.valueOf(errcode);
+        }
+        return data.getString("code");
+    }
+
+    public String getErrmsg() {
+        return data.containsKey("errmsg") ? data.getString("errmsg") : data.getString("message");
+    }
+
+    public JSONObject getData() {
+        return data;
+    }
+
+    public String getString(String field) {
+        return data.getString(field);
+    }
+
+    public JSONObject getJSONObject(String field) {
+        return data.getJSONObject(field);
+    }
+
+    @Override
+    public String toString() {
+        return "statusCode=" + statusCode + ", data=" + data;
+    }
+}
@@ -0,0 +1,79 @@
+package com.tlf.wechat.http.retry;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 重试预算（令牌桶）
+ * 每个请求存入 ratio 个令牌，每次重试取出一个；另外按时间补充 minPerSecond 个令牌，
+ * 保证流量很小时也能重试。令牌不足时放弃重试
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+
+    public RetryBudget(double ratio, int minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        // 最多积攒 10 秒的最低重试次数，避免长时间空闲后出现重试突发
+        this.capacity = Math.max(1, minPerSecond * 10);
+        this.tokens = capacity;
+    }
+
+
+    /**
+     * 记录一次请求（不含重试）
+     */
+    public void onRequest() {
+        lock.lock();
+        try {
+            tokens = Math.min(capacity, tokens + ratio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 尝试取出一次重试的令牌
+     *
+     * @return 预算不足时返回 false
+     */
+    public boolean tryRetry() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1_000_000_000d * minPerSecond);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 剩余令牌数
+     *
+     * @return
+     */
+    public double getTokens() {
+        lock.lock();
+        try {
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
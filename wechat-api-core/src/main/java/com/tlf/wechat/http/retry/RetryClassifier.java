@@ -0,0 +1,150 @@
+package com.tlf.wechat.http.retry;
+
+import com.tlf.wechat.http.HttpUtil;
+import com.tlf.wechat.http.response.WeChatResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+
+/**
+ * 判断请求失败后能否重试
+ * <p>
+ * 1、幂等请求（GET 查询、关单、相同商户订单号/退款单号的下单和退款）：网络异常、5xx、429、系统繁忙都可以重试；
+ * 2、非幂等请求：只有确定请求没有被处理时才重试，即连接没有建立、429 限频、errcode -1 系统繁忙
+ * <p>
+ * 参数错误、签名错误、access_token 无效等永久错误不重试
+ */
+public class RetryClassifier {
+
+    /**
+     * 公众平台/小程序可重试的 errcode
+     * -1：系统繁忙，此时请开发者稍候再试
+     */
+    private static final Set<Integer> RETRYABLE_ERRCODES = new HashSet<>(Arrays.asList(-1));
+
+    /**
+     * 微信支付可重试的错误码，微信支付要求使用相同参数重新调用
+     */
+    private static final Set<String> RETRYABLE_PAY_CODES = new HashSet<>(Arrays.asList(
+            "SYSTEM_ERROR", "SYSTEMERROR", "BANK_ERROR", "FREQUENCY_LIMITED"
+    ));
+
+    /**
+     * 使用 POST 但幂等的接口（路径正则）
+     * 重试时请求体原样重发，下单使用同一个 out_trade_no、退款使用同一个 out_refund_no，微信支付按单号去重
+     */
+    private static final List<Pattern> IDEMPOTENT_POSTS = new CopyOnWriteArrayList<>(Arrays.asList(
+            // 关闭订单
+            Pattern.compile("/v3/pay/transactions/out-trade-no/[^/]+/close"),
+            // 下单（jsapi/native/app/h5）
+            Pattern.compile("/v3/pay/transactions/(jsapi|native|app|h5)"),
+            // 退款
+            Pattern.compile("/v3/refund/domestic/refunds"),
+            // 查询直播间（POST 查询）
+            Pattern.compile("/wxa/business/getliveinfo")
+    ));
+
+
+    /**
+     * 请求是否幂等
+     *
+     * @param method
+     * @param url    完整地址或路径
+     * @return
+     */
+    public static boolean isIdempotent(String method, String url) {
+        if ("GET".equalsIgnoreCase(method)) {
+            return true;
+        }
+        if (!"POST".equalsIgnoreCase(method)) {
+            return false;
+        }
+        String path = HttpUtil.path(url);
+        for (Pattern pattern : IDEMPOTENT_POSTS) {
+            if (pattern.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * 登记幂等的 POST 接口
+     *
+     * @param pathRegex 路径正则，不含域名和参数
+     */
+    public static void registerIdempotent(String pathRegex) {
+        IDEMPOTENT_POSTS.add(Pattern.compile(pathRegex));
+    }
+
+
+    /**
+     * 请求异常能否重试
+     *
+     * @param error
+     * @param idempotent
+     * @return
+     */
+    public static boolean isRetryable(Throwable error, boolean idempotent) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        // 连接没有建立，请求一定没有发出
+        if (error instanceof ConnectTimeoutException || error instanceof HttpHostConnectException
+                || error instanceof ConnectException) {
+            return true;
+        }
+        if (!idempotent) {
+            return false;
+        }
+        // 响应超时、连接被重置、服务端未响应就关闭连接
+        return error instanceof SocketTimeoutException
+                || error instanceof NoHttpResponseException
+                || error instanceof SocketException;
+    }
+
+
+    /**
+     * 响应能否重试
+     *
+     * @param response
+     * @param idempotent
+     * @return
+     */
+    public static boolean isRetryable(WeChatResponse response, boolean idempotent) {
+        if (response == null) {
+            return false;
+        }
+        int statusCode = response.getStatusCode();
+        if (statusCode == 429) {
+            return true;
+        }
+        Integer errcode = response.getData() == null ? null : response.getErrcode();
+        if (errcode != null && RETRYABLE_ERRCODES.contains(errcode)) {
+            return true;
+        }
+        if (!idempotent) {
+            return false;
+        }
+        if (statusCode == 500 || statusCode == 502 || statusCode == 503 || statusCode == 504) {
+            return true;
+        }
+        String code = response.getData() == null ? null : response.getData().getString("code");
+        return code != null && RETRYABLE_PAY_CODES.contains(code);
+    }
+
+}
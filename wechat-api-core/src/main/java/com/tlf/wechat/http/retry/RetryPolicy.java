@@ -0,0 +1,102 @@
+package com.tlf.wechat.http.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * 重试策略：最大尝试次数和指数退避
+ */
+public class RetryPolicy {
+    /**
+     * 最多尝试次数（含第一次请求），为 1 时不重试
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * 第一次重试前的退避上限（毫秒）
+     */
+    private long initialBackoff = 100;
+
+    /**
+     * 退避上限（毫秒）
+     */
+    private long maxBackoff = 2000;
+
+    /**
+     * 每次重试退避上限的增长倍数
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * 重试次数占请求次数的比例上限，超出后不再重试，避免服务端故障时重试放大流量
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * 流量很小时每秒至少允许的重试次数
+     */
+    private int minRetriesPerSecond = 10;
+
+
+    /**
+     * 第 retry 次重试前的等待时间（毫秒）
+     * 在 0 到指数增长的上限之间随机取值（full jitter），避免大量客户端同时重试
+     *
+     * @param retry 从 1 开始
+     * @return
+     */
+    public long backoff(int retry) {
+        double ceiling = Math.min(maxBackoff, initialBackoff * Math.pow(multiplier, retry - 1));
+        return (long) (ThreadLocalRandom.current().nextDouble() * ceiling);
+    }
+
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public void setMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    public void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public int getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+
+    public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+        this.minRetriesPerSecond = minRetriesPerSecond;
+    }
+
+}
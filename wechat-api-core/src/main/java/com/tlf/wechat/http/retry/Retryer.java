@@ -0,0 +1,206 @@
+package com.tlf.wechat.http.retry;
+
+import com.tlf.wechat.http.HttpScheduler;
+import com.tlf.wechat.http.concurrent.WeChatExecutors;
+import com.tlf.wechat.http.schedule.RequestScheduler;
+import com.tlf.wechat.http.timeout.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+
+/**
+ * 按重试策略执行请求
+ * 每次尝试都重新构建请求（重新签名），退避时间带随机抖动，所有请求共用一个重试预算
+ * 绑定了截止时间（Deadline）时，剩余时间不够退避的不再重试
+ */
+public class Retryer {
+    private static final Logger log = LoggerFactory.getLogger(Retryer.class);
+
+    private static volatile RetryPolicy policy = new RetryPolicy();
+    private static volatile RetryBudget budget = new RetryBudget(policy.getBudgetRatio(), policy.getMinRetriesPerSecond());
+
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong budgetExhausted = new AtomicLong();
+
+
+    /**
+     * 同步执行，可重试的失败在退避后重新调用 attempt
+     * 重试用尽或预算不足时返回最后一次的结果或抛出最后一次的异常
+     *
+     * @param idempotent  请求是否幂等，见 RetryClassifier.isIdempotent
+     * @param attempt     一次完整的请求
+     * @param retryResult 结果是否需要重试
+     * @return
+     * @throws Exception
+     */
+    public static <T> T call(boolean idempotent, Callable<T> attempt, Predicate<T> retryResult) throws Exception {
+        RetryPolicy p = policy;
+        RetryBudget b = budget;
+        Deadline deadline = Deadline.current();
+        b.onRequest();
+        for (int i = 1; ; i++) {
+            T result;
+            long backoff;
+            try {
+                result = attempt.call();
+            } catch (Exception e) {
+                backoff = p.backoff(i);
+                if (!shouldRetry(i, p, b, RetryClassifier.isRetryable(e, idempotent), backoff, deadline)) {
+                    throw e;
+                }
+                log.warn("请求失败，第 {} 次重试：{}", i, e.toString());
+                sleep(backoff);
+                continue;
+            }
+            backoff = p.backoff(i);
+            if (!shouldRetry(i, p, b, retryResult.test(result), backoff, deadline)) {
+                return result;
+            }
+            log.warn("请求返回可重试的结果，第 {} 次重试：{}", i, result);
+            sleep(backoff);
+        }
+    }
+
+
+    /**
+     * 异步执行，退避期间不占用线程
+     *
+     * @param idempotent  请求是否幂等
+     * @param attempt     一次完整的请求
+     * @param retryResult 结果是否需要重试
+     * @return
+     */
+    public static <T> CompletableFuture<T> callAsync(boolean idempotent, Supplier<CompletableFuture<T>> attempt, Predicate<T> retryResult) {
+        RetryPolicy p = policy;
+        RetryBudget b = budget;
+        b.onRequest();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // 重试在共享线程池中发起，需要带上当前的截止时间和优先级
+        attemptAsync(1, p, b, Deadline.current(), idempotent, Deadline.wrapAsync(RequestScheduler.wrapAsync(attempt)), retryResult, result);
+        return result;
+    }
+
+
+    private static <T> void attemptAsync(
+            int i,
+            RetryPolicy p,
+            RetryBudget b,
+            Deadline deadline,
+            boolean idempotent,
+            Supplier<CompletableFuture<T>> attempt,
+            Predicate<T> retryResult,
+            CompletableFuture<T> result
+    ) {
+        if (result.isDone()) {
+            // 调用方已取消
+            return;
+        }
+        CompletableFuture<T> current;
+        try {
+            current = attempt.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        current.whenComplete((value, error) -> {
+            boolean retryable = error != null ? RetryClassifier.isRetryable(error, idempotent) : retryResult.test(value);
+            long backoff = p.backoff(i);
+            if (shouldRetry(i, p, b, retryable, backoff, deadline)) {
+                log.warn("请求失败，第 {} 次重试：{}", i, error != null ? error.toString() : value);
+                // 定时线程只负责到点交给共享线程池，发起请求（签名、排队等待许可）可能阻塞
+                HttpScheduler.schedule(() -> {
+                    try {
+                        WeChatExecutors.getExecutor().execute(() -> attemptAsync(i + 1, p, b, deadline, idempotent, attempt, retryResult, result));
+                    } catch (RejectedExecutionException e) {
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else {
+                            result.complete(value);
+                        }
+                    }
+                }, backoff);
+            } else if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+
+    private static boolean shouldRetry(int attempt, RetryPolicy p, RetryBudget b, boolean retryable, long backoff, Deadline deadline) {
+        if (!retryable || attempt >= p.getMaxAttempts()) {
+            return false;
+        }
+        if (deadline != null && backoff >= deadline.remainingMillis()) {
+            return false;
+        }
+        if (!b.tryRetry()) {
+            budgetExhausted.incrementAndGet();
+            return false;
+        }
+        retries.incrementAndGet();
+        return true;
+    }
+
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+
+    /**
+     * 设置重试策略，重试预算随之重置
+     *
+     * @param retryPolicy
+     */
+    public static void setPolicy(RetryPolicy retryPolicy) {
+        policy = retryPolicy;
+        budget = new RetryBudget(retryPolicy.getBudgetRatio(), retryPolicy.getMinRetriesPerSecond());
+    }
+
+
+    public static RetryPolicy getPolicy() {
+        return policy;
+    }
+
+
+    /**
+     * 累计重试次数
+     *
+     * @return
+     */
+    public static long getRetryCount() {
+        return retries.get();
+    }
+
+
+    /**
+     * 因预算不足放弃重试的次数
+     *
+     * @return
+     */
+    public static long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+
+
+    /**
+     * 剩余重试预算
+     *
+     * @return
+     */
+    public static double getBudgetTokens() {
+        return budget.getTokens();
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.tlf.wechat.http.schedule;
+
+/**
+ * 请求优先级
+ * 各优先级按 SchedulerConfig 中的权重分享并发额度，支付另有只能由支付请求使用的保留额度
+ */
+public enum Priority {
+    /**
+     * 微信支付：下单、查单、退款、回调相关的证书下载等
+     */
+    PAYMENT,
+
+    /**
+     * 用户正在等待的请求：登录、获取手机号、access_token 等，未匹配规则的请求默认为该优先级
+     */
+    INTERACTIVE,
+
+    /**
+     * 后台批量任务：素材上传下载、直播回放同步等
+     */
+    BATCH
+}
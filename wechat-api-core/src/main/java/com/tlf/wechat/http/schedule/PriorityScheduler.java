@@ -0,0 +1,352 @@
+package com.tlf.wechat.http.schedule;
+
+import com.tlf.wechat.http.HttpScheduler;
+import com.tlf.wechat.http.limit.LimitExceededException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * 按优先级分配并发额度
+ * <p>
+ * 所有请求共用 capacity 个并发额度，其中 paymentShare 比例只能由支付请求使用，批量任务再多也占不到；
+ * 额度用完后请求按优先级分别排队，空出额度时按权重公平分配（start-time fair queuing）：
+ * 每个优先级维护一个虚拟时间，放行一个请求推进 1/weight，每次放行虚拟时间最小的优先级，
+ * 同时排队时各优先级得到的额度与权重成正比，低优先级不会被饿死。
+ * 队列已满或排队超时时抛出 LimitExceededException
+ */
+public class PriorityScheduler {
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final SchedulerConfig config;
+    private final int capacity;
+    private final int reserved;
+
+    /**
+     * 不使用 synchronized，避免虚拟线程在锁内阻塞时占用载体线程
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ClassState[] classes = new ClassState[PRIORITIES.length];
+
+    private int inFlight;
+
+    /**
+     * 最近放行的请求的虚拟时间，优先级从空闲转为排队时从这里开始计算，不能用空闲期间攒下的额度插队
+     */
+    private double virtualTime;
+
+
+    public PriorityScheduler(SchedulerConfig config) {
+        this.config = config;
+        this.capacity = Math.max(1, config.getCapacity());
+        this.reserved = Math.min(capacity - 1, config.reserved());
+        for (Priority priority : PRIORITIES) {
+            classes[priority.ordinal()] = new ClassState(priority, config.weight(priority));
+        }
+    }
+
+
+    /**
+     * 获取许可，没有额度时阻塞等待，最长等待 queueTimeout
+     *
+     * @param priority
+     * @return
+     * @throws LimitExceededException 队列已满或等待超时
+     */
+    public Permit acquire(Priority priority) throws LimitExceededException {
+        CompletableFuture<Permit> future = acquireAsync(priority);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            cancel(future);
+            Thread.currentThread().interrupt();
+            throw new LimitExceededException(name(priority), "等待许可时被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LimitExceededException) {
+                throw (LimitExceededException) e.getCause();
+            }
+            throw new LimitExceededException(name(priority), String.valueOf(e.getCause()));
+        }
+    }
+
+
+    /**
+     * 获取许可，不阻塞调用线程
+     * 有额度且同优先级没有排队时立即完成，否则排队，队列已满或等待超时时以 LimitExceededException 结束
+     *
+     * @param priority
+     * @return
+     */
+    public CompletableFuture<Permit> acquireAsync(Priority priority) {
+        final ClassState c = classes[priority.ordinal()];
+        final CompletableFuture<Permit> future = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (c.waiters.isEmpty() && canRun(priority)) {
+                future.complete(start(c, 0));
+                return future;
+            }
+            if (c.waiters.size() >= config.getMaxQueueSize()) {
+                c.rejected++;
+                future.completeExceptionally(new LimitExceededException(name(priority), "排队已满"));
+                return future;
+            }
+            if (c.waiters.isEmpty()) {
+                c.virtualStart = Math.max(c.virtualStart, virtualTime);
+            }
+            c.waiters.addLast(new Waiter(future));
+        } finally {
+            lock.unlock();
+        }
+        HttpScheduler.schedule(() -> {
+            if (remove(c, future, true)) {
+                future.completeExceptionally(new LimitExceededException(name(priority), "排队超时"));
+            }
+        }, config.getQueueTimeout());
+        return future;
+    }
+
+
+    /**
+     * 放弃获取许可，已经拿到的许可直接归还
+     *
+     * @param future
+     */
+    public void cancel(CompletableFuture<Permit> future) {
+        boolean removed = false;
+        for (ClassState c : classes) {
+            if (remove(c, future, false)) {
+                removed = true;
+                break;
+            }
+        }
+        if (!removed) {
+            Permit permit = future.getNow(null);
+            if (permit != null) {
+                permit.release();
+            }
+        }
+        future.cancel(false);
+    }
+
+
+    public SchedulerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 所有优先级正在进行的请求数
+     *
+     * @return
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 某个优先级的排队统计
+     *
+     * @param priority
+     * @return
+     */
+    public PriorityStats getStats(Priority priority) {
+        lock.lock();
+        try {
+            return classes[priority.ordinal()].stats();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 所有优先级的排队统计
+     *
+     * @return
+     */
+    public Map<Priority, PriorityStats> getStats() {
+        Map<Priority, PriorityStats> stats = new EnumMap<>(Priority.class);
+        lock.lock();
+        try {
+            for (ClassState c : classes) {
+                stats.put(c.priority, c.stats());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return stats;
+    }
+
+
+    /**
+     * 支付可以使用全部额度，其他优先级合计不超过 capacity - reserved
+     */
+    private boolean canRun(Priority priority) {
+        if (inFlight >= capacity) {
+            return false;
+        }
+        if (priority == Priority.PAYMENT) {
+            return true;
+        }
+        return inFlight - classes[Priority.PAYMENT.ordinal()].inFlight < capacity - reserved;
+    }
+
+
+    private Permit start(ClassState c, long waitNanos) {
+        inFlight++;
+        c.inFlight++;
+        c.admitted++;
+        c.waitNanos += waitNanos;
+        c.maxWaitNanos = Math.max(c.maxWaitNanos, waitNanos);
+        return new Permit(c);
+    }
+
+
+    private boolean remove(ClassState c, CompletableFuture<Permit> future, boolean reject) {
+        lock.lock();
+        try {
+            for (Iterator<Waiter> it = c.waiters.iterator(); it.hasNext(); ) {
+                if (it.next().future == future) {
+                    it.remove();
+                    if (reject) {
+                        c.rejected++;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * 归还额度，然后按虚拟时间依次放行排队的请求
+     */
+    private void release(ClassState owner) {
+        List<Waiter> ready = new ArrayList<>();
+        List<Permit> permits = new ArrayList<>();
+        lock.lock();
+        try {
+            inFlight--;
+            owner.inFlight--;
+            long now = System.nanoTime();
+            ClassState next;
+            while ((next = next()) != null) {
+                Waiter waiter = next.waiters.pollFirst();
+                virtualTime = next.virtualStart;
+                next.virtualStart += 1.0 / next.weight;
+                ready.add(waiter);
+                permits.add(start(next, now - waiter.enqueuedAt));
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < ready.size(); i++) {
+            Permit permit = permits.get(i);
+            if (!ready.get(i).future.complete(permit)) {
+                // 等待方已取消
+                permit.release();
+            }
+        }
+    }
+
+
+    /**
+     * 有请求排队且可以放行的优先级中虚拟时间最小的，相同时取优先级高的
+     */
+    private ClassState next() {
+        ClassState next = null;
+        for (ClassState c : classes) {
+            if (c.waiters.isEmpty() || !canRun(c.priority)) {
+                continue;
+            }
+            if (next == null || c.virtualStart < next.virtualStart) {
+                next = c;
+            }
+        }
+        return next;
+    }
+
+
+    private static String name(Priority priority) {
+        return "scheduler/" + priority;
+    }
+
+
+    private static class Waiter {
+        private final CompletableFuture<Permit> future;
+        private final long enqueuedAt = System.nanoTime();
+
+        Waiter(CompletableFuture<Permit> future) {
+            this.future = future;
+        }
+    }
+
+
+    /**
+     * 一个优先级的队列和统计，都在 lock 内访问
+     */
+    private static class ClassState {
+        private final Priority priority;
+        private final int weight;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+        private double virtualStart;
+        private int inFlight;
+        private long admitted;
+        private long rejected;
+        private long waitNanos;
+        private long maxWaitNanos;
+
+        ClassState(Priority priority, int weight) {
+            this.priority = priority;
+            this.weight = weight;
+        }
+
+        PriorityStats stats() {
+            return new PriorityStats(priority, waiters.size(), inFlight, admitted, rejected,
+                    admitted == 0 ? 0 : waitNanos / 1_000_000d / admitted, maxWaitNanos / 1_000_000d);
+        }
+    }
+
+
+    /**
+     * 许可，请求结束后必须调用 release 归还，重复调用无效
+     */
+    public class Permit {
+        private final ClassState owner;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ClassState owner) {
+            this.owner = owner;
+        }
+
+        public Priority getPriority() {
+            return owner.priority;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                PriorityScheduler.this.release(owner);
+            }
+        }
+    }
+}
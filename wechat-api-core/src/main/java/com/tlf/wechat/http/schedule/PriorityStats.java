@@ -0,0 +1,106 @@
+package com.tlf.wechat.http.schedule;
+
+/**
+ * 某个优先级的排队统计（快照）
+ */
+public class PriorityStats {
+    private final Priority priority;
+    private final int queueDepth;
+    private final int inFlight;
+    private final long admittedCount;
+    private final long rejectedCount;
+    private final double averageWaitMillis;
+    private final double maxWaitMillis;
+
+
+    PriorityStats(
+            Priority priority,
+            int queueDepth,
+            int inFlight,
+            long admittedCount,
+            long rejectedCount,
+            double averageWaitMillis,
+            double maxWaitMillis
+    ) {
+        this.priority = priority;
+        this.queueDepth = queueDepth;
+        this.inFlight = inFlight;
+        this.admittedCount = admittedCount;
+        this.rejectedCount = rejectedCount;
+        this.averageWaitMillis = averageWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * 排队中的请求数
+     *
+     * @return
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * 正在进行的请求数
+     *
+     * @return
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * 已放行的请求数（包括不需要排队的）
+     *
+     * @return
+     */
+    public long getAdmittedCount() {
+        return admittedCount;
+    }
+
+    /**
+     * 因排队已满或排队超时被拒绝的请求数
+     *
+     * @return
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * 放行的请求平均排队时间（毫秒）
+     *
+     * @return
+     */
+    public double getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+
+    /**
+     * 最长排队时间（毫秒）
+     *
+     * @return
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+
+    @Override
+    public String toString() {
+        return "PriorityStats{" +
+                "priority=" + priority +
+                ", queueDepth=" + queueDepth +
+                ", inFlight=" + inFlight +
+                ", admitted=" + admittedCount +
+                ", rejected=" + rejectedCount +
+                ", avgWait=" + String.format("%.1f", averageWaitMillis) + "ms" +
+                ", maxWait=" + String.format("%.1f", maxWaitMillis) + "ms" +
+                '}';
+    }
+}
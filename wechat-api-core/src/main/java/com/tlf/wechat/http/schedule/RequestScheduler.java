@@ -0,0 +1,286 @@
+package com.tlf.wechat.http.schedule;
+
+import com.tlf.wechat.http.HttpUtil;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+
+/**
+ * 按优先级调度请求
+ * 批量任务（素材同步、直播回放拉取）与用户请求、支付请求共用连接池，高峰时批量任务不能挤占支付和用户请求的并发额度
+ * <p>
+ * 请求的优先级依次按以下方式确定：
+ * <ol>
+ * <li>通过 call/supply 为当前线程指定的优先级：
+ * <pre>
+ * List&lt;JSONObject&gt; replays = RequestScheduler.call(Priority.BATCH, () -&gt; FanOut.map(roomIds, id -&gt; ...));
+ * </pre></li>
+ * <li>按路径登记的规则，默认素材上传下载为 BATCH</li>
+ * <li>按 host 登记的规则，默认微信支付域名为 PAYMENT</li>
+ * <li>其他请求为 INTERACTIVE</li>
+ * </ol>
+ * 默认不启用，需要通过 setEnabled 启用
+ */
+public class RequestScheduler {
+
+    private static final ThreadLocal<Priority> CURRENT = new ThreadLocal<>();
+
+    private static final List<PathRule> PATH_RULES = new CopyOnWriteArrayList<>();
+    private static final Map<String, Priority> HOST_RULES = new ConcurrentHashMap<>();
+
+    private static volatile PriorityScheduler scheduler = new PriorityScheduler(new SchedulerConfig());
+
+    private static volatile boolean enabled = false;
+
+    static {
+        registerHost("api.mch.weixin.qq.com", Priority.PAYMENT);
+        registerHost("api2.mch.weixin.qq.com", Priority.PAYMENT);
+        registerPath("/cgi-bin/media/(upload|get)", Priority.BATCH);
+        registerPath("/cgi-bin/material/.*", Priority.BATCH);
+    }
+
+
+    /**
+     * 按路径登记优先级，先登记的规则优先
+     *
+     * @param pathRegex 路径正则，不含域名和参数
+     * @param priority
+     */
+    public static void registerPath(String pathRegex, Priority priority) {
+        PATH_RULES.add(new PathRule(Pattern.compile(pathRegex), priority));
+    }
+
+
+    /**
+     * 按 host 登记优先级
+     *
+     * @param host
+     * @param priority
+     */
+    public static void registerHost(String host, Priority priority) {
+        HOST_RULES.put(host, priority);
+    }
+
+
+    /**
+     * 请求的优先级
+     *
+     * @param host
+     * @param path
+     * @return
+     */
+    public static Priority classify(String host, String path) {
+        Priority priority = CURRENT.get();
+        if (priority != null) {
+            return priority;
+        }
+        if (path != null) {
+            for (PathRule rule : PATH_RULES) {
+                if (rule.pattern.matcher(path).matches()) {
+                    return rule.priority;
+                }
+            }
+        }
+        if (host != null) {
+            priority = HOST_RULES.get(host);
+            if (priority != null) {
+                return priority;
+            }
+        }
+        return Priority.INTERACTIVE;
+    }
+
+
+    /**
+     * 请求地址的优先级
+     *
+     * @param url
+     * @return
+     */
+    public static Priority classify(String url) {
+        return classify(URI.create(url).getHost(), HttpUtil.path(url));
+    }
+
+
+    /**
+     * 以指定优先级同步执行，其中发起的所有请求（包括对冲、重试和 FanOut 中的请求）都使用该优先级
+     *
+     * @param priority
+     * @param callable
+     * @return
+     * @throws Exception
+     */
+    public static <T> T call(Priority priority, Callable<T> callable) throws Exception {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return callable.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+
+    /**
+     * 以指定优先级异步执行，supplier 的同步部分在当前线程执行
+     *
+     * @param priority
+     * @param supplier
+     * @return
+     */
+    public static <T> CompletableFuture<T> supply(Priority priority, Supplier<CompletableFuture<T>> supplier) {
+        Priority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            return supplier.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+
+    /**
+     * 把当前线程指定的优先级带到其他线程执行的任务中
+     *
+     * @param callable
+     * @return
+     */
+    public static <T> Callable<T> wrap(Callable<T> callable) {
+        final Priority captured = CURRENT.get();
+        if (captured == null) {
+            return callable;
+        }
+        return () -> call(captured, callable);
+    }
+
+
+    /**
+     * 把当前线程指定的优先级带到其他线程发起的异步请求中
+     *
+     * @param supplier
+     * @return
+     */
+    public static <T> Supplier<CompletableFuture<T>> wrapAsync(Supplier<CompletableFuture<T>> supplier) {
+        final Priority captured = CURRENT.get();
+        if (captured == null) {
+            return supplier;
+        }
+        return () -> supply(captured, supplier);
+    }
+
+
+    /**
+     * 获取许可后异步发送，请求结束（或失败）后归还许可
+     * 取消返回的 future 会同时取消排队或请求
+     *
+     * @param uri
+     * @param send
+     * @return
+     */
+    public static <T> CompletableFuture<T> executeAsync(URI uri, Supplier<CompletableFuture<T>> send) {
+        if (!enabled) {
+            return send.get();
+        }
+        final PriorityScheduler s = scheduler;
+        final CompletableFuture<PriorityScheduler.Permit> acquired = s.acquireAsync(classify(uri.getHost(), uri.getRawPath()));
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        acquired.whenComplete((permit, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+                return;
+            }
+            if (result.isDone()) {
+                permit.release();
+                return;
+            }
+            final CompletableFuture<T> sent = send.get();
+            sent.whenComplete((response, ex) -> {
+                permit.release();
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(response);
+                }
+            });
+            result.whenComplete((r, ex) -> {
+                if (result.isCancelled()) {
+                    sent.cancel(false);
+                }
+            });
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled() && !acquired.isDone()) {
+                s.cancel(acquired);
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * 更新配置，正在进行和排队中的请求仍在原调度器中完成
+     *
+     * @param config
+     */
+    public static void setConfig(SchedulerConfig config) {
+        scheduler = new PriorityScheduler(config);
+    }
+
+
+    public static PriorityScheduler getScheduler() {
+        return scheduler;
+    }
+
+
+    /**
+     * 各优先级的排队统计
+     *
+     * @return
+     */
+    public static Map<Priority, PriorityStats> getStats() {
+        return scheduler.getStats();
+    }
+
+
+    /**
+     * 是否启用优先级调度，默认不启用
+     *
+     * @param enable
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    private static void restore(Priority previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+
+    private static class PathRule {
+        private final Pattern pattern;
+        private final Priority priority;
+
+        PathRule(Pattern pattern, Priority priority) {
+            this.pattern = pattern;
+            this.priority = priority;
+        }
+    }
+}
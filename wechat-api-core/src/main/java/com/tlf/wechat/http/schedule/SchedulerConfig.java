@@ -0,0 +1,123 @@
+package com.tlf.wechat.http.schedule;
+
+/**
+ * 优先级调度配置
+ */
+public class SchedulerConfig {
+    /**
+     * 所有优先级合计的最大并发数，一般与连接池最大连接数（maxTotal）一致
+     */
+    private int capacity = 200;
+
+    /**
+     * 为支付保留的并发比例（0~1），其他优先级合计最多使用 capacity * (1 - paymentShare)
+     */
+    private double paymentShare = 0.2;
+
+    /**
+     * 各优先级的权重，都有请求排队时按权重比例分配空出的并发额度
+     */
+    private int paymentWeight = 8;
+    private int interactiveWeight = 4;
+    private int batchWeight = 1;
+
+    /**
+     * 每个优先级最多排队的请求数，为 0 时直接失败
+     */
+    private int maxQueueSize = 1000;
+
+    /**
+     * 排队等待的最长时间（毫秒），超时后请求失败
+     */
+    private long queueTimeout = 3000;
+
+
+    public SchedulerConfig() {
+    }
+
+
+    /**
+     * 优先级对应的权重，至少为 1
+     *
+     * @param priority
+     * @return
+     */
+    public int weight(Priority priority) {
+        switch (priority) {
+            case PAYMENT:
+                return Math.max(1, paymentWeight);
+            case BATCH:
+                return Math.max(1, batchWeight);
+            default:
+                return Math.max(1, interactiveWeight);
+        }
+    }
+
+
+    /**
+     * 为支付保留的并发数
+     *
+     * @return
+     */
+    public int reserved() {
+        return (int) Math.ceil(capacity * Math.max(0, Math.min(1, paymentShare)));
+    }
+
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public double getPaymentShare() {
+        return paymentShare;
+    }
+
+    public void setPaymentShare(double paymentShare) {
+        this.paymentShare = paymentShare;
+    }
+
+    public int getPaymentWeight() {
+        return paymentWeight;
+    }
+
+    public void setPaymentWeight(int paymentWeight) {
+        this.paymentWeight = paymentWeight;
+    }
+
+    public int getInteractiveWeight() {
+        return interactiveWeight;
+    }
+
+    public void setInteractiveWeight(int interactiveWeight) {
+        this.interactiveWeight = interactiveWeight;
+    }
+
+    public int getBatchWeight() {
+        return batchWeight;
+    }
+
+    public void setBatchWeight(int batchWeight) {
+        this.batchWeight = batchWeight;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public long getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(long queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+
+}
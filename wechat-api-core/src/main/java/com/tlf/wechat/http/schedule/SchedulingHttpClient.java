@@ -0,0 +1,69 @@
+package com.tlf.wechat.http.schedule;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.URI;
+
+
+/**
+ * 按优先级调度的 HttpClient
+ * 发送请求前按优先级获取许可，收到响应头（或失败）后归还
+ */
+public class SchedulingHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    public SchedulingHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        if (!RequestScheduler.isEnabled() || target == null) {
+            return delegate.execute(target, request, context);
+        }
+        Priority priority = RequestScheduler.classify(target.getHostName(), path(request));
+        PriorityScheduler.Permit permit = RequestScheduler.getScheduler().acquire(priority);
+        try {
+            return delegate.execute(target, request, context);
+        } finally {
+            permit.release();
+        }
+    }
+
+
+    private static String path(HttpRequest request) {
+        if (request instanceof HttpUriRequest) {
+            return ((HttpUriRequest) request).getURI().getRawPath();
+        }
+        return URI.create(request.getRequestLine().getUri()).getRawPath();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
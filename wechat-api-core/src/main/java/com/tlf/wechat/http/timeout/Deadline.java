@@ -0,0 +1,201 @@
+package com.tlf.wechat.http.timeout;
+
+import com.tlf.wechat.http.HttpScheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+
+/**
+ * 调用截止时间
+ * <p>
+ * 通过 call/supply 绑定到当前线程后，其中发起的所有请求共用同一个时间预算：
+ * 每次请求的连接、获取连接、响应超时都不超过剩余时间，剩余时间不够退避时不再重试。
+ * 多步调用（如先获取 access_token 再获取手机号）可以共用一个截止时间：
+ * <pre>
+ * String phone = Deadline.call(Deadline.after(3000), () -> WeChatMiniUtil.getPhone(appId, appSecret, code));
+ * </pre>
+ * 嵌套绑定时取较早的截止时间
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+
+    /**
+     * 从现在开始 millis 毫秒后截止
+     *
+     * @param millis
+     * @return
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + millis * 1_000_000);
+    }
+
+
+    /**
+     * 剩余时间（毫秒），已截止时小于等于 0
+     *
+     * @return
+     */
+    public long remainingMillis() {
+        return (deadlineNanos - System.nanoTime()) / 1_000_000;
+    }
+
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+
+    /**
+     * 取较早的截止时间
+     *
+     * @param other 可以为空
+     * @return
+     */
+    public Deadline min(Deadline other) {
+        if (other == null || deadlineNanos - other.deadlineNanos <= 0) {
+            return this;
+        }
+        return other;
+    }
+
+
+    /**
+     * 当前线程绑定的截止时间，没有时为空
+     *
+     * @return
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+
+    /**
+     * 在截止时间内同步执行，与当前线程已绑定的截止时间取较早者
+     *
+     * @param deadline 为空时只沿用已绑定的截止时间
+     * @param callable
+     * @return
+     * @throws Exception
+     */
+    public static <T> T call(Deadline deadline, Callable<T> callable) throws Exception {
+        Deadline previous = CURRENT.get();
+        Deadline effective = deadline == null ? previous : deadline.min(previous);
+        if (effective == previous) {
+            return callable.call();
+        }
+        CURRENT.set(effective);
+        try {
+            return callable.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+
+    /**
+     * 在截止时间内异步执行，到期时返回的 future 以 DeadlineExceededException 结束，并取消未完成的请求
+     *
+     * @param deadline 为空时只沿用已绑定的截止时间
+     * @param supplier 同步部分（构建请求、签名）在当前线程执行，期间绑定截止时间
+     * @return
+     */
+    public static <T> CompletableFuture<T> supply(Deadline deadline, Supplier<CompletableFuture<T>> supplier) {
+        Deadline previous = CURRENT.get();
+        final Deadline effective = deadline == null ? previous : deadline.min(previous);
+        if (effective == null) {
+            return supplier.get();
+        }
+        if (effective.isExpired()) {
+            CompletableFuture<T> expired = new CompletableFuture<>();
+            expired.completeExceptionally(new DeadlineExceededException("调用已超过截止时间"));
+            return expired;
+        }
+        final CompletableFuture<T> inner;
+        CURRENT.set(effective);
+        try {
+            inner = supplier.get();
+        } finally {
+            restore(previous);
+        }
+        if (inner.isDone()) {
+            return inner;
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timer = HttpScheduler.schedule(() -> {
+            if (result.completeExceptionally(new DeadlineExceededException("调用已超过截止时间"))) {
+                inner.cancel(false);
+            }
+        }, Math.max(0, effective.remainingMillis()));
+        inner.whenComplete((value, error) -> {
+            timer.cancel(false);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                inner.cancel(false);
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * 把当前线程的截止时间带到其他线程执行的任务中
+     *
+     * @param callable
+     * @return
+     */
+    public static <T> Callable<T> wrap(Callable<T> callable) {
+        final Deadline captured = CURRENT.get();
+        if (captured == null) {
+            return callable;
+        }
+        return () -> call(captured, callable);
+    }
+
+
+    /**
+     * 把当前线程的截止时间带到其他线程发起的异步请求中
+     *
+     * @param supplier
+     * @return
+     */
+    public static <T> Supplier<CompletableFuture<T>> wrapAsync(Supplier<CompletableFuture<T>> supplier) {
+        final Deadline captured = CURRENT.get();
+        if (captured == null) {
+            return supplier;
+        }
+        return () -> supply(captured, supplier);
+    }
+
+
+    private static void restore(Deadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return "Deadline{remaining=" + remainingMillis() + "ms}";
+    }
+}
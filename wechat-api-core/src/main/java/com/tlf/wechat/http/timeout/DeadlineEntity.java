@@ -0,0 +1,99 @@
+package com.tlf.wechat.http.timeout;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * 截止时间覆盖到响应体读取完
+ * 读到末尾或关闭时取消定时中止；读取中因到期被中止时抛出 DeadlineExceededException
+ */
+class DeadlineEntity extends HttpEntityWrapper {
+
+    private final ScheduledFuture<?> timer;
+    private final AtomicBoolean expired;
+    private final String uri;
+
+
+    DeadlineEntity(HttpEntity entity, ScheduledFuture<?> timer, AtomicBoolean expired, String uri) {
+        super(entity);
+        this.timer = timer;
+        this.expired = expired;
+        this.uri = uri;
+    }
+
+
+    @Override
+    public InputStream getContent() throws IOException {
+        InputStream in;
+        try {
+            in = super.getContent();
+        } catch (IOException e) {
+            throw translate(e);
+        }
+        if (in == null) {
+            timer.cancel(false);
+            return null;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                try {
+                    int b = super.read();
+                    if (b < 0) {
+                        timer.cancel(false);
+                    }
+                    return b;
+                } catch (IOException e) {
+                    throw translate(e);
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    int n = super.read(b, off, len);
+                    if (n < 0) {
+                        timer.cancel(false);
+                    }
+                    return n;
+                } catch (IOException e) {
+                    throw translate(e);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    timer.cancel(false);
+                }
+            }
+        };
+    }
+
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try {
+            super.writeTo(out);
+        } catch (IOException e) {
+            throw translate(e);
+        } finally {
+            timer.cancel(false);
+        }
+    }
+
+
+    private IOException translate(IOException e) {
+        return expired.get() ? TimeoutHttpClient.deadlineExceeded(uri, e) : e;
+    }
+}
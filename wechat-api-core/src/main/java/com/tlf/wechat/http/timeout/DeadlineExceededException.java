@@ -0,0 +1,14 @@
+package com.tlf.wechat.http.timeout;
+
+import java.io.IOException;
+
+
+/**
+ * 调用截止时间已到，请求未发出或已放弃
+ */
+public class DeadlineExceededException extends IOException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,94 @@
+package com.tlf.wechat.http.timeout;
+
+import com.tlf.wechat.http.HttpScheduler;
+import com.tlf.wechat.http.concurrent.CancelScope;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * 按接口设置超时的 HttpClient
+ * 已超过截止时间时直接抛出 DeadlineExceededException，不再占用并发许可和连接；
+ * 各项超时只限制单次等待，绑定了截止时间时另外在到期时中止（abort）请求，直到响应体读完，
+ * 避免响应体缓慢到达时总耗时超过截止时间。
+ * 在 CancelScope 中执行时登记请求，scope 取消时中止请求
+ */
+public class TimeoutHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    public TimeoutHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        TimeoutProfiles.apply(request);
+        CancelScope.register(request);
+        Deadline deadline = Deadline.current();
+        if (deadline == null || !(request instanceof HttpUriRequest)) {
+            return delegate.execute(target, request, context);
+        }
+        final HttpUriRequest abortable = (HttpUriRequest) request;
+        final AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> timer = HttpScheduler.schedule(() -> {
+            expired.set(true);
+            abortable.abort();
+        }, Math.max(0, deadline.remainingMillis()));
+        CloseableHttpResponse response;
+        try {
+            response = delegate.execute(target, request, context);
+        } catch (IOException e) {
+            timer.cancel(false);
+            throw expired.get() ? deadlineExceeded(request.getRequestLine().getUri(), e) : e;
+        } catch (RuntimeException e) {
+            timer.cancel(false);
+            throw e;
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            timer.cancel(false);
+        } else {
+            response.setEntity(new DeadlineEntity(entity, timer, expired, request.getRequestLine().getUri()));
+        }
+        return response;
+    }
+
+
+    static DeadlineExceededException deadlineExceeded(String uri, IOException cause) {
+        DeadlineExceededException e = new DeadlineExceededException("调用已超过截止时间：" + uri);
+        e.initCause(cause);
+        return e;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
@@ -0,0 +1,112 @@
+package com.tlf.wechat.http.timeout;
+
+/**
+ * 接口超时配置（毫秒）
+ * 为空的项使用连接池配置 HttpClientConfig 中的值
+ */
+public class TimeoutProfile {
+    /**
+     * 连接超时时间
+     */
+    private Integer connectTimeout;
+
+    /**
+     * 从连接池获取连接的超时时间
+     */
+    private Integer connectionRequestTimeout;
+
+    /**
+     * 响应超时时间（两次读到数据之间的最长间隔）
+     */
+    private Integer socketTimeout;
+
+    /**
+     * 整个调用的截止时间，包括排队、重试和退避，为空时不限制
+     */
+    private Integer callTimeout;
+
+
+    public TimeoutProfile() {
+    }
+
+
+    public TimeoutProfile(Integer connectTimeout, Integer connectionRequestTimeout, Integer socketTimeout, Integer callTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.connectionRequestTimeout = connectionRequestTimeout;
+        this.socketTimeout = socketTimeout;
+        this.callTimeout = callTimeout;
+    }
+
+
+    /**
+     * 登录、获取 access_token、获取手机号等用户等待中的接口，响应快，超时要短
+     *
+     * @return
+     */
+    public static TimeoutProfile login() {
+        return new TimeoutProfile(2000, 1000, 5000, 8000);
+    }
+
+
+    /**
+     * 微信支付接口
+     *
+     * @return
+     */
+    public static TimeoutProfile pay() {
+        return new TimeoutProfile(3000, 1000, 10000, 20000);
+    }
+
+
+    /**
+     * 上传、下载素材，响应体大，读超时要长
+     *
+     * @return
+     */
+    public static TimeoutProfile media() {
+        return new TimeoutProfile(3000, 2000, 60000, 120000);
+    }
+
+
+    public Integer getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Integer connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Integer getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(Integer connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    public Integer getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    public void setSocketTimeout(Integer socketTimeout) {
+        this.socketTimeout = socketTimeout;
+    }
+
+    public Integer getCallTimeout() {
+        return callTimeout;
+    }
+
+    public void setCallTimeout(Integer callTimeout) {
+        this.callTimeout = callTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeoutProfile{" +
+                "connectTimeout=" + connectTimeout +
+                ", connectionRequestTimeout=" + connectionRequestTimeout +
+                ", socketTimeout=" + socketTimeout +
+                ", callTimeout=" + callTimeout +
+                '}';
+    }
+}
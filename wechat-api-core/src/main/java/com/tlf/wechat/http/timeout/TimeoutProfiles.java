@@ -0,0 +1,175 @@
+package com.tlf.wechat.http.timeout;
+
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.HttpUtil;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+
+/**
+ * 按接口配置超时
+ * 接口按路径正则匹配，后登记的优先；没有匹配的接口使用连接池配置，不限制整个调用的时间
+ * <p>
+ * 请求发出前由 HttpClientManager.decorate 的 HttpClient 统一设置超时：
+ * 请求上显式设置的超时优先，其次是接口配置，最后是连接池配置，且都不超过当前截止时间的剩余时间
+ */
+public class TimeoutProfiles {
+
+    private static final List<Map.Entry<Pattern, TimeoutProfile>> PROFILES = new CopyOnWriteArrayList<>();
+
+    static {
+        register("/v3/.*|/mmpaymkttransfers/.*", TimeoutProfile.pay());
+        register("/cgi-bin/media/.*|/cgi-bin/material/.*", TimeoutProfile.media());
+        register("/cgi-bin/token|/sns/jscode2session|/sns/oauth2/access_token|/sns/userinfo|/wxa/business/getuserphonenumber",
+                TimeoutProfile.login());
+    }
+
+
+    /**
+     * 登记接口超时配置，优先于之前登记的配置
+     *
+     * @param pathRegex 路径正则，不含域名和参数
+     * @param profile
+     */
+    public static void register(String pathRegex, TimeoutProfile profile) {
+        PROFILES.add(0, new AbstractMap.SimpleImmutableEntry<>(Pattern.compile(pathRegex), profile));
+    }
+
+
+    /**
+     * 请求地址对应的超时配置，没有登记时为空
+     *
+     * @param url 完整地址，或 host + path 拼接的地址
+     * @return
+     */
+    public static TimeoutProfile get(String url) {
+        String path = HttpUtil.path(url);
+        for (Map.Entry<Pattern, TimeoutProfile> entry : PROFILES) {
+            if (entry.getKey().matcher(path).matches()) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * 接口的调用截止时间，与当前线程已绑定的截止时间取较早者，都没有时为空
+     *
+     * @param url
+     * @return
+     */
+    public static Deadline deadline(String url) {
+        TimeoutProfile profile = get(url);
+        Deadline current = Deadline.current();
+        if (profile == null || profile.getCallTimeout() == null) {
+            return current;
+        }
+        return Deadline.after(profile.getCallTimeout()).min(current);
+    }
+
+
+    /**
+     * 在接口的调用截止时间内同步执行，重试和退避都计入
+     *
+     * @param url
+     * @param callable
+     * @return
+     * @throws Exception
+     */
+    public static <T> T call(String url, Callable<T> callable) throws Exception {
+        return Deadline.call(deadline(url), callable);
+    }
+
+
+    /**
+     * 在接口的调用截止时间内异步执行
+     *
+     * @param url
+     * @param supplier
+     * @return
+     */
+    public static <T> CompletableFuture<T> supply(String url, Supplier<CompletableFuture<T>> supplier) {
+        return Deadline.supply(deadline(url), supplier);
+    }
+
+
+    /**
+     * 设置请求的超时
+     *
+     * @param request
+     * @throws DeadlineExceededException 已超过截止时间
+     */
+    public static void apply(HttpRequest request) throws DeadlineExceededException {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException("调用已超过截止时间：" + request.getRequestLine().getUri());
+        }
+        if (!(request instanceof HttpRequestBase)) {
+            return;
+        }
+        HttpRequestBase base = (HttpRequestBase) request;
+        base.setConfig(requestConfig(base.getURI().toString(), base.getConfig(), deadline));
+    }
+
+
+    private static RequestConfig requestConfig(String url, RequestConfig explicit, Deadline deadline) {
+        HttpClientConfig c = HttpClientManager.getConfig();
+        TimeoutProfile profile = get(url);
+        RequestConfig.Builder builder = explicit == null ? RequestConfig.custom() : RequestConfig.copy(explicit);
+        int connect = resolve(explicit == null ? -1 : explicit.getConnectTimeout(),
+                profile == null ? null : profile.getConnectTimeout(), c.getConnectTimeout());
+        int request = resolve(explicit == null ? -1 : explicit.getConnectionRequestTimeout(),
+                profile == null ? null : profile.getConnectionRequestTimeout(), c.getConnectionRequestTimeout());
+        int socket = resolve(explicit == null ? -1 : explicit.getSocketTimeout(),
+                profile == null ? null : profile.getSocketTimeout(), c.getSocketTimeout());
+        return builder
+                .setConnectTimeout(clamp(connect, deadline))
+                .setConnectionRequestTimeout(clamp(request, deadline))
+                .setSocketTimeout(clamp(socket, deadline))
+                .build();
+    }
+
+
+    private static int resolve(int explicit, Integer profile, int pool) {
+        if (explicit >= 0) {
+            return explicit;
+        }
+        return profile != null ? profile : pool;
+    }
+
+
+    /**
+     * 不超过截止时间的剩余时间，0 表示不限制
+     */
+    private static int clamp(int timeout, Deadline deadline) {
+        if (deadline == null) {
+            return timeout;
+        }
+        long remaining = Math.max(1, deadline.remainingMillis());
+        return timeout == 0 || timeout > remaining ? (int) Math.min(remaining, Integer.MAX_VALUE) : timeout;
+    }
+
+
+    /**
+     * 已登记的接口超时配置
+     *
+     * @return
+     */
+    public static List<Map.Entry<Pattern, TimeoutProfile>> getProfiles() {
+        return Collections.unmodifiableList(PROFILES);
+    }
+
+}
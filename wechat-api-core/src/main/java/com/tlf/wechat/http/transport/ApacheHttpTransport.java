@@ -0,0 +1,82 @@
+package com.tlf.wechat.http.transport;
+
+import com.tlf.wechat.http.HttpAsyncClientManager;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.compress.Compression;
+import com.tlf.wechat.http.response.BoundedAsyncResponseConsumer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+
+/**
+ * Apache HttpClient 引擎（默认）
+ * 同步请求使用 HttpClientManager 的连接池，异步请求使用 HttpAsyncClientManager 的 NIO 客户端，只支持 HTTP/1.1
+ */
+public class ApacheHttpTransport implements HttpTransport {
+
+    private final CloseableHttpClient client;
+
+    public ApacheHttpTransport(CloseableHttpClient client) {
+        this.client = client;
+    }
+
+
+    @Override
+    public String getName() {
+        return HttpTransports.APACHE;
+    }
+
+
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        return client.execute(request);
+    }
+
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpUriRequest request) {
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        // 异步客户端的响应拦截器在读取响应体之前执行，压缩在这里处理
+        Compression.prepare(request);
+        final Future<HttpResponse> future = HttpAsyncClientManager.getClient().execute(
+                HttpAsyncMethods.create(request),
+                new BoundedAsyncResponseConsumer(HttpClientManager.getConfig().getMaxBodySize()),
+                new FutureCallback<HttpResponse>() {
+                    @Override
+                    public void completed(HttpResponse response) {
+                        Compression.decode(response);
+                        result.complete(response);
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        result.completeExceptionally(ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.tlf.wechat.http.transport;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * 发送 HTTP 请求的引擎
+ * <p>
+ * 请求和响应沿用 httpcore 的消息类型（HttpUriRequest、HttpResponse），响应处理（ResponseHandler）、
+ * 超时、熔断、限流等逻辑与引擎无关；引擎只负责连接管理和收发数据。
+ * 默认引擎为 Apache HttpClient，可通过 HttpClientConfig.transport 切换为其他 HttpTransportProvider 提供的引擎
+ */
+public interface HttpTransport extends Closeable {
+
+    /**
+     * 引擎名称，与 HttpTransportProvider.getName 一致
+     *
+     * @return
+     */
+    String getName();
+
+
+    /**
+     * 同步发送请求，响应体以流的方式读取，调用方读取完成后关闭响应
+     * 请求上的 RequestConfig 已由 TimeoutProfiles 设置好超时
+     *
+     * @param request
+     * @return
+     * @throws IOException
+     */
+    CloseableHttpResponse execute(HttpUriRequest request) throws IOException;
+
+
+    /**
+     * 异步发送请求，响应体已完整读入内存，超过 HttpClientConfig.maxBodySize 时以 BodyTooLargeException 结束
+     * 取消返回的 future 时尽量取消底层请求
+     *
+     * @param request
+     * @return
+     */
+    CompletableFuture<HttpResponse> executeAsync(HttpUriRequest request);
+}
@@ -0,0 +1,37 @@
+package com.tlf.wechat.http.transport;
+
+import com.tlf.wechat.http.HttpClientConfig;
+
+import javax.net.ssl.SSLContext;
+
+
+/**
+ * 请求引擎的 SPI，实现类登记在 META-INF/services/com.tlf.wechat.http.transport.HttpTransportProvider
+ */
+public interface HttpTransportProvider {
+
+    /**
+     * 引擎名称，对应 HttpClientConfig.transport
+     *
+     * @return
+     */
+    String getName();
+
+
+    /**
+     * 当前运行环境是否可用，如 jdk 引擎需要 Java 11+
+     *
+     * @return
+     */
+    boolean isAvailable();
+
+
+    /**
+     * 按连接池配置创建引擎
+     *
+     * @param config
+     * @param sslContext 共享的 SSLContext，见 HttpClientManager.getSslContext
+     * @return
+     */
+    HttpTransport create(HttpClientConfig config, SSLContext sslContext);
+}
@@ -0,0 +1,55 @@
+package com.tlf.wechat.http.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+
+/**
+ * 查找通过 SPI 登记的请求引擎
+ */
+public class HttpTransports {
+
+    public static final String APACHE = "apache";
+
+    public static final String JDK = "jdk";
+
+    private static volatile List<HttpTransportProvider> providers;
+
+
+    /**
+     * 按名称查找引擎，找不到时为空
+     *
+     * @param name
+     * @return
+     */
+    public static HttpTransportProvider provider(String name) {
+        for (HttpTransportProvider provider : getProviders()) {
+            if (provider.getName().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * 所有登记的引擎（不含内置的 apache 引擎）
+     *
+     * @return
+     */
+    public static List<HttpTransportProvider> getProviders() {
+        List<HttpTransportProvider> list = providers;
+        if (list == null) {
+            list = new ArrayList<>();
+            for (HttpTransportProvider provider : ServiceLoader.load(HttpTransportProvider.class, HttpTransports.class.getClassLoader())) {
+                list.add(provider);
+            }
+            list = Collections.unmodifiableList(list);
+            providers = list;
+        }
+        return list;
+    }
+
+}
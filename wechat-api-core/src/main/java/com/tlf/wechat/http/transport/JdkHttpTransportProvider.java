@@ -0,0 +1,28 @@
+package com.tlf.wechat.http.transport;
+
+import com.tlf.wechat.http.HttpClientConfig;
+
+import javax.net.ssl.SSLContext;
+
+
+/**
+ * java.net.http.HttpClient 引擎，支持 HTTP/2 多路复用
+ * 该类为 Java 8 下的占位实现，Java 11+ 使用多版本 jar 中 META-INF/versions/11 下的实现
+ */
+public class JdkHttpTransportProvider implements HttpTransportProvider {
+
+    @Override
+    public String getName() {
+        return HttpTransports.JDK;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return false;
+    }
+
+    @Override
+    public HttpTransport create(HttpClientConfig config, SSLContext sslContext) {
+        throw new UnsupportedOperationException("jdk 引擎需要 Java 11 及以上版本");
+    }
+}
@@ -0,0 +1,59 @@
+package com.tlf.wechat.http.transport;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+
+/**
+ * 把 HttpTransport 适配为 HttpClient，调用方和超时、熔断、限流的装饰不需要区分引擎
+ */
+public class TransportHttpClient extends CloseableHttpClient {
+
+    private final HttpTransport transport;
+
+    public TransportHttpClient(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        if (!(request instanceof HttpUriRequest)) {
+            throw new ClientProtocolException("不支持的请求类型：" + request.getClass().getName());
+        }
+        return transport.execute((HttpUriRequest) request);
+    }
+
+
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        transport.close();
+    }
+
+    @Override
+    @Deprecated
+    public HttpParams getParams() {
+        return new BasicHttpParams();
+    }
+
+    @Override
+    @Deprecated
+    public ClientConnectionManager getConnectionManager() {
+        throw new UnsupportedOperationException();
+    }
+}
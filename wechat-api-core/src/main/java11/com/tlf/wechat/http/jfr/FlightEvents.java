@@ -0,0 +1,217 @@
+package com.tlf.wechat.http.jfr;
+
+import com.tlf.wechat.http.breaker.CircuitBreakers;
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.response.WeChatResponse;
+import jdk.jfr.EventType;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+
+
+/**
+ * JDK Flight Recorder 事件（Java 11+）
+ * 在 JFR 录制中产生 com.tlf.wechat.Request（每次发送）、com.tlf.wechat.Call（每次调用，含重试）、
+ * com.tlf.wechat.Operation（签名、验签、解密、获取 access_token、下载平台证书）事件，
+ * 可与 GC、线程阻塞、socket 读写事件在同一录制中对照：
+ * <pre>
+ * java -XX:StartFlightRecording=filename=app.jfr,settings=profile ...
+ * jfr print --events com.tlf.wechat.Call app.jfr
+ * </pre>
+ * 没有录制或事件未开启时 begin 只读取一次开关并返回空，不创建事件对象
+ */
+public final class FlightEvents {
+    private static final Logger log = LoggerFactory.getLogger(FlightEvents.class);
+
+    private static final EventType REQUEST;
+    private static final EventType CALL;
+    private static final EventType OPERATION;
+
+    static {
+        EventType request = null;
+        EventType call = null;
+        EventType operation = null;
+        try {
+            request = EventType.getEventType(WeChatRequestEvent.class);
+            call = EventType.getEventType(WeChatCallEvent.class);
+            operation = EventType.getEventType(WeChatOperationEvent.class);
+        } catch (RuntimeException | LinkageError e) {
+            // 运行时裁剪掉了 jdk.jfr 模块
+            log.warn("JFR 不可用，不产生事件", e);
+        }
+        REQUEST = request;
+        CALL = call;
+        OPERATION = operation;
+    }
+
+
+    private FlightEvents() {
+    }
+
+
+    public static boolean isAvailable() {
+        return REQUEST != null;
+    }
+
+
+    /**
+     * 开始一次发送
+     *
+     * @return 事件未开启时为空
+     */
+    public static Object beginRequest() {
+        if (REQUEST == null || !REQUEST.isEnabled()) {
+            return null;
+        }
+        WeChatRequestEvent event = new WeChatRequestEvent();
+        event.begin();
+        return event;
+    }
+
+
+    /**
+     * 结束一次发送
+     *
+     * @param event    beginRequest 的返回值
+     * @param host
+     * @param request
+     * @param response 请求失败时为空
+     */
+    public static void endRequest(Object event, String host, HttpRequest request, HttpResponse response) {
+        if (event == null) {
+            return;
+        }
+        WeChatRequestEvent e = (WeChatRequestEvent) event;
+        e.end();
+        if (!e.shouldCommit()) {
+            return;
+        }
+        e.method = request.getRequestLine().getMethod();
+        e.host = host;
+        e.endpoint = CircuitBreakers.endpoint(path(request));
+        e.statusCode = response == null ? 0 : response.getStatusLine().getStatusCode();
+        e.requestBytes = request instanceof HttpEntityEnclosingRequest ? length(((HttpEntityEnclosingRequest) request).getEntity()) : 0;
+        e.responseBytes = response == null ? 0 : length(response.getEntity());
+        e.commit();
+    }
+
+
+    /**
+     * 一次调用结束，在 WireLog.exchange 中提交
+     *
+     * @param method
+     * @param url
+     * @param requestBody 请求体，可以为空
+     * @param response    响应，请求失败时为空
+     * @param error       异常，可以为空
+     * @param startNanos  调用开始时的 System.nanoTime()
+     */
+    public static void call(String method, String url, String requestBody, WeChatResponse response, Throwable error, long startNanos) {
+        if (CALL == null || !CALL.isEnabled()) {
+            return;
+        }
+        WeChatCallEvent e = new WeChatCallEvent();
+        if (!e.shouldCommit()) {
+            return;
+        }
+        e.elapsed = System.nanoTime() - startNanos;
+        e.method = method == null ? null : method.toUpperCase();
+        try {
+            URI uri = URI.create(url);
+            e.host = uri.getHost();
+            e.endpoint = CircuitBreakers.endpoint(uri.getRawPath());
+        } catch (RuntimeException ignore) {
+        }
+        e.statusCode = response == null ? 0 : response.getStatusCode();
+        e.errcode = response == null ? null : response.getErrorCode();
+        e.error = error == null ? null : error.getClass().getName();
+        e.requestBytes = utf8Length(requestBody);
+        e.success = error == null && response != null && response.isSuccess();
+        e.commit();
+    }
+
+
+    /**
+     * 开始一次操作
+     *
+     * @return 事件未开启时为空
+     */
+    public static Object beginOperation() {
+        if (OPERATION == null || !OPERATION.isEnabled()) {
+            return null;
+        }
+        WeChatOperationEvent event = new WeChatOperationEvent();
+        event.begin();
+        return event;
+    }
+
+
+    /**
+     * 结束一次操作
+     *
+     * @param event     beginOperation 的返回值
+     * @param operation
+     * @param subject   appId、mchId 等，可以为空
+     * @param bytes     处理的字节数，未知时为 -1
+     * @param success
+     */
+    public static void endOperation(Object event, Metrics.Operation operation, String subject, long bytes, boolean success) {
+        if (event == null) {
+            return;
+        }
+        WeChatOperationEvent e = (WeChatOperationEvent) event;
+        e.end();
+        if (!e.shouldCommit()) {
+            return;
+        }
+        e.operation = operation.getName();
+        e.subject = subject;
+        e.bytes = bytes;
+        e.success = success;
+        e.commit();
+    }
+
+
+    private static String path(HttpRequest request) {
+        if (request instanceof HttpUriRequest) {
+            return ((HttpUriRequest) request).getURI().getRawPath();
+        }
+        return URI.create(request.getRequestLine().getUri()).getRawPath();
+    }
+
+
+    private static long length(HttpEntity entity) {
+        return entity == null ? 0 : entity.getContentLength();
+    }
+
+
+    /**
+     * UTF-8 编码后的长度，不创建字节数组
+     */
+    private static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,54 @@
+package com.tlf.wechat.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * 一次调用的结果，包含重试、对冲和排队，调用结束时提交
+ */
+@Name("com.tlf.wechat.Call")
+@Label("WeChat Call")
+@Category({"WeChat", "HTTP"})
+@Description("一次微信接口调用的最终结果，elapsed 为含重试的总耗时")
+@StackTrace(false)
+class WeChatCallEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Host")
+    String host;
+
+    @Label("Endpoint")
+    @Description("订单号等参数替换为 {id}")
+    String endpoint;
+
+    @Label("Status Code")
+    @Description("请求失败时为 0")
+    int statusCode;
+
+    @Label("Error Code")
+    @Description("errcode 或微信支付的 code，成功时为空")
+    String errcode;
+
+    @Label("Error")
+    @Description("异常类名")
+    String error;
+
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Success")
+    boolean success;
+}
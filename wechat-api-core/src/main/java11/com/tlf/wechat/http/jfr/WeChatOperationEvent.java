@@ -0,0 +1,33 @@
+package com.tlf.wechat.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * 签名、验签、解密、获取 access_token、下载平台证书
+ */
+@Name("com.tlf.wechat.Operation")
+@Label("WeChat Operation")
+@Category({"WeChat", "Crypto"})
+@Description("签名、验签、解密、获取 access_token、下载平台证书")
+class WeChatOperationEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Subject")
+    @Description("appId、mchId 等")
+    String subject;
+
+    @Label("Bytes")
+    @Description("处理的字节数，未知时为 -1")
+    @DataAmount
+    long bytes;
+
+    @Label("Success")
+    boolean success;
+}
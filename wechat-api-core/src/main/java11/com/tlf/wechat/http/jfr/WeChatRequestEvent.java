@@ -0,0 +1,43 @@
+package com.tlf.wechat.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * 一次发送，位于并发限制之内，重试、对冲的每次发送各有一个事件
+ */
+@Name("com.tlf.wechat.Request")
+@Label("WeChat Request")
+@Category({"WeChat", "HTTP"})
+@Description("收到响应头或失败为止的一次发送")
+@StackTrace(false)
+class WeChatRequestEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Host")
+    String host;
+
+    @Label("Endpoint")
+    @Description("订单号等参数替换为 {id}")
+    String endpoint;
+
+    @Label("Status Code")
+    @Description("网络异常时为 0")
+    int statusCode;
+
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @Description("响应头中的长度，未知时为 -1")
+    @DataAmount
+    long responseBytes;
+}
@@ -0,0 +1,371 @@
+package com.tlf.wechat.http.transport;
+
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.SslContextFactory;
+import com.tlf.wechat.http.compress.Compression;
+import com.tlf.wechat.http.response.BodyTooLargeException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.AbstractExecutionAwareRequest;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+
+/**
+ * java.net.http.HttpClient 引擎
+ * <p>
+ * 服务端支持时（TLS ALPN 协商）使用 HTTP/2，同一域名的并发请求复用一条连接，不受连接池大小限制；
+ * 不支持时自动使用 HTTP/1.1。
+ * 超时：连接超时取 HttpClientConfig.connectTimeout，请求上的 socketTimeout 作为等待响应头的超时，
+ * JDK 客户端没有获取连接的超时
+ */
+public class JdkHttpTransport implements HttpTransport {
+
+    private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+    /**
+     * JDK 客户端自行管理的请求头，不能手动设置
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade", "keep-alive", "transfer-encoding"
+    ));
+
+    private final HttpClient client;
+
+    private final long maxBodySize;
+
+    private final int socketTimeout;
+
+
+    public JdkHttpTransport(HttpClientConfig config, SSLContext sslContext) {
+        SSLParameters parameters = sslContext.getDefaultSSLParameters();
+        String[] protocols = SslContextFactory.protocols(sslContext, config);
+        if (protocols != null) {
+            parameters.setProtocols(protocols);
+        }
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeout()))
+                .sslContext(sslContext)
+                .sslParameters(parameters)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.maxBodySize = config.getMaxBodySize();
+        this.socketTimeout = config.getSocketTimeout();
+    }
+
+
+    @Override
+    public String getName() {
+        return HttpTransports.JDK;
+    }
+
+
+    /**
+     * 用 sendAsync 发送并等待响应头：阻塞在 send 中的线程不能被 abort() 唤醒，
+     * 这样截止时间（TimeoutHttpClient）和对冲、FanOut 的中止（CancelScope）调用 abort() 时立即返回 RequestAbortedException，
+     * 响应头到达前取消请求（Java 16+ 同时中止底层的交换），之后关闭响应体流，正在读取的线程随即以 IOException 返回
+     */
+    @Override
+    public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+        AbstractExecutionAwareRequest abortable = request instanceof AbstractExecutionAwareRequest
+                ? (AbstractExecutionAwareRequest) request : null;
+        if (request.isAborted()) {
+            throw aborted(request, null);
+        }
+        final CompletableFuture<java.net.http.HttpResponse<InputStream>> sent =
+                client.sendAsync(toJdkRequest(request), java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+        if (abortable != null) {
+            abortable.setCancellable(() -> sent.cancel(true));
+            // setCancellable 之前已中止时不会回调
+            if (request.isAborted()) {
+                sent.cancel(true);
+            }
+        }
+        java.net.http.HttpResponse<InputStream> response;
+        try {
+            response = sent.get();
+        } catch (InterruptedException e) {
+            sent.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("请求被中断：" + request.getURI());
+        } catch (CancellationException e) {
+            throw aborted(request, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // 取消可能在 JDK 内部的阶段上传播，以 ExecutionException 包装的 CancellationException 或 IOException 返回
+            if (request.isAborted() || cause instanceof CancellationException) {
+                throw aborted(request, cause);
+            }
+            if (cause instanceof IOException) {
+                throw translate((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        final InputStream body = response.body();
+        if (abortable != null) {
+            abortable.setCancellable(() -> {
+                try {
+                    body.close();
+                } catch (IOException ignore) {
+                }
+                return true;
+            });
+            if (request.isAborted()) {
+                body.close();
+                throw aborted(request, null);
+            }
+        }
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(body);
+        entity.setContentLength(response.headers().firstValueAsLong("content-length").orElse(-1));
+        JdkHttpResponse result = toResponse(response, entity);
+        result.body = body;
+        Compression.decode(result);
+        return result;
+    }
+
+
+    @Override
+    public CompletableFuture<HttpResponse> executeAsync(HttpUriRequest request) {
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        final CompletableFuture<java.net.http.HttpResponse<byte[]>> sent;
+        try {
+            sent = client.sendAsync(toJdkRequest(request), info -> new BoundedBodySubscriber(maxBodySize));
+        } catch (IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        sent.whenComplete((response, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                result.completeExceptionally(cause instanceof IOException ? translate((IOException) cause) : cause);
+                return;
+            }
+            JdkHttpResponse decoded = toResponse(response, new ByteArrayEntity(response.body()));
+            Compression.decode(decoded);
+            result.complete(decoded);
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+        return result;
+    }
+
+
+    private HttpRequest toJdkRequest(HttpUriRequest request) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getURI());
+        // JDK 客户端不会自动解压，与 apache 引擎一样由 Compression 协商和解压
+        Compression.prepare(request);
+        for (Header header : request.getAllHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null) {
+                // 请求体都不大（JSON、表单、单个素材文件），直接读入内存
+                ByteArrayOutputStream out = new ByteArrayOutputStream(entity.getContentLength() > 0 ? (int) entity.getContentLength() : 256);
+                entity.writeTo(out);
+                body = HttpRequest.BodyPublishers.ofByteArray(out.toByteArray());
+                if (entity.getContentType() != null && !request.containsHeader("Content-Type")) {
+                    builder.header("Content-Type", entity.getContentType().getValue());
+                }
+            }
+        }
+        builder.method(request.getMethod(), body);
+
+        int timeout = socketTimeout;
+        if (request instanceof Configurable) {
+            RequestConfig config = ((Configurable) request).getConfig();
+            if (config != null && config.getSocketTimeout() >= 0) {
+                timeout = config.getSocketTimeout();
+            }
+        }
+        if (timeout > 0) {
+            builder.timeout(Duration.ofMillis(timeout));
+        }
+        return builder.build();
+    }
+
+
+    private static JdkHttpResponse toResponse(java.net.http.HttpResponse<?> response, AbstractHttpEntity entity) {
+        ProtocolVersion version = response.version() == HttpClient.Version.HTTP_2 ? HTTP_2 : HttpVersion.HTTP_1_1;
+        int statusCode = response.statusCode();
+        JdkHttpResponse result = new JdkHttpResponse(new BasicStatusLine(
+                version, statusCode, EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH)
+        ));
+        HttpHeaders headers = response.headers();
+        headers.map().forEach((name, values) -> {
+            // 跳过 HTTP/2 伪头部（:status 等）
+            if (name.startsWith(":")) {
+                return;
+            }
+            for (String value : values) {
+                result.addHeader(name, value);
+            }
+        });
+        headers.firstValue("content-type").ifPresent(entity::setContentType);
+        headers.firstValue("content-encoding").ifPresent(entity::setContentEncoding);
+        result.setEntity(entity);
+        return result;
+    }
+
+
+    /**
+     * 与 Apache 引擎一致，中止的请求以 RequestAbortedException 返回，CancelScope.outcome 按取消处理
+     */
+    private static RequestAbortedException aborted(HttpUriRequest request, Throwable cause) {
+        RequestAbortedException aborted = new RequestAbortedException("请求已中止：" + request.getURI());
+        if (cause != null) {
+            aborted.initCause(cause);
+        }
+        return aborted;
+    }
+
+
+    /**
+     * 超时异常转换为 Apache 引擎的对应异常，重试和熔断的判断规则不需要区分引擎
+     */
+    private static IOException translate(IOException e) {
+        if (e instanceof HttpConnectTimeoutException) {
+            ConnectTimeoutException translated = new ConnectTimeoutException(e.getMessage());
+            translated.initCause(e);
+            return translated;
+        }
+        if (e instanceof HttpTimeoutException) {
+            SocketTimeoutException translated = new SocketTimeoutException(e.getMessage());
+            translated.initCause(e);
+            return translated;
+        }
+        return e;
+    }
+
+
+    @Override
+    public void close() {
+        // Java 11 的 HttpClient 没有 close，空闲连接由 JDK 自行回收
+    }
+
+
+    /**
+     * 同步请求的响应，关闭时关闭原始的响应体流（解压前），未读完时 JDK 会取消该请求
+     */
+    private static class JdkHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private InputStream body;
+
+        JdkHttpResponse(BasicStatusLine statusLine) {
+            super(statusLine);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (body != null) {
+                body.close();
+            }
+        }
+    }
+
+
+    /**
+     * 读取响应体到内存，超过最大长度时取消请求
+     */
+    private static class BoundedBodySubscriber implements java.net.http.HttpResponse.BodySubscriber<byte[]> {
+
+        private final long maxBodySize;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private Flow.Subscription subscription;
+
+        BoundedBodySubscriber(long maxBodySize) {
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                if (out.size() + item.remaining() > maxBodySize) {
+                    // 先结束 body，取消订阅引起的 IOException 不会覆盖 BodyTooLargeException
+                    body.completeExceptionally(new BodyTooLargeException(maxBodySize));
+                    subscription.cancel();
+                    return;
+                }
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(out.toByteArray());
+        }
+    }
+}
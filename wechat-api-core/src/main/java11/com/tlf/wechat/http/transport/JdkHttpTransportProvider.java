@@ -0,0 +1,27 @@
+package com.tlf.wechat.http.transport;
+
+import com.tlf.wechat.http.HttpClientConfig;
+
+import javax.net.ssl.SSLContext;
+
+
+/**
+ * java.net.http.HttpClient 引擎，支持 HTTP/2 多路复用（Java 11+）
+ */
+public class JdkHttpTransportProvider implements HttpTransportProvider {
+
+    @Override
+    public String getName() {
+        return HttpTransports.JDK;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public HttpTransport create(HttpClientConfig config, SSLContext sslContext) {
+        return new JdkHttpTransport(config, sslContext);
+    }
+}
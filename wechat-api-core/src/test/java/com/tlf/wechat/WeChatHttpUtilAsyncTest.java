@@ -0,0 +1,137 @@
+package com.tlf.wechat;
+
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * 异步请求：成功、errcode 失败、非 200 和连接异常，异常时结果为 null 而不是异常结束
+ */
+class WeChatHttpUtilAsyncTest {
+
+    private static final Map<String, String> QUERYS = Collections.singletonMap("access_token", "T");
+
+    private static HttpServer server;
+    private static final AtomicReference<String> received = new AtomicReference<>();
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/wxa/business/getuserphonenumber", exchange -> {
+            received.set(exchange.getRequestURI().getRawQuery() + " " + read(exchange.getRequestBody()));
+            respond(exchange, 200, "{\"errcode\":0,\"errmsg\":\"ok\",\"phone_info\":{\"phoneNumber\":\"13800000000\"}}");
+        });
+        server.createContext("/wxa/business/errcode", exchange -> {
+            read(exchange.getRequestBody());
+            respond(exchange, 200, "{\"errcode\":40029,\"errmsg\":\"invalid code\"}");
+        });
+        server.createContext("/wxa/business/unavailable", exchange -> {
+            read(exchange.getRequestBody());
+            respond(exchange, 503, "{\"errcode\":-1,\"errmsg\":\"system error\"}");
+        });
+        server.createContext("/wxa/business/reset", exchange -> {
+            // 不返回应答直接断开连接
+            throw new IOException("reset");
+        });
+        server.start();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+
+    @Test
+    void completesWithBody() throws Exception {
+        JSONObject body = getBodyAsync(host(), "/wxa/business/getuserphonenumber").get(5, TimeUnit.SECONDS);
+        assertEquals(0, body.getIntValue("errcode"));
+        assertEquals("13800000000", body.getJSONObject("phone_info").getString("phoneNumber"));
+        assertEquals("access_token=T {\"code\":\"C1\"}", received.get());
+    }
+
+
+    /**
+     * errcode 不为 0 时仍返回应答，由调用方判断
+     */
+    @Test
+    void completesWithErrcode() throws Exception {
+        JSONObject body = getBodyAsync(host(), "/wxa/business/errcode").get(5, TimeUnit.SECONDS);
+        assertEquals(40029, body.getIntValue("errcode"));
+        assertEquals("invalid code", body.getString("errmsg"));
+    }
+
+
+    @Test
+    void completesWithNullOnErrorStatus() throws Exception {
+        assertNull(getBodyAsync(host(), "/wxa/business/unavailable").get(5, TimeUnit.SECONDS));
+    }
+
+
+    /**
+     * 连接断开、连接被拒绝时正常结束，结果为 null
+     */
+    @Test
+    void completesWithNullOnConnectionFailure() throws Exception {
+        CompletableFuture<JSONObject> reset = getBodyAsync(host(), "/wxa/business/reset");
+        assertNull(reset.get(5, TimeUnit.SECONDS));
+        assertFalse(reset.isCompletedExceptionally());
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        CompletableFuture<JSONObject> refused = getBodyAsync("http://127.0.0.1:" + port, "/wxa/business/getuserphonenumber");
+        assertNull(refused.get(5, TimeUnit.SECONDS));
+        assertFalse(refused.isCompletedExceptionally());
+    }
+
+
+    private static CompletableFuture<JSONObject> getBodyAsync(String host, String path) {
+        return WeChatHttpUtil.getBodyAsync(host, path, "post", null, QUERYS, Collections.<String, Object>singletonMap("code", "C1"));
+    }
+
+    private static String host() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
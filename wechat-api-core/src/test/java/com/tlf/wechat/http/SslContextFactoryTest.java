@@ -0,0 +1,125 @@
+package com.tlf.wechat.http;
+
+import com.sun.net.httpserver.HttpsServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+/**
+ * 证书校验：只信任 JDK 信任库或固定的 CA，并校验证书域名
+ * 通过 HttpClientManager.init 创建客户端，连接池的接线（SSLConnectionSocketFactory、HostnameVerifier）一起验证
+ */
+class SslContextFactoryTest {
+
+    private static TestCertificates authority;
+    private static TestCertificates otherAuthority;
+    private static HttpsServer selfSigned;
+    private static HttpsServer issued;
+
+    @BeforeAll
+    static void start() throws Exception {
+        authority = TestCertificates.authority("WeChat Test CA");
+        otherAuthority = TestCertificates.authority("Other Test CA");
+        selfSigned = server(TestCertificates.selfSigned("localhost"));
+        issued = server(authority.issue("localhost"));
+    }
+
+    @AfterAll
+    static void stop() {
+        selfSigned.stop(0);
+        issued.stop(0);
+    }
+
+    @AfterEach
+    void restore() {
+        HttpClientManager.init(new HttpClientConfig());
+    }
+
+
+    @Test
+    void rejectsSelfSignedCertificateWithDefaultTrustStore() {
+        HttpClientManager.init(new HttpClientConfig());
+        assertThrows(SSLHandshakeException.class, () -> get("https://localhost:" + port(selfSigned) + "/ssl/self-signed"));
+    }
+
+
+    @Test
+    void rejectsCertificateNotIssuedByPinnedCa() throws Exception {
+        HttpClientConfig config = new HttpClientConfig();
+        config.setPinnedCertificates(otherAuthority.writePem());
+        HttpClientManager.init(config);
+        assertThrows(SSLHandshakeException.class, () -> get("https://localhost:" + port(issued) + "/ssl/unpinned"));
+        assertThrows(SSLHandshakeException.class, () -> get("https://localhost:" + port(selfSigned) + "/ssl/unpinned"));
+    }
+
+
+    @Test
+    void acceptsCertificateIssuedByPinnedCa() throws Exception {
+        HttpClientConfig config = new HttpClientConfig();
+        config.setPinnedCertificates(authority.writePem());
+        HttpClientManager.init(config);
+        assertEquals("ok", get("https://localhost:" + port(issued) + "/ssl/pinned"));
+    }
+
+
+    @Test
+    void acceptsCertificateIssuedByTrustStoreCa() throws Exception {
+        HttpClientConfig config = new HttpClientConfig();
+        config.setTrustStorePath(authority.writeTrustStore());
+        config.setTrustStorePassword(TestCertificates.PASSWORD);
+        config.setTrustStoreType("PKCS12");
+        HttpClientManager.init(config);
+        assertEquals("ok", get("https://localhost:" + port(issued) + "/ssl/trust-store"));
+    }
+
+
+    /**
+     * 证书由信任的 CA 签发，但域名（SAN 为 localhost）与请求的地址不一致
+     */
+    @Test
+    void rejectsHostnameMismatch() throws Exception {
+        HttpClientConfig config = new HttpClientConfig();
+        config.setPinnedCertificates(authority.writePem());
+        HttpClientManager.init(config);
+        assertThrows(SSLPeerUnverifiedException.class, () -> get("https://127.0.0.1:" + port(issued) + "/ssl/mismatch"));
+    }
+
+
+    private static String get(String url) throws IOException {
+        try (CloseableHttpResponse response = HttpClientManager.getClient().execute(new HttpGet(url))) {
+            return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int port(HttpsServer server) {
+        return server.getAddress().getPort();
+    }
+
+    private static HttpsServer server(KeyStore keyStore) throws Exception {
+        HttpsServer server = TestCertificates.httpsServer(keyStore);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+}
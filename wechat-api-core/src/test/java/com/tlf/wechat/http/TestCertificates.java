@@ -0,0 +1,192 @@
+package com.tlf.wechat.http;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * 测试用的证书：自签名的 CA 和由它签发的服务端证书（SAN 为指定域名）
+ * 与 benchmarks 中的 SelfSignedCertificate 相同，使用 BouncyCastle 生成
+ */
+public final class TestCertificates {
+
+    public static final String PASSWORD = "changeit";
+
+    private static final AtomicLong SERIAL = new AtomicLong(System.currentTimeMillis());
+
+    private final KeyPair keyPair;
+    private final X509Certificate certificate;
+
+
+    private TestCertificates(KeyPair keyPair, X509Certificate certificate) {
+        this.keyPair = keyPair;
+        this.certificate = certificate;
+    }
+
+
+    /**
+     * 自签名的 CA
+     *
+     * @param name CN
+     * @return
+     */
+    public static TestCertificates authority(String name) throws Exception {
+        KeyPair keyPair = keyPair();
+        X500Name subject = new X500Name("CN=" + name);
+        return new TestCertificates(keyPair, sign(subject, keyPair.getPublic(), subject, keyPair, null, true));
+    }
+
+
+    /**
+     * 自签名的服务端证书，不由任何 CA 签发
+     *
+     * @param dnsName SAN
+     * @return 服务端密钥库
+     */
+    public static KeyStore selfSigned(String dnsName) throws Exception {
+        KeyPair keyPair = keyPair();
+        X500Name subject = new X500Name("CN=" + dnsName);
+        return keyStore(keyPair, sign(subject, keyPair.getPublic(), subject, keyPair, dnsName, false));
+    }
+
+
+    /**
+     * 由本 CA 签发服务端证书
+     *
+     * @param dnsName SAN
+     * @return 服务端密钥库，包含私钥和证书链
+     */
+    public KeyStore issue(String dnsName) throws Exception {
+        KeyPair server = keyPair();
+        X509Certificate leaf = sign(new X500Name("CN=" + dnsName), server.getPublic(),
+                new X500Name(certificate.getSubjectX500Principal().getName()), keyPair, dnsName, false);
+        return keyStore(server, leaf, certificate);
+    }
+
+
+    public X509Certificate getCertificate() {
+        return certificate;
+    }
+
+
+    /**
+     * 把 CA 证书写入 PEM 文件，用作 HttpClientConfig.pinnedCertificates
+     *
+     * @return 文件路径
+     */
+    public String writePem() throws IOException, GeneralSecurityException {
+        File file = File.createTempFile("wechat-test-ca", ".pem");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write("-----BEGIN CERTIFICATE-----\n".getBytes(StandardCharsets.US_ASCII));
+            out.write(Base64.getMimeEncoder(64, new byte[]{'\n'}).encode(certificate.getEncoded()));
+            out.write("\n-----END CERTIFICATE-----\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        return file.getAbsolutePath();
+    }
+
+
+    /**
+     * 把 CA 证书写入 PKCS12 信任库，用作 HttpClientConfig.trustStorePath
+     *
+     * @return 文件路径
+     */
+    public String writeTrustStore() throws IOException, GeneralSecurityException {
+        KeyStore trust = KeyStore.getInstance("PKCS12");
+        trust.load(null, null);
+        trust.setCertificateEntry("ca", certificate);
+        File file = File.createTempFile("wechat-test-trust", ".p12");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            trust.store(out, PASSWORD.toCharArray());
+        }
+        return file.getAbsolutePath();
+    }
+
+
+    /**
+     * 使用服务端密钥库的 SSLContext
+     *
+     * @param keyStore
+     * @return
+     */
+    public static SSLContext serverContext(KeyStore keyStore) throws GeneralSecurityException {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD.toCharArray());
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+        return context;
+    }
+
+
+    /**
+     * 监听所有地址的本地 HTTPS 服务，未启动
+     *
+     * @param keyStore 服务端密钥库
+     * @return
+     */
+    public static HttpsServer httpsServer(KeyStore keyStore) throws IOException, GeneralSecurityException {
+        HttpsServer server = HttpsServer.create(new InetSocketAddress(0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext(keyStore)));
+        return server;
+    }
+
+
+    private static KeyPair keyPair() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+
+    private static KeyStore keyStore(KeyPair keyPair, X509Certificate... chain) throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("server", keyPair.getPrivate(), PASSWORD.toCharArray(), chain);
+        return keyStore;
+    }
+
+
+    private static X509Certificate sign(X500Name subject, PublicKey publicKey, X500Name issuer, KeyPair issuerKey,
+                                        String dnsName, boolean ca) throws Exception {
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                issuer, BigInteger.valueOf(SERIAL.incrementAndGet()), new Date(now - 60000), new Date(now + 86400000L), subject, publicKey
+        );
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+        if (dnsName != null) {
+            builder.addExtension(Extension.subjectAlternativeName, false,
+                    new GeneralNames(new GeneralName(GeneralName.dNSName, dnsName)));
+        }
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(issuerKey.getPrivate()))
+        );
+    }
+}
@@ -0,0 +1,92 @@
+package com.tlf.wechat.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class UrlTemplateTest {
+
+    private static final UrlTemplate ORDER = UrlTemplate.compile(
+            "https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{out_trade_no}?mchid={mchid}");
+
+    @AfterEach
+    void reset() {
+        WeChatHosts.reset();
+    }
+
+
+    @Test
+    void unreservedValuesAreCopiedAsIs() {
+        assertEquals("https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/A-z_0.9~?mchid=1900000001",
+                ORDER.expand("A-z_0.9~", "1900000001"));
+    }
+
+
+    @Test
+    void nonAsciiIsUtf8PercentEncoded() {
+        String url = ORDER.expand("订单1", "1");
+        assertEquals("https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/%E8%AE%A2%E5%8D%951?mchid=1", url);
+        assertEquals("/v3/pay/transactions/out-trade-no/订单1", URI.create(url).getPath());
+    }
+
+
+    @Test
+    void reservedCharactersAreEncoded() {
+        assertEquals("https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/a%20b%26c%3Dd%2Fe%2Bf%25%3F%23?mchid=1",
+                ORDER.expand("a b&c=d/e+f%?#", "1"));
+    }
+
+
+    @Test
+    void rawExpandDoesNotEncodeAgain() {
+        assertEquals("https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/%E4%B8%AD?mchid=1",
+                ORDER.expandRaw("%E4%B8%AD", "1"));
+        // expand 把已编码的值当作原始值，% 被二次编码
+        assertEquals("https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/%25E4%25B8%25AD?mchid=1",
+                ORDER.expand("%E4%B8%AD", "1"));
+    }
+
+
+    @Test
+    void nullValuesExpandToEmpty() {
+        assertEquals("https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/?mchid=", ORDER.expand(null, null));
+    }
+
+
+    @Test
+    void variableCountMustMatch() {
+        assertThrows(IllegalArgumentException.class, () -> ORDER.expand("1"));
+    }
+
+
+    @Test
+    void canonicalIsPathAndQuery() {
+        String url = ORDER.expand("T1", "1");
+        assertEquals("/v3/pay/transactions/out-trade-no/T1?mchid=1", ORDER.canonical(url));
+        assertEquals("/v3/pay/transactions/out-trade-no/T1?mchid=1", ORDER.expandCanonical("T1", "1"));
+        assertEquals("?a=1", UrlTemplate.canonicalOf("https://example.com?a=1"));
+    }
+
+
+    @Test
+    void overriddenHostKeepsPathAndCanonical() {
+        WeChatHosts.override(WeChatHosts.PAY, "http://127.0.0.1:8080");
+        String url = ORDER.expand("T1", "1");
+        assertEquals("http://127.0.0.1:8080/v3/pay/transactions/out-trade-no/T1?mchid=1", url);
+        assertEquals("/v3/pay/transactions/out-trade-no/T1?mchid=1", ORDER.canonical(url));
+    }
+
+
+    @Test
+    void invalidTemplatesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> UrlTemplate.compile("https://{host}/path"));
+        assertThrows(IllegalArgumentException.class, () -> UrlTemplate.compile("https://example.com/订单/{id}"));
+        assertThrows(IllegalArgumentException.class, () -> UrlTemplate.compile("https://example.com/{}"));
+        assertThrows(IllegalArgumentException.class, () -> UrlTemplate.compile("relative/{id}"));
+    }
+}
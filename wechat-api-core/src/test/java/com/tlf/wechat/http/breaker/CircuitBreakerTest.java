@@ -0,0 +1,103 @@
+package com.tlf.wechat.http.breaker;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class CircuitBreakerTest {
+
+    private static CircuitBreakerConfig config() {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setWindowSize(10);
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(50);
+        config.setOpenDuration(100);
+        config.setHalfOpenCalls(2);
+        return config;
+    }
+
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() throws CallNotPermittedException {
+        CircuitBreaker breaker = new CircuitBreaker("test/open", config());
+        breaker.onResult(breaker.acquire(), 0, false);
+        breaker.onResult(breaker.acquire(), 0, true);
+        breaker.onResult(breaker.acquire(), 0, false);
+        // 不足 minimumCalls 时不计算失败率
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onResult(breaker.acquire(), 0, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(CallNotPermittedException.class, breaker::acquire);
+    }
+
+
+    @Test
+    void halfOpenClosesAfterSuccessfulProbes() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test/close", config());
+        breaker.transitionTo(CircuitBreaker.State.OPEN);
+        Thread.sleep(150);
+        int first = breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        int second = breaker.acquire();
+        // 半开状态只放行 halfOpenCalls 次试探
+        assertThrows(CallNotPermittedException.class, breaker::acquire);
+        breaker.onResult(first, 0, false);
+        breaker.onResult(second, 0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+
+    @Test
+    void halfOpenReopensWhenProbesFail() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test/reopen", config());
+        breaker.transitionTo(CircuitBreaker.State.OPEN);
+        Thread.sleep(150);
+        int first = breaker.acquire();
+        int second = breaker.acquire();
+        breaker.onResult(first, 0, true);
+        breaker.onResult(second, 0, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+
+    @Test
+    void cancelledProbeReturnsItsSlot() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test/cancel", config());
+        breaker.transitionTo(CircuitBreaker.State.OPEN);
+        Thread.sleep(150);
+        int first = breaker.acquire();
+        int second = breaker.acquire();
+        CircuitBreakers.complete(breaker, first, System.nanoTime(), 0, new CompletionException(new CancellationException()));
+        // 取消的试探不计入结果，可以再放行一次
+        int third = breaker.acquire();
+        breaker.onResult(second, 0, false);
+        breaker.onResult(third, 0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+
+    @Test
+    void resultsFromPreviousStateAreDiscarded() throws CallNotPermittedException {
+        CircuitBreaker breaker = new CircuitBreaker("test/stale", config());
+        int stale = breaker.acquire();
+        breaker.transitionTo(CircuitBreaker.State.OPEN);
+        breaker.transitionTo(CircuitBreaker.State.CLOSED);
+        breaker.onResult(stale, 0, true);
+        assertEquals(0, breaker.getFailureRate());
+    }
+
+
+    @Test
+    void ioErrorsAndServerErrorsAreFailures() {
+        assertEquals(true, CircuitBreakers.isFailure(0, new IOException()));
+        assertEquals(true, CircuitBreakers.isFailure(502, null));
+        assertEquals(false, CircuitBreakers.isFailure(200, null));
+        assertEquals(false, CircuitBreakers.isFailure(400, null));
+    }
+}
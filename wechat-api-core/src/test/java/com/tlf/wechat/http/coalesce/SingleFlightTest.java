@@ -0,0 +1,95 @@
+package com.tlf.wechat.http.coalesce;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class SingleFlightTest {
+
+    private static final String URL = "https://api.weixin.qq.com/test/single-flight?appid=wx1";
+
+    static {
+        SingleFlight.register("test.singleFlight", "/test/single-flight");
+    }
+
+
+    @Test
+    void concurrentCallsShareOneUpstreamCall() throws Exception {
+        AtomicInteger upstream = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(pool.submit(() -> SingleFlight.call(SingleFlight.key("GET", URL, null), URL, () -> {
+                    upstream.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "token";
+                })));
+            }
+            // 等所有调用都进入等待
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> call : calls) {
+                assertEquals("token", call.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, upstream.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+
+    @Test
+    void followersReceiveTheSameFailure() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        String key = SingleFlight.key("GET", URL, null, "failure");
+        CompletableFuture<String> first = SingleFlight.callAsync(key, URL, () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = SingleFlight.callAsync(key, URL, () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        upstream.completeExceptionally(new IOException("reset"));
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, first::get).getCause());
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, second::get).getCause());
+        assertEquals(1, calls.get());
+    }
+
+
+    @Test
+    void completedFlightIsNotCached() throws Exception {
+        AtomicInteger upstream = new AtomicInteger();
+        String key = SingleFlight.key("GET", URL, null, "sequential");
+        SingleFlight.call(key, URL, upstream::incrementAndGet);
+        SingleFlight.call(key, URL, upstream::incrementAndGet);
+        assertEquals(2, upstream.get());
+    }
+
+
+    @Test
+    void keysDifferByBodyAndVariant() {
+        assertNotEquals(SingleFlight.key("POST", URL, "{\"a\":1}"), SingleFlight.key("POST", URL, "{\"a\":2}"));
+        assertNotEquals(SingleFlight.key("GET", URL, null), SingleFlight.key("GET", URL, null, "verified"));
+        assertEquals(SingleFlight.key("get", URL, ""), SingleFlight.key("GET", URL, null));
+    }
+}
@@ -0,0 +1,157 @@
+package com.tlf.wechat.http.compress;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class CompressionTest {
+
+    private static final String BODY = repeat("{\"room_id\":1001,\"name\":\"直播间\",\"live_status\":101},", 200);
+
+    private static HttpServer server;
+    private static final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            if ("gzip".equals(acceptEncoding.get())) {
+                body = gzip(body);
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+
+    @Test
+    void decodesGzipResponseAndCountsBytes() throws IOException {
+        long wire = Compression.getWireBytes();
+        long decoded = Compression.getDecodedBytes();
+        try (CloseableHttpClient client = client();
+             CloseableHttpResponse response = client.execute(new HttpGet(url("/wxa/business/getliveinfo")))) {
+            assertEquals("gzip", acceptEncoding.get());
+            assertNull(response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+            assertNull(response.getFirstHeader(HttpHeaders.CONTENT_LENGTH));
+            assertEquals(BODY, EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+        }
+        long wireRead = Compression.getWireBytes() - wire;
+        long decodedRead = Compression.getDecodedBytes() - decoded;
+        assertEquals(BODY.getBytes(StandardCharsets.UTF_8).length, decodedRead);
+        assertTrue(wireRead > 0 && wireRead < decodedRead / 5, wireRead + " / " + decodedRead);
+    }
+
+
+    @Test
+    void disabledEndpointIsNotCompressed() throws IOException {
+        try (CloseableHttpClient client = client();
+             CloseableHttpResponse response = client.execute(new HttpGet(url("/cgi-bin/media/get?media_id=1")))) {
+            assertNull(acceptEncoding.get());
+            assertEquals(BODY, EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+        }
+    }
+
+
+    @Test
+    void endpointSwitchOverridesGlobal() {
+        Compression.register("/test/compress/off", false);
+        Compression.register("/test/compress/.*", true);
+        assertTrue(Compression.isEnabled("https://api.weixin.qq.com/test/compress/off?x=1"));
+        Compression.register("/test/compress/off", false);
+        assertFalse(Compression.isEnabled("https://api.weixin.qq.com/test/compress/off?x=1"));
+        assertFalse(Compression.isEnabled("/cgi-bin/media/get"));
+    }
+
+
+    @Test
+    void keepsCallerAcceptEncoding() {
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/cgi-bin/token");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+        Compression.prepare(request);
+        assertEquals(1, request.getHeaders(HttpHeaders.ACCEPT_ENCODING).length);
+        assertEquals("identity", request.getFirstHeader(HttpHeaders.ACCEPT_ENCODING).getValue());
+    }
+
+
+    @Test
+    void leavesPlainResponseUntouched() throws IOException {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        StringEntity entity = new StringEntity("{\"errcode\":0}", StandardCharsets.UTF_8);
+        response.setEntity(entity);
+        Compression.decode(response);
+        assertTrue(response.getEntity() == entity);
+
+        ByteArrayEntity gzipped = new ByteArrayEntity(gzip("{\"errcode\":0}".getBytes(StandardCharsets.UTF_8)));
+        gzipped.setContentEncoding("x-gzip");
+        response.setEntity(gzipped);
+        Compression.decode(response);
+        assertEquals("{\"errcode\":0}", EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+    }
+
+
+    private static CloseableHttpClient client() {
+        return HttpClients.custom()
+                .disableContentCompression()
+                .addInterceptorLast(Compression.REQUEST_INTERCEPTOR)
+                .addInterceptorLast(Compression.RESPONSE_INTERCEPTOR)
+                .build();
+    }
+
+    private static String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.tlf.wechat.http.concurrent;
+
+import com.tlf.wechat.http.schedule.Priority;
+import com.tlf.wechat.http.schedule.RequestScheduler;
+import com.tlf.wechat.http.timeout.Deadline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class FanOutTest {
+
+    private static final List<Integer> INPUTS = Arrays.asList(1, 2, 3, 4, 5, 6);
+
+
+    @Test
+    void runsInParallelAndKeepsInputOrder() {
+        long start = System.nanoTime();
+        // 先输入的调用更慢
+        List<String> results = FanOut.map(INPUTS, i -> {
+            sleep(200 - i * 20);
+            return "r" + i;
+        });
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(Arrays.asList("r1", "r2", "r3", "r4", "r5", "r6"), results);
+        assertTrue(elapsed < 600, elapsed + "ms");
+    }
+
+
+    @Test
+    void failedCallBecomesNull() {
+        List<String> results = FanOut.map(INPUTS, i -> {
+            if (i == 3) {
+                throw new IllegalStateException("errcode -1");
+            }
+            return "r" + i;
+        });
+        assertEquals(Arrays.asList("r1", "r2", null, "r4", "r5", "r6"), results);
+    }
+
+
+    @Test
+    void limitsParallelism() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Integer> results = FanOut.map(INPUTS, 2, i -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(30);
+            running.decrementAndGet();
+            return i;
+        });
+        assertEquals(INPUTS, results);
+        assertEquals(2, peak.get());
+    }
+
+
+    @Test
+    void stopsWaitingAtCallerDeadline() throws Exception {
+        AtomicInteger sawDeadline = new AtomicInteger();
+        long start = System.nanoTime();
+        List<String> results = Deadline.call(Deadline.after(150), () -> FanOut.map(INPUTS, i -> {
+            if (Deadline.current() != null) {
+                sawDeadline.incrementAndGet();
+            }
+            sleep(i % 2 == 0 ? 2000 : 10);
+            return "r" + i;
+        }));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(Arrays.asList("r1", null, "r3", null, "r5", null), results);
+        assertEquals(6, sawDeadline.get());
+        assertTrue(elapsed < 1000, elapsed + "ms");
+    }
+
+
+    @Test
+    void carriesCallerPriority() throws Exception {
+        List<Priority> priorities = RequestScheduler.call(Priority.BATCH,
+                () -> FanOut.map(INPUTS, i -> RequestScheduler.classify("https://api.weixin.qq.com/sns/jscode2session")));
+        for (Priority priority : priorities) {
+            assertEquals(Priority.BATCH, priority);
+        }
+    }
+
+
+    /**
+     * Java 21+ 开启虚拟线程后每个调用在虚拟线程中执行；低于 Java 21 时开启无效，仍在平台线程中执行。
+     * 在 JDK 21 上运行：mvn test -Ptest-jdk21
+     */
+    @Test
+    void runsOnVirtualThreadsWhenEnabled() {
+        boolean java21 = JRE.currentVersion().compareTo(JRE.JAVA_21) >= 0;
+        assertEquals(java21, WeChatExecutors.isVirtualThreadsAvailable());
+        WeChatExecutors.setVirtualThreads(true);
+        try {
+            assertEquals(java21, WeChatExecutors.isVirtualThreads());
+            List<Boolean> virtual = FanOut.map(INPUTS, i -> isVirtual(Thread.currentThread()));
+            assertEquals(Arrays.asList(java21, java21, java21, java21, java21, java21), virtual);
+            assertEquals(java21, isVirtual(WeChatExecutors.threadFactory("wechat-test").newThread(() -> {
+            })));
+        } finally {
+            WeChatExecutors.setVirtualThreads(false);
+        }
+        assertFalse(FanOut.map(INPUTS, i -> isVirtual(Thread.currentThread())).contains(true));
+    }
+
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.tlf.wechat.http.failover;
+
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class DomainRouterTest {
+
+    private static final String PRIMARY = "https://api.example.com";
+    private static final String BACKUP = "https://api2.example.com";
+    private static final String URL = PRIMARY + "/v3/pay/transactions/id/1?mchid=1";
+
+    private static DomainRouter router(long probeInterval) {
+        FailoverConfig config = new FailoverConfig();
+        config.setFailureThreshold(3);
+        config.setSlowThreshold(1000);
+        config.setSlowWindow(5);
+        config.setProbeInterval(probeInterval);
+        return new DomainRouter(PRIMARY, BACKUP, config);
+    }
+
+    private static void connectFailures(DomainRouter router, String url, int times) {
+        for (int i = 0; i < times; i++) {
+            router.complete(url, 0, new ConnectException("Connection refused"));
+        }
+    }
+
+
+    @Test
+    void failsOverAfterConsecutiveConnectFailures() {
+        DomainRouter router = router(60000);
+        connectFailures(router, URL, 2);
+        assertFalse(router.isFailedOver());
+        assertEquals(URL, router.route(URL));
+
+        router.complete(URL, 0, new CompletionException(new ConnectException("Connection refused")));
+        assertTrue(router.isFailedOver());
+        assertEquals(1, router.getFailovers());
+        assertEquals(BACKUP + "/v3/pay/transactions/id/1?mchid=1", router.route(URL));
+        // 其他域名不改写
+        assertEquals("https://api.example.community/x", router.route("https://api.example.community/x"));
+    }
+
+
+    @Test
+    void responseResetsConsecutiveFailures() {
+        DomainRouter router = router(60000);
+        connectFailures(router, URL, 2);
+        router.complete(URL, 1000000, null);
+        connectFailures(router, URL, 2);
+        assertFalse(router.isFailedOver());
+    }
+
+
+    @Test
+    void failsOverWhenPrimaryIsSlow() {
+        DomainRouter router = router(60000);
+        for (int i = 0; i < 5; i++) {
+            router.complete(URL, 3000 * 1000000L, null);
+        }
+        assertTrue(router.isFailedOver());
+    }
+
+
+    @Test
+    void probeRecoversPrimary() throws InterruptedException {
+        DomainRouter router = router(50);
+        connectFailures(router, URL, 3);
+        assertTrue(router.isFailedOver());
+
+        Thread.sleep(80);
+        // 只放一个请求试探主域名
+        String probe = router.route(URL);
+        assertEquals(URL, probe);
+        assertTrue(router.route(URL).startsWith(BACKUP));
+
+        router.complete(probe, 1000000, null);
+        assertFalse(router.isFailedOver());
+        assertEquals(URL, router.route(URL));
+    }
+
+
+    @Test
+    void failedProbeWaitsForNextInterval() throws InterruptedException {
+        DomainRouter router = router(50);
+        connectFailures(router, URL, 3);
+        Thread.sleep(80);
+        String probe = router.route(URL);
+        assertEquals(URL, probe);
+
+        router.complete(probe, 0, new ConnectException("Connection refused"));
+        assertTrue(router.isFailedOver());
+        assertTrue(router.route(URL).startsWith(BACKUP));
+    }
+
+
+    @Test
+    void cancellationsDoNotAffectHealthOrProbe() throws InterruptedException {
+        DomainRouter router = router(50);
+        for (int i = 0; i < 5; i++) {
+            router.complete(URL, 0, new CancellationException());
+            router.complete(URL, 0, new RequestAbortedException("Request aborted"));
+        }
+        assertFalse(router.isFailedOver());
+
+        connectFailures(router, URL, 3);
+        Thread.sleep(80);
+        String probe = router.route(URL);
+        assertEquals(URL, probe);
+
+        // 试探请求被取消：不算试探失败，下一个请求接着试探
+        router.complete(probe, 0, new CompletionException(new CancellationException()));
+        assertTrue(router.isFailedOver());
+        String next = router.route(URL);
+        assertEquals(URL, next);
+        router.complete(next, 1000000, null);
+        assertFalse(router.isFailedOver());
+    }
+
+
+    @Test
+    void backupFailuresSwitchBackToPrimary() {
+        DomainRouter router = router(60000);
+        connectFailures(router, URL, 3);
+        String backup = router.route(URL);
+        assertTrue(backup.startsWith(BACKUP));
+
+        connectFailures(router, backup, 3);
+        assertFalse(router.isFailedOver());
+        // 两个域名都不可用，probeInterval 内不再切换
+        connectFailures(router, URL, 3);
+        assertFalse(router.isFailedOver());
+    }
+}
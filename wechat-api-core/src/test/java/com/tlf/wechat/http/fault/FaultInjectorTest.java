@@ -0,0 +1,149 @@
+package com.tlf.wechat.http.fault;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class FaultInjectorTest {
+
+    @BeforeEach
+    void enable() {
+        FaultInjector.clear();
+        FaultInjector.setEnabled(true);
+    }
+
+    @AfterEach
+    void disable() {
+        FaultInjector.setEnabled(false);
+        FaultInjector.clear();
+    }
+
+    private static HttpGet get(String url, int socketTimeout) {
+        HttpGet get = new HttpGet(url);
+        get.setConfig(RequestConfig.custom().setSocketTimeout(socketTimeout).build());
+        return get;
+    }
+
+
+    @Test
+    void disabledInjectorDoesNothing() throws IOException {
+        FaultInjector.add(FaultRule.connectionReset("reset", null, 1));
+        FaultInjector.setEnabled(false);
+        assertNull(FaultInjector.inject(get("https://api.weixin.qq.com/cgi-bin/token", 1000)));
+    }
+
+
+    @Test
+    void injectsErrcodeResponse() throws IOException {
+        FaultInjector.add(FaultRule.errcode("busy", "/cgi-bin/token", 1, -1, "system error"));
+        try (CloseableHttpResponse response = FaultInjector.inject(get("https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential", 1000))) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals("busy", response.getFirstHeader(InjectedResponse.HEADER).getValue());
+            assertEquals("{\"errcode\":-1,\"errmsg\":\"system error\"}", EntityUtils.toString(response.getEntity()));
+        }
+        assertNull(FaultInjector.inject(get("https://api.weixin.qq.com/sns/jscode2session", 1000)));
+        assertEquals(1, FaultInjector.getRules().get(0).getInjectedCount());
+    }
+
+
+    @Test
+    void matchesHostAndProbability() throws IOException {
+        FaultInjector.add(FaultRule.connectionReset("pay-reset", null, 1).host("api.mch.weixin.qq.com"));
+        FaultInjector.add(FaultRule.connectionReset("never", null, 0));
+        assertNull(FaultInjector.inject(get("https://api.weixin.qq.com/cgi-bin/token", 1000)));
+        assertThrows(SocketException.class, () -> FaultInjector.inject(get("https://api.mch.weixin.qq.com/v3/certificates", 1000)));
+        assertEquals(0, FaultInjector.getRules().get(1).getInjectedCount());
+    }
+
+
+    @Test
+    void latencyBeyondSocketTimeoutBecomesTimeout() {
+        FaultInjector.add(FaultRule.latency("slow", null, 1, LatencyDistribution.fixed(5000)));
+        long start = System.nanoTime();
+        assertThrows(SocketTimeoutException.class, () -> FaultInjector.inject(get("https://api.weixin.qq.com/cgi-bin/token", 50)));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 50 && elapsed < 1000, elapsed + "ms");
+    }
+
+
+    @Test
+    void latenciesAddUpBeforeTerminalFault() throws IOException {
+        FaultInjector.add(FaultRule.latency("a", null, 1, LatencyDistribution.fixed(20)));
+        FaultInjector.add(FaultRule.latency("b", null, 1, LatencyDistribution.fixed(20)));
+        long start = System.nanoTime();
+        assertNull(FaultInjector.inject(get("https://api.weixin.qq.com/cgi-bin/token", 1000)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+
+        FaultInjector.add(FaultRule.response("unavailable", null, 1, 503, null));
+        try (CloseableHttpResponse response = FaultInjector.inject(get("https://api.weixin.qq.com/cgi-bin/token", 1000))) {
+            assertEquals(503, response.getStatusLine().getStatusCode());
+            assertNull(response.getEntity());
+        }
+    }
+
+
+    @Test
+    void asyncFaultSkipsSendAndDoesNotBlockCaller() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<HttpResponse> real = new CompletableFuture<>();
+        FaultInjector.add(FaultRule.latency("slow", null, 1, LatencyDistribution.fixed(100)));
+        FaultInjector.add(FaultRule.connectionReset("reset", "/cgi-bin/token", 1));
+
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse> reset = FaultInjector.executeAsync(get("https://api.weixin.qq.com/cgi-bin/token", 1000), () -> {
+            sent.incrementAndGet();
+            return real;
+        });
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> reset.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(SocketException.class, e.getCause());
+        assertEquals(0, sent.get());
+
+        // 只有延迟时到时间后照常发送
+        CompletableFuture<HttpResponse> delayed = FaultInjector.executeAsync(get("https://api.weixin.qq.com/sns/jscode2session", 1000), () -> {
+            sent.incrementAndGet();
+            return real;
+        });
+        assertFalse(delayed.isDone());
+        HttpResponse response = new InjectedResponse(FaultRule.response("ok", null, 1, 200, null));
+        real.complete(response);
+        assertSame(response, delayed.get(1, TimeUnit.SECONDS));
+        assertEquals(1, sent.get());
+    }
+
+
+    @Test
+    void cancellingDelayedAsyncRequestSkipsSend() throws InterruptedException {
+        AtomicInteger sent = new AtomicInteger();
+        FaultInjector.add(FaultRule.latency("slow", null, 1, LatencyDistribution.fixed(50)));
+        CompletableFuture<HttpResponse> future = FaultInjector.executeAsync(get("https://api.weixin.qq.com/cgi-bin/token", 1000), () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        future.cancel(false);
+        Thread.sleep(150);
+        assertEquals(0, sent.get());
+    }
+}
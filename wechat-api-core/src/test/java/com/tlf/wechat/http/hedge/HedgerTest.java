@@ -0,0 +1,152 @@
+package com.tlf.wechat.http.hedge;
+
+import com.sun.net.httpserver.HttpServer;
+import com.tlf.wechat.http.timeout.TimeoutHttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class HedgerTest {
+
+    private static final ScheduledExecutorService SERVER = Executors.newScheduledThreadPool(4);
+
+    static {
+        Hedger.register("test.bimodal", "/test/bimodal");
+        Hedger.register("test.blocking", "/test/blocking");
+    }
+
+    @BeforeAll
+    static void enable() {
+        HedgePolicy policy = new HedgePolicy();
+        policy.setEnabled(true);
+        policy.setPercentile(0.9);
+        policy.setInitialDelay(10);
+        policy.setMinDelay(1);
+        policy.setMaxDelay(1000);
+        policy.setMinSamples(20);
+        // 测试延迟分布，不限制对冲次数
+        policy.setBudgetRatio(1);
+        policy.setMinHedgesPerSecond(1000);
+        Hedger.setPolicy(policy);
+    }
+
+    @AfterAll
+    static void disable() {
+        Hedger.setPolicy(new HedgePolicy());
+        SERVER.shutdownNow();
+    }
+
+
+    /**
+     * 80% 的请求 10ms、20% 的请求 80ms，p90 落在慢请求上；
+     * 只记录先返回的请求时，慢请求被对冲赢下后不留样本，对冲延迟会塌到 10ms 附近
+     */
+    @Test
+    void delayConvergesOnSlowModeOfBimodalLatency() {
+        HedgeEndpoint endpoint = endpoint("test.bimodal");
+        for (int wave = 0; wave < 40 && endpoint.getPercentileMillis() < 60; wave++) {
+            List<CompletableFuture<String>> calls = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                calls.add(Hedger.callAsync("https://example.com/test/bimodal", HedgerTest::bimodal));
+            }
+            CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+        }
+        assertTrue(endpoint.getPercentileMillis() >= 60, "p90 " + endpoint.getPercentileMillis() + "ms");
+        assertTrue(endpoint.getPercentileMillis() <= 120, "p90 " + endpoint.getPercentileMillis() + "ms");
+        assertTrue(endpoint.getHedges() < endpoint.getRequests() / 2, endpoint.getHedges() + " / " + endpoint.getRequests());
+    }
+
+
+    private static CompletableFuture<String> bimodal() {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        long millis = ThreadLocalRandom.current().nextDouble() < 0.8 ? 10 : 80;
+        SERVER.schedule(() -> response.complete("ok"), millis, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+
+    /**
+     * 同步对冲：先返回的请求胜出，落后的阻塞请求被中止，不再占用连接和线程
+     */
+    @Test
+    void losingBlockingRequestIsAborted() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch released = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/test/blocking", exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                // 第一次请求一直不返回，直到测试结束
+                try {
+                    released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException ignored) {
+            }
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/test/blocking";
+
+        AtomicInteger aborted = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(2);
+        try (CloseableHttpClient client = new TimeoutHttpClient(HttpClients.createDefault())) {
+            long start = System.nanoTime();
+            String body = Hedger.call(url, () -> {
+                try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+                    return EntityUtils.toString(response.getEntity());
+                } catch (IOException e) {
+                    aborted.incrementAndGet();
+                    throw e;
+                } finally {
+                    finished.countDown();
+                }
+            });
+            assertEquals("ok", body);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            // 落后的请求在服务端返回之前就结束了
+            assertTrue(finished.await(2, TimeUnit.SECONDS));
+            assertEquals(1, aborted.get());
+        } finally {
+            released.countDown();
+            server.stop(0);
+        }
+    }
+
+
+    private static HedgeEndpoint endpoint(String name) {
+        for (HedgeEndpoint endpoint : Hedger.getEndpoints()) {
+            if (endpoint.getName().equals(name)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException(name);
+    }
+}
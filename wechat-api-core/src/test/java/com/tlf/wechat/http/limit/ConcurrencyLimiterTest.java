@@ -0,0 +1,144 @@
+package com.tlf.wechat.http.limit;
+
+import com.tlf.wechat.http.concurrent.CancelScope;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class ConcurrencyLimiterTest {
+
+    private static LimiterConfig config(int initialLimit) {
+        LimiterConfig config = new LimiterConfig();
+        config.setInitialLimit(initialLimit);
+        config.setMinLimit(2);
+        config.setMaxLimit(50);
+        config.setMaxQueueSize(2);
+        config.setQueueTimeout(100);
+        config.setBackoffRatio(0.5);
+        return config;
+    }
+
+
+    @Test
+    void backsOffOn429And503() throws LimitExceededException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", config(20));
+        ConcurrencyLimiters.complete(limiter.acquire(), 429, null);
+        assertEquals(10, limiter.getLimit());
+        ConcurrencyLimiters.complete(limiter.acquire(), 503, null);
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+
+    @Test
+    void backsOffOnNetworkErrorsDownToMinLimit() throws LimitExceededException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", config(20));
+        for (int i = 0; i < 10; i++) {
+            ConcurrencyLimiters.complete(limiter.acquire(), 0, new SocketTimeoutException("Read timed out"));
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+
+    @Test
+    void cancellationsDoNotBackOff() throws LimitExceededException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", config(20));
+        ConcurrencyLimiters.complete(limiter.acquire(), 0, new CancellationException());
+
+        // 被中止（对冲落后、截止时间）的请求经 CancelScope.outcome 按取消处理
+        HttpGet request = new HttpGet("https://api.weixin.qq.com/cgi-bin/token");
+        request.abort();
+        ConcurrencyLimiters.complete(limiter.acquire(), 0, CancelScope.outcome(request, new RequestAbortedException("Request aborted")));
+
+        assertEquals(20, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+
+    @Test
+    void stableLatencyUnderLoadRaisesLimit() throws LimitExceededException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", config(10));
+        for (int round = 0; round < 5; round++) {
+            List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                permits.add(limiter.acquire());
+            }
+            for (ConcurrencyLimiter.Permit permit : permits) {
+                ConcurrencyLimiters.complete(permit, 200, null);
+            }
+        }
+        assertTrue(limiter.getLimit() > 10, "limit " + limiter.getLimit());
+    }
+
+
+    @Test
+    void queuedRequestGetsReleasedPermit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", config(2));
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> waiting = limiter.acquireAsync();
+        assertFalse(waiting.isDone());
+        assertEquals(1, limiter.getQueueDepth());
+
+        first.success();
+        assertTrue(waiting.get(1, TimeUnit.SECONDS) != null);
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+
+    @Test
+    void rejectsWhenQueueIsFullOrWaitTimesOut() throws LimitExceededException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", config(2));
+        limiter.acquire();
+        limiter.acquire();
+        List<CompletableFuture<ConcurrencyLimiter.Permit>> queued = new ArrayList<>();
+        queued.add(limiter.acquireAsync());
+        queued.add(limiter.acquireAsync());
+        assertThrows(LimitExceededException.class, limiter::acquire);
+
+        for (CompletableFuture<ConcurrencyLimiter.Permit> timedOut : queued) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> timedOut.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(LimitExceededException.class, e.getCause());
+        }
+        assertEquals(3, limiter.getRejectedCount());
+    }
+
+
+    @Test
+    void cancelledWaiterReturnsPermit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", config(2));
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+        limiter.acquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> waiting = limiter.acquireAsync();
+        limiter.cancel(waiting);
+        assertEquals(0, limiter.getQueueDepth());
+
+        first.ignore();
+        assertEquals(1, limiter.getInFlight());
+    }
+
+
+    @Test
+    void familyGroupsByFirstSegment() {
+        assertEquals("/cgi-bin", ConcurrencyLimiters.family("/cgi-bin/token"));
+        assertEquals("/v3/pay", ConcurrencyLimiters.family("/v3/pay/transactions/jsapi"));
+        assertEquals("/", ConcurrencyLimiters.family(null));
+        assertEquals("/sns", ConcurrencyLimiters.family("/sns"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.tlf.wechat.http.log;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class WireLogTest {
+
+    @AfterEach
+    void reset() {
+        WireLog.setConfig(new WireLogConfig());
+    }
+
+
+    @Test
+    void masksNestedJsonFields() {
+        String body = "{\"errcode\":0,\"session_key\":\"s3cr3t\",\"phone_info\":{\"phoneNumber\":\"13800138000\",\"countryCode\":\"86\"},"
+                + "\"resource\":{\"algorithm\":\"AEAD_AES_256_GCM\",\"ciphertext\":\"Zm9v\\\"YmFy\",\"associated_data\":\"transaction\"}}";
+        String masked = WireLog.mask(body);
+        assertEquals("{\"errcode\":0,\"session_key\":\"***\",\"phone_info\":{\"phoneNumber\":\"***\",\"countryCode\":\"86\"},"
+                + "\"resource\":{\"algorithm\":\"AEAD_AES_256_GCM\",\"ciphertext\":\"***\",\"associated_data\":\"***\"}}", masked);
+    }
+
+
+    @Test
+    void masksQueryParameters() {
+        String url = "https://api.weixin.qq.com/sns/oauth2/access_token?appid=wx1&secret=abc&code=081xyz&grant_type=authorization_code";
+        assertEquals("https://api.weixin.qq.com/sns/oauth2/access_token?appid=wx1&secret=***&code=***&grant_type=authorization_code",
+                WireLog.mask(url));
+        assertEquals("https://api.weixin.qq.com/sns/jscode2session?appid=wx1&js_code=***",
+                WireLog.mask("https://api.weixin.qq.com/sns/jscode2session?appid=wx1&js_code=0a1b"));
+        assertEquals("https://api.weixin.qq.com/cgi-bin/user/info?ACCESS_TOKEN=***&openid=o1",
+                WireLog.mask("https://api.weixin.qq.com/cgi-bin/user/info?ACCESS_TOKEN=t0k3n&openid=o1"));
+    }
+
+
+    @Test
+    void keepsPayErrorCodeVisible() {
+        String body = "{\"code\":\"ORDER_NOT_EXIST\",\"message\":\"订单不存在\"}";
+        assertEquals(body, WireLog.mask(body));
+    }
+
+
+    @Test
+    void masksConfiguredFieldsOnly() {
+        WireLogConfig config = new WireLogConfig();
+        config.setMaskedFields(Arrays.asList("openid"));
+        config.setMaskedQueryParams(Collections.<String>emptyList());
+        WireLog.setConfig(config);
+        String masked = WireLog.mask("{\"openid\":\"o1\",\"session_key\":\"k\"}?openid=o1&code=c");
+        assertFalse(masked.contains("o1"));
+        assertTrue(masked.contains("\"session_key\":\"k\""));
+        assertTrue(masked.endsWith("&code=c"));
+    }
+
+
+    @Test
+    void nothingConfiguredLeavesTextUntouched() {
+        WireLogConfig config = new WireLogConfig();
+        config.setMaskedFields(Collections.<String>emptyList());
+        config.setMaskedQueryParams(null);
+        WireLog.setConfig(config);
+        assertEquals("?secret=abc", WireLog.mask("?secret=abc"));
+    }
+}
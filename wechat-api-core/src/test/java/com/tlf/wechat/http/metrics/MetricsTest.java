@@ -0,0 +1,103 @@
+package com.tlf.wechat.http.metrics;
+
+import com.alibaba.fastjson.JSON;
+import com.tlf.wechat.http.response.WeChatResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class MetricsTest {
+
+    @AfterEach
+    void reset() {
+        Metrics.setRecorder(null);
+    }
+
+
+    @Test
+    void histogramPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500, histogram.getMean());
+        assertEquals(1_000_000, histogram.getMax());
+        assertWithin(500_000, histogram.percentile(0.5), 0.035);
+        assertWithin(990_000, histogram.percentile(0.99), 0.035);
+        assertEquals(1_000_000, histogram.percentile(1));
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(0));
+    }
+
+    private static void assertWithin(long expected, long actual, double error) {
+        assertTrue(Math.abs(actual - expected) <= expected * error, "expected ~" + expected + " but was " + actual);
+    }
+
+
+    @Test
+    void disabledByDefault() {
+        assertFalse(Metrics.isEnabled());
+        assertSame(NoopMetricsRecorder.ENDPOINT, Metrics.endpoint("api.weixin.qq.com", "/cgi-bin/token"));
+    }
+
+
+    @Test
+    void endpointsGroupPathParameters() {
+        SimpleMetricsRecorder recorder = new SimpleMetricsRecorder();
+        Metrics.setRecorder(recorder);
+        assertTrue(Metrics.isEnabled());
+
+        EndpointMetrics first = Metrics.endpoint("api.mch.weixin.qq.com", "/v3/pay/transactions/out-trade-no/A001");
+        EndpointMetrics second = Metrics.endpoint("api.mch.weixin.qq.com", "/v3/pay/transactions/out-trade-no/A002");
+        assertSame(first, second);
+        first.started();
+        first.completed(200, TimeUnit.MILLISECONDS.toNanos(30));
+        second.started();
+        second.completed(0, TimeUnit.MILLISECONDS.toNanos(5));
+
+        SimpleMetricsRecorder.EndpointStats stats = recorder.getEndpoints().get("api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{id}");
+        assertEquals(0, stats.getInFlight());
+        assertEquals(1, stats.getStatusCount(200));
+        assertEquals(1, stats.getStatusCount(0));
+        assertEquals(2, stats.getLatency().getCount());
+    }
+
+
+    @Test
+    void countsErrcodesOnlyForFailures() {
+        SimpleMetricsRecorder recorder = new SimpleMetricsRecorder();
+        Metrics.setRecorder(recorder);
+        String url = "https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential";
+        Metrics.exchange(url, new WeChatResponse(200, JSON.parseObject("{\"errcode\":0}")));
+        Metrics.exchange(url, new WeChatResponse(200, JSON.parseObject("{\"errcode\":40001}")));
+        Metrics.exchange(url, new WeChatResponse(200, JSON.parseObject("{\"errcode\":40001}")));
+        Metrics.exchange("https://api.mch.weixin.qq.com/v3/pay/transactions/id/4200001",
+                new WeChatResponse(404, JSON.parseObject("{\"code\":\"ORDER_NOT_EXIST\"}")));
+
+        assertEquals(2L, recorder.getEndpoints().get("api.weixin.qq.com/cgi-bin/token").getErrcodeCounts().get("40001"));
+        assertEquals(1L, recorder.getEndpoints().get("api.mch.weixin.qq.com/v3/pay/transactions/id/{id}").getErrcodeCounts().get("ORDER_NOT_EXIST"));
+    }
+
+
+    @Test
+    void recordsOperations() {
+        SimpleMetricsRecorder recorder = new SimpleMetricsRecorder();
+        Metrics.setRecorder(recorder);
+        long start = System.nanoTime();
+        Metrics.record(Metrics.Operation.PAY_SIGN, start, true);
+        Metrics.record(Metrics.Operation.PAY_SIGN, start, false);
+        SimpleMetricsRecorder.OperationStats sign = recorder.getOperations().get("pay.sign");
+        assertEquals(2, sign.getCount());
+        assertEquals(1, sign.getFailureCount());
+        assertEquals(0, recorder.getOperations().get("pay.verify").getCount());
+    }
+}
@@ -0,0 +1,134 @@
+package com.tlf.wechat.http.replay;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class ReplayTest {
+
+    private static final String TOKEN_BODY = "{\"access_token\":\"REAL_TOKEN\",\"expires_in\":7200}";
+    private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2, (byte) 0xff};
+
+    @TempDir
+    File dir;
+
+
+    @Test
+    void recordsMaskedExchangesAndReplaysThem() throws IOException {
+        File file = new File(dir, "wechat.jsonl.gz");
+        ReplayConfig config = new ReplayConfig();
+        config.setLatencyScale(0);
+
+        Recorder.start(file, config);
+        HttpResponse token = json(200, TOKEN_BODY);
+        Recorder.record(new HttpGet("https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential&appid=wx1&secret=S1"), token, System.nanoTime());
+        // 录制后调用方照常读取响应体
+        assertEquals(TOKEN_BODY, EntityUtils.toString(token.getEntity()));
+        Recorder.record(order("ORDER-1", "nonce-1"), json(200, "{\"prepay_id\":\"wx201410272009395522657a690389285100\"}"), System.nanoTime());
+        HttpResponse image = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        image.addHeader("Content-Type", "image/png");
+        image.setEntity(new ByteArrayEntity(IMAGE, ContentType.IMAGE_PNG));
+        Recorder.record(new HttpGet("https://api.weixin.qq.com/cgi-bin/media/get?media_id=M1"), image, System.nanoTime());
+        assertEquals(3, Recorder.getRecordedCount());
+        Recorder.stop();
+        assertFalse(Recorder.isRecording());
+
+        Cassette cassette = Cassette.load(file);
+        assertEquals(3, cassette.size());
+        RecordedExchange recorded = cassette.getExchanges().get(0);
+        assertFalse(recorded.getBody().contains("REAL_TOKEN"));
+        assertFalse(recorded.getQuery().contains("S1"));
+
+        ReplayTransport transport = new ReplayTransport(cassette, config);
+        // 订单号、随机串不同也能匹配
+        try (CloseableHttpResponse response = transport.execute(order("ORDER-2", "nonce-2"))) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertTrue(EntityUtils.toString(response.getEntity()).contains("prepay_id"));
+        }
+        try (CloseableHttpResponse response = transport.execute(new HttpGet("https://api.weixin.qq.com/cgi-bin/media/get?media_id=M1"))) {
+            assertEquals("image/png", response.getEntity().getContentType().getValue());
+            assertArrayEquals(IMAGE, EntityUtils.toByteArray(response.getEntity()));
+        }
+        assertEquals(2, transport.getHitCount());
+    }
+
+
+    @Test
+    void missesWhenNothingMatches() {
+        ReplayConfig config = new ReplayConfig();
+        config.setMatchPathOnly(false);
+        ReplayTransport transport = new ReplayTransport(new Cassette(Collections.singletonList(exchange("/cgi-bin/token", "grant_type=client_credential", 0))), config);
+        assertThrows(ReplayMissException.class, () -> transport.execute(new HttpGet("https://api.weixin.qq.com/cgi-bin/token?grant_type=other")));
+        assertThrows(ReplayMissException.class, () -> transport.execute(new HttpGet("https://api.weixin.qq.com/sns/jscode2session")));
+        assertEquals(2, transport.getMissCount());
+
+        // 按路径退而匹配
+        config.setMatchPathOnly(true);
+        ReplayTransport fallback = new ReplayTransport(transport.getCassette(), config);
+        assertTrue(fallback.executeAsync(new HttpGet("https://api.weixin.qq.com/cgi-bin/token?grant_type=other")).isDone());
+    }
+
+
+    @Test
+    void asyncReplayWaitsScaledLatencyWithoutBlocking() throws Exception {
+        ReplayConfig config = new ReplayConfig();
+        config.setLatencyScale(0.5);
+        ReplayTransport transport = new ReplayTransport(new Cassette(Collections.singletonList(exchange("/cgi-bin/token", "", 200))), config);
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse> future = transport.executeAsync(new HttpGet("https://api.weixin.qq.com/cgi-bin/token"));
+        assertFalse(future.isDone());
+        assertEquals(200, future.get(1, TimeUnit.SECONDS).getStatusLine().getStatusCode());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 100 && elapsed < 1000, elapsed + "ms");
+    }
+
+
+    private static HttpPost order(String outTradeNo, String nonce) {
+        HttpPost post = new HttpPost("https://api.mch.weixin.qq.com/v3/pay/transactions/jsapi");
+        post.setEntity(new StringEntity("{\"out_trade_no\":\"" + outTradeNo + "\",\"nonce_str\":\"" + nonce + "\",\"amount\":{\"total\":1}}",
+                ContentType.APPLICATION_JSON));
+        return post;
+    }
+
+    private static HttpResponse json(int status, String body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+        response.addHeader("Content-Type", ContentType.APPLICATION_JSON.toString());
+        response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    private static RecordedExchange exchange(String path, String query, long latency) {
+        RecordedExchange exchange = new RecordedExchange();
+        exchange.setMethod("GET");
+        exchange.setHost("api.weixin.qq.com");
+        exchange.setPath(path);
+        exchange.setQuery(query);
+        exchange.setRequestBody("");
+        exchange.setStatus(200);
+        exchange.setBody(TOKEN_BODY);
+        exchange.setLatency(latency);
+        return exchange;
+    }
+}
@@ -0,0 +1,117 @@
+package com.tlf.wechat.http.response;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class JsonFieldHandlerTest {
+
+    private static HttpResponse response(int statusCode, String body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "");
+        response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    /**
+     * 长度未知（chunked）的响应体
+     */
+    private static HttpResponse chunked(String body) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new InputStreamEntity(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), -1, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+
+    @Test
+    void readsOnlyRequestedFields() throws IOException {
+        String body = "{\"room_info\":[{\"roomid\":1,\"goods\":[{\"name\":\"a\"}]}],\"total\":1,"
+                + "\"access_token\":\"ACCESS_TOKEN\",\"expires_in\":7200,\"errcode\":0,\"errmsg\":\"ok\"}";
+        WeChatResponse response = new JsonFieldHandler(1024, "access_token", "expires_in").handleResponse(response(200, body));
+        assertTrue(response.isSuccess());
+        assertEquals("ACCESS_TOKEN", response.getString("access_token"));
+        assertEquals(7200, response.getData().getIntValue("expires_in"));
+        assertFalse(response.getData().containsKey("room_info"));
+        assertFalse(response.getData().containsKey("total"));
+    }
+
+
+    @Test
+    void copiesRequestedObjectFields() throws IOException {
+        String body = "{\"skip\":{\"a\":[1,2,{\"b\":3}]},\"watermark\":{\"appid\":\"wx1\",\"timestamp\":1}}";
+        WeChatResponse response = new JsonFieldHandler(1024, "watermark").handleResponse(chunked(body));
+        assertEquals("wx1", response.getJSONObject("watermark").getString("appid"));
+        assertFalse(response.getData().containsKey("skip"));
+    }
+
+
+    @Test
+    void exposesWeChatAndPayErrorCodes() throws IOException {
+        WeChatResponse wechat = new JsonFieldHandler(1024).handleResponse(response(200, "{\"errcode\":40001,\"errmsg\":\"invalid credential\"}"));
+        assertFalse(wechat.isSuccess());
+        assertEquals("40001", wechat.getErrorCode());
+        assertEquals("invalid credential", wechat.getErrmsg());
+
+        WeChatResponse pay = new JsonFieldHandler(1024).handleResponse(response(404, "{\"code\":\"ORDER_NOT_EXIST\",\"message\":\"订单不存在\"}"));
+        assertFalse(pay.isSuccess());
+        assertEquals("ORDER_NOT_EXIST", pay.getErrorCode());
+        assertEquals("订单不存在", pay.getErrmsg());
+    }
+
+
+    @Test
+    void gatewayErrorPageKeepsStatusCode() throws IOException {
+        WeChatResponse response = new JsonFieldHandler(1024).handleResponse(response(502, "<html>Bad Gateway</html>"));
+        assertEquals(502, response.getStatusCode());
+        assertFalse(response.isSuccess());
+        assertNull(response.getErrorCode());
+    }
+
+
+    @Test
+    void rejectsOversizedBodies() {
+        String body = "{\"errcode\":0,\"data\":\"" + repeat('x', 2048) + "\"}";
+        // 声明了长度的在读取前拒绝，chunked 的在读取超过上限时拒绝
+        assertThrows(BodyTooLargeException.class, () -> new JsonFieldHandler(1024).handleResponse(response(200, body)));
+        assertThrows(BodyTooLargeException.class, () -> new JsonFieldHandler(1024).handleResponse(chunked(body)));
+    }
+
+
+    @Test
+    void readStringHonoursLimitAndCharset() throws IOException {
+        String body = "{\"nickname\":\"微信用户\"}";
+        assertEquals(body, ResponseBodies.readString(chunked(body).getEntity(), 1024));
+        assertEquals(body, ResponseBodies.readString(response(200, body).getEntity(), 1024));
+        assertThrows(BodyTooLargeException.class, () -> ResponseBodies.readString(chunked(repeat('x', 2048)).getEntity(), 1024));
+        assertEquals("", ResponseBodies.readString(chunked("").getEntity(), 1024));
+    }
+
+
+    @Test
+    void stringHandlerReturnsNullForNon200() throws IOException {
+        assertNull(new BoundedStringHandler(1024).handleResponse(response(500, "error")));
+        assertEquals("ok", new BoundedStringHandler(1024).handleResponse(response(200, "ok")));
+    }
+
+
+    private static String repeat(char c, int times) {
+        char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
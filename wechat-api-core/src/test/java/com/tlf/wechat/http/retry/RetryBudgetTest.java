@@ -0,0 +1,48 @@
+package com.tlf.wechat.http.retry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class RetryBudgetTest {
+
+    @Test
+    void requestsRefillTheBudget() {
+        // 不按时间补充，桶容量 1
+        RetryBudget budget = new RetryBudget(0.5, 0);
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+        budget.onRequest();
+        // 半个令牌不够一次重试
+        assertFalse(budget.tryRetry());
+        budget.onRequest();
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+    }
+
+
+    @Test
+    void tokensAreCappedAtCapacity() {
+        RetryBudget budget = new RetryBudget(1, 0);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+    }
+
+
+    @Test
+    void minimumRateRefillsOverTime() throws InterruptedException {
+        RetryBudget budget = new RetryBudget(0, 20);
+        while (budget.tryRetry()) {
+            // 取完初始的 10 秒额度
+        }
+        Thread.sleep(200);
+        // 200ms 补充约 4 个
+        assertTrue(budget.tryRetry());
+        assertTrue(budget.tryRetry());
+    }
+}
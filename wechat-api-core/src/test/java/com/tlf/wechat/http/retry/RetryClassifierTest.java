@@ -0,0 +1,44 @@
+package com.tlf.wechat.http.retry;
+
+import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.http.response.WeChatResponse;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class RetryClassifierTest {
+
+    @Test
+    void idempotentPostsAreRecognised() {
+        assertTrue(RetryClassifier.isIdempotent("GET", "https://api.mch.weixin.qq.com/v3/pay/transactions/id/42?mchid=1"));
+        assertTrue(RetryClassifier.isIdempotent("POST", "https://api.mch.weixin.qq.com/v3/refund/domestic/refunds"));
+        assertFalse(RetryClassifier.isIdempotent("POST", "https://api.weixin.qq.com/cgi-bin/message/custom/send"));
+    }
+
+
+    @Test
+    void connectFailuresAreRetryableEvenWhenNotIdempotent() {
+        assertTrue(RetryClassifier.isRetryable(new CompletionException(new ConnectTimeoutException()), false));
+        // 读超时时请求可能已被处理
+        assertFalse(RetryClassifier.isRetryable(new SocketTimeoutException(), false));
+        assertTrue(RetryClassifier.isRetryable(new SocketTimeoutException(), true));
+    }
+
+
+    @Test
+    void responsesAreClassifiedByStatusErrcodeAndPayCode() {
+        assertTrue(RetryClassifier.isRetryable(new WeChatResponse(429, new JSONObject()), false));
+        assertTrue(RetryClassifier.isRetryable(new WeChatResponse(200, JSONObject.parseObject("{\"errcode\":-1}")), false));
+        assertFalse(RetryClassifier.isRetryable(new WeChatResponse(200, JSONObject.parseObject("{\"errcode\":40001}")), true));
+        assertFalse(RetryClassifier.isRetryable(new WeChatResponse(503, new JSONObject()), false));
+        assertTrue(RetryClassifier.isRetryable(new WeChatResponse(503, new JSONObject()), true));
+        assertTrue(RetryClassifier.isRetryable(new WeChatResponse(500, JSONObject.parseObject("{\"code\":\"SYSTEM_ERROR\"}")), true));
+        assertFalse(RetryClassifier.isRetryable(new WeChatResponse(400, JSONObject.parseObject("{\"code\":\"PARAM_ERROR\"}")), true));
+    }
+}
@@ -0,0 +1,83 @@
+package com.tlf.wechat.http.retry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class RetryerTest {
+
+    @BeforeEach
+    void policy() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setMaxAttempts(3);
+        policy.setInitialBackoff(5);
+        policy.setMaxBackoff(10);
+        Retryer.setPolicy(policy);
+    }
+
+    @AfterEach
+    void reset() {
+        Retryer.setPolicy(new RetryPolicy());
+    }
+
+
+    @Test
+    void asyncRetryIsIssuedOffTheSchedulerThread() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> result = Retryer.callAsync(true, () -> {
+            threads.add(Thread.currentThread().getName());
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (attempts.incrementAndGet() < 3) {
+                future.completeExceptionally(new ConnectException("refused"));
+            } else {
+                future.complete("ok");
+            }
+            return future;
+        }, value -> false);
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, threads.size());
+        // 重试由定时线程交给共享线程池发起，定时线程不执行请求
+        for (String thread : threads.subList(1, threads.size())) {
+            assertFalse(thread.startsWith("wechat-http-scheduler"), thread);
+        }
+    }
+
+
+    @Test
+    void asyncGivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> result = Retryer.callAsync(true, () -> {
+            attempts.incrementAndGet();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new ConnectException("refused"));
+            return future;
+        }, value -> false);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ConnectException.class, e.getCause());
+        assertEquals(3, attempts.get());
+    }
+
+
+    @Test
+    void retriesResultsMatchingThePredicate() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        String result = Retryer.call(true, () -> attempts.incrementAndGet() < 2 ? "busy" : "ok", "busy"::equals);
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+    }
+}
@@ -0,0 +1,130 @@
+package com.tlf.wechat.http.schedule;
+
+import com.tlf.wechat.http.limit.LimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class PrioritySchedulerTest {
+
+    private static SchedulerConfig config(int capacity, double paymentShare) {
+        SchedulerConfig config = new SchedulerConfig();
+        config.setCapacity(capacity);
+        config.setPaymentShare(paymentShare);
+        config.setMaxQueueSize(100);
+        config.setQueueTimeout(2000);
+        return config;
+    }
+
+
+    @Test
+    void batchCannotTakeReservedPaymentShare() throws LimitExceededException {
+        PriorityScheduler scheduler = new PriorityScheduler(config(10, 0.2));
+        for (int i = 0; i < 8; i++) {
+            scheduler.acquire(Priority.BATCH);
+        }
+        CompletableFuture<PriorityScheduler.Permit> batch = scheduler.acquireAsync(Priority.BATCH);
+        CompletableFuture<PriorityScheduler.Permit> interactive = scheduler.acquireAsync(Priority.INTERACTIVE);
+        assertFalse(batch.isDone());
+        assertFalse(interactive.isDone());
+
+        // 保留的 2 个额度只给支付
+        assertTrue(scheduler.acquireAsync(Priority.PAYMENT).isDone());
+        assertTrue(scheduler.acquireAsync(Priority.PAYMENT).isDone());
+        assertFalse(scheduler.acquireAsync(Priority.PAYMENT).isDone());
+        assertEquals(10, scheduler.getInFlight());
+        assertEquals(1, scheduler.getStats(Priority.BATCH).getQueueDepth());
+    }
+
+
+    @Test
+    void queuedClassesShareByWeightWithoutStarvation() throws Exception {
+        // 1 个额度，没有保留，交互 : 批量 = 4 : 1
+        PriorityScheduler scheduler = new PriorityScheduler(config(1, 0));
+        PriorityScheduler.Permit running = scheduler.acquire(Priority.INTERACTIVE);
+        Deque<CompletableFuture<PriorityScheduler.Permit>> waiting = new ArrayDeque<>();
+        for (int i = 0; i < 40; i++) {
+            waiting.add(scheduler.acquireAsync(Priority.BATCH));
+            waiting.add(scheduler.acquireAsync(Priority.INTERACTIVE));
+        }
+
+        int interactive = 0;
+        int batch = 0;
+        for (int i = 0; i < 25; i++) {
+            running.release();
+            running = admitted(waiting);
+            if (running.getPriority() == Priority.INTERACTIVE) {
+                interactive++;
+            } else {
+                batch++;
+            }
+        }
+        assertEquals(20, interactive);
+        assertEquals(5, batch);
+    }
+
+
+    private static PriorityScheduler.Permit admitted(Deque<CompletableFuture<PriorityScheduler.Permit>> waiting) {
+        List<CompletableFuture<PriorityScheduler.Permit>> done = new ArrayList<>();
+        for (CompletableFuture<PriorityScheduler.Permit> future : waiting) {
+            if (future.isDone()) {
+                done.add(future);
+            }
+        }
+        assertEquals(1, done.size());
+        waiting.remove(done.get(0));
+        return done.get(0).join();
+    }
+
+
+    @Test
+    void rejectsWhenQueueIsFullOrWaitTimesOut() throws LimitExceededException {
+        SchedulerConfig config = config(1, 0);
+        config.setMaxQueueSize(1);
+        config.setQueueTimeout(50);
+        PriorityScheduler scheduler = new PriorityScheduler(config);
+        scheduler.acquire(Priority.BATCH);
+
+        CompletableFuture<PriorityScheduler.Permit> queued = scheduler.acquireAsync(Priority.BATCH);
+        assertThrows(LimitExceededException.class, () -> scheduler.acquire(Priority.BATCH));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(LimitExceededException.class, e.getCause());
+        assertEquals(2, scheduler.getStats(Priority.BATCH).getRejectedCount());
+    }
+
+
+    @Test
+    void cancelledWaiterDoesNotLeakCapacity() throws Exception {
+        PriorityScheduler scheduler = new PriorityScheduler(config(1, 0));
+        PriorityScheduler.Permit running = scheduler.acquire(Priority.INTERACTIVE);
+        CompletableFuture<PriorityScheduler.Permit> cancelled = scheduler.acquireAsync(Priority.BATCH);
+        scheduler.cancel(cancelled);
+        running.release();
+        running.release();
+        assertEquals(0, scheduler.getInFlight());
+        assertTrue(scheduler.acquireAsync(Priority.BATCH).isDone());
+    }
+
+
+    @Test
+    void classifiesByThreadThenPathThenHost() throws Exception {
+        assertEquals(Priority.PAYMENT, RequestScheduler.classify("https://api.mch.weixin.qq.com/v3/pay/transactions/jsapi"));
+        assertEquals(Priority.BATCH, RequestScheduler.classify("https://api.weixin.qq.com/cgi-bin/media/upload?type=image"));
+        assertEquals(Priority.INTERACTIVE, RequestScheduler.classify("https://api.weixin.qq.com/sns/jscode2session"));
+        assertEquals(Priority.BATCH, RequestScheduler.call(Priority.BATCH,
+                () -> RequestScheduler.classify("https://api.weixin.qq.com/sns/jscode2session")));
+    }
+}
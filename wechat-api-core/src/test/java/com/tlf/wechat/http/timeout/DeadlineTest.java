@@ -0,0 +1,127 @@
+package com.tlf.wechat.http.timeout;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class DeadlineTest {
+
+    private static HttpServer server;
+    private static final AtomicInteger hits = new AtomicInteger();
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        // 响应头立即返回，响应体每 100ms 一个字节，共 3 秒；每次读取都不会触发读超时
+        server.createContext("/drip", exchange -> {
+            hits.incrementAndGet();
+            exchange.sendResponseHeaders(200, 30);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 30; i++) {
+                    out.write('x');
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            } catch (IOException | InterruptedException ignored) {
+            }
+        });
+        server.start();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+    private static String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+
+    @Test
+    void deadlineBoundsSlowResponseBody() throws Exception {
+        try (CloseableHttpClient client = new TimeoutHttpClient(HttpClients.createDefault())) {
+            long start = System.nanoTime();
+            IOException e = assertThrows(IOException.class, () -> Deadline.call(Deadline.after(500), () -> {
+                try (CloseableHttpResponse response = client.execute(new HttpGet(url("/drip")))) {
+                    return EntityUtils.toString(response.getEntity());
+                }
+            }));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertInstanceOf(DeadlineExceededException.class, e);
+            assertTrue(elapsed < 1500, elapsed + "ms");
+        }
+    }
+
+
+    @Test
+    void expiredDeadlineDoesNotSend() throws Exception {
+        int before = hits.get();
+        try (CloseableHttpClient client = new TimeoutHttpClient(HttpClients.createDefault())) {
+            assertThrows(DeadlineExceededException.class, () -> Deadline.call(Deadline.after(-1),
+                    () -> client.execute(new HttpGet(url("/drip")))));
+        }
+        assertEquals(before, hits.get());
+    }
+
+
+    @Test
+    void nestedDeadlineKeepsTheEarlierOne() throws Exception {
+        Deadline outer = Deadline.after(100);
+        Deadline inner = Deadline.call(outer, () -> Deadline.call(Deadline.after(10_000), Deadline::current));
+        assertSame(outer, inner);
+        assertNull(Deadline.current());
+    }
+
+
+    @Test
+    void deadlinePropagatesToOtherThreads() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Deadline deadline = Deadline.after(1000);
+            Future<Deadline> seen = Deadline.call(deadline, () -> pool.submit(Deadline.wrap(Deadline::current)));
+            assertSame(deadline, seen.get());
+            assertNull(pool.submit(Deadline::current).get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+
+    @Test
+    void asyncDeadlineFailsAndCancelsInner() {
+        CompletableFuture<String> inner = new CompletableFuture<>();
+        CompletableFuture<String> result = Deadline.supply(Deadline.after(100), () -> inner);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, e.getCause());
+        // 定时线程先结束 result 再取消 inner
+        assertThrows(CancellationException.class, () -> inner.get(2, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,208 @@
+package com.tlf.wechat.http.jfr;
+
+import com.sun.net.httpserver.HttpServer;
+import com.tlf.wechat.WeChatHttpUtil;
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.response.WeChatResponse;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class FlightEventsTest {
+
+    private static final String REQUEST = "com.tlf.wechat.Request";
+    private static final String CALL = "com.tlf.wechat.Call";
+    private static final String OPERATION = "com.tlf.wechat.Operation";
+
+    private static final String RESPONSE = "{\"errcode\":40029,\"errmsg\":\"invalid code\"}";
+
+    private static HttpServer server;
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+
+    @Test
+    void registersEventTypes() {
+        assertTrue(FlightEvents.isAvailable());
+        Set<String> names = new HashSet<>();
+        for (EventType type : FlightRecorder.getFlightRecorder().getEventTypes()) {
+            names.add(type.getName());
+        }
+        assertTrue(names.containsAll(List.of(REQUEST, CALL, OPERATION)), names.toString());
+    }
+
+
+    /**
+     * 一次调用产生一个 Request 事件（实际发送）和一个 Call 事件（调用结果），字段取自请求和响应
+     */
+    @Test
+    void recordsRequestAndCall() throws Exception {
+        String host = "http://127.0.0.1:" + server.getAddress().getPort();
+        Map<String, String> querys = Map.of("access_token", "T");
+        Map<String, Object> formData = Map.of("code", "C1");
+        List<RecordedEvent> events = record(() -> WeChatHttpUtil.getBody(host, "/wxa/business/getuserphonenumber", "post", null, querys, formData));
+
+        RecordedEvent request = only(events, REQUEST);
+        assertEquals("POST", request.getString("method"));
+        assertEquals("127.0.0.1", request.getString("host"));
+        assertEquals("/wxa/business/getuserphonenumber", request.getString("endpoint"));
+        assertEquals(200, request.getInt("statusCode"));
+        assertEquals("{\"code\":\"C1\"}".length(), request.getLong("requestBytes"));
+        assertEquals(RESPONSE.length(), request.getLong("responseBytes"));
+        assertTrue(request.getDuration().compareTo(Duration.ZERO) > 0);
+
+        RecordedEvent call = only(events, CALL);
+        assertEquals("POST", call.getString("method"));
+        assertEquals("/wxa/business/getuserphonenumber", call.getString("endpoint"));
+        assertEquals(200, call.getInt("statusCode"));
+        assertEquals("40029", call.getString("errcode"));
+        assertNull(call.getString("error"));
+        assertEquals("{\"code\":\"C1\"}".length(), call.getLong("requestBytes"));
+        assertFalse(call.getBoolean("success"));
+        assertTrue(call.getLong("elapsed") >= request.getDuration().toNanos());
+    }
+
+
+    @Test
+    void recordsOperation() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            Object event = FlightEvents.beginOperation();
+            Thread.sleep(5);
+            FlightEvents.endOperation(event, Metrics.Operation.TOKEN_REFRESH, "wx1", 128, true);
+            return null;
+        });
+        RecordedEvent operation = only(events, OPERATION);
+        assertEquals(Metrics.Operation.TOKEN_REFRESH.getName(), operation.getString("operation"));
+        assertEquals("wx1", operation.getString("subject"));
+        assertEquals(128, operation.getLong("bytes"));
+        assertTrue(operation.getBoolean("success"));
+        assertTrue(operation.getDuration().toMillis() >= 5);
+    }
+
+
+    /**
+     * 没有录制时 begin 返回空，不创建事件对象
+     */
+    @Test
+    void skipsEventsWithoutRecording() {
+        assertNull(FlightEvents.beginRequest());
+        assertNull(FlightEvents.beginOperation());
+    }
+
+
+    /**
+     * Java 8 的占位实现（target/classes 下的 FlightEvents）在录制中也不产生事件
+     */
+    @Test
+    void java8StubIsNoOp() throws Exception {
+        URL classes = Metrics.class.getProtectionDomain().getCodeSource().getLocation();
+        try (StubLoader loader = new StubLoader(classes)) {
+            Class<?> stub = loader.loadClass(FlightEvents.class.getName());
+            assertTrue(stub != FlightEvents.class);
+            List<RecordedEvent> events = record(() -> {
+                assertEquals(false, stub.getMethod("isAvailable").invoke(null));
+                assertNull(stub.getMethod("beginRequest").invoke(null));
+                Object event = stub.getMethod("beginOperation").invoke(null);
+                assertNull(event);
+                Method end = stub.getMethod("endOperation", Object.class, Metrics.Operation.class, String.class, long.class, boolean.class);
+                end.invoke(null, event, Metrics.Operation.TOKEN_REFRESH, "wx1", 128L, true);
+                stub.getMethod("call", String.class, String.class, String.class,
+                        WeChatResponse.class, Throwable.class, long.class)
+                        .invoke(null, "get", "https://api.weixin.qq.com/cgi-bin/token", null, null, null, System.nanoTime());
+                return null;
+            });
+            assertTrue(events.isEmpty(), events.toString());
+        }
+    }
+
+
+    private static List<RecordedEvent> record(Callable<?> action) throws Exception {
+        Path file = Files.createTempFile("wechat-jfr", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of(REQUEST, CALL, OPERATION)) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            action.call();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith("com.tlf.wechat."))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matched = events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+        assertEquals(1, matched.size(), events.toString());
+        return matched.get(0);
+    }
+
+
+    /**
+     * 只从 target/classes 加载 FlightEvents，其他类仍由测试的类加载器加载
+     */
+    private static class StubLoader extends URLClassLoader {
+
+        StubLoader(URL classes) {
+            super(new URL[]{classes}, FlightEventsTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(FlightEvents.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            Class<?> loaded = findLoadedClass(name);
+            return loaded != null ? loaded : findClass(name);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.tlf.wechat.http.transport;
+
+import com.tlf.wechat.http.HttpClientConfig;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.SslContextFactory;
+import com.tlf.wechat.http.TestCertificates;
+import com.tlf.wechat.http.concurrent.CancelScope;
+import com.tlf.wechat.http.response.BodyTooLargeException;
+import com.tlf.wechat.http.response.BoundedStringHandler;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.HTTP2Cipher;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * jdk 请求引擎，本地 HTTPS 服务（Jetty）通过 ALPN 协商 HTTP/2
+ */
+class JdkHttpTransportTest {
+
+    private static final String LARGE = "x".repeat(64 * 1024);
+
+    private static final CountDownLatch STOPPING = new CountDownLatch(1);
+
+    private static Server server;
+    private static int port;
+    private static String pinned;
+
+
+    @BeforeAll
+    static void start() throws Exception {
+        TestCertificates authority = TestCertificates.authority("WeChat Test CA");
+        pinned = authority.writePem();
+
+        server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        config.addCustomizer(new SecureRequestCustomizer());
+        HttpConnectionFactory http11 = new HttpConnectionFactory(config);
+        HTTP2ServerConnectionFactory h2 = new HTTP2ServerConnectionFactory(config);
+        ALPNServerConnectionFactory alpn = new ALPNServerConnectionFactory();
+        alpn.setDefaultProtocol(http11.getProtocol());
+
+        org.eclipse.jetty.util.ssl.SslContextFactory.Server ssl = new org.eclipse.jetty.util.ssl.SslContextFactory.Server();
+        ssl.setKeyStore(authority.issue("localhost"));
+        ssl.setKeyStorePassword(TestCertificates.PASSWORD);
+        ssl.setCipherComparator(HTTP2Cipher.COMPARATOR);
+
+        ServerConnector connector = new ServerConnector(server, new SslConnectionFactory(ssl, alpn.getProtocol()), alpn, h2, http11);
+        connector.setHost("127.0.0.1");
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                response.setContentType("application/json;charset=UTF-8");
+                OutputStream out = response.getOutputStream();
+                switch (target) {
+                    case "/h2/echo":
+                        String body = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                        out.write(("{\"protocol\":\"" + request.getProtocol() + "\",\"method\":\"" + request.getMethod()
+                                + "\",\"body\":\"" + body.replace("\"", "'") + "\"}").getBytes(StandardCharsets.UTF_8));
+                        break;
+                    case "/h2/slow":
+                        await(Long.parseLong(request.getParameter("ms")));
+                        out.write("{}".getBytes(StandardCharsets.UTF_8));
+                        break;
+                    case "/h2/slow-body":
+                        // 先返回响应头和部分响应体，剩余部分迟迟不到
+                        out.write("{\"part\":".getBytes(StandardCharsets.UTF_8));
+                        response.flushBuffer();
+                        await(5000);
+                        out.write("1}".getBytes(StandardCharsets.UTF_8));
+                        break;
+                    case "/h2/large":
+                        out.write(LARGE.getBytes(StandardCharsets.UTF_8));
+                        break;
+                    default:
+                        response.setStatus(404);
+                }
+            }
+        });
+        server.start();
+        port = connector.getLocalPort();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        STOPPING.countDown();
+        server.stop();
+    }
+
+    @AfterEach
+    void restore() {
+        HttpClientManager.init(new HttpClientConfig());
+    }
+
+
+    @Test
+    void selectsJdkProviderByName() {
+        HttpTransportProvider provider = HttpTransports.provider("JDK");
+        assertNotNull(provider);
+        assertEquals(HttpTransports.JDK, provider.getName());
+        assertTrue(provider.isAvailable());
+        // apache 为内置引擎，不通过 SPI 登记
+        assertNull(HttpTransports.provider(HttpTransports.APACHE));
+        assertNull(HttpTransports.provider("okhttp"));
+
+        HttpClientConfig config = config(HttpTransports.JDK);
+        HttpClientManager.init(config);
+        assertEquals(HttpTransports.JDK, HttpClientManager.getTransport().getName());
+        HttpClientManager.init(config("okhttp"));
+        assertEquals(HttpTransports.APACHE, HttpClientManager.getTransport().getName());
+    }
+
+
+    @Test
+    void negotiatesHttp2ThroughDecoratedClient() throws Exception {
+        HttpClientManager.init(config(HttpTransports.JDK));
+        HttpPost post = new HttpPost(url("/h2/echo"));
+        post.setEntity(new StringEntity("{\"code\":\"C1\"}", ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = HttpClientManager.getClient().execute(post)) {
+            assertEquals(2, response.getProtocolVersion().getMajor());
+            assertEquals("{\"protocol\":\"HTTP/2.0\",\"method\":\"POST\",\"body\":\"{'code':'C1'}\"}",
+                    EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+        }
+        HttpResponse async = transport(config(HttpTransports.JDK)).executeAsync(new HttpGet(url("/h2/echo"))).get(5, TimeUnit.SECONDS);
+        assertEquals(2, async.getProtocolVersion().getMajor());
+    }
+
+
+    /**
+     * 请求上的 socketTimeout 作为等待响应头的超时，超时转换为 SocketTimeoutException，与 apache 引擎一致
+     */
+    @Test
+    void mapsRequestTimeoutToSocketTimeout() throws Exception {
+        HttpTransport transport = transport(config(HttpTransports.JDK));
+        HttpGet get = new HttpGet(url("/h2/slow?ms=3000"));
+        get.setConfig(RequestConfig.custom().setSocketTimeout(200).build());
+        long start = System.nanoTime();
+        assertThrows(SocketTimeoutException.class, () -> transport.execute(get).close());
+        assertTrue(elapsedMillis(start) < 2000, elapsedMillis(start) + "ms");
+
+        HttpGet async = new HttpGet(url("/h2/slow?ms=3000"));
+        async.setConfig(RequestConfig.custom().setSocketTimeout(200).build());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> transport.executeAsync(async).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SocketTimeoutException.class, e.getCause());
+    }
+
+
+    @Test
+    void boundsResponseBody() throws Exception {
+        HttpClientConfig config = config(HttpTransports.JDK);
+        config.setMaxBodySize(1024);
+        HttpTransport transport = transport(config);
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> transport.executeAsync(new HttpGet(url("/h2/large"))).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BodyTooLargeException.class, e.getCause());
+        assertEquals(1024, ((BodyTooLargeException) e.getCause()).getMaxBodySize());
+
+        HttpClientManager.init(config);
+        assertThrows(BodyTooLargeException.class,
+                () -> HttpClientManager.getClient().execute(new HttpGet(url("/h2/large")), new BoundedStringHandler(1024)));
+        assertEquals(LARGE.length(), HttpClientManager.getClient().execute(new HttpGet(url("/h2/large")),
+                new BoundedStringHandler(LARGE.length())).length());
+    }
+
+
+    /**
+     * 等待响应头时 abort()：同步调用立即返回，不等到请求超时
+     */
+    @Test
+    void abortReturnsBlockedCallBeforeHeaders() throws Exception {
+        HttpTransport transport = transport(config(HttpTransports.JDK));
+        HttpGet get = new HttpGet(url("/h2/slow?ms=5000"));
+        CompletableFuture<Throwable> call = CompletableFuture.supplyAsync(() -> {
+            try {
+                transport.execute(get).close();
+                return null;
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        Thread.sleep(200);
+        long start = System.nanoTime();
+        get.abort();
+        assertInstanceOf(RequestAbortedException.class, call.get(2, TimeUnit.SECONDS));
+        assertTrue(elapsedMillis(start) < 1000, elapsedMillis(start) + "ms");
+
+        // 已中止的请求不再发送
+        assertThrows(RequestAbortedException.class, () -> transport.execute(get));
+    }
+
+
+    /**
+     * 读取响应体时 abort()：关闭响应体流，读取的线程以 IOException 返回
+     */
+    @Test
+    void abortReturnsBlockedBodyRead() throws Exception {
+        HttpTransport transport = transport(config(HttpTransports.JDK));
+        HttpGet get = new HttpGet(url("/h2/slow-body"));
+        CloseableHttpResponse response = transport.execute(get);
+        InputStream body = response.getEntity().getContent();
+        CompletableFuture<Throwable> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                body.readAllBytes();
+                return null;
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        Thread.sleep(200);
+        long start = System.nanoTime();
+        get.abort();
+        assertInstanceOf(IOException.class, read.get(2, TimeUnit.SECONDS));
+        assertTrue(elapsedMillis(start) < 1000, elapsedMillis(start) + "ms");
+        response.close();
+    }
+
+
+    /**
+     * 对冲、FanOut 取消 CancelScope 时中止阻塞在 jdk 引擎中的请求，结果按取消处理
+     */
+    @Test
+    void cancelScopeAbortsRequest() throws Exception {
+        HttpClientManager.init(config(HttpTransports.JDK));
+        CancelScope scope = new CancelScope();
+        HttpGet get = new HttpGet(url("/h2/slow?ms=5000"));
+        CompletableFuture<Throwable> call = CompletableFuture.supplyAsync(() -> {
+            try {
+                scope.call(() -> {
+                    HttpClientManager.getClient().execute(get).close();
+                    return null;
+                });
+                return null;
+            } catch (Throwable e) {
+                return e;
+            }
+        });
+        Thread.sleep(200);
+        long start = System.nanoTime();
+        scope.cancel();
+        Throwable error = call.get(2, TimeUnit.SECONDS);
+        assertInstanceOf(RequestAbortedException.class, error);
+        assertInstanceOf(CancellationException.class, CancelScope.outcome(get, error));
+        assertTrue(elapsedMillis(start) < 1000, elapsedMillis(start) + "ms");
+    }
+
+
+    private static HttpClientConfig config(String transport) {
+        HttpClientConfig config = new HttpClientConfig();
+        config.setTransport(transport);
+        config.setPinnedCertificates(pinned);
+        return config;
+    }
+
+    private static HttpTransport transport(HttpClientConfig config) {
+        SSLContext sslContext = SslContextFactory.create(config);
+        return HttpTransports.provider(HttpTransports.JDK).create(config, sslContext);
+    }
+
+    private static String url(String path) {
+        return "https://localhost:" + port + path;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static void await(long millis) {
+        try {
+            STOPPING.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package com.tlf.wechat.aes;
 
-import cn.hutool.crypto.Mode;
-import cn.hutool.crypto.Padding;
-import cn.hutool.crypto.symmetric.AES;
-import org.apache.commons.codec.binary.Base64;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import com.tlf.wechat.http.jfr.FlightEvents;
+import com.tlf.wechat.http.log.WireLog;
+import com.tlf.wechat.http.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,11 +11,11 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
-import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.Security;
 import java.util.Arrays;
+import java.util.Base64;
 
 
 public class WeChatBizDataUtil {
@@ -68,21 +66,26 @@ public class WeChatBizDataUtil {
      * @return 解密后的数据
      */
     public static String decryptWxData(String encryptedData, String sessionKey, String iv) {
+        long start = System.nanoTime();
+        Object event = FlightEvents.beginOperation();
+        boolean success = false;
         try {
-            Security.addProvider(new BouncyCastleProvider());
-            SecretKeySpec spec = new SecretKeySpec(Base64.decodeBase64(sessionKey), "AES");
-            AlgorithmParameters parameters = AlgorithmParameters.getInstance("AES");
-            parameters.init(new IvParameterSpec(Base64.decodeBase64(iv)));
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS7Padding", "BC");
-            cipher.init(Cipher.DECRYPT_MODE, spec, parameters);
-            byte[] resultByte = cipher.doFinal(Base64.decodeBase64(encryptedData));
+            // AES 分组为 16 字节，PKCS#7 与 JDK 的 PKCS5Padding 相同，不需要 BouncyCastle
+            SecretKeySpec spec = new SecretKeySpec(decodeBase64(sessionKey), "AES");
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.DECRYPT_MODE, spec, new IvParameterSpec(decodeBase64(iv)));
+            byte[] resultByte = cipher.doFinal(decodeBase64(encryptedData));
             if (null != resultByte && resultByte.length > 0) {
                 String result = new String(resultByte, StandardCharsets.UTF_8);
-                log.info(">>>>> 微信加密数据解析结果:{}", result);
+                WireLog.payload("wxData", result, true);
+                success = true;
                 return result;
             }
         } catch (Exception e) {
             log.error(">>>>> 微信加密数据解析失败:", e);
+        } finally {
+            Metrics.record(Metrics.Operation.WX_DATA_DECRYPT, start, success);
+            FlightEvents.endOperation(event, Metrics.Operation.WX_DATA_DECRYPT, null, encryptedData == null ? -1 : encryptedData.length(), success);
         }
         return null;
     }
@@ -90,32 +93,53 @@ public class WeChatBizDataUtil {
 
     /**
      * 解密微信加密数据，对称解密使用的算法为 AES-128-CBC，数据采用PKCS#7填充。
+     * 不校验补位，解密后手动去除补位字符（原 hutool 实现，保留方法名）
      *
      * @param encryptedData 加密串
      * @param sessionKey    会话密钥
      * @param iv            解密算法初始向量
      * @return 解密后的数据
+     * @throws IllegalArgumentException 密钥、初始向量或密文长度不合法（原 hutool 实现抛出 CryptoException）
      */
     public static String decryptWxDataOfHutool(String encryptedData, String sessionKey, String iv) {
-        AES aes = new AES(
-            Mode.CBC,
-            Padding.NoPadding,
-            Base64.decodeBase64(sessionKey),
-            Base64.decodeBase64(iv)
-        );
-        byte[] resultByte = aes.decrypt(Base64.decodeBase64(encryptedData));
-        if (null != resultByte && resultByte.length > 0) {
-            // 删除解密后明文的补位字符
-            int padNum = resultByte[resultByte.length - 1];
-            if (padNum < 1 || padNum > 32) {
-                padNum = 0;
+        long start = System.nanoTime();
+        Object event = FlightEvents.beginOperation();
+        boolean success = false;
+        try {
+            byte[] resultByte;
+            try {
+                Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(decodeBase64(sessionKey), "AES"), new IvParameterSpec(decodeBase64(iv)));
+                resultByte = cipher.doFinal(decodeBase64(encryptedData));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException(e);
+            }
+            if (null != resultByte && resultByte.length > 0) {
+                // 删除解密后明文的补位字符
+                int padNum = resultByte[resultByte.length - 1];
+                if (padNum < 1 || padNum > 32) {
+                    padNum = 0;
+                }
+                resultByte = Arrays.copyOfRange(resultByte, 0, resultByte.length - padNum);
+                String result = new String(resultByte, StandardCharsets.UTF_8);
+                WireLog.payload("wxData", result, true);
+                success = true;
+                return result;
             }
-            resultByte = Arrays.copyOfRange(resultByte, 0, resultByte.length - padNum);
-            String result = new String(resultByte, StandardCharsets.UTF_8);
-            log.info(">>>>> 微信加密数据解析结果:{}", result);
-            return result;
+            return null;
+        } finally {
+            Metrics.record(Metrics.Operation.WX_DATA_DECRYPT, start, success);
+            FlightEvents.endOperation(event, Metrics.Operation.WX_DATA_DECRYPT, null, encryptedData == null ? -1 : encryptedData.length(), success);
         }
-        return null;
+    }
+
+
+    /**
+     * 与 commons-codec 一致：同时接受标准和 URL 安全（- _）字母表，忽略换行等非 Base64 字符
+     * MIME 解码器会把 - _ 当作非 Base64 字符丢弃，先替换为 + /
+     */
+    private static byte[] decodeBase64(String value) {
+        return Base64.getMimeDecoder().decode(value.replace('-', '+').replace('_', '/'));
     }
 
 
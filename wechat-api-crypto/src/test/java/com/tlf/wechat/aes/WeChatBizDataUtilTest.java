@@ -0,0 +1,122 @@
+package com.tlf.wechat.aes;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class WeChatBizDataUtilTest {
+
+    private static final String SESSION_KEY = "tiihtNczf5v6AKRyjwEUhQ==";
+    private static final String IV = "r7BXXKkLb8qrSNn05n0qiA==";
+    private static final String PLAIN = "{\"phoneNumber\":\"13580006666\",\"purePhoneNumber\":\"13580006666\",\"countryCode\":\"86\","
+            + "\"watermark\":{\"appid\":\"wx4f4bc4dec97d474b\",\"timestamp\":1477314187},\"nickName\":\"微信用户\"}";
+
+    /**
+     * 微信官方示例（小程序开放数据解密的 demo），与 SESSION_KEY、IV 配套
+     * 明文由拆分前的实现（commons-codec + BouncyCastle、hutool）解密得到
+     */
+    private static final String DEMO_ENCRYPTED = "CiyLU1Aw2KjvrjMdj8YKliAjtP4gsMZMQmRzooG2xrDcvSnxIMXFufNstNGTyaGS9uT5geRa0W4oTOb1WT7fJlAC+oNPdbB+3hVbJSRgv+4lGOETKUQz6OYStslQ142dNCuabNPGBzlooOmB231qMM85d2/fV6ChevvXvQP8Hkue1poOFtnEtpyxVLW1zAo6/1Xx1COxFvrc2d7UL/lmHInNlxuacJXwu0fjpXfz/YqYzBIBzD6WUfTIF9GRHpOn/Hz7saL8xz+W//FRAUid1OksQaQx4CMs8LOddcQhULW4ucetDf96JcR3g0gfRK4PC7E/r7Z6xNrXd2UIeorGj5Ef7b1pJAYB6Y5anaHqZ9J6nKEBvB4DnNLIVWSgARns/8wR2SiRS7MNACwTyrGvt9ts8p12PKFdlqYTopNHR1Vf7XjfhQlVsAJdNiKdYmYVoKlaRv85IfVunYzO0IKXsyl7JCUjCpoG20f0a04COwfneQAGGwd5oa+T8yO5hzuyDb/XcxxmK01EpqOyuxINew==";
+    private static final String DEMO_PLAIN = "{\"openId\":\"oGZUI0egBJY1zhBYw2KhdUfwVJJE\",\"nickName\":\"Band\",\"gender\":1,\"language\":\"zh_CN\","
+            + "\"city\":\"Guangzhou\",\"province\":\"Guangdong\",\"country\":\"CN\","
+            + "\"avatarUrl\":\"http://wx.qlogo.cn/mmopen/vi_32/aSKcBBPpibyKNicHNTMM0qJVh8Kjgiak2AHWr8MHM4WgMEm7GFhsf8OYrySdbvAMvTsw3mo8ibKicsnfN5pRjl1p8HQ/0\","
+            + "\"unionId\":\"ocMvos6NjeKLIBqg5Mr9QjxrP1FA\",\"watermark\":{\"timestamp\":1477314187,\"appid\":\"wx4f4bc4dec97d474b\"}}";
+
+
+    /**
+     * 与小程序端的加密方式相同：AES-128-CBC，PKCS#7 填充
+     */
+    private static String encrypt(String plain, String sessionKey, String iv) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(sessionKey), "AES"),
+                new IvParameterSpec(Base64.getDecoder().decode(iv)));
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    @Test
+    void decryptsPkcs7PaddedData() throws Exception {
+        String encrypted = encrypt(PLAIN, SESSION_KEY, IV);
+        assertEquals(PLAIN, WeChatBizDataUtil.decryptWxData(encrypted, SESSION_KEY, IV));
+        assertEquals(PLAIN, WeChatBizDataUtil.decryptWxDataOfHutool(encrypted, SESSION_KEY, IV));
+    }
+
+
+    @Test
+    void decryptsBlockAlignedData() throws Exception {
+        // 明文正好 16 字节时补一整块
+        String plain = "{\"a\":\"12345678\"}";
+        assertEquals(16, plain.length());
+        String encrypted = encrypt(plain, SESSION_KEY, IV);
+        assertEquals(plain, WeChatBizDataUtil.decryptWxData(encrypted, SESSION_KEY, IV));
+        assertEquals(plain, WeChatBizDataUtil.decryptWxDataOfHutool(encrypted, SESSION_KEY, IV));
+    }
+
+
+    @Test
+    void acceptsMimeLineBreaks() throws Exception {
+        String encrypted = encrypt(PLAIN, SESSION_KEY, IV);
+        String wrapped = encrypted.substring(0, 40) + "\r\n" + encrypted.substring(40);
+        assertEquals(PLAIN, WeChatBizDataUtil.decryptWxData(wrapped, SESSION_KEY, IV));
+    }
+
+
+    @Test
+    void decryptsOfficialDemoVector() {
+        assertEquals(DEMO_PLAIN, WeChatBizDataUtil.decryptWxData(DEMO_ENCRYPTED, SESSION_KEY, IV));
+        assertEquals(DEMO_PLAIN, WeChatBizDataUtil.decryptWxDataOfHutool(DEMO_ENCRYPTED, SESSION_KEY, IV));
+    }
+
+
+    /**
+     * commons-codec 同时接受 URL 安全字母表（- _）和缺少的补位，MIME 解码器需要先替换，否则 - _ 被丢弃
+     */
+    @Test
+    void acceptsUrlSafeAlphabetLikeCommonsCodec() {
+        String urlSafe = DEMO_ENCRYPTED.replace('+', '-').replace('/', '_').replace("=", "");
+        String sessionKey = SESSION_KEY.replace('+', '-').replace('/', '_');
+        assertEquals(DEMO_PLAIN, WeChatBizDataUtil.decryptWxData(urlSafe, sessionKey, IV));
+        assertEquals(DEMO_PLAIN, WeChatBizDataUtil.decryptWxDataOfHutool(urlSafe, sessionKey, IV));
+    }
+
+
+    @Test
+    void ignoresWhitespaceLikeCommonsCodec() {
+        String wrapped = DEMO_ENCRYPTED.substring(0, 76) + "\r\n" + DEMO_ENCRYPTED.substring(76, 200) + " " + DEMO_ENCRYPTED.substring(200);
+        assertEquals(DEMO_PLAIN, WeChatBizDataUtil.decryptWxData(wrapped, SESSION_KEY, IV));
+        assertEquals(DEMO_PLAIN, WeChatBizDataUtil.decryptWxDataOfHutool(wrapped, SESSION_KEY, IV));
+    }
+
+
+    /**
+     * 密文长度不是分组的整数倍：原 hutool 实现抛出 CryptoException，现在抛出 IllegalArgumentException
+     */
+    @Test
+    void hutoolVariantRejectsTruncatedData() {
+        assertThrows(IllegalArgumentException.class,
+                () -> WeChatBizDataUtil.decryptWxDataOfHutool(DEMO_ENCRYPTED.substring(0, 100), SESSION_KEY, IV));
+        assertNull(WeChatBizDataUtil.decryptWxData(DEMO_ENCRYPTED.substring(0, 100), SESSION_KEY, IV));
+    }
+
+
+    @Test
+    void wrongSessionKeyReturnsNull() throws Exception {
+        String encrypted = encrypt(PLAIN, SESSION_KEY, IV);
+        assertNull(WeChatBizDataUtil.decryptWxData(encrypted, "HyVFkGl5F5OQWJZZaNzBBg==", IV));
+    }
+
+
+    @Test
+    void signatureIsSha1OfRawDataAndSessionKey() throws Exception {
+        assertEquals("880cdb5994cb662931a46726252ab9d8942768db",
+                WeChatBizDataUtil.getSignature2("{\"nickName\":\"Band\",\"gender\":1}", "HyVFkGl5F5OQWJZZaNzBBg=="));
+    }
+}
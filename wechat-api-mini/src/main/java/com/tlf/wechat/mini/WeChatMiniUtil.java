@@ -0,0 +1,224 @@
+package com.tlf.wechat.mini;
+
+import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.WeChatHttpUtil;
+import com.tlf.wechat.http.UrlTemplate;
+import com.tlf.wechat.http.jfr.FlightEvents;
+import com.tlf.wechat.http.metrics.Metrics;
+import com.tlf.wechat.http.response.WeChatResponse;
+import com.tlf.wechat.http.timeout.Deadline;
+import com.tlf.wechat.http.timeout.TimeoutProfiles;
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class WeChatMiniUtil {
+    private static final Logger log = LoggerFactory.getLogger(WeChatMiniUtil.class);
+
+    private static final String PHONE_HOST = "https://api.weixin.qq.com/wxa/business/getuserphonenumber?";
+
+    private static final UrlTemplate TOKEN_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/cgi-bin/token?grant_type=client_credential&appid={appid}&secret={secret}");
+
+    private static final UrlTemplate CODE2SESSION_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/sns/jscode2session?grant_type=authorization_code&appid={appid}&secret={secret}&js_code={js_code}");
+
+    private static final UrlTemplate URL_LINK_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/wxa/generate_urllink?access_token={access_token}");
+
+    private static final UrlTemplate PHONE_URL = UrlTemplate.compile(PHONE_HOST + "access_token={access_token}");
+
+
+    /**
+     * 获取 accessToken
+     *
+     * @return
+     */
+    public static String getAccessToken(String appId, String appSecret) {
+        long start = System.nanoTime();
+        Object event = FlightEvents.beginOperation();
+        String access_token = null;
+        try {
+            String url = TOKEN_URL.expand(appId, appSecret);
+
+            // 只读取 access_token 字段
+            WeChatResponse response = WeChatHttpUtil.getFields(url, null, "get", null, null, null, "access_token");
+            if (ObjectUtils.isEmpty(response)) {
+                return null;
+            }
+            access_token = response.getString("access_token");
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            Metrics.record(Metrics.Operation.TOKEN_REFRESH, start, access_token != null);
+            FlightEvents.endOperation(event, Metrics.Operation.TOKEN_REFRESH, appId, -1, access_token != null);
+        }
+        return access_token;
+    }
+
+
+    /**
+     * 异步获取 accessToken
+     *
+     * @return
+     */
+    public static CompletableFuture<String> getAccessTokenAsync(String appId, String appSecret) {
+        long start = System.nanoTime();
+        Object event = FlightEvents.beginOperation();
+        return WeChatHttpUtil.getBodyAsync(TOKEN_URL.expand(appId, appSecret), null, "get", null, null, null)
+                .thenApply(jsonObject -> {
+                    String accessToken = ObjectUtils.isEmpty(jsonObject) ? null : jsonObject.getString("access_token");
+                    Metrics.record(Metrics.Operation.TOKEN_REFRESH, start, accessToken != null);
+                    FlightEvents.endOperation(event, Metrics.Operation.TOKEN_REFRESH, appId, -1, accessToken != null);
+                    return accessToken;
+                });
+    }
+
+
+    /**
+     * 登陆
+     *
+     * @param appId
+     * @param appSecret
+     * @param code
+     * @return
+     */
+    public static JSONObject code2Session(String appId, String appSecret, String code) {
+        // 根据code请求wx接口拿到openid等信息
+        String url = CODE2SESSION_URL.expand(appId, appSecret, code);
+
+        JSONObject jsonObject = WeChatHttpUtil.getBody(url, null, "get", null, null, null);
+        if (ObjectUtils.isEmpty(jsonObject)) {
+            return null;
+        }
+        return jsonObject;
+    }
+
+
+    /**
+     * 异步登陆
+     *
+     * @param appId
+     * @param appSecret
+     * @param code
+     * @return
+     */
+    public static CompletableFuture<JSONObject> code2SessionAsync(String appId, String appSecret, String code) {
+        return WeChatHttpUtil.getBodyAsync(CODE2SESSION_URL.expand(appId, appSecret, code), null, "get", null, null, null);
+    }
+
+
+    /**
+     * 获取小程序链接
+     */
+    public static String getUrlLink(String appId, String appSecret, String miniPath, String query) throws Exception {
+        String url = URL_LINK_URL.expand(getAccessToken(appId, appSecret));
+
+        Map<String, Object> formData = new HashMap<>();
+        // 通过 URL Link 进入的小程序页面路径，必须是已经发布的小程序存在的页面，不可携带 query 。path 为空时会跳转小程序主页
+        // 页面路径
+        formData.put("path", miniPath);
+        if (ObjectUtils.isNotEmpty(query)) {
+            formData.put("query", query);
+        }
+        // 默认值false。生成的 URL Link 类型，到期失效：true，永久有效：false
+//        formData.put("is_expire", false);
+        // 失效类型：默认值0，失效时间：0，失效间隔天数：1
+//        formData.put("expire_type", 0);
+        // 到期失效的 URL Link 的失效时间，为 Unix 时间戳。
+//        Date date = new Date();
+//        formData.put("expire_time", date.getTime());
+        WeChatResponse response = WeChatHttpUtil.getFields(url, null, "post", null, null, formData, "url_link");
+        if (ObjectUtils.isEmpty(response) || !response.isSuccess()) {
+            log.error("获取小程序链接失败");
+            throw new Exception("获取小程序链接失败");
+        }
+        return response.getString("url_link");
+    }
+
+
+    /**
+     * 获取手机号
+     * 获取 access_token 和获取手机号共用接口配置的调用截止时间
+     *
+     * @param code
+     * @return
+     */
+    public static String getPhone(String appId, String appSecret, String code) {
+        return getPhone(appId, appSecret, code, TimeoutProfiles.deadline(PHONE_HOST));
+    }
+
+
+    /**
+     * 获取手机号，获取 access_token 和获取手机号两次请求共用一个截止时间
+     *
+     * @param code
+     * @param deadline 截止时间，为空时不限制
+     * @return
+     */
+    public static String getPhone(String appId, String appSecret, String code, Deadline deadline) {
+        String purePhoneNumber = null;
+        try {
+            purePhoneNumber = Deadline.call(deadline, () -> {
+                String url = PHONE_URL.expand(getAccessToken(appId, appSecret));
+
+                Map<String, Object> formData = new HashMap<>();
+                formData.put("code", code);
+
+                WeChatResponse response = WeChatHttpUtil.getFields(url, null, "post", null, null, formData, "phone_info");
+                if (ObjectUtils.isNotEmpty(response) && response.isSuccess()) {
+                    JSONObject phone_info = response.getJSONObject("phone_info");
+                    return phone_info.getString("purePhoneNumber");
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return purePhoneNumber;
+    }
+
+
+    /**
+     * 异步获取手机号
+     *
+     * @param code
+     * @return
+     */
+    public static CompletableFuture<String> getPhoneAsync(String appId, String appSecret, String code) {
+        return getPhoneAsync(appId, appSecret, code, TimeoutProfiles.deadline(PHONE_HOST));
+    }
+
+
+    /**
+     * 异步获取手机号，两次请求共用一个截止时间，到期时结果为 null
+     *
+     * @param code
+     * @param deadline 截止时间，为空时不限制
+     * @return
+     */
+    public static CompletableFuture<String> getPhoneAsync(String appId, String appSecret, String code, Deadline deadline) {
+        Map<String, Object> formData = new HashMap<>();
+        formData.put("code", code);
+
+        return Deadline.supply(deadline, () -> getAccessTokenAsync(appId, appSecret))
+                .thenCompose(accessToken -> Deadline.supply(deadline,
+                        () -> WeChatHttpUtil.getBodyAsync(PHONE_URL.expand(accessToken), null, "post", null, null, formData)))
+                .thenApply(jsonObject -> {
+                    if (ObjectUtils.isEmpty(jsonObject) || !"0".equals(jsonObject.getString("errcode"))) {
+                        return null;
+                    }
+                    return jsonObject.getJSONObject("phone_info").getString("purePhoneNumber");
+                })
+                .exceptionally(e -> {
+                    log.error("获取手机号失败", e);
+                    return null;
+                });
+    }
+
+
+}
@@ -2,22 +2,22 @@ package com.tlf.wechat.mini;
 
 import com.alibaba.fastjson.JSONObject;
 import com.tlf.wechat.WeChatHttpUtil;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.UrlTemplate;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -25,6 +25,15 @@ import java.util.Map;
 public class WeChatUploadUtil {
     private static final Logger log = LoggerFactory.getLogger(WeChatMiniUtil.class);
 
+    private static final UrlTemplate UPLOAD_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/cgi-bin/media/upload?access_token={access_token}&type={type}");
+
+    private static final UrlTemplate DOWNLOAD_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/cgi-bin/media/get?access_token={access_token}&media_id={media_id}");
+
+    private static final UrlTemplate ADD_MATERIAL_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/cgi-bin/material/add_material?access_token={access_token}&type={type}");
+
 
     /**
      * 上传临时素材
@@ -35,15 +44,14 @@ public class WeChatUploadUtil {
      * @return
      */
     public static JSONObject upload(String appId, String appSecret, String fileName) {
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        CloseableHttpClient httpClient = HttpClientManager.getClient();
         JSONObject jsonObject = null;
         try {
             String access_token = WeChatMiniUtil.getAccessToken(appId, appSecret);
             if (ObjectUtils.isEmpty(access_token)) {
                 throw new Exception("appId 或 appSecret 错误");
             }
-            String url = "https://api.weixin.qq.com/cgi-bin/media/upload?access_token=ACCESS_TOKEN&type=TYPE";
-            url = url.replace("ACCESS_TOKEN", access_token).replace("TYPE", "image");
+            String url = UPLOAD_URL.expand(access_token, "image");
 
             HttpPost httpPost = new HttpPost(url);
 
@@ -77,46 +85,34 @@ public class WeChatUploadUtil {
             //HttpEntity
             HttpEntity entity = builder.build();
             httpPost.setEntity(entity);
-            // 执行提交
-            HttpResponse response = httpClient.execute(httpPost);
-            //响应
-            HttpEntity responseEntity = response.getEntity();
-            // 响应状态码
-            int statusCode = response.getStatusLine().getStatusCode();
-            if (statusCode == 200 && responseEntity != null) {
-                // 将响应内容转换为字符串
-                String result = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-                jsonObject = JSONObject.parseObject(result);
+            // 执行提交，关闭响应即归还连接
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                //响应
+                HttpEntity responseEntity = response.getEntity();
+                // 响应状态码
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode == 200 && responseEntity != null) {
+                    // 将响应内容转换为字符串
+                    String result = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
+                    jsonObject = JSONObject.parseObject(result);
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            try {
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         return jsonObject;
     }
 
 
     public static JSONObject download(String appId, String appSecret, String media_id) {
-//        String url = "https://api.weixin.qq.com/cgi-bin/media/get?access_token=ACCESS_TOKEN&media_id=MEDIA_ID";
-        String host = "https://api.weixin.qq.com/cgi-bin/media/get?";
-        String path = "access_token=ACCESS_TOKEN&media_id=MEDIA_ID";
-        log.info("url={}", host + path);
+        log.info("url={}", DOWNLOAD_URL);
 
         String access_token = WeChatMiniUtil.getAccessToken(appId, appSecret);
         if (ObjectUtils.isEmpty(access_token)) {
             return null;
         }
-        path = path.replace("ACCESS_TOKEN", access_token);
-
-        Map<String, String> querys = new HashMap<>();
-        querys.put("media_id", media_id);
 
-        JSONObject jsonObject = WeChatHttpUtil.getBody(host, path, "get", null, querys, null);
+        JSONObject jsonObject = WeChatHttpUtil.getBody(DOWNLOAD_URL.expand(access_token, media_id), null, "get", null, null, null);
         if (ObjectUtils.isEmpty(jsonObject)) {
             return null;
         }
@@ -140,15 +136,14 @@ public class WeChatUploadUtil {
         String title,
         String introduction
     ) throws Exception {
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        CloseableHttpClient httpClient = HttpClientManager.getClient();
         JSONObject jsonObject = null;
         try {
             String access_token = WeChatMiniUtil.getAccessToken(appId, appSecret);
             if (ObjectUtils.isEmpty(access_token)) {
                 throw new Exception("appId 或 appSecret 错误");
             }
-            String url = "https://api.weixin.qq.com/cgi-bin/material/add_material?access_token=ACCESS_TOKEN&type=TYPE";
-            url = url.replace("ACCESS_TOKEN", access_token).replace("TYPE", type);
+            String url = ADD_MATERIAL_URL.expand(access_token, type);
 
             HttpPost httpPost = new HttpPost(url);
 
@@ -191,25 +186,20 @@ public class WeChatUploadUtil {
             //HttpEntity
             HttpEntity entity = builder.build();
             httpPost.setEntity(entity);
-            // 执行提交
-            HttpResponse response = httpClient.execute(httpPost);
-            //响应
-            HttpEntity responseEntity = response.getEntity();
-            // 响应状态码
-            int statusCode = response.getStatusLine().getStatusCode();
-            if (statusCode == 200 && responseEntity != null) {
-                // 将响应内容转换为字符串
-                String result = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
-                jsonObject = JSONObject.parseObject(result);
+            // 执行提交，关闭响应即归还连接
+            try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+                //响应
+                HttpEntity responseEntity = response.getEntity();
+                // 响应状态码
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode == 200 && responseEntity != null) {
+                    // 将响应内容转换为字符串
+                    String result = EntityUtils.toString(responseEntity, StandardCharsets.UTF_8);
+                    jsonObject = JSONObject.parseObject(result);
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            try {
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         return jsonObject;
     }
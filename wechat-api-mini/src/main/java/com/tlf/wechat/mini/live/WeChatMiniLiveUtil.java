@@ -2,6 +2,9 @@ package com.tlf.wechat.mini.live;
 
 import com.alibaba.fastjson.JSONObject;
 import com.tlf.wechat.WeChatHttpUtil;
+import com.tlf.wechat.http.UrlTemplate;
+import com.tlf.wechat.http.schedule.Priority;
+import com.tlf.wechat.http.schedule.RequestScheduler;
 import com.tlf.wechat.mini.WeChatMiniUtil;
 import org.apache.commons.lang3.ObjectUtils;
 import org.slf4j.Logger;
@@ -10,10 +13,20 @@ import org.slf4j.LoggerFactory;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class WeChatMiniLiveUtil {
     private static final Logger log = LoggerFactory.getLogger(WeChatMiniLiveUtil.class);
 
+    private static final UrlTemplate CREATE_ROOM_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/wxaapi/broadcast/room/create?access_token={access_token}");
+
+    private static final UrlTemplate LIVE_INFO_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/wxa/business/getliveinfo?access_token={access_token}");
+
+    private static final UrlTemplate SHARE_CODE_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/wxaapi/broadcast/room/getsharedcode?access_token={access_token}&roomId={roomId}");
+
 
     /**
      * 设置直播参数
@@ -92,14 +105,12 @@ public class WeChatMiniLiveUtil {
      * @return
      */
     public static JSONObject create(String appId, String appSecret, Map<String, Object> params) {
-//        String url = "https://api.weixin.qq.com/wxaapi/broadcast/room/create?access_token=";
         String access_token = WeChatMiniUtil.getAccessToken(appId, appSecret);
-        String host = "https://api.weixin.qq.com";
-        String path = "/wxaapi/broadcast/room/create?access_token=" + access_token;
+        String url = CREATE_ROOM_URL.expand(access_token);
 
         Map<String, String> headers = new HashMap<>();
         headers.put("Content-Type", "application/json");
-        JSONObject jsonObject = WeChatHttpUtil.getBody(host, path, "post", headers, null, params);
+        JSONObject jsonObject = WeChatHttpUtil.getBody(url, null, "post", headers, null, params);
         if (ObjectUtils.isEmpty(jsonObject)) {
             return null;
         }
@@ -118,13 +129,10 @@ public class WeChatMiniLiveUtil {
      */
     public static JSONObject getLiveInfo(String appId, String appSecret, Integer start, Integer limit) {
         String access_token = WeChatMiniUtil.getAccessToken(appId, appSecret);
-        String host = "https://api.weixin.qq.com";
-        String path = "/wxa/business/getliveinfo?access_token=" + access_token;
-//        String url = "https://api.weixin.qq.com/wxa/business/getliveinfo?access_token=" + access_token;
         Map<String, Object> params = new HashMap<>();
         params.put("start", start);
         params.put("limit", limit);
-        JSONObject jsonObject = WeChatHttpUtil.getBody(host, path, "post", null, null, params);
+        JSONObject jsonObject = WeChatHttpUtil.getBody(LIVE_INFO_URL.expand(access_token), null, "post", null, null, params);
         if (ObjectUtils.isEmpty(jsonObject)) {
             return null;
         }
@@ -133,6 +141,26 @@ public class WeChatMiniLiveUtil {
     }
 
 
+    /**
+     * 异步获取直播列表
+     *
+     * @param appId
+     * @param appSecret
+     * @param start
+     * @param limit
+     * @return
+     */
+    public static CompletableFuture<JSONObject> getLiveInfoAsync(String appId, String appSecret, Integer start, Integer limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("start", start);
+        params.put("limit", limit);
+        return WeChatMiniUtil.getAccessTokenAsync(appId, appSecret)
+                .thenCompose(access_token -> WeChatHttpUtil.getBodyAsync(
+                        LIVE_INFO_URL.expand(access_token), null, "post", null, null, params
+                ));
+    }
+
+
     /**
      * 获取直播间分享二维码
      *
@@ -142,17 +170,13 @@ public class WeChatMiniLiveUtil {
      * @return
      */
     public static JSONObject getShareCode(String appId, String appSecret, String roomId) {
-//        String url = "https://api.weixin.qq.com/wxaapi/broadcast/room/getsharedcode?access_token=";
-        String host = "https://api.weixin.qq.com";
-        String path = "/wxaapi/broadcast/room/getsharedcode?access_token=";
-        log.info("url={}", host + path);
+        log.info("url={}", SHARE_CODE_URL);
         String access_token = WeChatMiniUtil.getAccessToken(appId, appSecret);
         if (ObjectUtils.isEmpty(access_token)) {
             return null;
         }
-        path = path + access_token + "&roomId=" + roomId;
 
-        JSONObject jsonObject = WeChatHttpUtil.getBody(host, path, "get", null, null, null);
+        JSONObject jsonObject = WeChatHttpUtil.getBody(SHARE_CODE_URL.expand(access_token, roomId), null, "get", null, null, null);
         if (ObjectUtils.isEmpty(jsonObject)) {
             return null;
         }
@@ -170,22 +194,26 @@ public class WeChatMiniLiveUtil {
      * @return
      */
     public static JSONObject getLiveReplay(String appId, String appSecret, String roomId, Integer start, Integer limit) {
-//        String url = "https://api.weixin.qq.com/wxa/business/getliveinfo?access_token=";
-        String host = "https://api.weixin.qq.com";
-        String path = "/wxa/business/getliveinfo?access_token=";
-        log.info("url={}", host + path);
+        log.info("url={}", LIVE_INFO_URL);
         String access_token = WeChatMiniUtil.getAccessToken(appId, appSecret);
         if (ObjectUtils.isEmpty(access_token)) {
             return null;
         }
-        path = path + access_token;
         Map<String, Object> formData = new HashMap<>();
         formData.put("action", "get_replay");
         formData.put("room_id", roomId);
         formData.put("start", ObjectUtils.isNotEmpty(start) ? start : 0);
         formData.put("limit", ObjectUtils.isNotEmpty(limit) ? limit : 10);
 
-        JSONObject jsonObject = WeChatHttpUtil.getBody(host, path, "post", null, null, formData);
+        // 回放列表用于后台同步，按批量任务调度，不挤占用户请求
+        JSONObject jsonObject;
+        try {
+            jsonObject = RequestScheduler.call(Priority.BATCH,
+                    () -> WeChatHttpUtil.getBody(LIVE_INFO_URL.expand(access_token), null, "post", null, null, formData));
+        } catch (Exception e) {
+            log.warn("获取直播回放失败：{}", roomId, e);
+            return null;
+        }
         if (ObjectUtils.isEmpty(jsonObject)) {
             return null;
         }
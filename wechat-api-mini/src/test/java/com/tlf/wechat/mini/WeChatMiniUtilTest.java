@@ -0,0 +1,140 @@
+package com.tlf.wechat.mini;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tlf.wechat.http.WeChatHosts;
+import com.tlf.wechat.http.timeout.Deadline;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * 通过 WeChatHosts 把 api.weixin.qq.com 指向本地桩服务
+ */
+class WeChatMiniUtilTest {
+
+    /**
+     * 截止时间之外允许的误差：中止请求、线程调度
+     */
+    private static final long MARGIN_MILLIS = 200;
+
+    private static HttpServer server;
+    private static volatile long tokenDelay;
+    private static volatile long phoneDelay;
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/cgi-bin/token", exchange -> {
+            sleep(tokenDelay);
+            String query = exchange.getRequestURI().getRawQuery();
+            respond(exchange, query.contains("appid=wx1") && query.contains("secret=S%26S")
+                    ? "{\"access_token\":\"TOKEN\",\"expires_in\":7200}"
+                    : "{\"errcode\":40013,\"errmsg\":\"invalid appid\"}");
+        });
+        server.createContext("/wxa/business/getuserphonenumber", exchange -> {
+            sleep(phoneDelay);
+            String body = read(exchange.getRequestBody());
+            boolean valid = exchange.getRequestURI().getRawQuery().equals("access_token=TOKEN") && body.contains("\"code\":\"C1\"");
+            respond(exchange, valid
+                    ? "{\"errcode\":0,\"errmsg\":\"ok\",\"phone_info\":{\"phoneNumber\":\"13580006666\",\"purePhoneNumber\":\"13580006666\",\"countryCode\":\"86\"}}"
+                    : "{\"errcode\":40029,\"errmsg\":\"invalid code\"}");
+        });
+        server.start();
+        WeChatHosts.override(WeChatHosts.API, "http://127.0.0.1:" + server.getAddress().getPort());
+        // 首次请求创建连接池、SSLContext 并加载类，耗时数百毫秒且不受截止时间限制，先预热
+        WeChatMiniUtil.getPhone("wx1", "S&S", "C1");
+        WeChatMiniUtil.getPhoneAsync("wx1", "S&S", "C1").join();
+    }
+
+    @AfterAll
+    static void stop() {
+        WeChatHosts.reset();
+        server.stop(0);
+    }
+
+    @BeforeEach
+    void noDelay() {
+        tokenDelay = 0;
+        phoneDelay = 0;
+    }
+
+
+    @Test
+    void getsAccessTokenAndPhone() throws Exception {
+        assertEquals("TOKEN", WeChatMiniUtil.getAccessToken("wx1", "S&S"));
+        assertNull(WeChatMiniUtil.getAccessToken("wx2", "S&S"));
+        assertEquals("13580006666", WeChatMiniUtil.getPhone("wx1", "S&S", "C1"));
+        assertNull(WeChatMiniUtil.getPhone("wx1", "S&S", "C2"));
+        assertEquals("13580006666", WeChatMiniUtil.getPhoneAsync("wx1", "S&S", "C1").get(5, TimeUnit.SECONDS));
+    }
+
+
+    /**
+     * 获取 access_token 和获取手机号共用一个截止时间：每一步都没有超时，但合计超过截止时间
+     */
+    @Test
+    void tokenAndPhoneShareOneDeadline() throws Exception {
+        tokenDelay = 150;
+        phoneDelay = 150;
+        long start = System.nanoTime();
+        assertNull(WeChatMiniUtil.getPhone("wx1", "S&S", "C1", Deadline.after(200)));
+        assertWithinDeadline(start, 200);
+
+        start = System.nanoTime();
+        assertNull(WeChatMiniUtil.getPhoneAsync("wx1", "S&S", "C1", Deadline.after(200)).get(5, TimeUnit.SECONDS));
+        assertWithinDeadline(start, 200);
+
+        assertEquals("13580006666", WeChatMiniUtil.getPhone("wx1", "S&S", "C1", Deadline.after(2000)));
+    }
+
+
+    private static void assertWithinDeadline(long start, long deadlineMillis) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed < deadlineMillis + MARGIN_MILLIS, elapsed + "ms");
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        } catch (IOException ignored) {
+            // 调用方已按截止时间中止
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            sb.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tlf.wechat.mini.live;
+
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tlf.wechat.http.WeChatHosts;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * 通过 WeChatHosts 把 api.weixin.qq.com 指向本地桩服务
+ */
+class WeChatMiniLiveUtilTest {
+
+    private static HttpServer server;
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/cgi-bin/token", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            respond(exchange, query.contains("appid=wx1")
+                    ? "{\"access_token\":\"TOKEN\",\"expires_in\":7200}"
+                    : "{\"errcode\":40013,\"errmsg\":\"invalid appid\"}");
+        });
+        server.createContext("/wxa/business/getliveinfo", exchange -> {
+            String body = read(exchange.getRequestBody());
+            if (body.contains("\"limit\":-1")) {
+                // 不返回应答直接断开连接
+                throw new IOException("reset");
+            }
+            respond(exchange, exchange.getRequestURI().getRawQuery().equals("access_token=TOKEN")
+                    ? "{\"errcode\":0,\"errmsg\":\"ok\",\"total\":1,\"room_info\":[{\"name\":\"直播间\",\"roomid\":1001,\"live_status\":101}]}"
+                    : "{\"errcode\":40001,\"errmsg\":\"invalid credential\"}");
+        });
+        server.start();
+        WeChatHosts.override(WeChatHosts.API, "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stop() {
+        WeChatHosts.reset();
+        server.stop(0);
+    }
+
+
+    @Test
+    void getsLiveInfoAsync() throws Exception {
+        JSONObject live = WeChatMiniLiveUtil.getLiveInfoAsync("wx1", "SECRET", 0, 10).get(5, TimeUnit.SECONDS);
+        assertEquals(1, live.getIntValue("total"));
+        assertEquals(1001, live.getJSONArray("room_info").getJSONObject(0).getIntValue("roomid"));
+    }
+
+
+    /**
+     * 获取 access_token 失败时以空 token 请求，返回微信的 errcode，与同步方法一致
+     */
+    @Test
+    void returnsErrcodeWhenTokenFails() throws Exception {
+        JSONObject live = WeChatMiniLiveUtil.getLiveInfoAsync("wx2", "SECRET", 0, 10).get(5, TimeUnit.SECONDS);
+        assertEquals(40001, live.getIntValue("errcode"));
+        assertEquals(40001, WeChatMiniLiveUtil.getLiveInfo("wx2", "SECRET", 0, 10).getIntValue("errcode"));
+    }
+
+
+    @Test
+    void completesWithNullOnConnectionFailure() throws Exception {
+        CompletableFuture<JSONObject> live = WeChatMiniLiveUtil.getLiveInfoAsync("wx1", "SECRET", 0, -1);
+        assertNull(live.get(5, TimeUnit.SECONDS));
+        assertFalse(live.isCompletedExceptionally());
+    }
+
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            sb.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+}
@@ -2,10 +2,12 @@ package com.tlf.wechat.oauth;
 
 
 import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.HttpUtil;
+import com.tlf.wechat.http.UrlTemplate;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +16,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -22,18 +25,22 @@ import java.util.Date;
 public class WeChatAuthUtil {
     private static final Logger log = LoggerFactory.getLogger(WeChatAuthUtil.class);
 
+    private static final UrlTemplate ACCESS_TOKEN_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/sns/oauth2/access_token?appid={appid}&secret={secret}&code={code}&grant_type=authorization_code");
+
+    private static final UrlTemplate USER_INFO_URL = UrlTemplate.compile(
+            "https://api.weixin.qq.com/sns/userinfo?access_token={access_token}&openid={openid}&lang=zh_CN");
+
     private static JSONObject doGetJson(String url) {
         JSONObject jsonObject = null;
-        try {
-            DefaultHttpClient client = new DefaultHttpClient();
-            HttpGet httpGet = new HttpGet(url);
-            HttpResponse response = client.execute(httpGet);
+        HttpGet httpGet = new HttpGet(url);
+        // 共享连接池，关闭响应即归还连接
+        try (CloseableHttpResponse response = HttpClientManager.getClient().execute(httpGet)) {
             HttpEntity entity = response.getEntity();
             if (entity != null) {
                 String result = EntityUtils.toString(entity, "UTF-8");
                 jsonObject = JSONObject.parseObject(result);
             }
-            httpGet.releaseConnection();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -41,6 +48,16 @@ public class WeChatAuthUtil {
     }
 
 
+    private static CompletableFuture<JSONObject> doGetJsonAsync(String url) {
+        return HttpUtil.getBodyAsync(url, null, "get", null, null, null, null)
+                .thenApply(result -> result == null ? null : JSONObject.parseObject(result))
+                .exceptionally(e -> {
+                    log.error("请求失败：{}", url, e);
+                    return null;
+                });
+    }
+
+
     private static String generatorUrl(String appId, String scope, String domainUrl, String callBackPath) {
         try {
             String state = String.valueOf(new Date().getTime());
@@ -102,8 +119,7 @@ public class WeChatAuthUtil {
      */
     public static JSONObject accessToken(String appId, String appsecret, String code) {
         // 拼接url
-        String url = "https://api.weixin.qq.com/sns/oauth2/access_token?appid=" + appId + "&secret="
-                + appsecret + "&code=" + code + "&grant_type=authorization_code";
+        String url = ACCESS_TOKEN_URL.expand(appId, appsecret, code);
         return doGetJson(url);
     }
 
@@ -115,11 +131,33 @@ public class WeChatAuthUtil {
      * @return
      */
     public static JSONObject userInfo(String openid, String access_token) {
-        String infoUrl = "https://api.weixin.qq.com/sns/userinfo?" +
-                "access_token=" + access_token +
-                "&openid=" + openid +
-                "&lang=zh_CN";
+        String infoUrl = USER_INFO_URL.expand(access_token, openid);
         return doGetJson(infoUrl);
     }
 
+
+    /**
+     * 异步刷新accessToken
+     * @param appId
+     * @param appsecret
+     * @param code
+     * @return
+     */
+    public static CompletableFuture<JSONObject> accessTokenAsync(String appId, String appsecret, String code) {
+        String url = ACCESS_TOKEN_URL.expand(appId, appsecret, code);
+        return doGetJsonAsync(url);
+    }
+
+
+    /**
+     * 异步获取微信用户信息
+     * @param openid
+     * @param access_token
+     * @return
+     */
+    public static CompletableFuture<JSONObject> userInfoAsync(String openid, String access_token) {
+        String infoUrl = USER_INFO_URL.expand(access_token, openid);
+        return doGetJsonAsync(infoUrl);
+    }
+
 }
@@ -0,0 +1,122 @@
+package com.tlf.wechat.oauth;
+
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tlf.wechat.http.WeChatHosts;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * 通过 WeChatHosts 把 api.weixin.qq.com 指向本地桩服务
+ */
+class WeChatAuthUtilTest {
+
+    private static HttpServer server;
+
+    /**
+     * 收到请求的客户端端口，端口相同说明复用了连接
+     */
+    private static final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/sns/oauth2/access_token", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            String query = exchange.getRequestURI().getRawQuery();
+            respond(exchange, query.contains("code=a%2Bb%2Fc%3D")
+                    ? "{\"access_token\":\"AT\",\"openid\":\"OPENID\",\"scope\":\"snsapi_userinfo\"}"
+                    : "{\"errcode\":40029,\"errmsg\":\"invalid code\"}");
+        });
+        server.createContext("/sns/userinfo", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query.contains("openid=RESET")) {
+                // 不返回应答直接断开连接
+                throw new IOException("reset");
+            }
+            respond(exchange, "access_token=AT&openid=OPENID&lang=zh_CN".equals(query)
+                    ? "{\"openid\":\"OPENID\",\"nickname\":\"微信用户\"}"
+                    : "{\"errcode\":40003,\"errmsg\":\"invalid openid\"}");
+        });
+        server.start();
+        WeChatHosts.override(WeChatHosts.API, "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stop() {
+        WeChatHosts.reset();
+        server.stop(0);
+    }
+
+
+    @Test
+    void syncCallsShareOnePooledConnection() {
+        clientPorts.clear();
+        // code 中的 + / = 按参数值编码
+        JSONObject token = WeChatAuthUtil.accessToken("wx1", "SECRET", "a+b/c=");
+        assertEquals("AT", token.getString("access_token"));
+        JSONObject user = WeChatAuthUtil.userInfo(token.getString("openid"), token.getString("access_token"));
+        assertEquals("微信用户", user.getString("nickname"));
+        assertEquals(40029, WeChatAuthUtil.accessToken("wx1", "SECRET", "other").getIntValue("errcode"));
+        assertEquals(1, clientPorts.size(), "connections " + clientPorts);
+    }
+
+
+    @Test
+    void asyncCallsReturnSameResults() throws Exception {
+        JSONObject token = WeChatAuthUtil.accessTokenAsync("wx1", "SECRET", "a+b/c=").get(5, TimeUnit.SECONDS);
+        assertEquals("OPENID", token.getString("openid"));
+        JSONObject user = WeChatAuthUtil.userInfoAsync("OPENID", "AT").get(5, TimeUnit.SECONDS);
+        assertEquals("微信用户", user.getString("nickname"));
+    }
+
+
+    /**
+     * errcode 原样返回；连接断开时重试用尽后正常结束，结果为 null
+     */
+    @Test
+    void asyncCallsCompleteWithErrcodeOrNull() throws Exception {
+        assertEquals(40029, WeChatAuthUtil.accessTokenAsync("wx1", "SECRET", "other").get(5, TimeUnit.SECONDS).getIntValue("errcode"));
+        assertEquals(40003, WeChatAuthUtil.userInfoAsync("OTHER", "AT").get(5, TimeUnit.SECONDS).getIntValue("errcode"));
+        CompletableFuture<JSONObject> reset = WeChatAuthUtil.userInfoAsync("RESET", "AT");
+        assertNull(reset.get(5, TimeUnit.SECONDS));
+        assertFalse(reset.isCompletedExceptionally());
+    }
+
+
+    @Test
+    void qrcodeUrlEncodesRedirect() {
+        String url = WeChatAuthUtil.pubQrcUrl("wx1", "https://example.com", "/callback?a=1");
+        assertTrue(url.startsWith("https://open.weixin.qq.com/connect/qrconnect?appid=wx1&redirect_uri=https%3A%2F%2Fexample.com%2Fcallback%3Fa%3D1&"));
+        assertTrue(url.contains("&scope=snsapi_userinfo&"));
+        assertTrue(url.endsWith("#wechat_redirect"));
+    }
+
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
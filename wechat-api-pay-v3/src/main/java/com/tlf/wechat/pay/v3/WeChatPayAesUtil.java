@@ -1,5 +1,8 @@
 package com.tlf.wechat.pay.v3;
 
+import com.tlf.wechat.http.jfr.FlightEvents;
+import com.tlf.wechat.http.metrics.Metrics;
+
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.GCMParameterSpec;
@@ -33,6 +36,9 @@ public class WeChatPayAesUtil {
             byte[] nonce,
             String ciphertext
     ) throws GeneralSecurityException, IOException {
+        long start = System.nanoTime();
+        Object event = FlightEvents.beginOperation();
+        boolean success = false;
         try {
             Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
 
@@ -42,11 +48,16 @@ public class WeChatPayAesUtil {
             cipher.init(Cipher.DECRYPT_MODE, key, spec);
             cipher.updateAAD(associatedData);
 
-            return new String(cipher.doFinal(Base64.getDecoder().decode(ciphertext)), "utf-8");
+            String plaintext = new String(cipher.doFinal(Base64.getDecoder().decode(ciphertext)), "utf-8");
+            success = true;
+            return plaintext;
         } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
             throw new IllegalStateException(e);
         } catch (InvalidKeyException | InvalidAlgorithmParameterException e) {
             throw new IllegalArgumentException(e);
+        } finally {
+            Metrics.record(Metrics.Operation.PAY_DECRYPT, start, success);
+            FlightEvents.endOperation(event, Metrics.Operation.PAY_DECRYPT, null, ciphertext == null ? -1 : ciphertext.length(), success);
         }
     }
 }
\ No newline at end of file
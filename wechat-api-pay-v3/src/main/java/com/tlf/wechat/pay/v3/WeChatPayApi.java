@@ -2,6 +2,8 @@ package com.tlf.wechat.pay.v3;
 
 import com.alibaba.fastjson.JSONObject;
 import com.google.gson.GsonBuilder;
+import com.tlf.wechat.http.UrlTemplate;
+import com.tlf.wechat.http.log.WireLog;
 import com.wechat.pay.contrib.apache.httpclient.notification.Notification;
 import com.wechat.pay.contrib.apache.httpclient.notification.NotificationHandler;
 import com.wechat.pay.contrib.apache.httpclient.notification.NotificationRequest;
@@ -15,10 +17,24 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 public class WeChatPayApi {
     private static final Logger log = LoggerFactory.getLogger(WeChatPayApi.class);
 
+    // 主域名不可用时由 DomainRouters 在发送时改写为备用域名 api2.mch.weixin.qq.com
+    private static final UrlTemplate CLOSE_URL = UrlTemplate.compile(
+        "https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{out_trade_no}/close");
+
+    private static final UrlTemplate OUT_TRADE_NO_URL = UrlTemplate.compile(
+        "https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{out_trade_no}?mchid={mchid}");
+
+    private static final UrlTemplate TRANSACTION_ID_URL = UrlTemplate.compile(
+        "https://api.mch.weixin.qq.com/v3/pay/transactions/id/{transaction_id}?mchid={mchid}");
+
+    private static final UrlTemplate REFUND_QUERY_URL = UrlTemplate.compile(
+        "https://api.mch.weixin.qq.com/v3/refund/domestic/refunds/{out_refund_no}");
+
 
     /**
      * 下单
@@ -42,30 +58,109 @@ public class WeChatPayApi {
         String openId,
         String ip,
         WeChatPayConfig wxConfig
+    ) {
+        String url = orderUrl(apiType, wxConfig);
+        String body = orderBody(orderNumber, money, goodInfo, timeExpire, apiType, openId, ip, wxConfig);
+
+        // 3、扫码支付下单
+        return WeChatPayHttpUtil.doPost(
+            wxConfig.getMchId(),
+            wxConfig.getMchSerialNo(),
+            wxConfig.getV3Key(),
+            wxConfig.getPrivateKey(),
+            url,
+            body
+        );
+
+    }
+
+
+    /**
+     * 异步下单，参数同 createOrder
+     *
+     * @param orderNumber
+     * @param money
+     * @param goodInfo
+     * @param timeExpire
+     * @param apiType     下单api类型：jsapi, nvtive, app, h5
+     * @param openId
+     * @param ip
+     * @param wxConfig
+     * @return
+     */
+    public CompletableFuture<JSONObject> createOrderAsync(
+        String orderNumber,
+        BigDecimal money,
+        String goodInfo,
+        String timeExpire,
+        String apiType,
+        String openId,
+        String ip,
+        WeChatPayConfig wxConfig
+    ) {
+        String url = orderUrl(apiType, wxConfig);
+        String body = orderBody(orderNumber, money, goodInfo, timeExpire, apiType, openId, ip, wxConfig);
+
+        return WeChatPayHttpUtil.doPostAsync(
+            wxConfig.getMchId(),
+            wxConfig.getMchSerialNo(),
+            wxConfig.getV3Key(),
+            wxConfig.getPrivateKey(),
+            url,
+            body
+        );
+    }
+
+
+    /**
+     * 下单地址
+     */
+    private String orderUrl(String apiType, WeChatPayConfig wxConfig) {
+        switch (apiType) {
+            case "jsapi":
+                return wxConfig.getJsApiUrl();
+            case "native":
+                return wxConfig.getNativeUrl();
+            case "h5":
+                return wxConfig.getH5Url();
+            case "app":
+                return wxConfig.getH5Url();
+        }
+        return "";
+    }
+
+
+    /**
+     * 下单参数
+     */
+    private String orderBody(
+        String orderNumber,
+        BigDecimal money,
+        String goodInfo,
+        String timeExpire,
+        String apiType,
+        String openId,
+        String ip,
+        WeChatPayConfig wxConfig
     ) {
         money = money.setScale(2, BigDecimal.ROUND_UP);
 
-        String url = "";
         SortedMap<Object, Object> parameters = new TreeMap<>();
         switch (apiType) {
             case "jsapi":
                 // JSAPI支付或小程序支付，请求方式POST，返回值：prepay_id（预支付交易会话标识）
-                url = wxConfig.getJsApiUrl();
                 parameters = WeChatPayService.parametersJSAPI(orderNumber, goodInfo, money, openId, wxConfig);
                 break;
             case "native":
                 // 扫码支付，请求方式POST，返回值：code_url（二维码链接）
-                url = wxConfig.getNativeUrl();
                 parameters = WeChatPayService.parametersNATIVE(orderNumber, goodInfo, money, wxConfig);
                 break;
             case "h5":
                 // H5 支付，请求方式POST，返回值：h5_url（支付跳转链接）
-                url = wxConfig.getH5Url();
                 parameters = WeChatPayService.parametersH5(orderNumber, goodInfo, money, ip, wxConfig);
                 break;
             case "app":
                 // APP 支付，请求方式POST，返回值：prepay_id（预支付交易会话标识）
-                url = wxConfig.getH5Url();
                 parameters = WeChatPayService.parametersApp(orderNumber, goodInfo, money, wxConfig);
                 break;
         }
@@ -76,18 +171,7 @@ public class WeChatPayApi {
         }
 
         // 2、转换成json字符串，开始微信支付请求
-        String body = new GsonBuilder().create().toJson(parameters);
-
-        // 3、扫码支付下单
-        return WeChatPayHttpUtil.doPost(
-            wxConfig.getMchId(),
-            wxConfig.getMchSerialNo(),
-            wxConfig.getV3Key(),
-            wxConfig.getPrivateKey(),
-            url,
-            body
-        );
-
+        return new GsonBuilder().create().toJson(parameters);
     }
 
 
@@ -106,7 +190,7 @@ public class WeChatPayApi {
     ) {
         try {
             // 请求URL
-            String url = "https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/" + outTradeNo + "/close";
+            String url = CLOSE_URL.expand(outTradeNo);
 
             SortedMap<Object, Object> parameters = new TreeMap<>();
             parameters.put("mchid", wxConfig.getMchId());
@@ -159,20 +243,40 @@ public class WeChatPayApi {
         String outTradeNo,
         WeChatPayConfig wxConfig
     ) {
-        String url = "https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/" +
-            outTradeNo +
-            "?mchid=" +
-            wxConfig.getMchId();
-
         return WeChatPayHttpUtil.doGet(
             wxConfig.getMchId(),
             wxConfig.getMchSerialNo(),
             wxConfig.getPrivateKey(),
-            url
+            outTradeNoUrl(outTradeNo, wxConfig)
         );
     }
 
 
+    /**
+     * 异步查询订单，参数同 selectOrderOutTradeNo
+     *
+     * @param outTradeNo 订单号
+     * @param wxConfig
+     * @return 返回交易状态
+     */
+    public CompletableFuture<JSONObject> selectOrderOutTradeNoAsync(
+        String outTradeNo,
+        WeChatPayConfig wxConfig
+    ) {
+        return WeChatPayHttpUtil.doGetAsync(
+            wxConfig.getMchId(),
+            wxConfig.getMchSerialNo(),
+            wxConfig.getPrivateKey(),
+            outTradeNoUrl(outTradeNo, wxConfig)
+        );
+    }
+
+
+    private String outTradeNoUrl(String outTradeNo, WeChatPayConfig wxConfig) {
+        return OUT_TRADE_NO_URL.expand(outTradeNo, wxConfig.getMchId());
+    }
+
+
     /**
      * 查询订单
      * 是否支付成功，用于订单超时检测，返回SUCCESS则支付成功
@@ -191,19 +295,40 @@ public class WeChatPayApi {
         String transactionId,
         WeChatPayConfig wxConfig
     ) {
-        String url = "https://api.mch.weixin.qq.com/v3/pay/transactions/id/" +
-            transactionId +
-            "?mchid=" + wxConfig.getMchId();
-
         return WeChatPayHttpUtil.doGet(
             wxConfig.getMchId(),
             wxConfig.getMchSerialNo(),
             wxConfig.getPrivateKey(),
-            url
+            transactionIdUrl(transactionId, wxConfig)
         );
     }
 
 
+    /**
+     * 异步查询订单，参数同 selectOrderByTransactionId
+     *
+     * @param transactionId 订单号
+     * @param wxConfig
+     * @return 返回交易状态
+     */
+    public CompletableFuture<JSONObject> selectOrderByTransactionIdAsync(
+        String transactionId,
+        WeChatPayConfig wxConfig
+    ) {
+        return WeChatPayHttpUtil.doGetAsync(
+            wxConfig.getMchId(),
+            wxConfig.getMchSerialNo(),
+            wxConfig.getPrivateKey(),
+            transactionIdUrl(transactionId, wxConfig)
+        );
+    }
+
+
+    private String transactionIdUrl(String transactionId, WeChatPayConfig wxConfig) {
+        return TRANSACTION_ID_URL.expand(transactionId, wxConfig.getMchId());
+    }
+
+
     /**
      * 退款
      * 当交易发生之后一年内，由于买家或者卖家的原因需要退款时，卖家可以通过退款接口将支付金额退还给买家，
@@ -226,6 +351,62 @@ public class WeChatPayApi {
         BigDecimal refund,
         BigDecimal total,
         WeChatPayConfig wxConfig
+    ) {
+        String data = refundBody(transactionId, out_trade_no, out_refund_no, reason, refund, total, wxConfig);
+        return WeChatPayHttpUtil.doPost(
+            wxConfig.getMchId(),
+            wxConfig.getMchSerialNo(),
+            wxConfig.getPrivateKey(),
+            wxConfig.getRefundUrl(),
+            data
+        );
+
+    }
+
+
+    /**
+     * 异步退款，参数同 refund
+     *
+     * @param transactionId：微信支付订单号
+     * @param out_trade_no：商户订单号
+     * @param out_refund_no：商户退款单号
+     * @param reason
+     * @param refund
+     * @param total
+     * @param wxConfig
+     * @return
+     */
+    public CompletableFuture<JSONObject> refundAsync(
+        String transactionId,
+        String out_trade_no,
+        String out_refund_no,
+        String reason,
+        BigDecimal refund,
+        BigDecimal total,
+        WeChatPayConfig wxConfig
+    ) {
+        String data = refundBody(transactionId, out_trade_no, out_refund_no, reason, refund, total, wxConfig);
+        return WeChatPayHttpUtil.doPostAsync(
+            wxConfig.getMchId(),
+            wxConfig.getMchSerialNo(),
+            wxConfig.getPrivateKey(),
+            wxConfig.getRefundUrl(),
+            data
+        );
+    }
+
+
+    /**
+     * 退款参数
+     */
+    private String refundBody(
+        String transactionId,
+        String out_trade_no,
+        String out_refund_no,
+        String reason,
+        BigDecimal refund,
+        BigDecimal total,
+        WeChatPayConfig wxConfig
     ) {
         Map<Object, Object> parameters = new HashMap<>();
         parameters.put("transaction_id", transactionId);
@@ -241,19 +422,7 @@ public class WeChatPayApi {
 
         parameters.put("amount", amount);
 
-        String data = new GsonBuilder().create().toJson(parameters);
-
-        log.info("========== \n");
-        log.info("refund data = " + data + "\n");
-        log.info("========== \n");
-        return WeChatPayHttpUtil.doPost(
-            wxConfig.getMchId(),
-            wxConfig.getMchSerialNo(),
-            wxConfig.getPrivateKey(),
-            wxConfig.getRefundUrl(),
-            data
-        );
-
+        return new GsonBuilder().create().toJson(parameters);
     }
 
 
@@ -272,17 +441,40 @@ public class WeChatPayApi {
         String outTradeNo,
         WeChatPayConfig wxConfig
     ) {
-        String url = "https://api.mch.weixin.qq.com/v3/refund/domestic/refunds/" + outTradeNo;
-
         return WeChatPayHttpUtil.doGet(
             wxConfig.getMchId(),
             wxConfig.getMchSerialNo(),
             wxConfig.getPrivateKey(),
-            url
+            refundQueryUrl(outTradeNo)
         );
     }
 
 
+    /**
+     * 异步查询退款订单，参数同 selectRefundOrderOutTradeNo
+     *
+     * @param outTradeNo 订单号
+     * @param wxConfig
+     * @return 返回交易状态
+     */
+    public CompletableFuture<JSONObject> selectRefundOrderOutTradeNoAsync(
+        String outTradeNo,
+        WeChatPayConfig wxConfig
+    ) {
+        return WeChatPayHttpUtil.doGetAsync(
+            wxConfig.getMchId(),
+            wxConfig.getMchSerialNo(),
+            wxConfig.getPrivateKey(),
+            refundQueryUrl(outTradeNo)
+        );
+    }
+
+
+    private String refundQueryUrl(String outTradeNo) {
+        return REFUND_QUERY_URL.expand(outTradeNo);
+    }
+
+
     /**
      * 回调
      *
@@ -326,9 +518,8 @@ public class WeChatPayApi {
 
             // 从notification中获取解密报文。
             String plainText = notification.getDecryptData();
-            log.info("========== \n");
-            log.info("plainText = " + plainText);
-            log.info("========== \n");
+            // 明文包含支付者和金额信息，只记录长度
+            WireLog.payload("pay.callback", plainText, ObjectUtils.isNotEmpty(plainText));
             if (ObjectUtils.isNotEmpty(plainText)) {
                 JSONObject resource = JSONObject.parseObject(plainText);
                 // 成功应答
@@ -341,6 +532,7 @@ public class WeChatPayApi {
         } catch (Exception e) {
             e.printStackTrace();
             log.error("验签失败");
+            WireLog.payload("pay.callback", body, false);
         }
         // 应答失败
         map.put("code", "ERROR");
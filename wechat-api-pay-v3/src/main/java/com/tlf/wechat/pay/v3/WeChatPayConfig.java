@@ -1,6 +1,8 @@
 package com.tlf.wechat.pay.v3;
 
 
+import com.tlf.wechat.http.WeChatHosts;
+
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Map;
@@ -114,7 +116,7 @@ public class WeChatPayConfig {
 
 
     public String getCertificatesUrl() {
-        return certificatesUrl;
+        return WeChatHosts.resolve(certificatesUrl);
     }
 
     public void setCertificatesUrl(String certificatesUrl) {
@@ -122,7 +124,7 @@ public class WeChatPayConfig {
     }
 
     public String getNativeUrl() {
-        return nativeUrl;
+        return WeChatHosts.resolve(nativeUrl);
     }
 
     public void setNativeUrl(String nativeUrl) {
@@ -130,7 +132,7 @@ public class WeChatPayConfig {
     }
 
     public String getAppUrl() {
-        return AppUrl;
+        return WeChatHosts.resolve(AppUrl);
     }
 
     public void setAppUrl(String appUrl) {
@@ -138,7 +140,7 @@ public class WeChatPayConfig {
     }
 
     public String getJsApiUrl() {
-        return jsApiUrl;
+        return WeChatHosts.resolve(jsApiUrl);
     }
 
     public void setJsApiUrl(String jsApiUrl) {
@@ -218,7 +220,7 @@ public class WeChatPayConfig {
     }
 
     public String getH5Url() {
-        return h5Url;
+        return WeChatHosts.resolve(h5Url);
     }
 
     public void setH5Url(String h5Url) {
@@ -227,7 +229,7 @@ public class WeChatPayConfig {
 
 
     public String getRefundUrl() {
-        return refundUrl;
+        return WeChatHosts.resolve(refundUrl);
     }
 
     public void setRefundUrl(String refundUrl) {
@@ -243,7 +245,7 @@ public class WeChatPayConfig {
     }
 
     public String getTransfersUrl() {
-        return transfersUrl;
+        return WeChatHosts.resolve(transfersUrl);
     }
 
     public void setTransfersUrl(String transfersUrl) {
@@ -0,0 +1,558 @@
+package com.tlf.wechat.pay.v3;
+
+
+import com.alibaba.fastjson.JSONObject;
+import com.tlf.wechat.http.HttpAsyncClientManager;
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.UrlTemplate;
+import com.tlf.wechat.http.WeChatHosts;
+import com.tlf.wechat.http.coalesce.SingleFlight;
+import com.tlf.wechat.http.failover.DomainRouters;
+import com.tlf.wechat.http.hedge.Hedger;
+import com.tlf.wechat.http.log.WireLog;
+import com.tlf.wechat.http.retry.RetryClassifier;
+import com.tlf.wechat.http.retry.Retryer;
+import com.tlf.wechat.http.timeout.TimeoutProfiles;
+import com.tlf.wechat.http.response.JsonBodyHandler;
+import com.tlf.wechat.http.response.JsonFieldHandler;
+import com.tlf.wechat.http.response.ResponseBodies;
+import com.tlf.wechat.http.response.WeChatResponse;
+import com.wechat.pay.contrib.apache.httpclient.auth.Verifier;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.PrivateKey;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+
+public class WeChatPayHttpUtil {
+    private static final Logger log = LoggerFactory.getLogger(WeChatPayHttpUtil.class);
+
+    /**
+     * 合并请求时区分是否校验了应答签名
+     */
+    private static final String VERIFIED = "verified";
+
+
+    /**
+     * token方式
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @return
+     */
+    public static JSONObject doGet(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String url
+    ) {
+        return doRequest(mchId, mchSerialNo, privateKey, "GET", url, "");
+    }
+
+
+    /**
+     * 自动签名和验签
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @return
+     */
+    public static JSONObject doGet(
+            String mchId,
+            String mchSerialNo,
+            String v3Key,
+            PrivateKey privateKey,
+            String url
+    ) {
+        return doSignedRequest(mchId, mchSerialNo, v3Key, privateKey, "GET", url, null);
+    }
+
+
+    /**
+     * token
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @param body
+     * @return
+     */
+    public static JSONObject doPost(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String url,
+            String body
+    ) {
+        return doRequest(mchId, mchSerialNo, privateKey, "POST", url, body);
+    }
+
+
+    /**
+     * token方式发起请求，可重试的失败（网络异常、5xx、SYSTEM_ERROR 等）按重试策略重新签名后重试
+     * 非幂等接口只在请求确定没有被处理时重试
+     */
+    private static JSONObject doRequest(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String method,
+            String url,
+            String body
+    ) {
+        final long start = System.nanoTime();
+        WeChatResponse response = null;
+        Exception error = null;
+        try {
+            final boolean idempotent = RetryClassifier.isIdempotent(method, url);
+            response = SingleFlight.call(SingleFlight.key(method, url, body), url, () -> TimeoutProfiles.call(url, () -> Retryer.call(
+                    idempotent,
+                    () -> Hedger.call(url, () -> execute(mchId, mchSerialNo, privateKey, method, url, body,
+                            new JsonBodyHandler(HttpClientManager.getConfig().getMaxBodySize()))),
+                    r -> RetryClassifier.isRetryable(r, idempotent)
+            )));
+        } catch (Exception e) {
+            error = e;
+        }
+        WireLog.exchange(method, url, body, response, error, start);
+        if (response != null && response.getStatusCode() == 200) {
+            return response.getData();
+        }
+        return null;
+    }
+
+
+    /**
+     * 自动签名和验签
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @param body
+     * @return
+     */
+    public static JSONObject doPost(
+            String mchId,
+            String mchSerialNo,
+            String v3Key,
+            PrivateKey privateKey,
+            String url,
+            String body
+    ) {
+        return doSignedRequest(mchId, mchSerialNo, v3Key, privateKey, "POST", url, body);
+    }
+
+
+    /**
+     * 自动签名和验签方式发起请求，重试规则同 token 方式
+     */
+    private static JSONObject doSignedRequest(
+            String mchId,
+            String mchSerialNo,
+            String v3Key,
+            PrivateKey privateKey,
+            String method,
+            String url,
+            String body
+    ) {
+        if (WeChatHosts.isOverridden(WeChatHosts.PAY)) {
+            // 自动签名的 HttpClient 只对 *.mch.weixin.qq.com 签名和验签，域名替换后改为手动签名和验签
+            return executeAsync(mchId, mchSerialNo, v3Key, privateKey, method, url, body).join();
+        }
+        final long start = System.nanoTime();
+        WeChatResponse response = null;
+        Exception error = null;
+        CloseableHttpClient httpClient = null;
+        try {
+            Verifier verifier = WeChatPayUtil.getVerifier(
+                    mchId,
+                    mchSerialNo,
+                    v3Key,
+                    privateKey
+            );
+
+            /**
+             * 方式二：自动签名和验签
+             */
+            final CloseableHttpClient client = WeChatPayUtil.getWxPayClient(verifier,
+                    mchId,
+                    mchSerialNo,
+                    privateKey
+            );
+            httpClient = client;
+
+            final boolean idempotent = RetryClassifier.isIdempotent(method, url);
+            // 已验签的结果只和同样要求验签的调用共用
+            response = SingleFlight.call(SingleFlight.key(method, url, body, VERIFIED), url, () -> TimeoutProfiles.call(url, () -> Retryer.call(
+                    idempotent,
+                    // 与 token 方式一样，登记的查询接口超过分位延迟未返回时对冲
+                    () -> Hedger.call(url, () -> {
+                        String target = DomainRouters.route(url);
+                        HttpRequestBase request;
+                        if ("POST".equals(method)) {
+                            HttpPost httpPost = new HttpPost(target);
+                            // 构建消息实体
+                            httpPost.setEntity(new StringEntity(body, "utf-8"));
+                            request = httpPost;
+                        } else {
+                            request = new HttpGet(target);
+                        }
+                        request.addHeader("Content-Type", "application/json;charset=UTF-8");
+                        request.addHeader("Accept", "application/json");
+                        // 每次请求由 HttpClient 重新签名，关闭响应即归还连接
+                        long sent = System.nanoTime();
+                        try {
+                            WeChatResponse result = client.execute(request, new JsonBodyHandler(HttpClientManager.getConfig().getMaxBodySize()));
+                            DomainRouters.complete(target, sent, null);
+                            return result;
+                        } catch (Exception e) {
+                            DomainRouters.complete(target, sent, e);
+                            throw e;
+                        }
+                    }),
+                    r -> RetryClassifier.isRetryable(r, idempotent)
+            )));
+        } catch (Exception e) {
+            error = e;
+        } finally {
+            // 自动签名的 HttpClient 共享连接池，关闭时不会关闭连接池
+            try {
+                if (httpClient != null) {
+                    httpClient.close();
+                }
+            } catch (Exception e) {
+                log.warn("关闭 HttpClient 失败：{}", url, e);
+            }
+        }
+        WireLog.exchange(method, url, body, response, error, start);
+        if (response != null && response.getStatusCode() == 200) {
+            return response.getData();
+        }
+        return null;
+    }
+
+
+    /**
+     * token方式，只读取需要的字段
+     * 响应以流的方式解析，如下单只需要 prepay_id，查询订单只需要 trade_state
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @param fields      需要读取的顶层字段，code/message 总是会读取
+     * @return
+     */
+    public static WeChatResponse doGetFields(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String url,
+            String... fields
+    ) {
+        final long start = System.nanoTime();
+        WeChatResponse response = null;
+        Exception error = null;
+        try {
+            response = SingleFlight.call(SingleFlight.key("GET", url, "", fields), url, () -> TimeoutProfiles.call(url, () -> Retryer.call(
+                    true,
+                    () -> Hedger.call(url, () -> execute(mchId, mchSerialNo, privateKey, "GET", url, "",
+                            new JsonFieldHandler(HttpClientManager.getConfig().getMaxBodySize(), fields))),
+                    r -> RetryClassifier.isRetryable(r, true)
+            )));
+        } catch (Exception e) {
+            error = e;
+        }
+        WireLog.exchange("GET", url, "", response, error, start);
+        return response;
+    }
+
+
+    /**
+     * token方式，只读取需要的字段
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @param body
+     * @param fields      需要读取的顶层字段，code/message 总是会读取
+     * @return
+     */
+    public static WeChatResponse doPostFields(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String url,
+            String body,
+            String... fields
+    ) {
+        final long start = System.nanoTime();
+        WeChatResponse response = null;
+        Exception error = null;
+        try {
+            final boolean idempotent = RetryClassifier.isIdempotent("POST", url);
+            response = SingleFlight.call(SingleFlight.key("POST", url, body, fields), url, () -> TimeoutProfiles.call(url, () -> Retryer.call(
+                    idempotent,
+                    () -> Hedger.call(url, () -> execute(mchId, mchSerialNo, privateKey, "POST", url, body,
+                            new JsonFieldHandler(HttpClientManager.getConfig().getMaxBodySize(), fields))),
+                    r -> RetryClassifier.isRetryable(r, idempotent)
+            )));
+        } catch (Exception e) {
+            error = e;
+        }
+        WireLog.exchange("POST", url, body, response, error, start);
+        return response;
+    }
+
+
+    /**
+     * 异步 GET，token方式
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @return
+     */
+    public static CompletableFuture<JSONObject> doGetAsync(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String url
+    ) {
+        return executeAsync(mchId, mchSerialNo, null, privateKey, "GET", url, "");
+    }
+
+
+    /**
+     * 异步 GET，签名并校验应答签名
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param v3Key
+     * @param privateKey
+     * @param url
+     * @return
+     */
+    public static CompletableFuture<JSONObject> doGetAsync(
+            String mchId,
+            String mchSerialNo,
+            String v3Key,
+            PrivateKey privateKey,
+            String url
+    ) {
+        return executeAsync(mchId, mchSerialNo, v3Key, privateKey, "GET", url, "");
+    }
+
+
+    /**
+     * 异步 POST，token方式
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param privateKey
+     * @param url
+     * @param body
+     * @return
+     */
+    public static CompletableFuture<JSONObject> doPostAsync(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String url,
+            String body
+    ) {
+        return executeAsync(mchId, mchSerialNo, null, privateKey, "POST", url, body);
+    }
+
+
+    /**
+     * 异步 POST，签名并校验应答签名
+     *
+     * @param mchId
+     * @param mchSerialNo
+     * @param v3Key
+     * @param privateKey
+     * @param url
+     * @param body
+     * @return
+     */
+    public static CompletableFuture<JSONObject> doPostAsync(
+            String mchId,
+            String mchSerialNo,
+            String v3Key,
+            PrivateKey privateKey,
+            String url,
+            String body
+    ) {
+        return executeAsync(mchId, mchSerialNo, v3Key, privateKey, "POST", url, body);
+    }
+
+
+    /**
+     * 异步请求，与同步方法一致，失败时结果为 null
+     * v3Key 不为空时校验应答签名，可重试的失败按重试策略重新签名后重试
+     */
+    private static CompletableFuture<JSONObject> executeAsync(
+            String mchId,
+            String mchSerialNo,
+            String v3Key,
+            PrivateKey privateKey,
+            String method,
+            String url,
+            String body
+    ) {
+        Verifier verifier = null;
+        if (v3Key != null) {
+            try {
+                // 商户首次调用时会下载平台证书，之后直接从证书管理器获取
+                verifier = WeChatPayUtil.getVerifier(mchId, mchSerialNo, v3Key, privateKey);
+            } catch (Exception e) {
+                log.error("获取平台证书失败：{}", url, e);
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        final Verifier responseVerifier = verifier;
+        final long start = System.nanoTime();
+        final boolean idempotent = RetryClassifier.isIdempotent(method, url);
+        String key = verifier == null ? SingleFlight.key(method, url, body) : SingleFlight.key(method, url, body, VERIFIED);
+        return SingleFlight.callAsync(key, url, () -> TimeoutProfiles.supply(url, () -> Retryer.callAsync(
+                idempotent,
+                () -> Hedger.callAsync(url, () -> attemptAsync(mchId, mchSerialNo, privateKey, method, url, body, responseVerifier)),
+                r -> RetryClassifier.isRetryable(r, idempotent))))
+                .handle((response, e) -> {
+                    WireLog.exchange(method, url, body, response, e, start);
+                    if (e == null && response != null && response.getStatusCode() == 200) {
+                        return response.getData();
+                    }
+                    return null;
+                });
+    }
+
+
+    /**
+     * 一次异步请求，应答验签失败时以异常结束，不重试
+     */
+    private static CompletableFuture<WeChatResponse> attemptAsync(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String method,
+            String url,
+            String body,
+            Verifier verifier
+    ) {
+        // 每次请求（包括重试）单独选择域名，主域名不可用时改发备用域名
+        String target = DomainRouters.route(url);
+        HttpRequestBase request;
+        try {
+            request = buildRequest(mchId, mchSerialNo, privateKey, method, target, body);
+        } catch (Exception e) {
+            CompletableFuture<WeChatResponse> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        long sent = System.nanoTime();
+        return HttpAsyncClientManager.execute(request)
+                .whenComplete((httpResponse, e) -> DomainRouters.complete(target, sent, e))
+                .thenApply(httpResponse -> {
+                    int statusCode = httpResponse.getStatusLine().getStatusCode();
+                    String jsonResult;
+                    try {
+                        HttpEntity httpEntity = httpResponse.getEntity();
+                        jsonResult = httpEntity == null ? "" : ResponseBodies.readString(httpEntity, HttpClientManager.getConfig().getMaxBodySize());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    if (verifier != null && !WeChatPayUtil.verifyResponse(verifier, httpResponse, jsonResult)) {
+                        throw new CompletionException(new SecurityException("应答验签失败：" + url));
+                    }
+                    JSONObject data;
+                    try {
+                        data = jsonResult.isEmpty() ? new JSONObject() : JSONObject.parseObject(jsonResult);
+                    } catch (RuntimeException e) {
+                        if (statusCode == 200) {
+                            throw e;
+                        }
+                        data = new JSONObject();
+                    }
+                    return new WeChatResponse(statusCode, data == null ? new JSONObject() : data);
+                });
+    }
+
+
+    /**
+     * token方式执行一次请求
+     */
+    private static <T> T execute(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String method,
+            String url,
+            String body,
+            ResponseHandler<? extends T> handler
+    ) throws Exception {
+        // 每次请求（包括重试）单独选择域名，主域名不可用时改发备用域名
+        String target = DomainRouters.route(url);
+        HttpRequestBase request = buildRequest(mchId, mchSerialNo, privateKey, method, target, body);
+        long sent = System.nanoTime();
+        try {
+            T result = HttpClientManager.getClient().execute(request, handler);
+            DomainRouters.complete(target, sent, null);
+            return result;
+        } catch (Exception e) {
+            DomainRouters.complete(target, sent, e);
+            throw e;
+        }
+    }
+
+
+    /**
+     * 构建请求并签名，每次重试都重新生成 token（时间戳和随机串）
+     */
+    private static HttpRequestBase buildRequest(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            String method,
+            String url,
+            String body
+    ) throws Exception {
+        HttpRequestBase request;
+        if ("POST".equals(method)) {
+            HttpPost httpPost = new HttpPost(url);
+            // 构建消息实体
+            httpPost.setEntity(new StringEntity(body, "utf-8"));
+            request = httpPost;
+        } else {
+            request = new HttpGet(url);
+        }
+        request.addHeader("Content-Type", "application/json;charset=UTF-8");
+        request.addHeader("Accept", "application/json");
+        // 获取token，参与签名的 URL 直接从地址中截取，不重新解析；只取路径和参数，切换到备用域名后签名不变
+        String token = WeChatPayUtil.getToken(mchId, mchSerialNo, privateKey, method, UrlTemplate.canonicalOf(url), body);
+        // 设置Authorization
+        request.setHeader("Authorization", "WECHATPAY2-SHA256-RSA2048 " + token);
+        return request;
+    }
+
+}
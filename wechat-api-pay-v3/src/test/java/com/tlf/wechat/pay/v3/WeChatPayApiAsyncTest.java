@@ -0,0 +1,334 @@
+package com.tlf.wechat.pay.v3;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tlf.wechat.http.WeChatHosts;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * 异步接口对接本地支付桩：请求签名、应答验签（attemptAsync 手动验签）、业务失败和连接异常
+ * 桩服务校验请求的 Authorization，用测试平台证书对应答签名，平台证书按 v3Key 加密后从 /v3/certificates 下发
+ */
+class WeChatPayApiAsyncTest {
+
+    private static final String V3_KEY = "0123456789abcdef0123456789ABCDEF";
+    private static final String MCH_ID = "1900000001";
+    private static final Pattern TOKEN_FIELD = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+
+    private static final WeChatPayApi api = new WeChatPayApi();
+    private static final AtomicInteger unsigned = new AtomicInteger();
+
+    private static HttpServer server;
+    private static WeChatPayConfig config;
+    private static PublicKey merchantKey;
+    private static KeyPair platformKey;
+    private static X509Certificate platformCertificate;
+
+    @BeforeAll
+    static void start() throws Exception {
+        config = new WeChatPayConfig("wxd678efh567hg6787", MCH_ID, "MERCHANT0001", V3_KEY,
+                "https://example.com/pay/notify", "classpath:apiclient_key.pem", "https://example.com/refund/notify");
+        merchantKey = publicKey(config.getPrivateKey());
+        platformKey = keyPair();
+        platformCertificate = certificate(platformKey);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", WeChatPayApiAsyncTest::handle);
+        server.start();
+        WeChatHosts.override(WeChatHosts.PAY, "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stop() {
+        WeChatHosts.reset();
+        server.stop(0);
+    }
+
+
+    /**
+     * 下单时下载平台证书，应答验签通过后返回
+     */
+    @Test
+    void createOrderVerifiesSignedResponse() throws Exception {
+        JSONObject result = createOrder("A0001").get(10, TimeUnit.SECONDS);
+        assertEquals("wx201410272009395522657a690389285100", result.getString("prepay_id"));
+        assertEquals(0, unsigned.get());
+    }
+
+
+    /**
+     * 应答签名与内容不一致时验签失败，结果为 null，不重试
+     */
+    @Test
+    void createOrderRejectsTamperedResponse() throws Exception {
+        CompletableFuture<JSONObject> future = createOrder("TAMPERED");
+        assertNull(future.get(10, TimeUnit.SECONDS));
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+
+    /**
+     * 业务失败（4xx + code）结果为 null
+     */
+    @Test
+    void createOrderReturnsNullOnPayError() throws Exception {
+        assertNull(createOrder("PARAM_ERROR").get(10, TimeUnit.SECONDS));
+    }
+
+
+    @Test
+    void refundCompletesWithBody() throws Exception {
+        JSONObject result = refund("R0001").get(10, TimeUnit.SECONDS);
+        assertEquals("R0001", result.getString("out_refund_no"));
+        assertEquals("PROCESSING", result.getString("status"));
+        assertEquals(1, result.getJSONObject("amount").getIntValue("refund"));
+        assertNull(refund("NOT_FOUND").get(10, TimeUnit.SECONDS));
+        assertEquals(0, unsigned.get());
+    }
+
+
+    @Test
+    void selectOrderCompletesWithBody() throws Exception {
+        assertEquals("SUCCESS", api.selectOrderOutTradeNoAsync("A0001", config).get(10, TimeUnit.SECONDS).getString("trade_state"));
+        assertEquals("4200000000000000000000000001",
+                api.selectOrderByTransactionIdAsync("4200000000000000000000000001", config).get(10, TimeUnit.SECONDS).getString("transaction_id"));
+        assertEquals("SUCCESS", api.selectRefundOrderOutTradeNoAsync("R0001", config).get(10, TimeUnit.SECONDS).getString("status"));
+        assertEquals(0, unsigned.get());
+    }
+
+
+    /**
+     * 服务端未应答就断开连接，重试用尽后正常结束，结果为 null
+     */
+    @Test
+    void selectOrderCompletesWithNullOnConnectionFailure() throws Exception {
+        CompletableFuture<JSONObject> future = api.selectOrderOutTradeNoAsync("RESET", config);
+        assertNull(future.get(10, TimeUnit.SECONDS));
+        assertFalse(future.isCompletedExceptionally());
+    }
+
+
+    private static CompletableFuture<JSONObject> createOrder(String orderNumber) {
+        return api.createOrderAsync(orderNumber, new BigDecimal("0.01"), "测试商品", null, "jsapi", "oUpF8uMuAJO_M2pxb1Q9zNjWeS6o", null, config);
+    }
+
+    private static CompletableFuture<JSONObject> refund(String outRefundNo) {
+        return api.refundAsync(null, "A0001", outRefundNo, "测试退款", new BigDecimal("0.01"), new BigDecimal("0.01"), config);
+    }
+
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        String body = read(exchange.getRequestBody());
+        if (!authorized(exchange, body)) {
+            unsigned.incrementAndGet();
+            respond(exchange, 401, "{\"code\":\"SIGN_ERROR\",\"message\":\"签名错误\"}", null);
+            return;
+        }
+        if ("GET".equals(method) && path.equals("/v3/certificates")) {
+            respond(exchange, 200, certificates(), null);
+        } else if ("POST".equals(method) && path.equals("/v3/pay/transactions/jsapi")) {
+            String orderNumber = JSONObject.parseObject(body).getString("out_trade_no");
+            if ("PARAM_ERROR".equals(orderNumber)) {
+                respond(exchange, 400, "{\"code\":\"PARAM_ERROR\",\"message\":\"参数错误\"}", null);
+            } else if ("TAMPERED".equals(orderNumber)) {
+                respond(exchange, 200, "{\"prepay_id\":\"wx201410272009395522657a690389285100\"}", "{\"prepay_id\":\"forged\"}");
+            } else {
+                respond(exchange, 200, "{\"prepay_id\":\"wx201410272009395522657a690389285100\"}", null);
+            }
+        } else if ("POST".equals(method) && path.equals("/v3/refund/domestic/refunds")) {
+            JSONObject request = JSONObject.parseObject(body);
+            if ("NOT_FOUND".equals(request.getString("out_refund_no"))) {
+                respond(exchange, 404, "{\"code\":\"RESOURCE_NOT_EXISTS\",\"message\":\"订单不存在\"}", null);
+                return;
+            }
+            JSONObject refund = new JSONObject();
+            refund.put("out_refund_no", request.getString("out_refund_no"));
+            refund.put("status", "PROCESSING");
+            refund.put("amount", request.getJSONObject("amount"));
+            respond(exchange, 200, refund.toJSONString(), null);
+        } else if ("GET".equals(method) && path.equals("/v3/pay/transactions/out-trade-no/RESET")) {
+            // 不返回应答直接断开连接
+            throw new IOException("reset");
+        } else if ("GET".equals(method) && path.startsWith("/v3/pay/transactions/out-trade-no/")) {
+            respond(exchange, 200, "{\"out_trade_no\":\"A0001\",\"trade_state\":\"SUCCESS\"}", null);
+        } else if ("GET".equals(method) && path.startsWith("/v3/pay/transactions/id/")) {
+            respond(exchange, 200, "{\"transaction_id\":\"" + path.substring("/v3/pay/transactions/id/".length()) + "\"}", null);
+        } else if ("GET".equals(method) && path.startsWith("/v3/refund/domestic/refunds/")) {
+            respond(exchange, 200, "{\"status\":\"SUCCESS\"}", null);
+        } else {
+            respond(exchange, 404, "{\"code\":\"NOT_FOUND\"}", null);
+        }
+    }
+
+
+    /**
+     * 用商户公钥校验请求的 Authorization
+     */
+    private static boolean authorized(HttpExchange exchange, String body) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("WECHATPAY2-SHA256-RSA2048 ")) {
+            return false;
+        }
+        Map<String, String> token = new HashMap<>();
+        Matcher matcher = TOKEN_FIELD.matcher(authorization);
+        while (matcher.find()) {
+            token.put(matcher.group(1), matcher.group(2));
+        }
+        try {
+            URL url = new URL("http://127.0.0.1" + exchange.getRequestURI());
+            String message = WeChatPayUtil.buildMessage(exchange.getRequestMethod(), url,
+                    Long.parseLong(token.get("timestamp")), token.get("nonce_str"), body);
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initVerify(merchantKey);
+            signature.update(message.getBytes(StandardCharsets.UTF_8));
+            return MCH_ID.equals(token.get("mchid"))
+                    && signature.verify(Base64.getDecoder().decode(token.get("signature")));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * 应答签名，signedBody 不为空时对另一段内容签名，模拟被篡改的应答
+     */
+    private static void respond(HttpExchange exchange, int status, String json, String signedBody) throws IOException {
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String nonce = WeChatPayUtil.getNonceStr();
+        String message = timestamp + "\n" + nonce + "\n" + (signedBody == null ? json : signedBody) + "\n";
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().add("Wechatpay-Serial", platformCertificate.getSerialNumber().toString(16).toUpperCase());
+        exchange.getResponseHeaders().add("Wechatpay-Timestamp", timestamp);
+        exchange.getResponseHeaders().add("Wechatpay-Nonce", nonce);
+        exchange.getResponseHeaders().add("Wechatpay-Signature", sign(message));
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+
+    /**
+     * 平台证书列表，证书按 v3Key 以 AEAD_AES_256_GCM 加密
+     */
+    private static String certificates() {
+        try {
+            String nonce = WeChatPayUtil.getNonceStr(12);
+            String associatedData = "certificate";
+            String pem = "-----BEGIN CERTIFICATE-----\n"
+                    + Base64.getMimeEncoder(64, new byte[]{'\n'}).encodeToString(platformCertificate.getEncoded())
+                    + "\n-----END CERTIFICATE-----\n";
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(V3_KEY.getBytes(StandardCharsets.UTF_8), "AES"),
+                    new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8)));
+            cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+            JSONObject encrypt = new JSONObject();
+            encrypt.put("algorithm", "AEAD_AES_256_GCM");
+            encrypt.put("nonce", nonce);
+            encrypt.put("associated_data", associatedData);
+            encrypt.put("ciphertext", Base64.getEncoder().encodeToString(cipher.doFinal(pem.getBytes(StandardCharsets.UTF_8))));
+            JSONObject certificate = new JSONObject();
+            certificate.put("serial_no", platformCertificate.getSerialNumber().toString(16).toUpperCase());
+            certificate.put("encrypt_certificate", encrypt);
+            JSONArray data = new JSONArray();
+            data.add(certificate);
+            JSONObject json = new JSONObject();
+            json.put("data", data);
+            return json.toJSONString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    private static String sign(String message) {
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(platformKey.getPrivate());
+            signature.update(message.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PublicKey publicKey(PrivateKey privateKey) throws GeneralSecurityException {
+        RSAPrivateCrtKey key = (RSAPrivateCrtKey) privateKey;
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(key.getModulus(), key.getPublicExponent()));
+    }
+
+    private static KeyPair keyPair() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static X509Certificate certificate(KeyPair keyPair) throws Exception {
+        X500Name name = new X500Name("CN=Tenpay.com Root CA Test, O=Tenpay.com");
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                name, BigInteger.valueOf(now), new Date(now - 60000), new Date(now + 86400000L), name, keyPair.getPublic()
+        );
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate()))
+        );
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
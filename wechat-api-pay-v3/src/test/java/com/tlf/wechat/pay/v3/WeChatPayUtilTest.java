@@ -0,0 +1,105 @@
+package com.tlf.wechat.pay.v3;
+
+import com.tlf.wechat.http.UrlTemplate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class WeChatPayUtilTest {
+
+    private static final String V3_KEY = "0123456789abcdef0123456789ABCDEF";
+    private static final Pattern TOKEN_FIELD = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+
+    private static KeyPair keyPair;
+
+    @BeforeAll
+    static void generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+
+    @Test
+    void canonicalUrlMatchesParsedUrl() throws Exception {
+        UrlTemplate template = UrlTemplate.compile("https://api.mch.weixin.qq.com/v3/pay/transactions/out-trade-no/{out_trade_no}?mchid={mchid}");
+        String url = template.expand("A 001", "1900000001");
+        assertEquals(WeChatPayUtil.buildMessage("GET", new URL(url), 1554208460, "593BEC0C930BF1AFEB40B4A08C8FB242", ""),
+                WeChatPayUtil.buildMessage("GET", template.canonical(url), 1554208460, "593BEC0C930BF1AFEB40B4A08C8FB242", ""));
+        assertEquals("GET\n/v3/certificates\n1554208460\nnonce\n\n",
+                WeChatPayUtil.buildMessage("GET", UrlTemplate.canonicalOf("https://api.mch.weixin.qq.com/v3/certificates"), 1554208460, "nonce", ""));
+    }
+
+
+    @Test
+    void tokenSignatureVerifiesAgainstParsedUrl() throws Exception {
+        String url = "https://api.mch.weixin.qq.com/v3/pay/transactions/jsapi";
+        String body = "{\"appid\":\"wxd678efh567hg6787\",\"amount\":{\"total\":100}}";
+        String token = WeChatPayUtil.getToken("1900000001", "SERIAL", keyPair.getPrivate(), "POST", UrlTemplate.canonicalOf(url), body);
+
+        Map<String, String> fields = new HashMap<>();
+        Matcher matcher = TOKEN_FIELD.matcher(token);
+        while (matcher.find()) {
+            fields.put(matcher.group(1), matcher.group(2));
+        }
+        assertEquals("1900000001", fields.get("mchid"));
+        assertEquals("SERIAL", fields.get("serial_no"));
+        assertEquals(32, fields.get("nonce_str").length());
+
+        String message = WeChatPayUtil.buildMessage("POST", new URL(url), Long.parseLong(fields.get("timestamp")), fields.get("nonce_str"), body);
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(message.getBytes(StandardCharsets.UTF_8));
+        assertTrue(verifier.verify(Base64.getDecoder().decode(fields.get("signature"))));
+    }
+
+
+    @Test
+    void decryptsCallbackResource() throws Exception {
+        String plain = "{\"out_trade_no\":\"A001\",\"trade_state\":\"SUCCESS\"}";
+        String nonce = "fdasflkja484";
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(V3_KEY.getBytes(StandardCharsets.UTF_8), "AES"),
+                new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8)));
+        cipher.updateAAD("transaction".getBytes(StandardCharsets.UTF_8));
+        String ciphertext = Base64.getEncoder().encodeToString(cipher.doFinal(plain.getBytes(StandardCharsets.UTF_8)));
+
+        Map result = WeChatPayUtil.callbackDecryption("transaction", nonce, ciphertext, V3_KEY);
+        assertEquals("SUCCESS", result.get("trade_state"));
+        // 附加数据不一致时认证失败
+        WeChatPayAesUtil aes = new WeChatPayAesUtil(V3_KEY.getBytes(StandardCharsets.UTF_8));
+        assertThrows(GeneralSecurityException.class, () -> aes.decryptToString(
+                "certificate".getBytes(StandardCharsets.UTF_8), nonce.getBytes(StandardCharsets.UTF_8), ciphertext));
+        assertThrows(IllegalArgumentException.class, () -> new WeChatPayAesUtil(new byte[16]));
+    }
+
+
+    @Test
+    void convertsYuanToFen() {
+        assertEquals(12345, WeChatPayUtil.getMoney("￥123.45"));
+        assertEquals(1234500, WeChatPayUtil.getMoney("$12,345"));
+        assertEquals(1230, WeChatPayUtil.getMoney("12.3"));
+        assertEquals(1999, WeChatPayUtil.getMoney(new BigDecimal("19.99")));
+        assertEquals(0, WeChatPayUtil.getMoney((String) null));
+    }
+}
@@ -0,0 +1,268 @@
+package com.tlf.wechat.warmup;
+
+import com.tlf.wechat.http.HttpClientManager;
+import com.tlf.wechat.http.WeChatHosts;
+import com.tlf.wechat.http.concurrent.WeChatExecutors;
+import com.tlf.wechat.pay.v3.WeChatPayAesUtil;
+import com.tlf.wechat.pay.v3.WeChatPayConfig;
+import com.tlf.wechat.pay.v3.WeChatPayUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * 启动预热
+ * 发布后的首批请求要等待 DNS 解析、TCP 连接和 TLS 握手，首次签名还要加载加密算法实现，代码也还没有 JIT 编译。
+ * 预热依次完成：
+ * <ol>
+ * <li>预先解析微信域名并缓存（CachingDnsResolver）</li>
+ * <li>在连接池中预先建立连接</li>
+ * <li>使用商户私钥和 APIv3 密钥执行签名、验签、AES-GCM 解密</li>
+ * </ol>
+ * 应用启动时调用 start，就绪探针（readiness probe）通过 isWarm 判断是否可以接收流量：
+ * <pre>
+ * Warmup.start(warmupConfig);
+ * // readiness
+ * return Warmup.isWarm();
+ * </pre>
+ * 预热失败（如某个域名无法连接）不会抛出异常，记录在 WarmupReport 中，需要时由 getReport().isSuccess() 判断
+ */
+public class Warmup {
+    private static final Logger log = LoggerFactory.getLogger(Warmup.class);
+
+    private static final String WARMUP_URL = "/v3/pay/transactions/jsapi";
+    private static final String WARMUP_BODY = "{\"appid\":\"wx0000000000000000\",\"mchid\":\"1900000000\","
+            + "\"description\":\"warmup\",\"out_trade_no\":\"WARMUP0000000000000000\","
+            + "\"notify_url\":\"https://example.com/notify\",\"amount\":{\"total\":1,\"currency\":\"CNY\"},"
+            + "\"payer\":{\"openid\":\"o0000000000000000000000000000\"}}";
+
+    private static volatile CompletableFuture<WarmupReport> current;
+
+
+    /**
+     * 在后台开始预热
+     *
+     * @param config
+     * @return 预热完成时结束
+     */
+    public static CompletableFuture<WarmupReport> start(WarmupConfig config) {
+        CompletableFuture<WarmupReport> future = WeChatExecutors.submit(() -> execute(config));
+        current = future;
+        return future;
+    }
+
+
+    /**
+     * 在调用线程中预热，完成后返回
+     *
+     * @param config
+     * @return
+     */
+    public static WarmupReport run(WarmupConfig config) {
+        WarmupReport report = execute(config);
+        current = CompletableFuture.completedFuture(report);
+        return report;
+    }
+
+
+    /**
+     * 预热是否已完成，未开始预热时为 false
+     *
+     * @return
+     */
+    public static boolean isWarm() {
+        CompletableFuture<WarmupReport> future = current;
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+
+    /**
+     * 最近一次预热的结果，未完成时为空
+     *
+     * @return
+     */
+    public static WarmupReport getReport() {
+        CompletableFuture<WarmupReport> future = current;
+        return isWarm() ? future.join() : null;
+    }
+
+
+    private static WarmupReport execute(WarmupConfig config) {
+        WarmupReport report = new WarmupReport();
+        resolve(config, report);
+        connect(config, report);
+        crypto(config, report);
+        report.finish();
+        if (report.isSuccess()) {
+            log.info("预热完成：{}", report);
+        } else {
+            log.warn("预热完成，部分失败：{}", report);
+        }
+        return report;
+    }
+
+
+    private static void resolve(WarmupConfig config, WarmupReport report) {
+        long start = System.currentTimeMillis();
+        Set<String> hosts = new LinkedHashSet<>();
+        for (String origin : config.getOrigins()) {
+            hosts.add(URI.create(WeChatHosts.resolve(origin)).getHost());
+        }
+        for (String host : hosts) {
+            try {
+                List<String> resolved = new ArrayList<>();
+                for (InetAddress address : HttpClientManager.getDnsResolver().resolve(host)) {
+                    resolved.add(address.getHostAddress());
+                }
+                report.addAddresses(host, resolved);
+            } catch (Exception e) {
+                log.warn("预热域名解析失败：{}", host, e);
+                report.addError("dns " + host + ": " + e);
+            }
+        }
+        report.setDnsMillis(System.currentTimeMillis() - start);
+    }
+
+
+    private static void connect(WarmupConfig config, WarmupReport report) {
+        if (config.getConnectionsPerHost() <= 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        for (String configured : config.getOrigins()) {
+            String origin = WeChatHosts.resolve(configured);
+            try {
+                report.addConnections(origin, HttpClientManager.prewarm(origin, config.getConnectionsPerHost()));
+            } catch (Exception e) {
+                log.warn("预热连接失败：{}", origin, e);
+                report.addError("connect " + origin + ": " + e);
+            }
+        }
+        report.setConnectMillis(System.currentTimeMillis() - start);
+    }
+
+
+    private static void crypto(WarmupConfig config, WarmupReport report) {
+        if (config.getCryptoIterations() <= 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int operations = 0;
+        List<WeChatPayConfig> payConfigs = config.getPayConfigs();
+        try {
+            if (payConfigs == null || payConfigs.isEmpty()) {
+                // 没有商户配置时使用临时密钥，同样可以加载算法实现并触发 JIT 编译
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                KeyPair keyPair = generator.generateKeyPair();
+                byte[] aesKey = new byte[32];
+                new SecureRandom().nextBytes(aesKey);
+                operations += crypto("1900000000", "WARMUP", keyPair.getPrivate(), keyPair.getPublic(), aesKey,
+                        config.getCryptoIterations());
+            } else {
+                for (WeChatPayConfig pay : payConfigs) {
+                    PrivateKey privateKey = pay.getPrivateKey();
+                    byte[] aesKey = pay.getV3Key() == null ? null : pay.getV3Key().getBytes(StandardCharsets.UTF_8);
+                    operations += crypto(pay.getMchId(), pay.getMchSerialNo(), privateKey, publicKey(privateKey), aesKey,
+                            config.getCryptoIterations());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("预热加密算法失败", e);
+            report.addError("crypto: " + e);
+        }
+        report.setCrypto(System.currentTimeMillis() - start, operations);
+    }
+
+
+    /**
+     * 签名（getToken，与请求时的路径一致）、验签、回调解密各执行 iterations 次
+     *
+     * @return 执行的操作次数
+     */
+    private static int crypto(
+            String mchId,
+            String mchSerialNo,
+            PrivateKey privateKey,
+            PublicKey publicKey,
+            byte[] aesKey,
+            int iterations
+    ) throws Exception {
+        int operations = 0;
+        byte[] message = WARMUP_BODY.getBytes(StandardCharsets.UTF_8);
+        String signature = null;
+        if (privateKey != null) {
+            for (int i = 0; i < iterations; i++) {
+                WeChatPayUtil.getToken(mchId, mchSerialNo, privateKey, "POST", WARMUP_URL, WARMUP_BODY);
+            }
+            operations += iterations;
+            signature = WeChatPayUtil.sign(message, privateKey);
+        }
+        if (publicKey != null && signature != null) {
+            byte[] signatureBytes = Base64.getDecoder().decode(signature);
+            for (int i = 0; i < iterations; i++) {
+                Signature verifier = Signature.getInstance("SHA256withRSA");
+                verifier.initVerify(publicKey);
+                verifier.update(message);
+                if (!verifier.verify(signatureBytes)) {
+                    throw new IllegalStateException("商户私钥验签失败：" + mchId);
+                }
+            }
+            operations += iterations;
+        }
+        if (aesKey != null) {
+            byte[] associatedData = "transaction".getBytes(StandardCharsets.UTF_8);
+            byte[] nonce = "0123456789ab".getBytes(StandardCharsets.UTF_8);
+            String ciphertext = encrypt(aesKey, associatedData, nonce, message);
+            WeChatPayAesUtil aesUtil = new WeChatPayAesUtil(aesKey);
+            for (int i = 0; i < iterations; i++) {
+                aesUtil.decryptToString(associatedData, nonce, ciphertext);
+            }
+            operations += iterations;
+        }
+        return operations;
+    }
+
+
+    /**
+     * 由 RSA 私钥得到公钥，用商户自己的密钥对完成验签；不是 CRT 格式的私钥时为空，跳过验签
+     */
+    private static PublicKey publicKey(PrivateKey privateKey) throws Exception {
+        if (!(privateKey instanceof RSAPrivateCrtKey)) {
+            return null;
+        }
+        RSAPrivateCrtKey key = (RSAPrivateCrtKey) privateKey;
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(key.getModulus(), key.getPublicExponent()));
+    }
+
+
+    private static String encrypt(byte[] aesKey, byte[] associatedData, byte[] nonce, byte[] plaintext) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(aesKey, "AES"), new GCMParameterSpec(128, nonce));
+        cipher.updateAAD(associatedData);
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plaintext));
+    }
+
+}
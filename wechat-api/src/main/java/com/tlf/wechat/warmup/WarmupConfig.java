@@ -0,0 +1,69 @@
+package com.tlf.wechat.warmup;
+
+import com.tlf.wechat.pay.v3.WeChatPayConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 预热配置
+ */
+public class WarmupConfig {
+    /**
+     * 需要预先解析域名和建立连接的地址（scheme://host[:port]）
+     */
+    private List<String> origins = new ArrayList<>(Arrays.asList(
+            "https://api.weixin.qq.com",
+            "https://api.mch.weixin.qq.com"
+    ));
+
+    /**
+     * 每个地址预先建立的连接数，不超过连接池每个 host 的最大连接数，0 时只解析域名
+     */
+    private int connectionsPerHost = 2;
+
+    /**
+     * 签名、验签、AES-GCM 解密各执行的次数，用于加载加密算法实现并触发 JIT 编译，0 时跳过
+     */
+    private int cryptoIterations = 200;
+
+    /**
+     * 使用这些商户的私钥和 APIv3 密钥预热，为空时使用临时生成的密钥
+     */
+    private List<WeChatPayConfig> payConfigs = new ArrayList<>();
+
+
+    public List<String> getOrigins() {
+        return origins;
+    }
+
+    public void setOrigins(List<String> origins) {
+        this.origins = origins;
+    }
+
+    public int getConnectionsPerHost() {
+        return connectionsPerHost;
+    }
+
+    public void setConnectionsPerHost(int connectionsPerHost) {
+        this.connectionsPerHost = connectionsPerHost;
+    }
+
+    public int getCryptoIterations() {
+        return cryptoIterations;
+    }
+
+    public void setCryptoIterations(int cryptoIterations) {
+        this.cryptoIterations = cryptoIterations;
+    }
+
+    public List<WeChatPayConfig> getPayConfigs() {
+        return payConfigs;
+    }
+
+    public void setPayConfigs(List<WeChatPayConfig> payConfigs) {
+        this.payConfigs = payConfigs;
+    }
+
+}
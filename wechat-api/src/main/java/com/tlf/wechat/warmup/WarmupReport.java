@@ -0,0 +1,150 @@
+package com.tlf.wechat.warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * 预热结果：各阶段耗时、解析到的地址、建立的连接数和失败信息
+ */
+public class WarmupReport {
+
+    private final long startTime = System.currentTimeMillis();
+    private volatile long endTime;
+
+    private long dnsMillis;
+    private long connectMillis;
+    private long cryptoMillis;
+    private int cryptoOperations;
+
+    private final Map<String, List<String>> addresses = new LinkedHashMap<>();
+    private final Map<String, Integer> connections = new LinkedHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+
+
+    void addAddresses(String host, List<String> resolved) {
+        addresses.put(host, resolved);
+    }
+
+    void addConnections(String origin, int count) {
+        connections.put(origin, count);
+    }
+
+    void addError(String error) {
+        errors.add(error);
+    }
+
+    void setDnsMillis(long dnsMillis) {
+        this.dnsMillis = dnsMillis;
+    }
+
+    void setConnectMillis(long connectMillis) {
+        this.connectMillis = connectMillis;
+    }
+
+    void setCrypto(long cryptoMillis, int cryptoOperations) {
+        this.cryptoMillis = cryptoMillis;
+        this.cryptoOperations = cryptoOperations;
+    }
+
+    void finish() {
+        endTime = System.currentTimeMillis();
+    }
+
+
+    /**
+     * 是否已完成
+     *
+     * @return
+     */
+    public boolean isFinished() {
+        return endTime > 0;
+    }
+
+    /**
+     * 已完成且没有失败
+     *
+     * @return
+     */
+    public boolean isSuccess() {
+        return isFinished() && errors.isEmpty();
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * 总耗时（毫秒），未完成时为 0
+     *
+     * @return
+     */
+    public long getDurationMillis() {
+        return isFinished() ? endTime - startTime : 0;
+    }
+
+    public long getDnsMillis() {
+        return dnsMillis;
+    }
+
+    public long getConnectMillis() {
+        return connectMillis;
+    }
+
+    public long getCryptoMillis() {
+        return cryptoMillis;
+    }
+
+    /**
+     * 执行的签名、验签、解密次数之和
+     *
+     * @return
+     */
+    public int getCryptoOperations() {
+        return cryptoOperations;
+    }
+
+    /**
+     * 域名 -> 解析到的 IP
+     *
+     * @return
+     */
+    public Map<String, List<String>> getAddresses() {
+        return Collections.unmodifiableMap(addresses);
+    }
+
+    /**
+     * 地址 -> 连接池中可用的连接数
+     *
+     * @return
+     */
+    public Map<String, Integer> getConnections() {
+        return Collections.unmodifiableMap(connections);
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+
+    @Override
+    public String toString() {
+        return "WarmupReport{" +
+                "durationMillis=" + getDurationMillis() +
+                ", dnsMillis=" + dnsMillis +
+                ", connectMillis=" + connectMillis +
+                ", cryptoMillis=" + cryptoMillis +
+                ", cryptoOperations=" + cryptoOperations +
+                ", addresses=" + addresses +
+                ", connections=" + connections +
+                ", errors=" + errors +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+package com.tlf.wechat.warmup;
+
+import com.sun.net.httpserver.HttpServer;
+import com.tlf.wechat.http.HttpClientManager;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class WarmupTest {
+
+    private static HttpServer server;
+    private static String origin;
+
+    @BeforeAll
+    static void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "{\"errcode\":0}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        origin = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+
+    @Test
+    void prewarmedConnectionsAreReusedByRequests() throws Exception {
+        WarmupConfig config = new WarmupConfig();
+        config.setOrigins(Collections.singletonList(origin));
+        config.setConnectionsPerHost(3);
+        config.setCryptoIterations(5);
+
+        WarmupReport report = Warmup.start(config).get(30, TimeUnit.SECONDS);
+        assertTrue(report.isSuccess(), String.valueOf(report.getErrors()));
+        assertTrue(Warmup.isWarm());
+        assertEquals(Collections.singletonList("127.0.0.1"), report.getAddresses().get("127.0.0.1"));
+        assertEquals(3, report.getConnections().get(origin).intValue());
+        // 签名、验签、解密各 5 次
+        assertEquals(15, report.getCryptoOperations());
+
+        int available = HttpClientManager.getTotalStats().getAvailable();
+        assertTrue(available >= 3, "available " + available);
+        try (CloseableHttpResponse response = HttpClientManager.getClient().execute(new HttpGet(origin + "/cgi-bin/token"))) {
+            assertEquals("{\"errcode\":0}", EntityUtils.toString(response.getEntity()));
+        }
+        // 请求使用了预先建立的连接，没有新建
+        assertEquals(available, HttpClientManager.getTotalStats().getAvailable());
+    }
+
+
+    @Test
+    void unreachableOriginIsReportedNotThrown() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        WarmupConfig config = new WarmupConfig();
+        config.setOrigins(Collections.singletonList("http://127.0.0.1:" + closedPort));
+        config.setConnectionsPerHost(1);
+        config.setCryptoIterations(0);
+
+        WarmupReport report = Warmup.run(config);
+        assertTrue(report.isFinished());
+        assertFalse(report.isSuccess());
+        assertEquals(1, report.getErrors().size());
+        assertTrue(report.getErrors().get(0).startsWith("connect "));
+        assertTrue(Warmup.isWarm());
+    }
+}